@@ -45,6 +45,8 @@ public class FST {
 	byte[] bytes;
 	int[] mapping;
 	ArrayList<String> strings = new ArrayList<String>();
+	// the encoding of the strings in the file
+	String encoding;
 
 	public FST(String fileName) throws IOException {
 		FileInputStream fis = new FileInputStream(fileName);
@@ -233,6 +235,7 @@ public class FST {
 	}
 
 	private void createMapping(int[] mapping, byte[] bytes, String encoding) throws UnsupportedEncodingException {
+		this.encoding = encoding != null ? encoding : Charset.defaultCharset().name();
 		mapping[0] = 0;
 		int last0 = -1;
 		int len;
@@ -45,6 +45,7 @@ public class FSTLookup {
 	// //////////////////// An individual FSTLookup class //////////////
 
 	private FST fst;
+	private MappedFST mappedFst;
 
 	/**
 	 * Initialise the finite state transducer lookup. This constructor will assume that the file contains a header indicating the
@@ -80,14 +81,45 @@ public class FSTLookup {
 	}
 
 	private void init(InputStream inStream, String identifier) throws IOException {
-		fst = knownFSTs.get(identifier);
+		fst = getKnownFST(identifier);
 		if (fst == null) {
-			fst = new FST(inStream);
-			knownFSTs.put(identifier, fst);
+			fst = putKnownFST(identifier, new FST(inStream));
 		}
 
 	}
 
+	/*
+	 * Modules are created in parallel at startup. Transducers are not loaded under the lock, so that different ones can be
+	 * loaded at the same time; if two threads load the same transducer, the first one wins.
+	 */
+
+	private static FST getKnownFST(String key) {
+		synchronized (knownFSTs) {
+			return knownFSTs.get(key);
+		}
+	}
+
+	private static FST putKnownFST(String key, FST fst) {
+		synchronized (knownFSTs) {
+			FST known = knownFSTs.get(key);
+			if (known != null) {
+				return known;
+			}
+			knownFSTs.put(key, fst);
+			return fst;
+		}
+	}
+
+	/**
+	 * Initialise the finite state transducer lookup with a memory-mapped transducer.
+	 * 
+	 * @param mappedFst
+	 *            the transducer
+	 */
+	public FSTLookup(MappedFST mappedFst) {
+		this.mappedFst = mappedFst;
+	}
+
 	/**
 	 * Initialise the finite state transducer lookup. This is a constructor for legacy headerless FST files.
 	 * 
@@ -129,10 +161,9 @@ public class FSTLookup {
 
 	private void init(InputStream inStream, String identifier, String encoding) throws IOException, UnsupportedEncodingException {
 		String key = identifier + " " + encoding;
-		fst = knownFSTs.get(key);
+		fst = getKnownFST(key);
 		if (fst == null) {
-			fst = new FST(inStream, encoding);
-			knownFSTs.put(key, fst);
+			fst = putKnownFST(key, new FST(inStream, encoding));
 		}
 	}
 
@@ -158,6 +189,9 @@ public class FSTLookup {
 	 * @return a string array containing all expansions of word. If no expansion is found, an array of length 0 is returned.
 	 */
 	public String[] lookup(String word, boolean generate) {
+		if (mappedFst != null) {
+			return mappedFst.lookup(word, generate);
+		}
 		StringBuilder buffer2 = new StringBuilder();
 		List<String> results = new ArrayList<String>();
 
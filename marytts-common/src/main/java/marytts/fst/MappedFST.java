@@ -0,0 +1,282 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.fst;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A finite state transducer that is looked up directly in a memory-mapped file. Nothing is copied into the heap when the file
+ * is opened, so that loading takes no time, and JVMs on the same host share the transducer through the page cache. The input
+ * word is encoded once per lookup and matched against the label bytes in the file; output strings are only decoded for the
+ * results.
+ * <p>
+ * The file format is written by {@link #convert(FST, String)} from a transducer in the format read by {@link FST}. All numbers
+ * are big-endian ints, aligned to four bytes:
+ * </p>
+ * <ul>
+ * <li>magic number "MFST", format version</li>
+ * <li>length of the encoding name, the encoding name in UTF-8, padded to four bytes</li>
+ * <li>number of arcs, the arcs packed as in {@link FST} (target in bits 0-19, label in bits 20-30, "last arc" in bit 31)</li>
+ * <li>number of labels, for each label the start and length of its input string and of its output string</li>
+ * <li>number of string bytes, the strings in the given encoding</li>
+ * </ul>
+ */
+public class MappedFST {
+	public static final int MAGIC = 0x4D465354; // "MFST"
+	public static final int VERSION = 1;
+
+	private final MappedByteBuffer buffer;
+	private final Charset charset;
+	private final int numArcs;
+	private final int numLabels;
+	// byte positions of the sections in the buffer
+	private final int arcsStart;
+	private final int labelsStart;
+	private final int stringsStart;
+
+	/**
+	 * Map a transducer file written by {@link #convert(FST, String)}.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @throws IOException
+	 *             if the file cannot be mapped or is not in the expected format
+	 */
+	public MappedFST(String fileName) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Transducer file too large: " + fileName);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close(); // the mapping stays valid
+		}
+		try {
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a mapped transducer file: " + fileName);
+			}
+			int encLen = buffer.getInt(8);
+			byte[] encBytes = new byte[encLen];
+			for (int i = 0; i < encLen; i++) {
+				encBytes[i] = buffer.get(12 + i);
+			}
+			String encoding = new String(encBytes, "UTF-8");
+			if (!Charset.isSupported(encoding)) {
+				throw new IOException("Encoding of transducer file not supported: " + encoding);
+			}
+			charset = Charset.forName(encoding);
+			int pos = 12 + pad(encLen);
+			numArcs = buffer.getInt(pos);
+			arcsStart = pos + 4;
+			pos = arcsStart + 4 * numArcs;
+			numLabels = buffer.getInt(pos);
+			labelsStart = pos + 4;
+			pos = labelsStart + 16 * numLabels;
+			int numBytes = buffer.getInt(pos);
+			stringsStart = pos + 4;
+			if (stringsStart + numBytes != buffer.capacity()) {
+				throw new IOException("Transducer file has wrong size: " + fileName);
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Transducer file is truncated: " + fileName, e);
+		}
+	}
+
+	private static int pad(int len) {
+		return (len + 3) & ~3;
+	}
+
+	public int getNumberOfArcs() {
+		return numArcs;
+	}
+
+	public int getNumberOfLabels() {
+		return numLabels;
+	}
+
+	/**
+	 * Look up a word in the FST. This method is thread-safe.
+	 *
+	 * @param word
+	 *            the word to look up.
+	 * @param generate
+	 *            whether the FST is to run in inverse direction, i.e. generating the original form from the expanded form.
+	 * @return a string array containing all expansions of word. If no expansion is found, an array of length 0 is returned.
+	 */
+	public String[] lookup(String word, boolean generate) {
+		if (!charset.newEncoder().canEncode(word)) {
+			// no label can contain the characters that cannot be encoded
+			return new String[0];
+		}
+		List<String> results = new ArrayList<String>();
+		lookup(word.getBytes(charset), 0, 0, generate ? 2 : 0, new Output(), results);
+		return results.toArray(new String[results.size()]);
+	}
+
+	/**
+	 * The same search as in FSTLookup, on bytes instead of strings. side is 0 to read the labels' input strings as input, 2 to
+	 * read their output strings as input.
+	 */
+	private void lookup(byte[] word, int offset1, int arc, int side, Output output, List<String> results) {
+		int packed;
+		do {
+			packed = buffer.getInt(arcsStart + 4 * arc);
+			int label = (packed >> 20) & 2047;
+			if (label == 0) {
+				if (offset1 == word.length) {
+					results.add(new String(output.bytes, 0, output.length, charset));
+				}
+			} else {
+				int entry = labelsStart + 16 * label;
+				int inStart = buffer.getInt(entry + 4 * side);
+				int inLength = buffer.getInt(entry + 4 * side + 4);
+				if (startsWith(word, offset1, inStart, inLength)) {
+					int offset2 = output.length;
+					output.append(buffer, stringsStart + buffer.getInt(entry + 8 - 4 * side),
+							buffer.getInt(entry + 12 - 4 * side));
+					lookup(word, offset1 + inLength, packed & 1048575, side, output, results);
+					output.length = offset2;
+				}
+			}
+			arc++;
+		} while (packed >= 0); // bit 31 marks the last arc of a state
+	}
+
+	private boolean startsWith(byte[] word, int offset, int start, int length) {
+		if (offset + length > word.length) {
+			return false;
+		}
+		int pos = stringsStart + start;
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(pos + i) != word[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The output bytes of the current path.
+	 */
+	private static final class Output {
+		byte[] bytes = new byte[64];
+		int length;
+
+		void append(MappedByteBuffer buffer, int pos, int len) {
+			if (length + len > bytes.length) {
+				byte[] newBytes = new byte[Math.max(2 * bytes.length, length + len)];
+				System.arraycopy(bytes, 0, newBytes, 0, length);
+				bytes = newBytes;
+			}
+			for (int i = 0; i < len; i++) {
+				bytes[length++] = buffer.get(pos + i);
+			}
+		}
+	}
+
+	/**
+	 * Write a transducer in the format read by this class.
+	 *
+	 * @param fst
+	 *            the transducer, loaded from the existing file format
+	 * @param fileName
+	 *            the name of the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void convert(FST fst, String fileName) throws IOException {
+		Charset charset = Charset.forName(fst.encoding);
+		int numLabels = fst.offsets.length / 2;
+		byte[][] strings = new byte[2 * numLabels][];
+		int numBytes = 0;
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = fst.strings.get(fst.mapping[fst.offsets[i]]).getBytes(charset);
+			numBytes += strings[i].length;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			byte[] encBytes = charset.name().getBytes("UTF-8");
+			out.writeInt(encBytes.length);
+			out.write(encBytes);
+			for (int i = encBytes.length; i < pad(encBytes.length); i++) {
+				out.writeByte(0);
+			}
+			out.writeInt(fst.targets.length);
+			for (int i = 0; i < fst.targets.length; i++) {
+				out.writeInt(fst.targets[i] | fst.labels[i] << 20 | (fst.isLast[i] ? 1 << 31 : 0));
+			}
+			out.writeInt(numLabels);
+			int start = 0;
+			for (byte[] s : strings) {
+				out.writeInt(start);
+				out.writeInt(s.length);
+				start += s.length;
+			}
+			out.writeInt(numBytes);
+			for (byte[] s : strings) {
+				out.write(s);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Convert a transducer file from the existing format into the mapped format.
+	 *
+	 * @param args
+	 *            input file, output file, and for legacy files without header the encoding of the input file
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java marytts.fst.MappedFST in.fst out.mfst [encoding-of-headerless-file]");
+			System.exit(-1);
+		}
+		InputStream in = new FileInputStream(args[0]);
+		FST fst;
+		try {
+			fst = args.length > 2 ? new FST(in, args[2]) : new FST(in);
+		} finally {
+			in.close();
+		}
+		convert(fst, args[1]);
+		MappedFST mapped = new MappedFST(args[1]);
+		System.err.println("Wrote " + args[1] + " (" + mapped.getNumberOfArcs() + " arcs, " + mapped.getNumberOfLabels()
+				+ " labels)");
+	}
+}
@@ -78,7 +78,7 @@ public class AllophoneSet {
 	 *            the identifier of the allophone set to test.
 	 * @return true if the registry already contains the given allophone set, false otherwise.
 	 */
-	public static boolean hasAllophoneSet(String identifier) {
+	public static synchronized boolean hasAllophoneSet(String identifier) {
 		return allophoneSets.containsKey(identifier);
 	}
 
@@ -90,7 +90,7 @@ public class AllophoneSet {
 	 *            the identifier of the allophone set
 	 * @return the allophone set if available, null otherwise.
 	 */
-	public static AllophoneSet getAllophoneSetById(String identifier) {
+	public static synchronized AllophoneSet getAllophoneSetById(String identifier) {
 		return allophoneSets.get(identifier);
 	}
 
@@ -107,7 +107,7 @@ public class AllophoneSet {
 	 *             if no allophone set can be loaded from the given file.
 	 */
 
-	public static AllophoneSet getAllophoneSet(InputStream inStream, String identifier) throws MaryConfigurationException {
+	public static synchronized AllophoneSet getAllophoneSet(InputStream inStream, String identifier) throws MaryConfigurationException {
 		AllophoneSet as = allophoneSets.get(identifier);
 		if (as == null) {
 			// Need to load it:
@@ -0,0 +1,318 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.dom;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Reads and writes DOM documents with a streaming (StAX) parser and writer, for XML that is passed around inside the system,
+ * such as MaryXML kept in the cache. Writing is several times faster than with {@link MaryNormalisedWriter}, reading about as
+ * fast as {@link DomUtils#parseDocument(InputStream)}, and a document read back is identical to the one written: text nodes
+ * are written as they are rather than normalised, and no whitespace is added between the tags.
+ * <p>
+ * Use {@link MaryNormalisedWriter} for XML that is shown to users, and {@link DomUtils#parseDocument(InputStream, boolean)}
+ * for XML from outside, which may need its DTD or a Schema: {@link #read(InputStream)} neither validates nor processes DTDs.
+ * </p>
+ */
+public class DomStreamIO {
+	private static final ThreadLocal<XMLInputFactory> inputFactories = new ThreadLocal<XMLInputFactory>() {
+		@Override
+		protected XMLInputFactory initialValue() {
+			XMLInputFactory f = XMLInputFactory.newInstance();
+			f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			return f;
+		}
+	};
+
+	private static final ThreadLocal<XMLOutputFactory> outputFactories = new ThreadLocal<XMLOutputFactory>() {
+		@Override
+		protected XMLOutputFactory initialValue() {
+			return XMLOutputFactory.newInstance();
+		}
+	};
+
+	private static DOMImplementation domImplementation;
+
+	private DomStreamIO() {
+	}
+
+	/**
+	 * Write a DOM document to a stream, in UTF-8.
+	 * 
+	 * @param document
+	 *            the document to write
+	 * @param os
+	 *            the stream to write to; it is flushed, but not closed.
+	 * @throws XMLStreamException
+	 *             if the document cannot be written
+	 */
+	public static void write(Document document, OutputStream os) throws XMLStreamException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 8192);
+		XMLStreamWriter w = outputFactories.get().createXMLStreamWriter(out);
+		w.writeStartDocument("UTF-8", "1.0");
+		new NamespaceWriter(w).writeChildren(document);
+		w.writeEndDocument();
+		w.close();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Read a DOM document from a stream, as written by {@link #write(Document, OutputStream)}. Any well-formed XML without a DTD
+	 * can be read.
+	 * 
+	 * @param is
+	 *            the stream to read from, which is not closed.
+	 * @return the document
+	 * @throws XMLStreamException
+	 *             if the stream does not contain well-formed XML
+	 */
+	public static Document read(InputStream is) throws XMLStreamException {
+		XMLStreamReader r = inputFactories.get().createXMLStreamReader(is);
+		try {
+			Document doc = getDOMImplementation().createDocument(null, null, null);
+			// the names come from a namespace-aware parser, they need not be checked again
+			doc.setStrictErrorChecking(false);
+			Node parent = doc;
+			while (r.hasNext()) {
+				switch (r.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					Element e = doc.createElementNS(emptyToNull(r.getNamespaceURI()), qualifiedName(r.getPrefix(), r.getLocalName()));
+					for (int i = 0, n = r.getNamespaceCount(); i < n; i++) {
+						String prefix = r.getNamespacePrefix(i);
+						e.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+								qualifiedName(XMLConstants.XMLNS_ATTRIBUTE, emptyToNull(prefix)), r.getNamespaceURI(i));
+					}
+					for (int i = 0, n = r.getAttributeCount(); i < n; i++) {
+						e.setAttributeNS(emptyToNull(r.getAttributeNamespace(i)),
+								qualifiedName(r.getAttributePrefix(i), r.getAttributeLocalName(i)), r.getAttributeValue(i));
+					}
+					parent.appendChild(e);
+					parent = e;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					parent = parent.getParentNode();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (parent != doc) { // whitespace around the document element
+						parent.appendChild(doc.createTextNode(r.getText()));
+					}
+					break;
+				case XMLStreamConstants.COMMENT:
+					parent.appendChild(doc.createComment(r.getText()));
+					break;
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+					parent.appendChild(doc.createProcessingInstruction(r.getPITarget(), r.getPIData()));
+					break;
+				default:
+					break;
+				}
+			}
+			doc.setStrictErrorChecking(true);
+			return doc;
+		} finally {
+			r.close();
+		}
+	}
+
+	private static synchronized DOMImplementation getDOMImplementation() throws XMLStreamException {
+		if (domImplementation == null) {
+			try {
+				domImplementation = DomUtils.factory.newDocumentBuilder().getDOMImplementation();
+			} catch (Exception e) {
+				throw new XMLStreamException("Cannot create DOM documents", e);
+			}
+		}
+		return domImplementation;
+	}
+
+	private static String emptyToNull(String s) {
+		return s == null || s.length() == 0 ? null : s;
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.length() == 0) {
+			return localName;
+		}
+		if (localName == null) {
+			return prefix;
+		}
+		return prefix + ":" + localName;
+	}
+
+	/**
+	 * Writes the elements of a DOM tree, keeping track of the namespace declarations in scope. Elements created with a namespace
+	 * but without an <code>xmlns</code> attribute, as in {@link DOMImplementation#createDocument(String, String,
+	 * org.w3c.dom.DocumentType)}, get the declaration they need.
+	 */
+	private static final class NamespaceWriter {
+		private final XMLStreamWriter w;
+		private String[] prefixes = new String[8];
+		private String[] uris = new String[8];
+		private int numBindings = 0;
+		private int generated = 0;
+
+		NamespaceWriter(XMLStreamWriter w) {
+			this.w = w;
+		}
+
+		void writeChildren(Node parent) throws XMLStreamException {
+			for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+				switch (n.getNodeType()) {
+				case Node.ELEMENT_NODE:
+					writeElement((Element) n);
+					break;
+				case Node.TEXT_NODE:
+					w.writeCharacters(n.getNodeValue());
+					break;
+				case Node.CDATA_SECTION_NODE:
+					w.writeCData(n.getNodeValue());
+					break;
+				case Node.COMMENT_NODE:
+					w.writeComment(n.getNodeValue());
+					break;
+				case Node.PROCESSING_INSTRUCTION_NODE:
+					ProcessingInstruction pi = (ProcessingInstruction) n;
+					w.writeProcessingInstruction(pi.getTarget(), pi.getData());
+					break;
+				case Node.ENTITY_REFERENCE_NODE:
+					writeChildren(n);
+					break;
+				default: // document type
+					break;
+				}
+			}
+		}
+
+		private void writeElement(Element e) throws XMLStreamException {
+			int outerBindings = numBindings;
+			String prefix = nullToEmpty(e.getPrefix());
+			String uri = nullToEmpty(e.getNamespaceURI());
+			w.writeStartElement(prefix, e.getLocalName() != null ? e.getLocalName() : e.getNodeName(), uri);
+			NamedNodeMap attributes = e.getAttributes();
+			int numAttributes = attributes.getLength();
+			// the declarations made in the document first, so that they are known when checking the names below
+			for (int i = 0; i < numAttributes; i++) {
+				String declared = declaredPrefix((Attr) attributes.item(i));
+				if (declared != null) {
+					declare(declared, attributes.item(i).getNodeValue());
+				}
+			}
+			if (!uri.equals(lookup(prefix))) {
+				declare(prefix, uri);
+			}
+			for (int i = 0; i < numAttributes; i++) {
+				Attr a = (Attr) attributes.item(i);
+				String attributeUri = a.getNamespaceURI();
+				if (declaredPrefix(a) != null) {
+					continue;
+				} else if (attributeUri == null || attributeUri.length() == 0) {
+					w.writeAttribute(a.getLocalName() != null ? a.getLocalName() : a.getName(), a.getValue());
+				} else {
+					String attributePrefix = a.getPrefix();
+					if (attributePrefix == null) {
+						attributePrefix = "ns" + (++generated);
+					}
+					if (!attributePrefix.equals(XMLConstants.XML_NS_PREFIX) && !attributeUri.equals(lookup(attributePrefix))) {
+						declare(attributePrefix, attributeUri);
+					}
+					w.writeAttribute(attributePrefix, attributeUri, a.getLocalName(), a.getValue());
+				}
+			}
+			writeChildren(e);
+			w.writeEndElement();
+			numBindings = outerBindings;
+		}
+
+		/**
+		 * @return the prefix declared by the given attribute ("" for the default namespace), or null if it is not a namespace
+		 *         declaration; both namespace-aware attributes and those created with {@link Element#setAttribute(String, String)}
+		 *         are recognised.
+		 */
+		private static String declaredPrefix(Attr a) {
+			String name = a.getName();
+			if (name.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+				return "";
+			} else if (name.startsWith("xmlns:")) {
+				return name.substring(6);
+			}
+			return null;
+		}
+
+		private void declare(String prefix, String uri) throws XMLStreamException {
+			if (prefix.length() == 0) {
+				w.writeDefaultNamespace(uri);
+			} else {
+				w.writeNamespace(prefix, uri);
+			}
+			if (numBindings == prefixes.length) {
+				prefixes = Arrays.copyOf(prefixes, 2 * numBindings);
+				uris = Arrays.copyOf(uris, 2 * numBindings);
+			}
+			prefixes[numBindings] = prefix;
+			uris[numBindings] = uri;
+			numBindings++;
+		}
+
+		private String lookup(String prefix) {
+			for (int i = numBindings - 1; i >= 0; i--) {
+				if (prefixes[i].equals(prefix)) {
+					return uris[i];
+				}
+			}
+			return prefix.length() == 0 ? "" : null;
+		}
+
+		private static String nullToEmpty(String s) {
+			return s == null ? "" : s;
+		}
+	}
+}
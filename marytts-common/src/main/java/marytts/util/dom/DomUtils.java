@@ -76,6 +76,34 @@ public class DomUtils {
 
 	protected static Logger logger = MaryUtils.getLogger("DomUtils");
 
+	/**
+	 * Per thread, a non-validating and a validating document builder which are reset and reused for every parse. A builder is
+	 * taken out of its slot while it is parsing, so that a parse started from within another one gets a builder of its own.
+	 */
+	private static final ThreadLocal<DocumentBuilder[]> builders = new ThreadLocal<DocumentBuilder[]>() {
+		@Override
+		protected DocumentBuilder[] initialValue() {
+			return new DocumentBuilder[2];
+		}
+	};
+
+	private static final ErrorHandler throwingErrorHandler = new ErrorHandler() {
+		public void error(SAXParseException e) throws SAXParseException {
+			throw e;
+		}
+
+		public void fatalError(SAXParseException e) throws SAXParseException {
+			throw e;
+		}
+
+		public void warning(SAXParseException e) throws SAXParseException {
+			throw e;
+		}
+	};
+
+	private static DOMImplementationLS domImplLS;
+	private static boolean domImplLSInitialised = false;
+
 	// Static constructor:
 	static {
 		factory = DocumentBuilderFactory.newInstance();
@@ -138,13 +166,17 @@ public class DomUtils {
 	 */
 	public static Document parseDocument(Reader inputData, boolean validating) throws ParserConfigurationException, SAXException,
 			IOException {
-		DocumentBuilder builder = createDocumentBuilder(validating);
-		/*
-		 * Set Entity resolver for APML and SABLE
-		 */
-		builder.setEntityResolver(new MaryEntityResolver());
+		DocumentBuilder builder = borrowDocumentBuilder(validating);
+		try {
+			/*
+			 * Set Entity resolver for APML and SABLE
+			 */
+			builder.setEntityResolver(new MaryEntityResolver());
 
-		return builder.parse(new InputSource(inputData));
+			return builder.parse(new InputSource(inputData));
+		} finally {
+			returnDocumentBuilder(builder, validating);
+		}
 	}
 
 	/**
@@ -184,8 +216,12 @@ public class DomUtils {
 	 */
 	public static Document parseDocument(InputStream is, boolean validating) throws ParserConfigurationException, SAXException,
 			IOException {
-		DocumentBuilder builder = createDocumentBuilder(validating);
-		return builder.parse(is);
+		DocumentBuilder builder = borrowDocumentBuilder(validating);
+		try {
+			return builder.parse(is);
+		} finally {
+			returnDocumentBuilder(builder, validating);
+		}
 	}
 
 	/**
@@ -205,25 +241,42 @@ public class DomUtils {
 			}
 			builder = validatingFactory.newDocumentBuilder();
 			assert builder.isValidating();
-			builder.setErrorHandler(new ErrorHandler() {
-				public void error(SAXParseException e) throws SAXParseException {
-					throw e;
-				}
-
-				public void fatalError(SAXParseException e) throws SAXParseException {
-					throw e;
-				}
-
-				public void warning(SAXParseException e) throws SAXParseException {
-					throw e;
-				}
-			});
+			builder.setErrorHandler(throwingErrorHandler);
 		} else {
 			builder = factory.newDocumentBuilder();
 		}
 		return builder;
 	}
 
+	/**
+	 * Take the current thread's document builder out of its slot, or create a new one if the slot is empty.
+	 * 
+	 * @param validating
+	 *            whether to get a validating builder
+	 * @return a builder to be given back with {@link #returnDocumentBuilder(DocumentBuilder, boolean)} after use
+	 * @throws ParserConfigurationException
+	 *             if no builder can be created
+	 */
+	private static DocumentBuilder borrowDocumentBuilder(boolean validating) throws ParserConfigurationException {
+		DocumentBuilder[] slots = builders.get();
+		int i = validating ? 1 : 0;
+		DocumentBuilder builder = slots[i];
+		if (builder == null) {
+			return createDocumentBuilder(validating);
+		}
+		slots[i] = null;
+		return builder;
+	}
+
+	private static void returnDocumentBuilder(DocumentBuilder builder, boolean validating) {
+		// reset() also drops the entity resolver, and the error handler, which a validating builder needs again
+		builder.reset();
+		if (validating) {
+			builder.setErrorHandler(throwingErrorHandler);
+		}
+		builders.get()[validating ? 1 : 0] = builder;
+	}
+
 	/**
 	 * DOM-parse the given input data. Namespace-aware but non-validating.
 	 * 
@@ -836,8 +889,7 @@ public class DomUtils {
 			// The MaryNormalisedWriter works also for non-maryxml documents
 			// and gives (because of XSLT) a more standardised form than
 			// an XMLSerializer does.
-			MaryNormalisedWriter mnw = new MaryNormalisedWriter();
-			mnw.output(doc, baos);
+			MaryNormalisedWriter.forCurrentThread().output(doc, baos);
 		} catch (Exception e1) {
 			return "";
 		}
@@ -899,15 +951,7 @@ public class DomUtils {
 	 */
 	public static void document2Stream(Document document, OutputStream target) throws MaryConfigurationException {
 		LSSerializer serializer = null;
-		DOMImplementationLS domImplLS = null;
-		try {
-			DOMImplementation implementation = DOMImplementationRegistry.newInstance().getDOMImplementation("XML 3.0");
-			if (implementation != null) {
-				domImplLS = (DOMImplementationLS) implementation.getFeature("LS", "3.0");
-			}
-		} catch (Exception iae) {
-			throw new MaryConfigurationException("Cannot access dom impl registry", iae);
-		}
+		DOMImplementationLS domImplLS = getDOMImplementationLS();
 		if (domImplLS != null) {
 			serializer = domImplLS.createLSSerializer();
 			DOMConfiguration config = serializer.getDomConfig();
@@ -924,15 +968,36 @@ public class DomUtils {
 			output.setByteStream(target);
 			serializer.write(document, output);
 		} else { // revert to older serialisation code
-			MaryNormalisedWriter mnw = new MaryNormalisedWriter();
 			try {
-				mnw.output(document, target);
+				MaryNormalisedWriter.forCurrentThread().output(document, target);
 			} catch (TransformerException te) {
 				throw new MaryConfigurationException("Problem writing document with legacy writer", te);
 			}
 		}
 	}
 
+	/**
+	 * Look up the DOM Level 3 load and save implementation once, rather than for every document written.
+	 * 
+	 * @return the implementation, or null if there is none
+	 * @throws MaryConfigurationException
+	 *             if the DOM implementation registry cannot be accessed
+	 */
+	private static synchronized DOMImplementationLS getDOMImplementationLS() throws MaryConfigurationException {
+		if (!domImplLSInitialised) {
+			try {
+				DOMImplementation implementation = DOMImplementationRegistry.newInstance().getDOMImplementation("XML 3.0");
+				if (implementation != null) {
+					domImplLS = (DOMImplementationLS) implementation.getFeature("LS", "3.0");
+				}
+			} catch (Exception iae) {
+				throw new MaryConfigurationException("Cannot access dom impl registry", iae);
+			}
+			domImplLSInitialised = true;
+		}
+		return domImplLS;
+	}
+
 	public static void replaceElement(Element oldElement, NodeList newNodes) {
 		Document doc = oldElement.getOwnerDocument();
 		Node parent = oldElement.getParentNode();
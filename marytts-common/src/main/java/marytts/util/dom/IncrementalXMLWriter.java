@@ -0,0 +1,218 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.dom;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.TransformerException;
+
+import marytts.exceptions.MaryConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Writes a DOM document piece by piece, while it is still being built, in the format of {@link MaryNormalisedWriter}. Each call
+ * to {@link #writeUntil(Node, Node)} writes everything in document order up to a given position: the start tags of elements
+ * that enclose the position, and all complete nodes before it. Complete nodes are removed from the document once they are
+ * written, so that the document does not grow while it is being streamed; the elements enclosing the position are kept until
+ * they are closed.
+ * <p>
+ * After the last call, {@link #finish()} writes the rest of the document and the end tags.
+ * </p>
+ */
+public class IncrementalXMLWriter {
+	private final Document doc;
+	private final OutputStream os;
+	private final Writer w;
+	private final MaryNormalisedWriter fragmentWriter;
+	// the elements whose start tags are written but whose end tags are not:
+	private final List<Element> open = new ArrayList<Element>();
+	// the next node to write, a child of the innermost open element (or the document element), or null after the last child:
+	private Node next;
+	private boolean started = false;
+
+	/**
+	 * @param doc
+	 *            the document to write
+	 * @param os
+	 *            the stream to write to, in UTF-8; it is flushed after each call, but not closed.
+	 * @throws MaryConfigurationException
+	 *             if the XML writing code cannot be initialised
+	 */
+	public IncrementalXMLWriter(Document doc, OutputStream os) throws MaryConfigurationException {
+		this.doc = doc;
+		this.os = os;
+		try {
+			this.w = new OutputStreamWriter(os, "UTF-8");
+		} catch (IOException e) {
+			throw new MaryConfigurationException("UTF-8 not supported", e);
+		}
+		this.fragmentWriter = new MaryNormalisedWriter();
+		this.next = doc.getDocumentElement();
+	}
+
+	/**
+	 * Write everything before the given position in the document.
+	 * 
+	 * @param parent
+	 *            the node containing the position; it must follow or enclose the position of the previous call
+	 * @param before
+	 *            the child of parent before which to stop, or null to write all of parent's children (but not its end tag)
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	public void writeUntil(Node parent, Node before) throws IOException {
+		if (!started) {
+			w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			started = true;
+		}
+		while (!(next == before && currentParent() == parent)) {
+			if (next == null) {
+				if (open.isEmpty()) {
+					break;
+				}
+				Element e = open.remove(open.size() - 1);
+				w.write("\n</" + e.getTagName() + ">");
+				next = e.getNextSibling();
+				release(e);
+			} else if (next.getNodeType() == Node.ELEMENT_NODE && encloses(next, parent)) {
+				Element e = (Element) next;
+				writeStartTag(e);
+				open.add(e);
+				next = e.getFirstChild();
+			} else {
+				Node n = next;
+				next = n.getNextSibling();
+				writeNode(n);
+				release(n);
+			}
+		}
+		w.flush();
+		os.flush();
+	}
+
+	/**
+	 * Write the rest of the document.
+	 * 
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	public void finish() throws IOException {
+		writeUntil(doc, null);
+		w.write("\n");
+		w.flush();
+		os.flush();
+	}
+
+	private Node currentParent() {
+		return open.isEmpty() ? doc : open.get(open.size() - 1);
+	}
+
+	private static boolean encloses(Node ancestor, Node n) {
+		for (Node a = n; a != null; a = a.getParentNode()) {
+			if (a == ancestor) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void release(Node n) {
+		if (n.getParentNode() != null) {
+			n.getParentNode().removeChild(n);
+		}
+	}
+
+	private void writeStartTag(Element e) throws IOException {
+		w.write("\n<" + e.getTagName());
+		NamedNodeMap attributes = e.getAttributes();
+		boolean hasXmlns = false;
+		for (int i = 0; i < attributes.getLength(); i++) {
+			Attr a = (Attr) attributes.item(i);
+			hasXmlns |= a.getName().equals("xmlns");
+			w.write(" " + a.getName() + "=\"" + escape(a.getValue(), true) + "\"");
+		}
+		// elements created with a namespace may lack the declaration attribute
+		String ns = e.getNamespaceURI();
+		if (ns != null && e.getPrefix() == null && !hasXmlns) {
+			Node parent = e.getParentNode();
+			if (parent == doc || !ns.equals(parent.getNamespaceURI())) {
+				w.write(" xmlns=\"" + escape(ns, true) + "\"");
+			}
+		}
+		w.write(">");
+	}
+
+	private void writeNode(Node n) throws IOException {
+		switch (n.getNodeType()) {
+		case Node.ELEMENT_NODE:
+			w.write("\n");
+			w.flush();
+			try {
+				fragmentWriter.outputFragment(n, os);
+			} catch (TransformerException e) {
+				throw new IOException("Cannot write " + n.getNodeName(), e);
+			}
+			break;
+		case Node.TEXT_NODE:
+		case Node.CDATA_SECTION_NODE:
+			// as in normalise-maryxml.xsl
+			String text = n.getNodeValue().trim().replaceAll("\\s+", " ");
+			if (text.length() > 0) {
+				w.write("\n" + escape(text, false) + "\n");
+			}
+			break;
+		default: // comments and processing instructions are not written by MaryNormalisedWriter either
+		}
+	}
+
+	private static String escape(String s, boolean attribute) {
+		StringBuilder buf = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				buf.append("&amp;");
+				break;
+			case '<':
+				buf.append("&lt;");
+				break;
+			case '>':
+				buf.append("&gt;");
+				break;
+			case '"':
+				buf.append(attribute ? "&quot;" : "\"");
+				break;
+			default:
+				buf.append(c);
+			}
+		}
+		return buf.toString();
+	}
+}
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Reader;
 
+import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
@@ -58,6 +59,8 @@ public class MaryNormalisedWriter {
 
 	private static Logger logger; // only used for extensive debug output
 
+	private static final ThreadLocal<MaryNormalisedWriter> perThread = new ThreadLocal<MaryNormalisedWriter>();
+
 	private Transformer transformer;
 
 	/**
@@ -79,6 +82,23 @@ public class MaryNormalisedWriter {
 
 	// Methods
 
+	/**
+	 * Get the writer for the current thread, which is created on first use and then reused, so that the stylesheet is not
+	 * instantiated again for every document.
+	 * 
+	 * @return the writer for the current thread
+	 * @throws MaryConfigurationException
+	 *             if the writer cannot be created
+	 */
+	public static MaryNormalisedWriter forCurrentThread() throws MaryConfigurationException {
+		MaryNormalisedWriter writer = perThread.get();
+		if (writer == null) {
+			writer = new MaryNormalisedWriter();
+			perThread.set(writer);
+		}
+		return writer;
+	}
+
 	/**
 	 * Start up the static parts, and compile the normalise-maryxml XSLT stylesheet which can then be used by multiple threads.
 	 * 
@@ -161,6 +181,25 @@ public class MaryNormalisedWriter {
 		output(new DOMSource(input), new StreamResult(destination));
 	}
 
+	/**
+	 * Output a DOM node to a specified destination without an XML declaration, as part of a larger document.
+	 * 
+	 * @param input
+	 *            input
+	 * @param destination
+	 *            destination
+	 * @throws TransformerException
+	 *             TransformerException
+	 */
+	public void outputFragment(Node input, OutputStream destination) throws TransformerException {
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		try {
+			output(input, destination);
+		} finally {
+			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+		}
+	}
+
 	/**
 	 * The simplest possible command line interface to the MaryNormalisedWriter. Reads a "real" XML document from stdin, and
 	 * outputs it in the MaryNormalised form to stdout.
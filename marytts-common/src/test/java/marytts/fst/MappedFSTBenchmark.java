@@ -0,0 +1,117 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.fst;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares loading and looking up a transducer from the existing file format with the memory-mapped format. All input words of
+ * the transducer are enumerated, looked up with both, and the results compared. Run with
+ * <code>java marytts.fst.MappedFSTBenchmark lexicon.fst [encoding-of-headerless-file]</code>
+ */
+public class MappedFSTBenchmark {
+
+	private static FST load(String fileName, String encoding) throws IOException {
+		InputStream in = new FileInputStream(fileName);
+		try {
+			return encoding != null ? new FST(in, encoding) : new FST(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Collect the input side of all paths to a final arc.
+	 */
+	private static void collectWords(FST fst, int arc, StringBuilder prefix, List<String> words) {
+		do {
+			int label = fst.labels[arc];
+			if (label == 0) {
+				words.add(prefix.toString());
+			} else {
+				int length = prefix.length();
+				prefix.append(fst.strings.get(fst.mapping[fst.offsets[2 * label]]));
+				collectWords(fst, fst.targets[arc], prefix, words);
+				prefix.setLength(length);
+			}
+		} while (!fst.isLast[arc++]);
+	}
+
+	private static double lookupsPerSecond(FSTLookup lookup, List<String> words, int rounds) {
+		long start = System.nanoTime();
+		int found = 0;
+		for (int r = 0; r < rounds; r++) {
+			for (String word : words) {
+				found += lookup.lookup(word).length;
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		if (found == 0) {
+			System.out.println("nothing found");
+		}
+		return (double) rounds * words.size() / nanos * 1e9;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String fileName = args[0];
+		String encoding = args.length > 1 ? args[1] : null;
+		File mappedFile = File.createTempFile("benchmark", ".mfst");
+		mappedFile.deleteOnExit();
+
+		FST fst = null;
+		MappedFST mapped = null;
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			fst = load(fileName, encoding);
+			long loaded = System.nanoTime();
+			MappedFST.convert(fst, mappedFile.getPath());
+			long converted = System.nanoTime();
+			mapped = new MappedFST(mappedFile.getPath());
+			long mappedTime = System.nanoTime();
+			System.out.printf("load %.2f ms, convert %.2f ms, map %.3f ms%n", (loaded - start) / 1e6, (converted - loaded) / 1e6,
+					(mappedTime - converted) / 1e6);
+		}
+		System.out.printf("%d arcs, %d bytes in the existing format, %d bytes mapped%n", fst.targets.length,
+				new File(fileName).length(), mappedFile.length());
+
+		List<String> words = new ArrayList<String>();
+		collectWords(fst, 0, new StringBuilder(), words);
+		FSTLookup heapLookup = encoding != null ? new FSTLookup(fileName, encoding) : new FSTLookup(fileName);
+		FSTLookup mappedLookup = new FSTLookup(mapped);
+		for (String word : words) {
+			if (!Arrays.equals(heapLookup.lookup(word), mappedLookup.lookup(word))) {
+				throw new AssertionError("Different results for '" + word + "'");
+			}
+		}
+		System.out.println(words.size() + " words, same results");
+
+		int rounds = Math.max(1, 2000000 / Math.max(1, words.size()));
+		for (int i = 0; i < 5; i++) {
+			System.out.printf("heap %.0f lookups/s, mapped %.0f lookups/s%n", lookupsPerSecond(heapLookup, words, rounds),
+					lookupsPerSecond(mappedLookup, words, rounds));
+		}
+	}
+}
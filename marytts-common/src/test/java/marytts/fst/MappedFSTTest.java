@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.fst;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class MappedFSTTest {
+	private static final String[][] LEXICON = { { "ab", "a b" }, { "abc", "a b c" }, { "abd", "a b d" }, { "x", "E k s" },
+			{ "xNN", "E k s 1" }, { "ärger", "E 6 g 6" } };
+
+	private File fstFile;
+	private File mappedFile;
+	private FSTLookup heap;
+	private FSTLookup mapped;
+
+	private static StringPair[] align(String in, String out) {
+		// one character per input symbol, the whole output on the first one
+		StringPair[] pairs = new StringPair[in.length()];
+		for (int i = 0; i < in.length(); i++) {
+			pairs[i] = new StringPair(in.substring(i, i + 1), i == 0 ? out : "");
+		}
+		return pairs;
+	}
+
+	@BeforeClass
+	public void setUp() throws Exception {
+		TransducerTrie trie = new TransducerTrie();
+		for (String[] entry : LEXICON) {
+			trie.add(align(entry[0], entry[1]));
+		}
+		trie.computeMinimization();
+		fstFile = File.createTempFile("test", ".fst");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fstFile)));
+		try {
+			trie.writeFST(out, "UTF-8");
+		} finally {
+			out.close();
+		}
+		mappedFile = File.createTempFile("test", ".mfst");
+		MappedFST.convert(new FST(fstFile.getPath()), mappedFile.getPath());
+		heap = new FSTLookup(fstFile.getPath());
+		mapped = new FSTLookup(new MappedFST(mappedFile.getPath()));
+	}
+
+	@AfterClass
+	public void tearDown() {
+		fstFile.delete();
+		mappedFile.delete();
+	}
+
+	@Test
+	public void findsSameEntries() {
+		for (String[] entry : LEXICON) {
+			Assert.assertEquals(heap.lookup(entry[0]), new String[] { entry[1] });
+			Assert.assertEquals(mapped.lookup(entry[0]), new String[] { entry[1] });
+		}
+	}
+
+	@Test
+	public void generatesSameEntries() {
+		for (String[] entry : LEXICON) {
+			Assert.assertEquals(mapped.lookup(entry[1], true), heap.lookup(entry[1], true));
+		}
+	}
+
+	@Test
+	public void findsNothingForUnknownWords() {
+		for (String word : new String[] { "", "a", "abcd", "xN", "ä", "\ud800" }) {
+			Assert.assertEquals(mapped.lookup(word), heap.lookup(word));
+			Assert.assertEquals(mapped.lookup(word).length, 0);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.dom;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.XMLConstants;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class DomStreamIOTest {
+	private static final String MARYXML = "http://mary.dfki.de/2002/MaryXML";
+	private static final String DOC = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<maryxml xmlns=\"" + MARYXML
+			+ "\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"0.5\" xml:lang=\"en-US\">\n"
+			+ "<!-- comment --><p>\n<s>\n<t g2p_method=\"lexicon\" ph=\"' D I s\" pos=\"DT\">This</t>\n"
+			+ "<t pos=\"VBZ\">is &amp; &lt;was&gt; \"quoted\"</t>\n"
+			+ "<boundary breakindex=\"5\" duration=\"400\"/>\n</s>\n</p>\n<?pi data?>\n</maryxml>\n";
+
+	private static Document roundTrip(Document doc) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DomStreamIO.write(doc, out);
+		return DomStreamIO.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void readsBackParsedDocument() throws Exception {
+		Document doc = DomUtils.parseDocument(DOC, false);
+		Document copy = roundTrip(doc);
+		DomUtils.compareNodes(doc, copy, false);
+		assertEquals(DomUtils.serializeToString(copy), DomUtils.serializeToString(doc));
+		assertEquals(copy.getDocumentElement().getAttributeNS(XMLConstants.XML_NS_URI, "lang"), "en-US");
+	}
+
+	@Test
+	public void readsSameDocumentAsParser() throws Exception {
+		Document doc = DomUtils.parseDocument(DOC, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DomStreamIO.write(doc, out);
+		Document parsed = DomUtils.parseDocument(new ByteArrayInputStream(out.toByteArray()), false);
+		Document read = DomStreamIO.read(new ByteArrayInputStream(out.toByteArray()));
+		DomUtils.compareNodes(parsed, read, false);
+	}
+
+	@Test
+	public void declaresNamespacesOfCreatedElements() throws Exception {
+		Document doc = DomUtils.factory.newDocumentBuilder().getDOMImplementation().createDocument(MARYXML, "maryxml", null);
+		Element root = doc.getDocumentElement();
+		root.setAttribute("version", "0.5");
+		root.setAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
+		root.setAttributeNS(XMLConstants.XML_NS_URI, "xml:lang", "de");
+		Element p = doc.createElementNS(MARYXML, "p");
+		root.appendChild(p);
+		Element other = doc.createElementNS("http://example.com/other", "o:other");
+		other.setAttributeNS("http://example.com/attr", "a:name", "value");
+		p.appendChild(other);
+		p.appendChild(doc.createElementNS(MARYXML, "s"));
+
+		Document copy = roundTrip(doc);
+		Element copiedRoot = copy.getDocumentElement();
+		assertEquals(copiedRoot.getNamespaceURI(), MARYXML);
+		assertEquals(copiedRoot.getAttributeNS(XMLConstants.XML_NS_URI, "lang"), "de");
+		Element copiedP = DomUtils.getFirstChildElement(copiedRoot);
+		assertEquals(copiedP.getNamespaceURI(), MARYXML);
+		Element copiedOther = DomUtils.getFirstChildElement(copiedP);
+		assertEquals(copiedOther.getNamespaceURI(), "http://example.com/other");
+		assertEquals(copiedOther.getAttributeNS("http://example.com/attr", "name"), "value");
+		assertEquals(DomUtils.getNextSiblingElement(copiedOther).getNamespaceURI(), MARYXML);
+		assertEquals(DomUtils.serializeToString(copy), DomUtils.serializeToString(doc));
+	}
+}
@@ -1,9 +1,14 @@
 package marytts.util.dom;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
 import java.io.ByteArrayInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
 
 public class DomUtilsTest {
 
@@ -18,4 +23,19 @@ public class DomUtilsTest {
 		DomUtils.parseDocument(DomUtilsTest.class.getResourceAsStream("sample.maryxml"), true);
 	}
 
+	@Test
+	public void parsesAgainAfterValidationError() throws Exception {
+		String docAsString = IOUtils.toString(DomUtilsTest.class.getResourceAsStream("sample.maryxml"), "UTF-8");
+		String invalid = docAsString.replaceFirst("<s>", "<s><nosuchelement/>");
+		for (int i = 0; i < 3; i++) {
+			try {
+				DomUtils.parseDocument(invalid, true);
+				fail("invalid document should not pass validation");
+			} catch (SAXException expected) {
+			}
+			Document doc = DomUtils.parseDocument(docAsString, true);
+			assertEquals(doc.getDocumentElement().getLocalName(), "maryxml");
+		}
+	}
+
 }
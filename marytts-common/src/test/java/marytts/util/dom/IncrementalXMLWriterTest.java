@@ -0,0 +1,101 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.dom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class IncrementalXMLWriterTest {
+	private static final String DOC = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" version=\"0.5\" xml:lang=\"en-US\">\n"
+			+ "<voice name=\"v1\">\n<p>\n<s>\n<t pos=\"DT\">\nThis\n</t>\n<t pos=\"VBZ\">\nis &amp; &lt;was&gt;\n</t>\n</s>\n</p>\n"
+			+ "<p>\n<s>\n<t ph=\"&quot;a\">\ntwo\n</t>\n</s>\n</p>\n</voice>\n<p>\n<s>\n<t>\nthree\n</t>\n</s>\n</p>\n</maryxml>\n";
+
+	@Test
+	public void writesParagraphsAsTheyComplete() throws Exception {
+		Document doc = DomUtils.parseDocument(DOC, false);
+		List<Element> paragraphs = new ArrayList<Element>();
+		NodeList nl = doc.getElementsByTagName("p");
+		for (int i = 0; i < nl.getLength(); i++) {
+			paragraphs.add((Element) nl.item(i));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IncrementalXMLWriter writer = new IncrementalXMLWriter(doc, out);
+		for (Element p : paragraphs) {
+			Node parent = p.getParentNode();
+			writer.writeUntil(parent, p.getNextSibling());
+			// the paragraph is written and released
+			assertNull(p.getParentNode());
+			assertEquals(out.toString("UTF-8").contains(p.getTextContent().trim().split("\\s+")[0]), true);
+		}
+		writer.finish();
+		assertNull(doc.getDocumentElement());
+
+		Document expected = DomUtils.parseDocument(DOC, false);
+		Document written = DomUtils.parseDocument(out.toString("UTF-8"), false);
+		assertEquals(describe(written.getDocumentElement()), describe(expected.getDocumentElement()));
+	}
+
+	@Test
+	public void finishWritesWholeDocument() throws Exception {
+		Document doc = DomUtils.parseDocument(DOC, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new IncrementalXMLWriter(doc, out).finish();
+		Document written = DomUtils.parseDocument(out.toString("UTF-8"), false);
+		assertEquals(describe(written.getDocumentElement()), describe(DomUtils.parseDocument(DOC, false).getDocumentElement()));
+	}
+
+	/**
+	 * Element names, attributes other than namespace declarations, and normalised text, in document order.
+	 */
+	private static String describe(Node n) {
+		StringBuilder buf = new StringBuilder();
+		if (n.getNodeType() == Node.ELEMENT_NODE) {
+			buf.append('<').append(n.getNodeName());
+			NamedNodeMap attributes = n.getAttributes();
+			for (int i = 0; i < attributes.getLength(); i++) {
+				Attr a = (Attr) attributes.item(i);
+				if (!a.getName().startsWith("xmlns")) {
+					buf.append(' ').append(a.getName()).append('=').append(a.getValue());
+				}
+			}
+			buf.append('>');
+			for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+				buf.append(describe(c));
+			}
+			buf.append("</").append(n.getNodeName()).append('>');
+		} else if (n.getNodeType() == Node.TEXT_NODE) {
+			buf.append(n.getNodeValue().trim().replaceAll("\\s+", " "));
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.dom;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures how many MaryXML documents per second are parsed (and walked through) and serialised: by a new document builder or
+ * {@link MaryNormalisedWriter} per document, as it used to be done, by the ones reused per thread, and by {@link DomStreamIO};
+ * and how many are written and read back, as by the cache. The documents are generated in the form of RAWMARYXML (plain text
+ * in paragraphs) and ACOUSTPARAMS (tokens with syllables, phones, durations and F0 targets), each with one sentence as in a
+ * typical request and with 100 sentences. Run with <code>java marytts.util.dom.MaryXMLIOBenchmark [seconds per
+ * measurement]</code>.
+ */
+public class MaryXMLIOBenchmark {
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+			+ " version=\"0.5\" xml:lang=\"en-US\">\n";
+	private static final String[] WORDS = { "Welcome", "to", "the", "world", "of", "speech", "synthesis", "which", "turns",
+			"written", "text", "into", "spoken", "language" };
+
+	private static String rawMaryXML(int sentences) {
+		StringBuilder sb = new StringBuilder(HEADER);
+		for (int s = 0; s < sentences; s++) {
+			if (s % 5 == 0) {
+				sb.append(s > 0 ? "</p>\n" : "").append("<p>\n");
+			}
+			for (int w = 0; w < WORDS.length; w++) {
+				sb.append(WORDS[(s + w) % WORDS.length]).append(w == 6 ? "<boundary breakindex=\"4\"/>" : " ");
+			}
+			sb.append("!\n");
+		}
+		return sb.append("</p>\n</maryxml>\n").toString();
+	}
+
+	private static String acoustParams(int sentences) {
+		StringBuilder sb = new StringBuilder(HEADER);
+		int end = 0;
+		for (int s = 0; s < sentences; s++) {
+			sb.append("<p>\n<s>\n<phrase>\n");
+			for (int w = 0; w < WORDS.length; w++) {
+				String word = WORDS[(s + w) % WORDS.length];
+				sb.append("<t accent=\"H*\" g2p_method=\"lexicon\" ph=\"' w E l - k @ m\" pos=\"NN\">\n").append(word).append('\n');
+				for (int syl = 0; syl < 2; syl++) {
+					sb.append("<syllable accent=\"H*\" ph=\"w E l\" stress=\"").append(1 - syl).append("\">\n");
+					for (int ph = 0; ph < 3; ph++) {
+						end += 61;
+						sb.append("<ph d=\"61\" end=\"").append(end).append("\" f0=\"(0,221)(50,232)\" p=\"E\"/>\n");
+					}
+					sb.append("</syllable>\n");
+				}
+				sb.append("</t>\n");
+			}
+			sb.append("<boundary breakindex=\"5\" duration=\"400\" tone=\"L-L%\"/>\n</phrase>\n</s>\n</p>\n");
+		}
+		return sb.append("</maryxml>\n").toString();
+	}
+
+	/**
+	 * Visit all nodes, as the parser may build the document lazily.
+	 */
+	private static int countNodes(Node node) {
+		int n = 1;
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			n += countNodes(child);
+		}
+		NamedNodeMap attributes = node.getAttributes();
+		return attributes != null ? n + attributes.getLength() : n;
+	}
+
+	private interface Operation {
+		Object run() throws Exception;
+	}
+
+	private static double perSecond(Operation op, double seconds) throws Exception {
+		long until = System.nanoTime() + (long) (seconds * 1e9);
+		long start = System.nanoTime();
+		int n = 0;
+		long now;
+		do {
+			if (op.run() == null) {
+				throw new AssertionError();
+			}
+			n++;
+			now = System.nanoTime();
+		} while (now < until);
+		return n / ((now - start) / 1e9);
+	}
+
+	private static void measure(String name, final String xml, double seconds) throws Exception {
+		final Document doc = DomUtils.parseDocument(xml, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DomStreamIO.write(doc, out);
+		final byte[] stax = out.toByteArray();
+		final byte[] bytes = xml.getBytes("UTF-8");
+		Operation[] ops = { new Operation() {
+			public Object run() throws Exception {
+				return countNodes(DomUtils.factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml))));
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				return countNodes(DomUtils.parseDocument(new ByteArrayInputStream(bytes), false));
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				return countNodes(DomStreamIO.read(new ByteArrayInputStream(stax)));
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				new MaryNormalisedWriter().output(doc, baos);
+				return baos;
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				MaryNormalisedWriter.forCurrentThread().output(doc, baos);
+				return baos;
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				DomStreamIO.write(doc, baos);
+				return baos;
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				// as the cache used to do it
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				new MaryNormalisedWriter().output(doc, baos);
+				String s = new String(baos.toByteArray(), "UTF-8");
+				return countNodes(DomUtils.factory.newDocumentBuilder().parse(new InputSource(new StringReader(s))));
+			}
+		}, new Operation() {
+			public Object run() throws Exception {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				DomStreamIO.write(doc, baos);
+				return countNodes(DomStreamIO.read(new ByteArrayInputStream(baos.toByteArray())));
+			}
+		} };
+		double[] rates = new double[ops.length];
+		for (int i = 0; i < ops.length; i++) {
+			perSecond(ops[i], seconds / 2); // warm-up
+			rates[i] = perSecond(ops[i], seconds);
+		}
+		System.out.printf("%s (%d bytes), documents/s:%n", name, bytes.length);
+		System.out.printf("  parse:     new builder %.0f, reused builder %.0f, DomStreamIO %.0f%n", rates[0], rates[1], rates[2]);
+		System.out.printf("  serialise: new writer %.0f, reused writer %.0f, DomStreamIO %.0f%n", rates[3], rates[4], rates[5]);
+		System.out.printf("  round trip: new writer and builder %.0f, DomStreamIO %.0f%n", rates[6], rates[7]);
+	}
+
+	public static void main(String[] args) throws Exception {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+		for (int sentences : new int[] { 1, 100 }) {
+			measure("RAWMARYXML, " + sentences + " sentences", rawMaryXML(sentences), seconds);
+			measure("ACOUSTPARAMS, " + sentences + " sentences", acoustParams(sentences), seconds);
+		}
+	}
+}
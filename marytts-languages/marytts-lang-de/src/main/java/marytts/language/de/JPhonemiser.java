@@ -69,7 +69,6 @@ public class JPhonemiser extends marytts.modules.JPhonemiser {
 	}
 
 	public void startup() throws Exception {
-		super.startup();
 		phonemiseDenglish = new PhonemiseDenglish(this);
 		inflection = new Inflection();
 
@@ -101,6 +100,19 @@ public class JPhonemiser extends marytts.modules.JPhonemiser {
 				}
 			}
 		}
+		// last, so that the pronunciation cache is warmed up with the complete phonemiser
+		super.startup();
+	}
+
+	@Override
+	protected void setPronunciationCache() throws IOException, MaryConfigurationException {
+		if (logUnknownFileName != null || logEnglishFileName != null) {
+			// cached words would not be counted
+			logger.info("Logging unknown and English words, pronunciation cache disabled");
+			pronunciationCache = null;
+			return;
+		}
+		super.setPronunciationCache();
 	}
 
 	public void shutdown() {
@@ -224,7 +236,7 @@ public class JPhonemiser extends marytts.modules.JPhonemiser {
 							helper.append("foreign:en");
 					}
 					if (phon == null) {
-						phon = phonemise(graph, pos, helper);
+						phon = phonemiseCached(graph, pos, helper);
 					}
 					// null result should not be processed
 					if (phon == null) {
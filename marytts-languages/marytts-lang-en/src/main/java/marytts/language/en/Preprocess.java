@@ -74,30 +74,33 @@ public class Preprocess extends InternalModule {
     private static final Map<String, String> symbols = new HashMap<>();
     // contractions map
     private static final Map<String, String[]> contractions = new HashMap<>();
-    // Regex matching patterns
-    private static final Pattern moneyPattern = Pattern.compile("([$£€])(-?([\\d,]+\\.?\\d+|\\.\\d+)+)");
-    private static final Pattern timePattern = Pattern.compile("((0?[0-9])|(1[0-1])|(1[2-9])|(2[0-3])):([0-5][0-9])" +
+    // Regex matching patterns; the token patterns are package-private for TokenClassifierTest
+    static final Pattern moneyPattern = Pattern.compile("([$£€])(-?([\\d,]+\\.?\\d+|\\.\\d+)+)");
+    static final Pattern timePattern = Pattern.compile("((0?[0-9])|(1[0-1])|(1[2-9])|(2[0-3])):([0-5][0-9])" +
             "(a\\.m\\.|am|pm|p\\.m\\.|a\\.m|p\\.m)?", Pattern.CASE_INSENSITIVE);
-    private static final Pattern durationPattern = Pattern.compile("(\\d+):([0-5][0-9]):([0-5][0-9])(:([0-5][0-9]))?");
-    private static final Pattern abbrevPattern = Pattern.compile("[a-zA-Z]{2,}\\.");
-    private static final Pattern acronymPattern = Pattern.compile("([a-zA-Z]\\.[a-zA-Z](\\.)?)+([a-zA-Z](\\.)?)?");
-    private static final Pattern realNumPattern = Pattern.compile("(-)?([\\d,]+)?(\\.(\\d+)(%)?)?");
-    private static final Pattern numberWordPattern = Pattern.compile("([a-zA-Z]+[0-9]+|[0-9]+[a-zA-Z]+)\\w*");
-    private static final Pattern datePattern = Pattern.compile("(\\d{1,2})[/.](\\d{1,2})[/.]\\d{4}");
-    private static final Pattern yearPattern = Pattern.compile("(\\d+)(bc|ad|b\\.c\\.|b\\.c|a\\.d\\.|a\\.d)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern contractPattern = Pattern.compile("[a-zA-Z]+('[a-zA-Z]+)");
+    static final Pattern durationPattern = Pattern.compile("(\\d+):([0-5][0-9]):([0-5][0-9])(:([0-5][0-9]))?");
+    static final Pattern abbrevPattern = Pattern.compile("[a-zA-Z]{2,}\\.");
+    static final Pattern acronymPattern = Pattern.compile("([a-zA-Z]\\.[a-zA-Z](\\.)?)+([a-zA-Z](\\.)?)?");
+    static final Pattern realNumPattern = Pattern.compile("(-)?([\\d,]+)?(\\.(\\d+)(%)?)?");
+    static final Pattern numberWordPattern = Pattern.compile("([a-zA-Z]+[0-9]+|[0-9]+[a-zA-Z]+)\\w*");
+    static final Pattern datePattern = Pattern.compile("(\\d{1,2})[/.](\\d{1,2})[/.]\\d{4}");
+    static final Pattern yearPattern = Pattern.compile("(\\d+)(bc|ad|b\\.c\\.|b\\.c|a\\.d\\.|a\\.d)", Pattern.CASE_INSENSITIVE);
+    static final Pattern contractPattern = Pattern.compile("[a-zA-Z]+('[a-zA-Z]+)");
     // TODO: URLPattern does not validate using http://xenon.stanford.edu/~xusch/regexp/
-    private static final Pattern URLPattern = Pattern.compile("(https?://)?((www\\.)?([-a-zA-Z0-9@:%._\\\\+~#=]{2,256}\\." +
+    static final Pattern URLPattern = Pattern.compile("(https?://)?((www\\.)?([-a-zA-Z0-9@:%._\\\\+~#=]{2,256}\\." +
             "[a-z]{2,6}\\b([-a-zA-Z0-9@:%_\\\\+.~#?&/=]*)))");
-    private static final Pattern rangePattern = Pattern.compile("([0-9]+)-([0-9]+)");
-    private static final Pattern consonantPattern = Pattern.compile("[b-df-hj-np-tv-z]+", Pattern.CASE_INSENSITIVE);
-    private static final Pattern punctuationPattern = Pattern.compile("\\p{Punct}");
+    static final Pattern rangePattern = Pattern.compile("([0-9]+)-([0-9]+)");
+    static final Pattern consonantPattern = Pattern.compile("[b-df-hj-np-tv-z]+", Pattern.CASE_INSENSITIVE);
     private static final Pattern myPunctPattern = Pattern.compile(",\\.:;?'\"");
-    private static final Pattern hashtagPattern = Pattern.compile("(#)(\\w+)");
-    private static final Pattern ordinalPattern = Pattern.compile("[\\d,]+(st|nd|rd|th)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern currencySymbPattern = Pattern.compile("[$£€]");
-    private static final Pattern numberSPattern = Pattern.compile("(\\d+)([sS]+)");
-    private static final Pattern fourDigitsPattern = Pattern.compile("\\d{4}");
+    static final Pattern hashtagPattern = Pattern.compile("(#)(\\w+)");
+    static final Pattern ordinalPattern = Pattern.compile("[\\d,]+(st|nd|rd|th)", Pattern.CASE_INSENSITIVE);
+    static final Pattern numberSPattern = Pattern.compile("(\\d+)([sS]+)");
+    private static final Pattern ordinalSuffixPattern = Pattern.compile("(?i)st|nd|rd|th");
+    private static final Pattern dashOrUnderscorePattern = Pattern.compile("[-_]");
+    private static final Pattern digitsPattern = Pattern.compile("\\d+");
+    private static final Pattern bracketsAndCommasPattern = Pattern.compile("[,\\]\\[]");
+    private static final Pattern punctuationBoundaryPattern = Pattern.compile("((?<=\\p{Punct})|(?=\\p{Punct}))");
+    private static final Pattern whitespacePattern = Pattern.compile("\\s+");
 
     // HashMap initialization
     static {
@@ -244,62 +247,64 @@ public class Preprocess extends InternalModule {
                 continue;
             }
             String tokenText = MaryDomUtils.tokenText(t);
+            // one pass over the characters tells which of the patterns below can match at all
+            int categories = TokenClassifier.classify(tokenText);
             // isYear extra check
-            if (fourDigitsPattern.matcher(tokenText).matches() && !whichCurrency.equals("")) {
+            if (is(categories, TokenClassifier.FOUR_DIGITS) && !whichCurrency.equals("")) {
                 isYear = false;
             }
             // check if currency
-            if (currencySymbPattern.matcher(tokenText).matches()) {
+            if (is(categories, TokenClassifier.CURRENCY_SYMBOL)) {
                 whichCurrency = tokenText;
             }
             /*
              * ACTUAL PROCESSING
              */
             // ordinal
-            if (ordinalPattern.matcher(tokenText).matches()) {
-                String matched = tokenText.split("(?i)st|nd|rd|th")[0];
+            if (is(categories, TokenClassifier.ORDINAL) && ordinalPattern.matcher(tokenText).matches()) {
+                String matched = ordinalSuffixPattern.split(tokenText)[0];
                 MaryDomUtils.setTokenText(t, expandOrdinal(matched));
                 // single a or A character
-            } else if (tokenText.matches("[aA]")) {
+            } else if (is(categories, TokenClassifier.SINGLE_A)) {
                 Element checkNextNode = MaryDomUtils.getNextSiblingElement(t);
                 if (checkNextNode == null || myPunctPattern.matcher(MaryDomUtils.tokenText(checkNextNode)).matches()
                         || MaryDomUtils.tokenText(checkNextNode).length() == 1) {
                     MaryDomUtils.setTokenText(t, "_a");
                 }
                 // date
-            } else if (datePattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.DATE) && datePattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandDate(tokenText));
                 // number followed by s
-            } else if (numberSPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.NUMBER_S) && numberSPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandNumberS(tokenText));
                 // year with bc or ad
-            } else if (yearPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.YEAR_BC_AD) && yearPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandYearBCAD(tokenText));
                 // year as just 4 digits &rarr; this should always be checked BEFORE real number
-            } else if (fourDigitsPattern.matcher(tokenText).matches() && isYear) {
+            } else if (is(categories, TokenClassifier.FOUR_DIGITS) && isYear) {
                 MaryDomUtils.setTokenText(t, expandYear(Double.parseDouble(tokenText)));
                 // wordAndNumber &rarr; must come AFTER year
-            } else if (numberWordPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.NUMBER_WORD) && numberWordPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandWordNumber(tokenText));
                 // Currency
-            } else if (moneyPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.MONEY) && moneyPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandMoney(tokenText));
                 // real number
-            } else if (realNumPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.REAL_NUMBER) && realNumPattern.matcher(tokenText).matches()) {
                 if (!"".equals(whichCurrency)) {
                     MaryDomUtils.setTokenText(t, expandMoney(whichCurrency + tokenText));
                 } else {
                     MaryDomUtils.setTokenText(t, expandRealNumber(tokenText));
                 }
                 // contractions
-            } else if (contractPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.CONTRACTION) && contractPattern.matcher(tokenText).matches()) {
                 // first check lexicon
                 if (MaryRuntimeUtils.checkLexicon("en_US", tokenText).length == 0) {
                     Matcher contractionMatch = contractPattern.matcher(tokenText);
                     if (contractionMatch.find()) {
                         // if no contraction we allow g2p rules to handle
                         if (!contractions.containsKey(contractionMatch.group(1))) {
-                            MaryDomUtils.setTokenText(t, tokenText.replaceAll("'", ""));
+                            MaryDomUtils.setTokenText(t, tokenText.replace("'", ""));
                         }
                     } else {
                         throw new IllegalStateException("No match for find()");
@@ -313,10 +318,10 @@ public class Preprocess extends InternalModule {
                     // }
                 }
                 // acronym
-            } else if (acronymPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.ACRONYM) && acronymPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandAcronym(tokenText));
                 // abbreviation
-            } else if ((abbrevPattern.matcher(tokenText).matches() ||
+            } else if ((is(categories, TokenClassifier.ABBREVIATION) && abbrevPattern.matcher(tokenText).matches() ||
                     abbrevMap.containsKey(tokenText.toLowerCase())) && !isURL) {
                 Element testAbbNode = MaryDomUtils.getNextSiblingElement(t);
                 boolean nextTokenIsCapital = false;
@@ -325,16 +330,16 @@ public class Preprocess extends InternalModule {
                 }
                 MaryDomUtils.setTokenText(t, expandAbbreviation(tokenText, nextTokenIsCapital));
                 // time
-            } else if (timePattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.TIME) && timePattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandTime(tokenText));
                 // duration
-            } else if (durationPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.DURATION) && durationPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandDuration(tokenText));
                 // hashtags
-            } else if (hashtagPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.HASHTAG) && hashtagPattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandHashtag(tokenText));
                 // URLs
-            } else if (URLPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.URL) && URLPattern.matcher(tokenText).matches()) {
                 // matching group 2 contains the chunk we want
                 Matcher urlMatcher = URLPattern.matcher(tokenText);
                 if (urlMatcher.find()) {
@@ -355,15 +360,15 @@ public class Preprocess extends InternalModule {
             } else if (symbols.containsKey(tokenText)) {
                 MaryDomUtils.setTokenText(t, symbols.get(tokenText));
                 // number ranges &rarr; before checking for dashes
-            } else if (rangePattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.RANGE) && rangePattern.matcher(tokenText).matches()) {
                 MaryDomUtils.setTokenText(t, expandRange(tokenText));
                 // dashes and underscores
-            } else if (tokenText.contains("-") || tokenText.contains("_")) {
+            } else if (is(categories, TokenClassifier.DASH_OR_UNDERSCORE)) {
                 dashSplit = true;
-                String[] tokens = tokenText.split("[-_]");
+                String[] tokens = dashOrUnderscorePattern.split(tokenText);
                 int i = 0;
                 for (String tok : tokens) {
-                    if (tok.matches("\\d+")) {
+                    if (digitsPattern.matcher(tok).matches()) {
                         StringBuilder newTok = new StringBuilder();
                         for (char c : tok.toCharArray()) {
                             newTok.append(expandNumber(String.valueOf(c))).append(" ");
@@ -372,21 +377,21 @@ public class Preprocess extends InternalModule {
                     }
                     i++;
                 }
-                MaryDomUtils.setTokenText(t, Arrays.toString(tokens).replaceAll("[,\\]\\[]", ""));
+                MaryDomUtils.setTokenText(t, bracketsAndCommasPattern.matcher(Arrays.toString(tokens)).replaceAll(""));
                 // words containing only consonants
-            } else if (consonantPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.CONSONANTS) && consonantPattern.matcher(tokenText).matches()) {
                 // first check lexicon
                 if (MaryRuntimeUtils.checkLexicon("en_US", tokenText).length == 0) {
                     MaryDomUtils.setTokenText(t, expandConsonants(tokenText));
                 }
                 // a final attempt to split by punctuation
-            } else if (punctuationPattern.matcher(tokenText).find() && tokenText.length() > 1) {
+            } else if (is(categories, TokenClassifier.HAS_PUNCTUATION) && tokenText.length() > 1) {
                 puncSplit = true;
-                String[] puncTokens = tokenText.split("((?<=\\p{Punct})|(?=\\p{Punct}))");
-                MaryDomUtils.setTokenText(t, Arrays.toString(puncTokens).replaceAll("[,\\]\\[]", ""));
+                String[] puncTokens = punctuationBoundaryPattern.split(tokenText);
+                MaryDomUtils.setTokenText(t, bracketsAndCommasPattern.matcher(Arrays.toString(puncTokens)).replaceAll(""));
             } else if (tokenText.equals("\"")) {
                 // FIXME: skip quotes for now as we don't have any clever management of the POS for the prosodic feature
-            } else if (punctuationPattern.matcher(tokenText).matches()) {
+            } else if (is(categories, TokenClassifier.PUNCTUATION)) {
                 t.setAttribute("pos", ".");
             }
             if (retVal == null) {
@@ -396,7 +401,7 @@ public class Preprocess extends InternalModule {
             if (!tokenText.equals(MaryDomUtils.tokenText(t))) {
                 MaryDomUtils.encloseWithMTU(t, tokenText, null);
                 // finally, split new expanded token separated by spaces into separate tokens (also catch any leftover dashes)
-                String[] newTokens = MaryDomUtils.tokenText(t).replaceAll("-", " ").split("\\s+");
+                String[] newTokens = whitespacePattern.split(MaryDomUtils.tokenText(t).replace('-', ' '));
                 MaryDomUtils.setTokenText(t, newTokens[0]);
                 for (int i = 1; i < newTokens.length; i++) {
                     requireNonNull(t);
@@ -430,6 +435,10 @@ public class Preprocess extends InternalModule {
         return retVal;
     }
 
+    private static boolean is(int categories, int category) {
+        return (categories & category) != 0;
+    }
+
     protected String expandNumber(String number) {
         return expandNumber(Double.parseDouble(removeCommas(number)));
     }
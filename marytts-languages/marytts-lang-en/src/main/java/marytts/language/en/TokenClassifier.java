@@ -0,0 +1,210 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.en;
+
+/**
+ * Determines in one pass over its characters which of the token patterns of {@link Preprocess} a token can possibly match, so
+ * that the regular expressions that cannot match are not tried. For most categories, a set bit only means that the token has
+ * the right kinds of characters, and the pattern must still be matched; the bits marked as exact are equivalent to the pattern.
+ */
+final class TokenClassifier {
+    // categories, in the order in which Preprocess tries them
+    static final int ORDINAL = 1;
+    /** exact: "a" or "A" */
+    static final int SINGLE_A = 1 << 1;
+    static final int DATE = 1 << 2;
+    static final int NUMBER_S = 1 << 3;
+    static final int YEAR_BC_AD = 1 << 4;
+    /** exact: four digits */
+    static final int FOUR_DIGITS = 1 << 5;
+    static final int NUMBER_WORD = 1 << 6;
+    static final int MONEY = 1 << 7;
+    static final int REAL_NUMBER = 1 << 8;
+    static final int CONTRACTION = 1 << 9;
+    static final int ACRONYM = 1 << 10;
+    static final int ABBREVIATION = 1 << 11;
+    static final int TIME = 1 << 12;
+    static final int DURATION = 1 << 13;
+    static final int HASHTAG = 1 << 14;
+    static final int URL = 1 << 15;
+    static final int RANGE = 1 << 16;
+    /** exact: contains '-' or '_' */
+    static final int DASH_OR_UNDERSCORE = 1 << 17;
+    static final int CONSONANTS = 1 << 18;
+    /** exact: contains an ASCII punctuation character, as found by \p{Punct} */
+    static final int HAS_PUNCTUATION = 1 << 19;
+    /** exact: a single ASCII punctuation character */
+    static final int PUNCTUATION = 1 << 20;
+    /** exact: a single currency symbol */
+    static final int CURRENCY_SYMBOL = 1 << 21;
+
+    // kinds of characters
+    private static final int DIGIT = 1;
+    private static final int LETTER = 1 << 1; // ASCII letters only, as in [a-zA-Z] and \w
+    private static final int DOT = 1 << 2;
+    private static final int COLON = 1 << 3;
+    private static final int SLASH = 1 << 4;
+    private static final int CURRENCY = 1 << 5;
+    private static final int HASH = 1 << 6;
+    private static final int APOSTROPHE = 1 << 7;
+    private static final int DASH = 1 << 8;
+    private static final int UNDERSCORE = 1 << 9;
+    private static final int COMMA = 1 << 10;
+    private static final int PERCENT = 1 << 11;
+    private static final int OTHER_PUNCTUATION = 1 << 12;
+    private static final int OTHER = 1 << 13;
+
+    private static final int ASCII_PUNCTUATION = DOT | COLON | SLASH | HASH | APOSTROPHE | DASH | UNDERSCORE | COMMA | PERCENT
+            | OTHER_PUNCTUATION;
+
+    private TokenClassifier() {
+    }
+
+    private static int kindOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return DIGIT;
+        }
+        if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+            return LETTER;
+        }
+        switch (c) {
+            case '.':
+                return DOT;
+            case ':':
+                return COLON;
+            case '/':
+                return SLASH;
+            case '$':
+                return CURRENCY | OTHER_PUNCTUATION;
+            case '£':
+            case '€':
+                return CURRENCY;
+            case '#':
+                return HASH;
+            case '\'':
+                return APOSTROPHE;
+            case '-':
+                return DASH;
+            case '_':
+                return UNDERSCORE;
+            case ',':
+                return COMMA;
+            case '%':
+                return PERCENT;
+            default:
+                if (c > ' ' && c < 127) {
+                    return OTHER_PUNCTUATION; // all other printable ASCII characters are punctuation
+                }
+                return OTHER;
+        }
+    }
+
+    private static boolean only(int kinds, int allowed) {
+        return (kinds & ~allowed) == 0;
+    }
+
+    private static boolean has(int kinds, int kind) {
+        return (kinds & kind) != 0;
+    }
+
+    /**
+     * @param token
+     *            the token text
+     * @return the categories the token may belong to, as a combination of the constants of this class
+     */
+    static int classify(String token) {
+        int length = token.length();
+        int kinds = 0;
+        for (int i = 0; i < length; i++) {
+            kinds |= kindOf(token.charAt(i));
+        }
+        int first = length > 0 ? kindOf(token.charAt(0)) : 0;
+        char last = length > 0 ? token.charAt(length - 1) : 0;
+
+        int categories = 0;
+        if (only(kinds, DIGIT | COMMA | LETTER) && has(first, DIGIT | COMMA) && has(kinds, LETTER)) {
+            categories |= ORDINAL;
+        }
+        if (length == 1 && (last == 'a' || last == 'A')) {
+            categories |= SINGLE_A;
+        }
+        if (length >= 8 && length <= 10 && only(kinds, DIGIT | SLASH | DOT) && has(first, DIGIT)) {
+            categories |= DATE;
+        }
+        if (only(kinds, DIGIT | LETTER) && has(first, DIGIT) && (last == 's' || last == 'S')) {
+            categories |= NUMBER_S;
+        }
+        if (only(kinds, DIGIT | LETTER | DOT) && has(first, DIGIT) && has(kinds, LETTER)) {
+            categories |= YEAR_BC_AD;
+        }
+        if (length == 4 && kinds == DIGIT) {
+            categories |= FOUR_DIGITS;
+        }
+        if (only(kinds, LETTER | DIGIT | UNDERSCORE) && has(kinds, LETTER) && has(kinds, DIGIT)) {
+            categories |= NUMBER_WORD;
+        }
+        if (has(first, CURRENCY) && only(kinds, CURRENCY | OTHER_PUNCTUATION | DASH | DIGIT | COMMA | DOT)) {
+            categories |= MONEY;
+        }
+        if (only(kinds, DASH | DIGIT | COMMA | DOT | PERCENT)) {
+            categories |= REAL_NUMBER;
+        }
+        if (only(kinds, LETTER | APOSTROPHE) && has(kinds, APOSTROPHE) && has(first, LETTER)) {
+            categories |= CONTRACTION;
+        }
+        if (only(kinds, LETTER | DOT) && has(kinds, DOT) && has(first, LETTER)) {
+            categories |= ACRONYM;
+        }
+        if (length >= 3 && only(kinds, LETTER | DOT) && last == '.') {
+            categories |= ABBREVIATION;
+        }
+        if (has(kinds, COLON) && only(kinds, DIGIT | COLON | LETTER | DOT) && has(first, DIGIT)) {
+            categories |= TIME;
+        }
+        if (has(kinds, COLON) && only(kinds, DIGIT | COLON)) {
+            categories |= DURATION;
+        }
+        if (length >= 2 && has(first, HASH)) {
+            categories |= HASHTAG;
+        }
+        if (has(kinds, DOT) && has(kinds, LETTER)) {
+            categories |= URL;
+        }
+        if (has(kinds, DASH) && only(kinds, DIGIT | DASH)) {
+            categories |= RANGE;
+        }
+        if (has(kinds, DASH | UNDERSCORE)) {
+            categories |= DASH_OR_UNDERSCORE;
+        }
+        if (kinds == LETTER) {
+            categories |= CONSONANTS;
+        }
+        if (has(kinds, ASCII_PUNCTUATION)) {
+            categories |= HAS_PUNCTUATION;
+            if (length == 1) {
+                categories |= PUNCTUATION;
+            }
+        }
+        if (length == 1 && has(kinds, CURRENCY)) {
+            categories |= CURRENCY_SYMBOL;
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.en;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import marytts.datatypes.MaryXML;
+
+import org.apache.commons.io.FileUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Measures the throughput of English text normalisation on a text corpus, in tokens per second. The text is split at white
+ * space, with trailing punctuation split off as the tokeniser does. First, choosing the category of each token by trying the
+ * patterns of Preprocess one after the other is compared with trying only those that TokenClassifier has not ruled out; then,
+ * unless <code>-classify</code> is given, the tokens are normalised by Preprocess. Run with
+ * <code>java marytts.language.en.PreprocessBenchmark corpus.txt [-classify]</code> with a MARY installation on the
+ * classpath.
+ */
+public class PreprocessBenchmark {
+	// the patterns tried by Preprocess.expand(), in that order, with their categories
+	private static final int[] CATEGORIES = { TokenClassifier.ORDINAL, TokenClassifier.SINGLE_A, TokenClassifier.DATE,
+			TokenClassifier.NUMBER_S, TokenClassifier.YEAR_BC_AD, TokenClassifier.FOUR_DIGITS, TokenClassifier.NUMBER_WORD,
+			TokenClassifier.MONEY, TokenClassifier.REAL_NUMBER, TokenClassifier.CONTRACTION, TokenClassifier.ACRONYM,
+			TokenClassifier.ABBREVIATION, TokenClassifier.TIME, TokenClassifier.DURATION, TokenClassifier.HASHTAG,
+			TokenClassifier.URL, TokenClassifier.RANGE, TokenClassifier.CONSONANTS };
+	private static final Pattern[] PATTERNS = {
+			Pattern.compile("[\\d,]+(st|nd|rd|th)", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("[aA]"),
+			Pattern.compile("(\\d{1,2})[/.](\\d{1,2})[/.]\\d{4}"),
+			Pattern.compile("(\\d+)([sS]+)"),
+			Pattern.compile("(\\d+)(bc|ad|b\\.c\\.|b\\.c|a\\.d\\.|a\\.d)", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("\\d{4}"),
+			Pattern.compile("([a-zA-Z]+[0-9]+|[0-9]+[a-zA-Z]+)\\w*"),
+			Pattern.compile("([$£€])(-?([\\d,]+\\.?\\d+|\\.\\d+)+)"),
+			Pattern.compile("(-)?([\\d,]+)?(\\.(\\d+)(%)?)?"),
+			Pattern.compile("[a-zA-Z]+('[a-zA-Z]+)"),
+			Pattern.compile("([a-zA-Z]\\.[a-zA-Z](\\.)?)+([a-zA-Z](\\.)?)?"),
+			Pattern.compile("[a-zA-Z]{2,}\\."),
+			Pattern.compile("((0?[0-9])|(1[0-1])|(1[2-9])|(2[0-3])):([0-5][0-9])(a\\.m\\.|am|pm|p\\.m\\.|a\\.m|p\\.m)?",
+					Pattern.CASE_INSENSITIVE),
+			Pattern.compile("(\\d+):([0-5][0-9]):([0-5][0-9])(:([0-5][0-9]))?"),
+			Pattern.compile("(#)(\\w+)"),
+			Pattern.compile("(https?://)?((www\\.)?([-a-zA-Z0-9@:%._\\\\+~#=]{2,256}\\."
+					+ "[a-z]{2,6}\\b([-a-zA-Z0-9@:%_\\\\+.~#?&/=]*)))"), Pattern.compile("([0-9]+)-([0-9]+)"),
+			Pattern.compile("[b-df-hj-np-tv-z]+", Pattern.CASE_INSENSITIVE) };
+	private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("(?<=\\w)(?=[,.;:!?)\"]+$)");
+
+	/**
+	 * @return the index of the first pattern matching the token, or -1
+	 */
+	private static int firstMatch(String token) {
+		for (int i = 0; i < PATTERNS.length; i++) {
+			if (PATTERNS[i].matcher(token).matches()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the index of the first pattern matching the token, or -1, trying only the patterns not ruled out
+	 */
+	private static int firstMatchClassified(String token) {
+		int categories = TokenClassifier.classify(token);
+		for (int i = 0; i < PATTERNS.length; i++) {
+			if ((categories & CATEGORIES[i]) != 0 && PATTERNS[i].matcher(token).matches()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static double tokensPerSecond(List<String> tokens, boolean classified) {
+		long start = System.nanoTime();
+		int sum = 0;
+		for (String token : tokens) {
+			sum += classified ? firstMatchClassified(token) : firstMatch(token);
+		}
+		long nanos = System.nanoTime() - start;
+		if (sum == Integer.MIN_VALUE) {
+			System.out.println(sum);
+		}
+		return tokens.size() / (nanos / 1e9);
+	}
+
+	private static Document createDocument(List<String> tokens, int from, int to) {
+		Document doc = MaryXML.newDocument();
+		doc.getDocumentElement().setAttribute("xml:lang", "en");
+		Element sentence = MaryXML.appendChildElement(MaryXML.appendChildElement(doc.getDocumentElement(), MaryXML.PARAGRAPH),
+				MaryXML.SENTENCE);
+		for (int i = from; i < to; i++) {
+			MaryXML.appendChildElement(sentence, MaryXML.TOKEN).appendChild(doc.createTextNode(tokens.get(i)));
+		}
+		return doc;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> tokens = new ArrayList<String>();
+		for (String line : FileUtils.readLines(new File(args[0]), "UTF-8")) {
+			for (String word : line.trim().split("\\s+")) {
+				if (!word.isEmpty()) {
+					for (String token : TRAILING_PUNCTUATION.split(word)) {
+						tokens.add(token);
+					}
+				}
+			}
+		}
+		System.out.println(tokens.size() + " tokens");
+		for (String token : tokens) {
+			if (firstMatch(token) != firstMatchClassified(token)) {
+				throw new AssertionError("Different category for '" + token + "'");
+			}
+		}
+
+		for (int i = 0; i < 5; i++) {
+			System.out.printf("choosing category: patterns in turn %.0f tokens/s, classified %.0f tokens/s%n",
+					tokensPerSecond(tokens, false), tokensPerSecond(tokens, true));
+		}
+		if (args.length > 1 && args[1].equals("-classify")) {
+			return;
+		}
+
+		Preprocess preprocess = new Preprocess();
+		int sentenceLength = 20;
+		for (int i = 0; i < 5; i++) {
+			List<Document> docs = new ArrayList<Document>();
+			for (int from = 0; from < tokens.size(); from += sentenceLength) {
+				docs.add(createDocument(tokens, from, Math.min(from + sentenceLength, tokens.size())));
+			}
+			long start = System.nanoTime();
+			for (Document doc : docs) {
+				preprocess.expand(doc);
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.printf("Preprocess: %.0f tokens/s%n", tokens.size() / (nanos / 1e9));
+		}
+	}
+}
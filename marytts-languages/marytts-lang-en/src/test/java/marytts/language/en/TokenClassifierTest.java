@@ -0,0 +1,100 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.en;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TokenClassifierTest {
+    // the patterns of Preprocess, with the category that must be set whenever they match; the exact categories have no
+    // pattern in Preprocess, so theirs are given here
+    private static final Object[][] PATTERNS = {
+        { TokenClassifier.ORDINAL, Preprocess.ordinalPattern },
+        { TokenClassifier.SINGLE_A, Pattern.compile("[aA]") },
+        { TokenClassifier.DATE, Preprocess.datePattern },
+        { TokenClassifier.NUMBER_S, Preprocess.numberSPattern },
+        { TokenClassifier.YEAR_BC_AD, Preprocess.yearPattern },
+        { TokenClassifier.FOUR_DIGITS, Pattern.compile("\\d{4}") },
+        { TokenClassifier.NUMBER_WORD, Preprocess.numberWordPattern },
+        { TokenClassifier.MONEY, Preprocess.moneyPattern },
+        { TokenClassifier.REAL_NUMBER, Preprocess.realNumPattern },
+        { TokenClassifier.CONTRACTION, Preprocess.contractPattern },
+        { TokenClassifier.ACRONYM, Preprocess.acronymPattern },
+        { TokenClassifier.ABBREVIATION, Preprocess.abbrevPattern },
+        { TokenClassifier.TIME, Preprocess.timePattern },
+        { TokenClassifier.DURATION, Preprocess.durationPattern },
+        { TokenClassifier.HASHTAG, Preprocess.hashtagPattern },
+        { TokenClassifier.URL, Preprocess.URLPattern },
+        { TokenClassifier.RANGE, Preprocess.rangePattern },
+        { TokenClassifier.DASH_OR_UNDERSCORE, Pattern.compile(".*[-_].*", Pattern.DOTALL) },
+        { TokenClassifier.CONSONANTS, Preprocess.consonantPattern },
+        { TokenClassifier.HAS_PUNCTUATION, Pattern.compile(".*\\p{Punct}.*", Pattern.DOTALL) },
+        { TokenClassifier.PUNCTUATION, Pattern.compile("\\p{Punct}") },
+        { TokenClassifier.CURRENCY_SYMBOL, Pattern.compile("[$£€]") } };
+
+    // the categories that are set if and only if the pattern matches
+    private static final int EXACT = TokenClassifier.SINGLE_A | TokenClassifier.FOUR_DIGITS
+            | TokenClassifier.DASH_OR_UNDERSCORE | TokenClassifier.HAS_PUNCTUATION | TokenClassifier.PUNCTUATION
+            | TokenClassifier.CURRENCY_SYMBOL;
+
+    private static void check(String token) {
+        int categories = TokenClassifier.classify(token);
+        for (Object[] p : PATTERNS) {
+            int category = (Integer) p[0];
+            boolean matches = ((Pattern) p[1]).matcher(token).matches();
+            if (matches) {
+                Assert.assertTrue((categories & category) != 0, "'" + token + "' matches " + p[1]);
+            } else if ((category & EXACT) != 0) {
+                Assert.assertTrue((categories & category) == 0, "'" + token + "' does not match " + p[1]);
+            }
+        }
+    }
+
+    @Test
+    public void examplesAreClassified() {
+        String[] tokens = { "", "1", "1,002", "-2", "03.45", "42.56%", "2nd", "21ST", "$12.52", "£5.20", "€7.05", "$1,000.10",
+                "1918", "1918s", "44BC", "12a.d.", "A", "a", "b", "abc123", "can't", "U.S.A.", "Mr.", "3:30pm", "10:15a.m.",
+                "1:02:03", "1:02:03:04", "#marytts", "www.example.com", "http://mary.dfki.de/x?y=1", "18-35", "e-mail",
+                "foo_bar", "brr", "Hmm", ".", "?", "'", "\"", "£", "$", "hello", "ok!", "10/25/2014", "25.10.2014", "naïve",
+                "ÄÖÜ" };
+        for (String token : tokens) {
+            check(token);
+        }
+        Assert.assertTrue((TokenClassifier.classify("hello") & TokenClassifier.REAL_NUMBER) == 0);
+        Assert.assertTrue((TokenClassifier.classify("hello") & TokenClassifier.CONSONANTS) != 0);
+    }
+
+    @Test
+    public void randomTokensAreClassified() {
+        char[] alphabet = "0123456789aAbBcdDhHlmnprsStTwxz.:,;/-_'\"$£€#%@!?=+ éß".toCharArray();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            int length = random.nextInt(12);
+            StringBuilder token = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                token.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            check(token.toString());
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.cart;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marytts.cart.DecisionNode.BinaryByteDecisionNode;
+import marytts.cart.DecisionNode.BinaryFloatDecisionNode;
+import marytts.cart.DecisionNode.BinaryShortDecisionNode;
+import marytts.cart.DecisionNode.ByteDecisionNode;
+import marytts.cart.DecisionNode.ShortDecisionNode;
+import marytts.features.FeatureVector;
+
+/**
+ * A flattened, read-only form of a {@link DirectedGraph} or {@link CART}, for fast interpretation. The decision criteria are held
+ * in parallel arrays indexed by node number, and the daughters of each node in one array of node numbers, so that walking down
+ * the graph is a tight loop over primitive arrays instead of virtual calls through the node objects.
+ * <p>
+ * The leaf nodes are not copied; {@link #interpretToNode(FeatureVector, int)} returns the same node objects as
+ * {@link CART#interpretToNode(FeatureVector, int)}, and {@link #interpret(FeatureVector)} the same data as
+ * {@link DirectedGraph#interpret(FeatureVector)}. The graph must not be modified after it has been compiled.
+ * </p>
+ */
+public class CompiledCART {
+	private static final int LEAF = 0;
+	private static final int BINARY_BYTE = 1;
+	private static final int BINARY_SHORT = 2;
+	private static final int BINARY_FLOAT_BYTE = 3;
+	private static final int BINARY_FLOAT = 4;
+	private static final int BYTE = 5;
+	private static final int SHORT = 6;
+	private static final int GRAPH = 7;
+	// any other kind of decision node, which we ask for the next node
+	private static final int OTHER = 8;
+	private static final int UNKNOWN = 9;
+
+	// Each node n takes four ints in the code array, starting at STRIDE * n:
+	// kind << KIND_SHIFT | feature index; criterion (byte or short value, or float bits);
+	// for binary and graph nodes the two daughters, for multi-way nodes the position and number of their daughters
+	// in the daughters array. A missing daughter is -1.
+	private static final int STRIDE = 4;
+	private static final int KIND_SHIFT = 24;
+	private static final int FEATURE_MASK = (1 << KIND_SHIFT) - 1;
+
+	private final Node[] nodes;
+	private final int[] code;
+	private final int[] numData;
+	private final int[] daughters;
+	private final Map<Node, Integer> numbers;
+
+	/**
+	 * Compile the given graph.
+	 *
+	 * @param graph
+	 *            the graph; must not be modified afterwards
+	 */
+	public CompiledCART(DirectedGraph graph) {
+		numbers = new IdentityHashMap<Node, Integer>();
+		List<Node> nodeList = new ArrayList<Node>();
+		Node rootNode = graph.getRootNode();
+		if (rootNode != null) {
+			numbers.put(rootNode, 0);
+			nodeList.add(rootNode);
+		}
+		// number the nodes breadth-first, each shared node only once:
+		int multiWayDaughters = 0;
+		for (int i = 0; i < nodeList.size(); i++) {
+			Node node = nodeList.get(i);
+			Node[] ds = getDaughters(node);
+			if (node instanceof ByteDecisionNode || node instanceof ShortDecisionNode) {
+				multiWayDaughters += ds.length;
+			}
+			for (Node d : ds) {
+				if (d != null && !numbers.containsKey(d)) {
+					numbers.put(d, nodeList.size());
+					nodeList.add(d);
+				}
+			}
+		}
+		int n = nodeList.size();
+		if (n > FEATURE_MASK) {
+			throw new IllegalArgumentException("Too many nodes: " + n);
+		}
+		nodes = nodeList.toArray(new Node[n]);
+		code = new int[STRIDE * n];
+		numData = new int[n];
+		daughters = new int[multiWayDaughters];
+		int pos = 0;
+		for (int i = 0; i < n; i++) {
+			Node node = nodes[i];
+			numData[i] = node.getNumberOfData();
+			int kind;
+			int criterion = 0;
+			if (node instanceof LeafNode) {
+				kind = LEAF;
+			} else if (node instanceof DirectedGraphNode) {
+				kind = GRAPH;
+			} else if (node instanceof BinaryByteDecisionNode) {
+				kind = BINARY_BYTE;
+				criterion = ((BinaryByteDecisionNode) node).getCriterionValueAsByte();
+			} else if (node instanceof BinaryShortDecisionNode) {
+				kind = BINARY_SHORT;
+				criterion = ((BinaryShortDecisionNode) node).getCriterionValueAsShort();
+			} else if (node instanceof BinaryFloatDecisionNode) {
+				BinaryFloatDecisionNode f = (BinaryFloatDecisionNode) node;
+				// same check for pseudo-floats as in BinaryFloatDecisionNode:
+				kind = f.getFeatureDefinition().isByteFeature(f.getFeatureIndex()) ? BINARY_FLOAT_BYTE : BINARY_FLOAT;
+				criterion = Float.floatToIntBits(f.getCriterionValueAsFloat());
+			} else if (node instanceof ByteDecisionNode) {
+				kind = BYTE;
+			} else if (node instanceof ShortDecisionNode) {
+				kind = SHORT;
+			} else if (node instanceof DecisionNode) {
+				kind = OTHER;
+			} else {
+				kind = UNKNOWN;
+			}
+			int featureIndex = node instanceof DecisionNode ? ((DecisionNode) node).getFeatureIndex() : 0;
+			int c = STRIDE * i;
+			code[c] = kind << KIND_SHIFT | featureIndex & FEATURE_MASK;
+			code[c + 1] = criterion;
+			Node[] ds = getDaughters(node);
+			if (kind == BYTE || kind == SHORT) {
+				code[c + 2] = pos;
+				code[c + 3] = ds.length;
+				for (Node d : ds) {
+					daughters[pos++] = getNumber(d);
+				}
+			} else {
+				code[c + 2] = ds.length > 0 ? getNumber(ds[0]) : -1;
+				code[c + 3] = ds.length > 1 ? getNumber(ds[1]) : -1;
+			}
+		}
+	}
+
+	private int getNumber(Node node) {
+		return node == null ? -1 : numbers.get(node);
+	}
+
+	private static Node[] getDaughters(Node node) {
+		if (node instanceof DecisionNode) {
+			DecisionNode dn = (DecisionNode) node;
+			Node[] ds = new Node[dn.getNumberOfDaugthers()];
+			for (int i = 0; i < ds.length; i++) {
+				ds[i] = dn.getDaughter(i);
+			}
+			return ds;
+		} else if (node instanceof DirectedGraphNode) {
+			DirectedGraphNode g = (DirectedGraphNode) node;
+			return new Node[] { g.getDecisionNode(), g.getLeafNode() };
+		}
+		return new Node[0];
+	}
+
+	/**
+	 * @return the number of distinct nodes in the graph
+	 */
+	public int getNumNodes() {
+		return nodes.length;
+	}
+
+	/**
+	 * Select the daughter of decision node n according to the given feature vector; equivalent to
+	 * {@link DecisionNode#getNextNode(FeatureVector)}.
+	 *
+	 * @param bytes
+	 *            the byte features of fv
+	 * @return the number of the daughter, or -1 if there is none
+	 */
+	private int getNextNode(int n, FeatureVector fv, byte[] bytes) {
+		int c = STRIDE * n;
+		int featureIndex = code[c] & FEATURE_MASK;
+		switch (code[c] >>> KIND_SHIFT) {
+		case BINARY_BYTE:
+			return code[bytes[featureIndex] == code[c + 1] ? c + 2 : c + 3];
+		case BINARY_SHORT:
+			return code[fv.getShortFeature(featureIndex) == code[c + 1] ? c + 2 : c + 3];
+		case BINARY_FLOAT_BYTE:
+			return code[(float) bytes[featureIndex] < Float.intBitsToFloat(code[c + 1]) ? c + 2 : c + 3];
+		case BINARY_FLOAT:
+			return code[fv.getContinuousFeature(featureIndex) < Float.intBitsToFloat(code[c + 1]) ? c + 2 : c + 3];
+		case BYTE:
+			return getDaughter(c, bytes[featureIndex]);
+		case SHORT:
+			return getDaughter(c, fv.getShortFeature(featureIndex));
+		case OTHER:
+			return getNumber(((DecisionNode) nodes[n]).getNextNode(fv));
+		case UNKNOWN:
+			throw new IllegalArgumentException("Unknown node type: " + nodes[n].getClass());
+		default:
+			throw new IllegalStateException("Not a decision node: " + nodes[n]);
+		}
+	}
+
+	private int getDaughter(int c, int value) {
+		if (value < 0 || value >= code[c + 3]) {
+			throw new ArrayIndexOutOfBoundsException(value);
+		}
+		return daughters[code[c + 2] + value];
+	}
+
+	/**
+	 * Walk down the tree according to the given feature vector; equivalent to {@link CART#interpretToNode(FeatureVector, int)}.
+	 *
+	 * @param featureVector
+	 *            the feature vector
+	 * @param minNumberOfData
+	 *            the minimum number of data requested. If this is 0, walk down the CART until the leaf level.
+	 * @return the leaf node, or the node where walking down stopped
+	 */
+	public Node interpretToNode(FeatureVector featureVector, int minNumberOfData) {
+		if (nodes.length == 0) {
+			return null;
+		}
+		byte[] bytes = featureVector.getByteValuedDiscreteFeatures();
+		int current = 0;
+		int prev = -1;
+		while (current >= 0 && numData[current] > minNumberOfData) {
+			int c = STRIDE * current;
+			int kind = code[c] >>> KIND_SHIFT;
+			if (kind == LEAF) {
+				break;
+			}
+			prev = current;
+			if (kind == BINARY_BYTE) { // by far the most common case
+				current = code[bytes[code[c] & FEATURE_MASK] == code[c + 1] ? c + 2 : c + 3];
+			} else {
+				current = getNextNode(current, featureVector, bytes);
+			}
+		}
+		// Now usually we will have gone down one level too far
+		if (current < 0 || numData[current] < minNumberOfData && prev >= 0) {
+			current = prev;
+		}
+		return current >= 0 ? nodes[current] : null;
+	}
+
+	/**
+	 * Walk down the graph as far as possible according to the features in fv, and return the data in the leaf node found there;
+	 * equivalent to {@link DirectedGraph#interpret(FeatureVector)}.
+	 *
+	 * @param fv
+	 *            a feature vector which must be consistent with the graph's feature definition.
+	 * @return the most specific non-null leaf node data that can be retrieved, or null if there is no non-null leaf node data
+	 *         along the fv's path.
+	 */
+	public Object interpret(FeatureVector fv) {
+		return interpret(nodes.length > 0 ? 0 : -1, fv, fv.getByteValuedDiscreteFeatures());
+	}
+
+	private Object interpret(int n, FeatureVector fv, byte[] bytes) {
+		while (n >= 0) {
+			int c = STRIDE * n;
+			switch (code[c] >>> KIND_SHIFT) {
+			case LEAF:
+				return nodes[n].getAllData();
+			case GRAPH:
+				Object data = interpret(code[c + 2], fv, bytes);
+				if (data != null) { // OK, found something more specific
+					return data;
+				}
+				n = code[c + 3];
+				break;
+			default:
+				n = getNextNode(n, fv, bytes);
+			}
+		}
+		return null;
+	}
+}
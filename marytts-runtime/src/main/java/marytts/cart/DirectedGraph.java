@@ -49,6 +49,8 @@ public class DirectedGraph {
 
 	protected Properties properties;
 
+	private volatile CompiledCART compiled;
+
 	/**
 	 * Build a new empty directed graph
 	 * 
@@ -255,6 +257,22 @@ public class DirectedGraph {
 	 */
 	public void setRootNode(Node rNode) {
 		rootNode = rNode;
+		compiled = null;
+	}
+
+	/**
+	 * Get the compiled form of this graph, for fast interpretation at run time. It is created on first use; the graph must not be
+	 * modified after that, except by setting a new root node.
+	 * 
+	 * @return the compiled graph
+	 */
+	public CompiledCART compile() {
+		CompiledCART c = compiled;
+		if (c == null) {
+			c = new CompiledCART(this);
+			compiled = c;
+		}
+		return c;
 	}
 
 	public FeatureDefinition getFeatureDefinition() {
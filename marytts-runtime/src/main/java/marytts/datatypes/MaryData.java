@@ -84,10 +84,6 @@ public class MaryData {
 	private String defaultStyle = "";
 	private String defaultEffects = "";
 
-	// The following XML I/O helpers are only initialised
-	// if actually needed.
-	private MaryNormalisedWriter writer = null;
-
 	private boolean doValidate;
 	private boolean doWarnClient = false;
 
@@ -274,8 +270,7 @@ public class MaryData {
 	public void writeTo(OutputStream os) throws TransformerConfigurationException, FileNotFoundException, TransformerException,
 			IOException, Exception {
 		if (type.isXMLType()) {
-			if (writer == null)
-				writer = new MaryNormalisedWriter();
+			MaryNormalisedWriter writer = MaryNormalisedWriter.forCurrentThread();
 			if (logger.getLevel().equals(Level.DEBUG)) {
 				ByteArrayOutputStream debugOut = new ByteArrayOutputStream();
 				writer.output(xmlDocument, debugOut);
@@ -21,6 +21,7 @@
 package marytts.features;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Locale;
@@ -43,9 +44,12 @@ public class FeatureRegistry {
 	private FeatureRegistry() {
 	}
 
-	private static Map<Locale, FeatureProcessorManager> managersByLocale = new HashMap<Locale, FeatureProcessorManager>();
-	private static Map<Voice, FeatureProcessorManager> managersByVoice = new HashMap<Voice, FeatureProcessorManager>();
-	private static FeatureProcessorManager fallbackManager = null;
+	// voices are loaded in parallel and register their managers while others are looked up
+	private static Map<Locale, FeatureProcessorManager> managersByLocale = Collections
+			.synchronizedMap(new HashMap<Locale, FeatureProcessorManager>());
+	private static Map<Voice, FeatureProcessorManager> managersByVoice = Collections
+			.synchronizedMap(new HashMap<Voice, FeatureProcessorManager>());
+	private static volatile FeatureProcessorManager fallbackManager = null;
 	private static MultiKeyMap/* <Locale+String listing features, TargetFeatureComputer> */computers = new MultiKeyMap();
 
 	/**
@@ -173,7 +177,9 @@ public class FeatureRegistry {
 				return o1.toString().compareTo(o2.toString());
 			}
 		});
-		locales.addAll(managersByLocale.keySet());
+		synchronized (managersByLocale) {
+			locales.addAll(managersByLocale.keySet());
+		}
 		return locales;
 	}
 
@@ -72,6 +72,122 @@ public class MaryGenericFeatureProcessors {
 		public Element getElement(Target target);
 	}
 
+	/**
+	 * The position of a target's segment in the index of its sentence.
+	 */
+	private static final class SegmentPosition {
+		final UtteranceIndex index;
+		final int i;
+
+		SegmentPosition(UtteranceIndex index, int i) {
+			this.index = index;
+			this.i = i;
+		}
+	}
+
+	/**
+	 * Find the target's segment in the index of its sentence.
+	 *
+	 * @param target
+	 *            target
+	 * @return the position of the target's segment, or null if the target has no segment or the segment is not in a sentence
+	 */
+	private static SegmentPosition locate(Target target) {
+		Element segment = target.getMaryxmlElement();
+		if (segment == null)
+			return null;
+		UtteranceIndex index = UtteranceIndex.get(segment);
+		int i = index != null ? index.indexOf(segment) : -1;
+		if (i < 0)
+			return null;
+		return new SegmentPosition(index, i);
+	}
+
+	/**
+	 * Get the syllable at the given offset from the target's syllable. For a boundary, offset -1 is the last syllable before it
+	 * and offset 1 the first syllable after it.
+	 *
+	 * @param index
+	 *            the index of the target's sentence
+	 * @param i
+	 *            the position of the target's segment in the index
+	 * @param offset
+	 *            offset
+	 * @return the syllable, or null if there is no such syllable
+	 */
+	private static Element getSyllable(UtteranceIndex index, int i, int offset) {
+		int syllable;
+		if (index.getSegment(i).getTagName().equals(MaryXML.PHONE)) {
+			syllable = index.getSyllableOfSegment(i);
+			if (syllable < 0)
+				return null;
+		} else { // boundary
+			if (offset == 0)
+				return null;
+			syllable = offset < 0 ? index.getNextSyllable(i) : index.getNextSyllable(i) - 1;
+		}
+		return index.getSyllable(syllable + offset);
+	}
+
+	/**
+	 * Get the closest word (i.e., token with a "ph" attribute) before or after the target's word, or after the target if it is a
+	 * boundary.
+	 *
+	 * @param index
+	 *            the index of the target's sentence
+	 * @param i
+	 *            the position of the target's segment in the index
+	 * @param direction
+	 *            1 to look for the next word, -1 for the previous word
+	 * @return the word, or null if there is no such word
+	 */
+	private static Element getWord(UtteranceIndex index, int i, int direction) {
+		int token;
+		if (index.getSegment(i).getTagName().equals(MaryXML.PHONE)) {
+			token = index.getTokenOfSegment(i);
+			if (token < 0)
+				return null;
+		} else { // boundary
+			token = direction < 0 ? index.getNextToken(i) : index.getNextToken(i) - 1;
+		}
+		for (token += direction; token >= 0 && token < index.getNumTokens(); token += direction) {
+			Element word = index.getToken(token);
+			if (word.hasAttribute("ph"))
+				return word;
+		}
+		return null;
+	}
+
+	/**
+	 * The syllables before the target's syllable, or before the target if it is not in a syllable, are those with a position
+	 * lower than the one returned.
+	 */
+	private static int currentSyllable(UtteranceIndex index, int i) {
+		int syllable = index.getSyllableOfSegment(i);
+		return syllable >= 0 ? syllable : index.getNextSyllable(i);
+	}
+
+	/**
+	 * The tokens before the target's token, or before the target if it is not in a token, are those with a position lower than
+	 * the one returned.
+	 */
+	private static int currentToken(UtteranceIndex index, int i) {
+		int token = index.getTokenOfSegment(i);
+		return token >= 0 ? token : index.getNextToken(i);
+	}
+
+	/**
+	 * Count the tokens with a "ph" attribute from start (inclusive) to end (exclusive), up to RAIL_LIMIT.
+	 */
+	private static int countWords(UtteranceIndex index, int start, int end) {
+		int count = 0;
+		for (int j = start; j < end && count < RAIL_LIMIT; j++) {
+			if (index.getToken(j).hasAttribute("ph"))
+				count++;
+		}
+		return count;
+	}
+
 	/**
 	 * Retrieve the segment belonging to this target.
 	 * 
@@ -92,16 +208,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class PrevSegmentNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
-			tw.setCurrentNode(segment);
-			Element previous = (Element) tw.previousNode();
-			return previous;
+			return at.index.getSegment(at.i - 1);
 		}
 	}
 
@@ -113,17 +223,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class PrevPrevSegmentNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
-				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
-			tw.setCurrentNode(segment);
-			Element previous = (Element) tw.previousNode();
-			Element pp = (Element) tw.previousNode();
-			return pp;
+			return at.index.getSegment(at.i - 2);
 		}
 	}
 
@@ -135,16 +238,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class NextSegmentNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
-				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
-			tw.setCurrentNode(segment);
-			Element next = (Element) tw.nextNode();
-			return next;
+			return at.index.getSegment(at.i + 1);
 		}
 	}
 
@@ -156,17 +253,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class NextNextSegmentNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
-			tw.setCurrentNode(segment);
-			Element next = (Element) tw.nextNode();
-			Element nn = (Element) tw.nextNode();
-			return nn;
+			return at.index.getSegment(at.i + 2);
 		}
 	}
 
@@ -176,19 +266,18 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class FirstSegmentInWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.PHONE);
-			Element first = (Element) tw.firstChild();
-			if (first != null) {
-				assert first.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got "
-						+ first.getTagName();
+			for (int j = at.index.getFirstSegmentOfToken(word), end = at.index.getEndSegmentOfToken(word); j < end; j++) {
+				Element first = at.index.getSegment(j);
+				if (first.getTagName().equals(MaryXML.PHONE))
+					return first;
 			}
-			return first;
+			return null;
 		}
 	}
 
@@ -198,19 +287,19 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class LastSegmentInWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.PHONE);
-			Element last = (Element) tw.lastChild();
-			if (last != null) {
-				assert last.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got "
-						+ last.getTagName();
+			for (int j = at.index.getEndSegmentOfToken(word) - 1, start = at.index.getFirstSegmentOfToken(word); j >= start;
+					j--) {
+				Element last = at.index.getSegment(j);
+				if (last.getTagName().equals(MaryXML.PHONE))
+					return last;
 			}
-			return last;
+			return null;
 		}
 	}
 
@@ -220,19 +309,13 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class FirstSyllableInWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0 || at.index.getFirstSyllableOfToken(word) == at.index.getEndSyllableOfToken(word))
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
-			Element first = (Element) tw.firstChild();
-			if (first != null) {
-				assert first.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE
-						+ ", got " + first.getTagName();
-			}
-			return first;
+			return at.index.getSyllable(at.index.getFirstSyllableOfToken(word));
 		}
 	}
 
@@ -242,19 +325,13 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class LastSyllableInWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0 || at.index.getFirstSyllableOfToken(word) == at.index.getEndSyllableOfToken(word))
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
-			Element last = (Element) tw.lastChild();
-			if (last != null) {
-				assert last.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE
-						+ ", got " + last.getTagName();
-			}
-			return last;
+			return at.index.getSyllable(at.index.getEndSyllableOfToken(word) - 1);
 		}
 	}
 
@@ -288,29 +365,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class PrevSyllableNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element syllable = (Element) segment.getParentNode();
-				if (syllable == null)
-					return null;
-				current = syllable;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
-			tw.setCurrentNode(current);
-			Element previous = (Element) tw.previousNode();
-			if (previous != null) {
-				assert previous.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE
-						+ ", got " + previous.getTagName();
-			}
-			return previous;
+			return getSyllable(at.index, at.i, -1);
 		}
 	}
 
@@ -322,30 +380,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class PrevPrevSyllableNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element syllable = (Element) segment.getParentNode();
-				if (syllable == null)
-					return null;
-				current = syllable;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
-			tw.setCurrentNode(current);
-			Element previous = (Element) tw.previousNode();
-			Element pp = (Element) tw.previousNode();
-			if (pp != null) {
-				assert pp.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE + ", got "
-						+ pp.getTagName();
-			}
-			return pp;
+			return getSyllable(at.index, at.i, -2);
 		}
 	}
 
@@ -357,29 +395,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class NextSyllableNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element syllable = (Element) segment.getParentNode();
-				if (syllable == null)
-					return null;
-				current = syllable;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
-				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
-			tw.setCurrentNode(current);
-			Element next = (Element) tw.nextNode();
-			if (next != null) {
-				assert next.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE
-						+ ", got " + next.getTagName();
-			}
-			return next;
+			return getSyllable(at.index, at.i, 1);
 		}
 	}
 
@@ -391,30 +410,10 @@ public class MaryGenericFeatureProcessors {
 	 */
 	public static class NextNextSyllableNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element syllable = (Element) segment.getParentNode();
-				if (syllable == null)
-					return null;
-				current = syllable;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
-			tw.setCurrentNode(current);
-			Element next = (Element) tw.nextNode();
-			Element nn = (Element) tw.nextNode();
-			if (nn != null) {
-				assert nn.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE + ", got "
-						+ nn.getTagName();
-			}
-			return nn;
+			return getSyllable(at.index, at.i, 2);
 		}
 	}
 
@@ -441,134 +440,49 @@ public class MaryGenericFeatureProcessors {
 	/** Last syllable in phrase. */
 	public static class LastSyllableInPhraseNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0 || at.index.getFirstSyllableOfPhrase(phrase) == at.index.getEndSyllableOfPhrase(phrase))
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element last = (Element) tw.lastChild();
-			if (last != null) {
-				assert last.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE
-						+ ", got " + last.getTagName();
-			}
-			return last;
+			return at.index.getSyllable(at.index.getEndSyllableOfPhrase(phrase) - 1);
 		}
 	}
 
 	public static class NextWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-				if (word == null)
-					return null;
-				current = word;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			tw.setCurrentNode(current);
-			// The next word is the next token with a "ph" attribute:
-			Element nextWord = null;
-			Element nextToken;
-			while ((nextToken = (Element) tw.nextNode()) != null) {
-				if (nextToken.hasAttribute("ph")) {
-					nextWord = nextToken;
-					break;
-				}
-			}
-			if (nextWord != null) {
-				assert nextWord.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got "
-						+ nextWord.getTagName();
-			}
-			return nextWord;
+			return getWord(at.index, at.i, 1);
 		}
 	}
 
 	public static class PrevWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-				if (word == null)
-					return null;
-				current = word;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			tw.setCurrentNode(current);
-			// The next word is the next token with a "ph" attribute:
-			Element prevWord = null;
-			Element prevToken;
-			while ((prevToken = (Element) tw.previousNode()) != null) {
-				if (prevToken.hasAttribute("ph")) {
-					prevWord = prevToken;
-					break;
-				}
-			}
-			if (prevWord != null) {
-				assert prevWord.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got "
-						+ prevWord.getTagName();
-			}
-			return prevWord;
+			return getWord(at.index, at.i, -1);
 		}
 	}
 
 	public static class FirstSegmentNextWordNavigator implements TargetElementNavigator {
 		public Element getElement(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return null;
-			Element current;
-			if (segment.getTagName().equals(MaryXML.PHONE)) {
-				Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-				if (word == null)
-					return null;
-				current = word;
-			} else { // boundary
-				current = segment;
-			}
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			tw.setCurrentNode(current);
-			// The next word is the next token with a "ph" attribute:
-			Element nextWord = null;
-			Element nextToken;
-			while ((nextToken = (Element) tw.nextNode()) != null) {
-				if (nextToken.hasAttribute("ph")) {
-					nextWord = nextToken;
-					break;
-				}
-			}
-			if (nextWord == null) {
+			Element nextWord = getWord(at.index, at.i, 1);
+			if (nextWord == null)
 				return null;
+			int word = at.index.indexOf(nextWord);
+			for (int j = at.index.getFirstSegmentOfToken(word), end = at.index.getEndSegmentOfToken(word); j < end; j++) {
+				Element first = at.index.getSegment(j);
+				if (first.getTagName().equals(MaryXML.PHONE))
+					return first;
 			}
-			assert nextWord.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got "
-					+ nextWord.getTagName();
-			TreeWalker sw = MaryDomUtils.createTreeWalker(nextWord, MaryXML.PHONE);
-			Element first = (Element) sw.firstChild();
-			if (first != null) {
-				assert first.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got "
-						+ first.getTagName();
-			}
-			return first;
+			return null;
 		}
 	}
 
@@ -577,26 +491,16 @@ public class MaryGenericFeatureProcessors {
 			Element segment = target.getMaryxmlElement();
 			if (segment == null)
 				return null;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			UtteranceIndex index = UtteranceIndex.get(segment);
+			if (index == null)
 				return null;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			Element lastWord = null;
-			Element lastToken = (Element) tw.lastChild();
-			// The last word is the lastToken which has a "ph" attribute:
-			while (lastToken != null) {
-				if (lastToken.hasAttribute("ph")) {
-					lastWord = lastToken;
-					break;
-				}
-				lastToken = (Element) tw.previousNode();
-			}
-
-			if (lastWord != null) {
-				assert lastWord.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got "
-						+ lastWord.getTagName();
+			// The last word is the last token which has a "ph" attribute:
+			for (int j = index.getNumTokens() - 1; j >= 0; j--) {
+				Element lastToken = index.getToken(j);
+				if (lastToken.hasAttribute("ph"))
+					return lastToken;
 			}
-			return lastWord;
+			return null;
 		}
 	}
 
@@ -863,16 +767,10 @@ public class MaryGenericFeatureProcessors {
 			Element segment = target.getMaryxmlElement();
 			if (segment == null)
 				return (byte) 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			UtteranceIndex index = UtteranceIndex.get(segment);
+			if (index == null)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(index.getNumPhrases(), RAIL_LIMIT);
 		}
 	}
 
@@ -899,18 +797,11 @@ public class MaryGenericFeatureProcessors {
 			Element segment = target.getMaryxmlElement();
 			if (segment == null)
 				return (byte) 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			UtteranceIndex index = UtteranceIndex.get(segment);
+			if (index == null)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				// only tokens with a "ph" attribute count as words:
-				if (e.hasAttribute("ph"))
-					count++;
-			}
-			return (byte) count;
+			// only tokens with a "ph" attribute count as words:
+			return (byte) countWords(index, 0, index.getNumTokens());
 		}
 	}
 
@@ -933,19 +824,14 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words in the phrase
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getEndSyllableOfPhrase(phrase) - at.index.getFirstSyllableOfPhrase(phrase),
+					RAIL_LIMIT);
 		}
 	}
 
@@ -973,19 +859,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words in the phrase
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getEndTokenOfPhrase(phrase) - at.index.getFirstTokenOfPhrase(phrase), RAIL_LIMIT);
 		}
 	}
 
@@ -1009,19 +889,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables in the given word
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getEndSyllableOfToken(word) - at.index.getFirstSyllableOfToken(word), RAIL_LIMIT);
 		}
 	}
 
@@ -1044,19 +918,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of segments in the given word
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.PHONE);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getNumPhonesOfToken(word), RAIL_LIMIT);
 		}
 	}
 
@@ -1207,20 +1075,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the position of the phone in the syllable
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.PHONE);
-			tw.setCurrentNode(segment);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getPhonesBefore(at.i) - at.index.getPhonesBeforeToken(word), RAIL_LIMIT);
 		}
 	}
 
@@ -1247,20 +1108,19 @@ public class MaryGenericFeatureProcessors {
 		 * @return the position of the phone in the syllable
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return (byte) 0;
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
+				return 0;
+			int word = at.index.getTokenOfSegment(at.i);
+			if (word < 0)
 				return (byte) 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(word, MaryXML.PHONE);
-			tw.setCurrentNode(segment);
-			int count = 0;
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
+			// phones after this one, or after this boundary:
+			int phonesAfter = at.index.getPhonesBeforeToken(word) + at.index.getNumPhonesOfToken(word)
+					- at.index.getPhonesBefore(at.i);
+			if (at.index.getSegment(at.i).getTagName().equals(MaryXML.PHONE)) {
+				phonesAfter--;
 			}
-			return (byte) count;
+			return (byte) Math.min(phonesAfter, RAIL_LIMIT);
 		}
 	}
 
@@ -1799,25 +1659,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element syllable = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SYLLABLE);
-			if (syllable != null) {
-				tw.setCurrentNode(syllable);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(currentSyllable(at.index, at.i) - at.index.getFirstSyllableOfPhrase(phrase), RAIL_LIMIT);
 		}
 	}
 
@@ -1842,20 +1690,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of accented syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getEndSyllableOfPhrase(phrase) - at.index.getNextSyllable(at.i), RAIL_LIMIT);
 		}
 	}
 
@@ -1880,24 +1721,17 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of stressed syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element syllable = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SYLLABLE);
-			if (syllable != null) {
-				tw.setCurrentNode(syllable);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				String stress = e.getAttribute("stress");
-				if (stress.equals("1"))
+			for (int j = currentSyllable(at.index, at.i) - 1, start = at.index.getFirstSyllableOfPhrase(phrase); j >= start
+					&& count < RAIL_LIMIT; j--) {
+				Element e = at.index.getSyllable(j);
+				if (e.getAttribute("stress").equals("1"))
 					count++;
 			}
 			return (byte) count;
@@ -1925,19 +1759,17 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of stressed syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				String stress = e.getAttribute("stress");
-				if (stress.equals("1"))
+			for (int j = at.index.getNextSyllable(at.i), end = at.index.getEndSyllableOfPhrase(phrase); j < end
+					&& count < RAIL_LIMIT; j++) {
+				Element e = at.index.getSyllable(j);
+				if (e.getAttribute("stress").equals("1"))
 					count++;
 			}
 			return (byte) count;
@@ -1965,24 +1797,17 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of accented syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element syllable = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SYLLABLE);
-			if (syllable != null) {
-				tw.setCurrentNode(syllable);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				String accent = e.getAttribute("accent");
-				if (!accent.equals(""))
+			for (int j = currentSyllable(at.index, at.i) - 1, start = at.index.getFirstSyllableOfPhrase(phrase); j >= start
+					&& count < RAIL_LIMIT; j--) {
+				Element e = at.index.getSyllable(j);
+				if (!e.getAttribute("accent").equals(""))
 					count++;
 			}
 			return (byte) count;
@@ -2010,19 +1835,17 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of accented syllables since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				String accent = e.getAttribute("accent");
-				if (!accent.equals(""))
+			for (int j = at.index.getNextSyllable(at.i), end = at.index.getEndSyllableOfPhrase(phrase); j < end
+					&& count < RAIL_LIMIT; j++) {
+				Element e = at.index.getSyllable(j);
+				if (!e.getAttribute("accent").equals(""))
 					count++;
 			}
 			return (byte) count;
@@ -2050,27 +1873,14 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words since the last major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word != null) {
-				tw.setCurrentNode(word);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				// only count tokens that have a "ph" attribute:
-				if (e.hasAttribute("ph"))
-					count++;
-			}
-			return (byte) count;
+			// only count tokens that have a "ph" attribute:
+			return (byte) countWords(at.index, at.index.getFirstTokenOfPhrase(phrase), currentToken(at.index, at.i));
 		}
 	}
 
@@ -2095,22 +1905,14 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words until the next major break
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				// only count tokens that have a "ph" attribute
-				if (e.hasAttribute("ph"))
-					count++;
-			}
-			return (byte) count;
+			// only count tokens that have a "ph" attribute:
+			return (byte) countWords(at.index, at.index.getNextToken(at.i), at.index.getEndTokenOfPhrase(phrase));
 		}
 	}
 
@@ -2135,27 +1937,11 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words since the beginning of the sentence
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			Element word = (Element) MaryDomUtils.getAncestor(segment, MaryXML.TOKEN);
-			if (word != null) {
-				tw.setCurrentNode(word);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				// only count tokens that have a "ph" attribute:
-				if (e.hasAttribute("ph"))
-					count++;
-			}
-			return (byte) count;
+			// only count tokens that have a "ph" attribute:
+			return (byte) countWords(at.index, 0, currentToken(at.index, at.i));
 		}
 	}
 
@@ -2180,22 +1966,11 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of words until the end of the sentence
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
-				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				// only count tokens that have a "ph" attribute:
-				if (e.hasAttribute("ph"))
-					count++;
-			}
-			return (byte) count;
+			// only count tokens that have a "ph" attribute:
+			return (byte) countWords(at.index, at.index.getNextToken(at.i), at.index.getNumTokens());
 		}
 	}
 
@@ -2220,25 +1995,13 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of phrases since the start of the sentence
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
-				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase != null) {
-				tw.setCurrentNode(phrase);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
+				phrase = at.index.getNextPhrase(at.i);
+			return (byte) Math.min(phrase, RAIL_LIMIT);
 		}
 	}
 
@@ -2263,20 +2026,10 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of phrases until the end of the sentence.
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
-				return 0;
-			Element sentence = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SENTENCE);
-			if (sentence == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
-				count++;
-			}
-			return (byte) count;
+			return (byte) Math.min(at.index.getNumPhrases() - at.index.getNextPhrase(at.i), RAIL_LIMIT);
 		}
 	}
 
@@ -2301,25 +2054,18 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables since the last accent
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element syllable = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SYLLABLE);
-			if (syllable != null) {
-				tw.setCurrentNode(syllable);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
+			for (int j = currentSyllable(at.index, at.i) - 1, start = at.index.getFirstSyllableOfPhrase(phrase); j >= start
+					&& count < RAIL_LIMIT; j--) {
+				Element e = at.index.getSyllable(j);
 				count++;
-				String accent = e.getAttribute("accent");
-				if (!accent.equals(""))
+				if (!e.getAttribute("accent").equals(""))
 					break;
 			}
 			return (byte) count;
@@ -2347,20 +2093,18 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables until the next accent
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
+			for (int j = at.index.getNextSyllable(at.i), end = at.index.getEndSyllableOfPhrase(phrase); j < end
+					&& count < RAIL_LIMIT; j++) {
+				Element e = at.index.getSyllable(j);
 				count++;
-				String accent = e.getAttribute("accent");
-				if (!accent.equals(""))
+				if (!e.getAttribute("accent").equals(""))
 					break;
 			}
 			return (byte) count;
@@ -2388,25 +2132,18 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables since the last accent
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			Element syllable = (Element) MaryDomUtils.getAncestor(segment, MaryXML.SYLLABLE);
-			if (syllable != null) {
-				tw.setCurrentNode(syllable);
-			} else {
-				tw.setCurrentNode(segment);
-			}
-			Element e;
-			while ((e = (Element) tw.previousNode()) != null && count < RAIL_LIMIT) {
+			for (int j = currentSyllable(at.index, at.i) - 1, start = at.index.getFirstSyllableOfPhrase(phrase); j >= start
+					&& count < RAIL_LIMIT; j--) {
+				Element e = at.index.getSyllable(j);
 				count++;
-				String stress = e.getAttribute("stress");
-				if (stress.equals("1"))
+				if (e.getAttribute("stress").equals("1"))
 					break;
 			}
 			return (byte) count;
@@ -2434,20 +2171,18 @@ public class MaryGenericFeatureProcessors {
 		 * @return the number of syllables until the next stressed syllable
 		 */
 		public byte process(Target target) {
-			Element segment = target.getMaryxmlElement();
-			if (segment == null)
+			SegmentPosition at = locate(target);
+			if (at == null)
 				return 0;
-			Element phrase = (Element) MaryDomUtils.getAncestor(segment, MaryXML.PHRASE);
-			if (phrase == null)
+			int phrase = at.index.getPhraseOfSegment(at.i);
+			if (phrase < 0)
 				return 0;
 			int count = 0;
-			TreeWalker tw = MaryDomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
-			tw.setCurrentNode(segment);
-			Element e;
-			while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
+			for (int j = at.index.getNextSyllable(at.i), end = at.index.getEndSyllableOfPhrase(phrase); j < end
+					&& count < RAIL_LIMIT; j++) {
+				Element e = at.index.getSyllable(j);
 				count++;
-				String stress = e.getAttribute("stress");
-				if (stress.equals("1"))
+				if (e.getAttribute("stress").equals("1"))
 					break;
 			}
 			return (byte) count;
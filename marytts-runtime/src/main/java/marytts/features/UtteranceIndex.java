@@ -0,0 +1,451 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marytts.datatypes.MaryXML;
+import marytts.util.dom.MaryDomUtils;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A linearised view of one MaryXML sentence, used by the feature processors to navigate from a target to its neighbours without
+ * walking the DOM tree. The segments (phones and boundaries), syllables, tokens and phrases of the sentence are numbered in
+ * document order; for each segment, the index records which syllable, token and phrase it belongs to, and for each token and
+ * phrase, the range of segments, syllables and tokens it contains.
+ * <p>
+ * The index is built on first use and kept with the sentence element for as long as the structure of the document is known to
+ * be unchanged. Code that inserts or removes elements must call {@link #structureChanged(Node)} before features are computed
+ * again: the request calls it after every module, and modules that change the structure while computing features (such as the
+ * pronunciation model) call it themselves. Changes to attributes do not require this; attribute values such as the "ph" of a
+ * token are therefore always read from the elements themselves.
+ * </p>
+ */
+public class UtteranceIndex {
+	private static final String USER_DATA_KEY = "utteranceIndex";
+	private static final String GENERATION_KEY = "utteranceIndexGeneration";
+
+	/**
+	 * Tell the index that elements have been inserted into or removed from the document containing the given node. Indexes
+	 * built before this call are not used any more.
+	 * 
+	 * @param node
+	 *            the document, or any node in it
+	 */
+	public static void structureChanged(Node node) {
+		Document doc = node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node : node.getOwnerDocument();
+		if (doc == null)
+			return;
+		doc.setUserData(GENERATION_KEY, Integer.valueOf(getGeneration(doc) + 1), null);
+	}
+
+	private static int getGeneration(Document doc) {
+		Integer generation = (Integer) doc.getUserData(GENERATION_KEY);
+		return generation != null ? generation.intValue() : 0;
+	}
+
+	/**
+	 * Get the index of the sentence containing the given element, building it if necessary.
+	 *
+	 * @param element
+	 *            a sentence, or an element inside a sentence
+	 * @return the index, or null if the element is not in a sentence
+	 */
+	public static UtteranceIndex get(Element element) {
+		Element sentence;
+		if (element.getTagName().equals(MaryXML.SENTENCE)) {
+			sentence = element;
+		} else {
+			sentence = (Element) MaryDomUtils.getAncestor(element, MaryXML.SENTENCE);
+			if (sentence == null)
+				return null;
+		}
+		int generation = getGeneration(sentence.getOwnerDocument());
+		UtteranceIndex index = (UtteranceIndex) sentence.getUserData(USER_DATA_KEY);
+		if (index == null || index.generation != generation) {
+			index = new UtteranceIndex(sentence, generation);
+			sentence.setUserData(USER_DATA_KEY, index, null);
+		}
+		return index;
+	}
+
+	private final Element sentence;
+	private final int generation;
+	private final Map<Element, Integer> positions = new IdentityHashMap<Element, Integer>();
+
+	private final Element[] segments;
+	private final Element[] syllables;
+	private final Element[] tokens;
+	private final Element[] phrases;
+
+	// for each segment, the syllable, token and phrase containing it, or -1:
+	private final int[] segmentSyllable;
+	private final int[] segmentToken;
+	private final int[] segmentPhrase;
+	// for each segment, the first syllable, token and phrase starting after it:
+	private final int[] segmentNextSyllable;
+	private final int[] segmentNextToken;
+	private final int[] segmentNextPhrase;
+	// for each segment, the number of phones before it:
+	private final int[] segmentPhonesBefore;
+	// for each token, its first segment and syllable, and the ones following its last:
+	private final int[] tokenSegmentStart;
+	private final int[] tokenSegmentEnd;
+	// for each token, the number of phones before it and in it:
+	private final int[] tokenPhonesBefore;
+	private final int[] tokenNumPhones;
+	private final int[] tokenSyllableStart;
+	private final int[] tokenSyllableEnd;
+	// for each phrase, its first syllable and token, and the ones following its last:
+	private final int[] phraseSyllableStart;
+	private final int[] phraseSyllableEnd;
+	private final int[] phraseTokenStart;
+	private final int[] phraseTokenEnd;
+
+	private UtteranceIndex(Element sentence, int generation) {
+		this.sentence = sentence;
+		this.generation = generation;
+		Builder b = new Builder();
+		b.visit(sentence, -1, -1, -1);
+		segments = b.segments.toArray(new Element[b.segments.size()]);
+		syllables = b.syllables.toArray(new Element[b.syllables.size()]);
+		tokens = b.tokens.toArray(new Element[b.tokens.size()]);
+		phrases = b.phrases.toArray(new Element[b.phrases.size()]);
+		segmentSyllable = b.segmentSyllable.toArray();
+		segmentToken = b.segmentToken.toArray();
+		segmentPhrase = b.segmentPhrase.toArray();
+		segmentNextSyllable = b.segmentNextSyllable.toArray();
+		segmentNextToken = b.segmentNextToken.toArray();
+		segmentNextPhrase = b.segmentNextPhrase.toArray();
+		segmentPhonesBefore = b.segmentPhonesBefore.toArray();
+		tokenSegmentStart = b.tokenSegmentStart.toArray();
+		tokenSegmentEnd = b.tokenSegmentEnd.toArray();
+		tokenPhonesBefore = b.tokenPhonesBefore.toArray();
+		tokenNumPhones = b.tokenNumPhones.toArray();
+		tokenSyllableStart = b.tokenSyllableStart.toArray();
+		tokenSyllableEnd = b.tokenSyllableEnd.toArray();
+		phraseSyllableStart = b.phraseSyllableStart.toArray();
+		phraseSyllableEnd = b.phraseSyllableEnd.toArray();
+		phraseTokenStart = b.phraseTokenStart.toArray();
+		phraseTokenEnd = b.phraseTokenEnd.toArray();
+		for (int i = 0; i < segments.length; i++) {
+			positions.put(segments[i], i);
+		}
+		for (int i = 0; i < syllables.length; i++) {
+			positions.put(syllables[i], i);
+		}
+		for (int i = 0; i < tokens.length; i++) {
+			positions.put(tokens[i], i);
+		}
+		for (int i = 0; i < phrases.length; i++) {
+			positions.put(phrases[i], i);
+		}
+	}
+
+	public Element getSentence() {
+		return sentence;
+	}
+
+	/**
+	 * Get the position of a segment, syllable, token or phrase among the elements of its kind.
+	 *
+	 * @param e
+	 *            the element
+	 * @return the position, or -1 if the element is not indexed
+	 */
+	public int indexOf(Element e) {
+		Integer i = positions.get(e);
+		return i != null ? i.intValue() : -1;
+	}
+
+	public int getNumSegments() {
+		return segments.length;
+	}
+
+	public int getNumSyllables() {
+		return syllables.length;
+	}
+
+	public int getNumTokens() {
+		return tokens.length;
+	}
+
+	public int getNumPhrases() {
+		return phrases.length;
+	}
+
+	/**
+	 * @param i
+	 *            position of a segment
+	 * @return the phone or boundary at position i, or null if i is out of range
+	 */
+	public Element getSegment(int i) {
+		return i >= 0 && i < segments.length ? segments[i] : null;
+	}
+
+	/**
+	 * @param i
+	 *            position of a syllable
+	 * @return the syllable at position i, or null if i is out of range
+	 */
+	public Element getSyllable(int i) {
+		return i >= 0 && i < syllables.length ? syllables[i] : null;
+	}
+
+	/**
+	 * @param i
+	 *            position of a token
+	 * @return the token at position i, or null if i is out of range
+	 */
+	public Element getToken(int i) {
+		return i >= 0 && i < tokens.length ? tokens[i] : null;
+	}
+
+	/**
+	 * @param i
+	 *            position of a phrase
+	 * @return the phrase at position i, or null if i is out of range
+	 */
+	public Element getPhrase(int i) {
+		return i >= 0 && i < phrases.length ? phrases[i] : null;
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the syllable containing the segment, or -1 if it is not in a syllable
+	 */
+	public int getSyllableOfSegment(int segment) {
+		return segmentSyllable[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the token containing the segment, or -1 if it is not in a token
+	 */
+	public int getTokenOfSegment(int segment) {
+		return segmentToken[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the phrase containing the segment, or -1 if it is not in a phrase
+	 */
+	public int getPhraseOfSegment(int segment) {
+		return segmentPhrase[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the first syllable starting after the segment, or the number of syllables if there is none
+	 */
+	public int getNextSyllable(int segment) {
+		return segmentNextSyllable[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the first token starting after the segment, or the number of tokens if there is none
+	 */
+	public int getNextToken(int segment) {
+		return segmentNextToken[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the position of the first phrase starting after the segment, or the number of phrases if there is none
+	 */
+	public int getNextPhrase(int segment) {
+		return segmentNextPhrase[segment];
+	}
+
+	public int getFirstSegmentOfToken(int token) {
+		return tokenSegmentStart[token];
+	}
+
+	public int getEndSegmentOfToken(int token) {
+		return tokenSegmentEnd[token];
+	}
+
+	/**
+	 * @param segment
+	 *            position of a segment
+	 * @return the number of phones (not counting boundaries) before the segment in the sentence
+	 */
+	public int getPhonesBefore(int segment) {
+		return segmentPhonesBefore[segment];
+	}
+
+	/**
+	 * @param token
+	 *            position of a token
+	 * @return the number of phones (not counting boundaries) before the token in the sentence
+	 */
+	public int getPhonesBeforeToken(int token) {
+		return tokenPhonesBefore[token];
+	}
+
+	/**
+	 * @param token
+	 *            position of a token
+	 * @return the number of phones (not counting boundaries) in the token
+	 */
+	public int getNumPhonesOfToken(int token) {
+		return tokenNumPhones[token];
+	}
+
+	public int getFirstSyllableOfToken(int token) {
+		return tokenSyllableStart[token];
+	}
+
+	public int getEndSyllableOfToken(int token) {
+		return tokenSyllableEnd[token];
+	}
+
+	public int getFirstSyllableOfPhrase(int phrase) {
+		return phraseSyllableStart[phrase];
+	}
+
+	public int getEndSyllableOfPhrase(int phrase) {
+		return phraseSyllableEnd[phrase];
+	}
+
+	public int getFirstTokenOfPhrase(int phrase) {
+		return phraseTokenStart[phrase];
+	}
+
+	public int getEndTokenOfPhrase(int phrase) {
+		return phraseTokenEnd[phrase];
+	}
+
+	/**
+	 * Collects the elements of the sentence in document order.
+	 */
+	private static class Builder {
+		final List<Element> segments = new ArrayList<Element>();
+		final List<Element> syllables = new ArrayList<Element>();
+		final List<Element> tokens = new ArrayList<Element>();
+		final List<Element> phrases = new ArrayList<Element>();
+		final IntList segmentSyllable = new IntList();
+		final IntList segmentToken = new IntList();
+		final IntList segmentPhrase = new IntList();
+		final IntList segmentNextSyllable = new IntList();
+		final IntList segmentNextToken = new IntList();
+		final IntList segmentNextPhrase = new IntList();
+		final IntList segmentPhonesBefore = new IntList();
+		final IntList tokenSegmentStart = new IntList();
+		final IntList tokenSegmentEnd = new IntList();
+		final IntList tokenPhonesBefore = new IntList();
+		final IntList tokenNumPhones = new IntList();
+		int numPhones;
+		final IntList tokenSyllableStart = new IntList();
+		final IntList tokenSyllableEnd = new IntList();
+		final IntList phraseSyllableStart = new IntList();
+		final IntList phraseSyllableEnd = new IntList();
+		final IntList phraseTokenStart = new IntList();
+		final IntList phraseTokenEnd = new IntList();
+
+		void visit(Element parent, int syllable, int token, int phrase) {
+			for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+				if (n.getNodeType() != Node.ELEMENT_NODE)
+					continue;
+				Element e = (Element) n;
+				String name = e.getTagName();
+				if (name.equals(MaryXML.PHONE) || name.equals(MaryXML.BOUNDARY)) {
+					segments.add(e);
+					segmentSyllable.add(syllable);
+					segmentToken.add(token);
+					segmentPhrase.add(phrase);
+					segmentNextSyllable.add(syllables.size());
+					segmentNextToken.add(tokens.size());
+					segmentNextPhrase.add(phrases.size());
+					segmentPhonesBefore.add(numPhones);
+					if (name.equals(MaryXML.PHONE)) {
+						numPhones++;
+					}
+				} else if (name.equals(MaryXML.SYLLABLE)) {
+					syllables.add(e);
+					visit(e, syllables.size() - 1, token, phrase);
+				} else if (name.equals(MaryXML.TOKEN)) {
+					int t = tokens.size();
+					tokens.add(e);
+					tokenSegmentStart.add(segments.size());
+					tokenSyllableStart.add(syllables.size());
+					tokenPhonesBefore.add(numPhones);
+					tokenSegmentEnd.add(-1);
+					tokenSyllableEnd.add(-1);
+					tokenNumPhones.add(-1);
+					visit(e, syllable, t, phrase);
+					tokenSegmentEnd.set(t, segments.size());
+					tokenSyllableEnd.set(t, syllables.size());
+					tokenNumPhones.set(t, numPhones - tokenPhonesBefore.get(t));
+				} else if (name.equals(MaryXML.PHRASE)) {
+					int p = phrases.size();
+					phrases.add(e);
+					phraseSyllableStart.add(syllables.size());
+					phraseTokenStart.add(tokens.size());
+					phraseSyllableEnd.add(-1);
+					phraseTokenEnd.add(-1);
+					visit(e, syllable, token, p);
+					phraseSyllableEnd.set(p, syllables.size());
+					phraseTokenEnd.set(p, tokens.size());
+				} else {
+					visit(e, syllable, token, phrase);
+				}
+			}
+		}
+	}
+
+	private static class IntList {
+		private int[] data = new int[16];
+		private int size;
+
+		void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+			}
+			data[size++] = value;
+		}
+
+		void set(int i, int value) {
+			data[i] = value;
+		}
+
+		int get(int i) {
+			return data[i];
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
@@ -214,7 +214,7 @@ public class CartTreeSet {
 		double durscale = htsData.getDurationScale();
 		double meanVector[], varVector[];
 		// the duration tree has only one state
-		PdfLeafNode node = (PdfLeafNode) durTree[0].interpretToNode(fv, 0);
+		PdfLeafNode node = (PdfLeafNode) durTree[0].compile().interpretToNode(fv, 0);
 
 		meanVector = node.getMean();
 		varVector = node.getVariance();
@@ -258,7 +258,7 @@ public class CartTreeSet {
 	 */
 	public void searchLf0InCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef, double uvthresh) {
 		for (int s = 0; s < numStates; s++) {
-			PdfLeafNode node = (PdfLeafNode) lf0Tree[s].interpretToNode(fv, 1);
+			PdfLeafNode node = (PdfLeafNode) lf0Tree[s].compile().interpretToNode(fv, 1);
 			m.setLf0Mean(s, node.getMean());
 			m.setLf0Variance(s, node.getVariance());
 			// set voiced or unvoiced
@@ -282,7 +282,7 @@ public class CartTreeSet {
 	 */
 	public void searchMgcInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
 		for (int s = 0; s < numStates; s++) {
-			PdfLeafNode node = (PdfLeafNode) mgcTree[s].interpretToNode(fv, 1);
+			PdfLeafNode node = (PdfLeafNode) mgcTree[s].compile().interpretToNode(fv, 1);
 			m.setMcepMean(s, node.getMean());
 			m.setMcepVariance(s, node.getVariance());
 		}
@@ -300,7 +300,7 @@ public class CartTreeSet {
 	 */
 	public void searchStrInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
 		for (int s = 0; s < numStates; s++) {
-			PdfLeafNode node = (PdfLeafNode) strTree[s].interpretToNode(fv, 1);
+			PdfLeafNode node = (PdfLeafNode) strTree[s].compile().interpretToNode(fv, 1);
 			m.setStrMean(s, node.getMean());
 			m.setStrVariance(s, node.getVariance());
 		}
@@ -318,7 +318,7 @@ public class CartTreeSet {
 	 */
 	public void searchMagInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
 		for (int s = 0; s < numStates; s++) {
-			PdfLeafNode node = (PdfLeafNode) magTree[s].interpretToNode(fv, 1);
+			PdfLeafNode node = (PdfLeafNode) magTree[s].compile().interpretToNode(fv, 1);
 			m.setMagMean(s, node.getMean());
 			m.setMagVariance(s, node.getVariance());
 		}
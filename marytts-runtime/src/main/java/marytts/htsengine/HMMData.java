@@ -159,6 +159,14 @@ public class HMMData {
 
 	private boolean useAcousticModels = false; /* true is using AcousticModeller, is true for MARY 4.1 voices */
 
+	/**
+	 * Streaming parameter generation: if streamingWindow is greater than 0, parameters are generated in windows of about this
+	 * many frames, each with streamingLookahead frames of context on either side, and handed to the vocoder as soon as they are
+	 * ready.
+	 */
+	private int streamingWindow = 0;
+	private int streamingLookahead = 40;
+
 	/**
 	 * variables for controlling generation of speech in the vocoder these variables have default values but can be fixed and read
 	 * from the audio effects component. [Default][min--max]
@@ -324,6 +332,22 @@ public class HMMData {
 		useAcousticModels = bval;
 	}
 
+	public int getStreamingWindow() {
+		return streamingWindow;
+	}
+
+	public void setStreamingWindow(int val) {
+		streamingWindow = val;
+	}
+
+	public int getStreamingLookahead() {
+		return streamingLookahead;
+	}
+
+	public void setStreamingLookahead(int val) {
+		streamingLookahead = val;
+	}
+
 	public boolean getUseMixExc() {
 		return useMixExc;
 	}
@@ -569,6 +593,8 @@ public class HMMData {
 																		 * use AcousticModeller, so prosody modification is
 																		 * enabled
 																		 */
+		streamingWindow = p.getInteger(prefix + ".streamingWindow", streamingWindow); /* frames per window, 0 to disable */
+		streamingLookahead = p.getInteger(prefix + ".streamingLookahead", streamingLookahead); /* context frames per window */
 		useMixExc = p.getBoolean(prefix + ".useMixExc"); /* Use Mixed excitation */
 		useFourierMag = p.getBoolean(prefix + ".useFourierMag"); /* Use Fourier magnitudes for pulse generation */
 
@@ -93,29 +93,41 @@ public class HMMVoice extends Voice {
 	public HMMVoice(String voiceName, WaveformSynthesizer synthesizer) throws Exception {
 		super(voiceName, synthesizer);
 
-		htsData.initHMMData(voiceName);
+		loadOrDeferData();
+	}
 
+	/**
+	 * Load the HMM models of this voice.
+	 */
+	@Override
+	protected void loadData() throws Exception {
+		htsData.initHMMData(getName());
 	}
 
 	public HMMData getHMMData() {
+		needData();
 		return this.htsData;
 	}
 
 	/* set parameters for generation: f0Std, f0Mean and length, default values 1.0, 0.0 and 0.0 */
 	/* take the values from audio effects component through a MaryData object */
 	public void setF0Std(double dval) {
+		needData();
 		htsData.setF0Std(dval);
 	}
 
 	public void setF0Mean(double dval) {
+		needData();
 		htsData.setF0Mean(dval);
 	}
 
 	public void setLength(double dval) {
+		needData();
 		htsData.setLength(dval);
 	}
 
 	public void setDurationScale(double dval) {
+		needData();
 		htsData.setDurationScale(dval);
 	}
 
@@ -188,6 +188,36 @@ public class HTSPStream {
 
 	}
 
+	/**
+	 * Create a parameter stream for the frames from (inclusive) to to (exclusive) of the given stream, sharing its mean vectors
+	 * and GV pdfs. The dynamic features are treated as unknown on the edges of the window, like on the edges of an utterance.
+	 */
+	private HTSPStream(HTSPStream source, int from, int to) {
+		feaType = source.feaType;
+		vSize = source.vSize;
+		order = source.order;
+		nT = to - from;
+		maxGVIter = source.maxGVIter;
+		par = new double[nT][order];
+		mseq = new double[nT][];
+		ivseq = new double[nT][];
+		g = new double[nT];
+		wuw = new double[nT][WIDTH];
+		wum = new double[nT];
+		gvSwitch = new boolean[nT];
+		gvLength = 0;
+		for (int t = 0; t < nT; t++) {
+			mseq[t] = source.mseq[from + t];
+			ivseq[t] = Arrays.copyOf(source.ivseq[from + t], vSize);
+			gvSwitch[t] = source.gvSwitch[from + t];
+			if (gvSwitch[t])
+				gvLength++;
+		}
+		gvmean = source.gvmean;
+		gvcovInv = source.gvcovInv;
+		fixDynFeatOnBoundaries();
+	}
+
 	public int getVsize() {
 		return vSize;
 	}
@@ -272,6 +302,45 @@ public class HTSPStream {
 		else
 			logger.info("Global variance optimization");
 
+		solve(htsData, useGV);
+	} /* method mlpg */
+
+	/**
+	 * Generate the parameters of frames commitFrom to commitTo (exclusive) only, by solving the maximum likelihood problem over
+	 * the window of frames from to to (exclusive) instead of the whole utterance. The frames of the window outside the committed
+	 * range give the solution the necessary context; since the influence of a frame on the solution decays quickly with the
+	 * distance, a few dozen frames of context on each side give results that are very close to those of {@link #mlpg(HMMData)}.
+	 * If GV is used, it is applied to the window and not to the whole utterance.
+	 *
+	 * @param htsData
+	 *            htsData
+	 * @param useGV
+	 *            whether to apply global variance optimisation within the window
+	 * @param from
+	 *            first frame of the window
+	 * @param to
+	 *            end of the window (exclusive)
+	 * @param commitFrom
+	 *            first frame whose parameters are set, must not be less than from
+	 * @param commitTo
+	 *            end of the frames whose parameters are set (exclusive), must not be greater than to
+	 */
+	public void mlpg(HMMData htsData, boolean useGV, int from, int to, int commitFrom, int commitTo) {
+		if (from < 0 || to > nT || commitFrom < from || commitTo > to || commitFrom > commitTo) {
+			throw new IllegalArgumentException("Invalid window [" + from + "," + to + ") for frames [" + commitFrom + ","
+					+ commitTo + ") of " + nT);
+		}
+		if (commitFrom == commitTo) {
+			return;
+		}
+		HTSPStream window = new HTSPStream(this, from, to);
+		window.solve(htsData, useGV);
+		for (int t = commitFrom; t < commitTo; t++) {
+			System.arraycopy(window.par[t - from], 0, par[t], 0, order);
+		}
+	}
+
+	private void solve(HMMData htsData, boolean useGV) {
 		for (int m = 0; m < order; m++) {
 			calcWUWandWUM(m);
 			double[][] mywuw = new double[nT][];
@@ -296,7 +365,7 @@ public class HTSPStream {
 
 			}
 		}
-	} /* method mlpg */
+	}
 
 	/*----------------- HTS parameter generation fuctions  -----------------------------*/
 
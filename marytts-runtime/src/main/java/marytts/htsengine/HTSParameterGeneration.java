@@ -109,6 +109,14 @@ public class HTSParameterGeneration {
 	private int totalUttFrame; // total number of frames in a mcep, str or mag Pst
 	private int totalLf0Frame; // total number of f0 voiced frames in a lf0 Pst
 
+	/*
+	 * Number of utterance frames for which all parameters have been generated; the vocoder may start with these while the rest
+	 * is still being generated. All frames are available unless a parameter generation is under way.
+	 */
+	private final Object frameLock = new Object();
+	private volatile int availableFrames = Integer.MAX_VALUE;
+	private volatile boolean generationFailed = false;
+
 	private Logger logger = MaryUtils.getLogger("ParameterGeneration");
 
 	public HTSPStream getMcepPst() {
@@ -181,7 +189,28 @@ public class HTSParameterGeneration {
 	 *             Exception
 	 */
 	public void htsMaximumLikelihoodParameterGeneration(HTSUttModel um, final HMMData htsData) throws Exception {
+		initialiseParameterStreams(um, htsData);
+		generateParameters(um, htsData, 0, 0);
+	} /* method htsMaximumLikelihoodParameterGeneration */
+
+	/**
+	 * First part of the parameter generation: set up the parameter streams with the pdfs of the utterance model. After this, the
+	 * streams can be passed to the vocoder, which will wait for the parameters of each frame until
+	 * {@link #generateParameters(HTSUttModel, HMMData, int, int)} has made them available.
+	 *
+	 * @param um
+	 *            : utterance model sequence after processing Mary context features
+	 * @param htsData
+	 *            : HMM pdfs model set.
+	 * @throws Exception
+	 *             Exception
+	 */
+	public void initialiseParameterStreams(HTSUttModel um, final HMMData htsData) throws Exception {
 		CartTreeSet ms = htsData.getCartTreeSet();
+		synchronized (frameLock) {
+			availableFrames = 0;
+			generationFailed = false;
+		}
 
 		/* Initialisation of PStream objects */
 		/* Initialise Parameter generation using UttModel um and Modelset ms */
@@ -292,7 +321,8 @@ public class HTSParameterGeneration {
 			} /* for each state in this model */
 		} /* for each model in this utterance */
 
-		GVModelSet gvms = htsData.getGVModelSet();
+		totalUttFrame = uttFrame;
+		totalLf0Frame = lf0Frame;
 
 		// Step 2: set dynamic features to infinity on the borders for MGC/STR/MAG
 		if (mcepPst != null)
@@ -302,51 +332,157 @@ public class HTSParameterGeneration {
 		if (magPst != null)
 			magPst.fixDynFeatOnBoundaries();
 
-		// Step 3: optimize individual parameter streams
-
-		/* parameter generation for mcep */
-		if (mcepPst != null) {
-			logger.info("Parameter generation for MGC: ");
-			if (htsData.getUseGV() && (htsData.getPdfMgcGVStream() != null))
-				mcepPst.setGvMeanVar(gvms.getGVmeanMgc(), gvms.getGVcovInvMgc());
-			mcepPst.mlpg(htsData, htsData.getUseGV());
-		}
-
-		// parameter generation for lf0 */
+		/* f0 from maryXML replaces the lf0 stream, so this must be done before the streams are handed out */
 		if (htsData.getUseAcousticModels())
 			loadMaryXmlF0(um, htsData);
-		else if (lf0Pst != null) {
-			logger.info("Parameter generation for LF0: ");
-			if (htsData.getUseGV() && (htsData.getPdfLf0GVStream() != null))
-				lf0Pst.setGvMeanVar(gvms.getGVmeanLf0(), gvms.getGVcovInvLf0());
-			lf0Pst.mlpg(htsData, htsData.getUseGV());
-			// here we need set realisedF0
-			setRealisedF0(lf0Pst, um, msNumStates);
+	}
+
+	/**
+	 * Second part of the parameter generation: optimize the individual parameter streams set up by
+	 * {@link #initialiseParameterStreams(HTSUttModel, HMMData)}.
+	 * <p>
+	 * If windowFrames is greater than 0 and the utterance is long enough, the utterance is cut at phone boundaries into blocks
+	 * of at least windowFrames frames, and the parameters of each block are generated from a window including lookahead frames
+	 * of context on either side (see {@link HTSPStream#mlpg(HMMData, boolean, int, int, int, int)}). The frames of each block are
+	 * made available to the vocoder as soon as they are generated, so that audio can be produced before the parameters of the
+	 * whole utterance are known. Otherwise, the parameters are generated for the whole utterance at once.
+	 * </p>
+	 *
+	 * @param um
+	 *            : utterance model sequence after processing Mary context features
+	 * @param htsData
+	 *            : HMM pdfs model set.
+	 * @param windowFrames
+	 *            : minimum number of frames in a block, or 0 to generate the whole utterance at once
+	 * @param lookahead
+	 *            : number of context frames on either side of a block
+	 * @throws Exception
+	 *             Exception
+	 */
+	public void generateParameters(HTSUttModel um, final HMMData htsData, int windowFrames, int lookahead) throws Exception {
+		int msNumStates = htsData.getCartTreeSet().getNumStates();
+		GVModelSet gvms = htsData.getGVModelSet();
+		boolean generateLf0 = lf0Pst != null && !htsData.getUseAcousticModels();
+
+		boolean useMgcGV = htsData.getUseGV();
+		if (mcepPst != null && htsData.getUseGV() && (htsData.getPdfMgcGVStream() != null))
+			mcepPst.setGvMeanVar(gvms.getGVmeanMgc(), gvms.getGVcovInvMgc());
+		boolean useLf0GV = htsData.getUseGV();
+		if (generateLf0 && htsData.getUseGV() && (htsData.getPdfLf0GVStream() != null))
+			lf0Pst.setGvMeanVar(gvms.getGVmeanLf0(), gvms.getGVcovInvLf0());
+		boolean useStrGV = false;
+		if (strPst != null && htsData.getUseGV() && (htsData.getPdfStrGVStream() != null)) {
+			useStrGV = true;
+			strPst.setGvMeanVar(gvms.getGVmeanStr(), gvms.getGVcovInvStr());
 		}
+		boolean useMagGV = false;
+		if (magPst != null && htsData.getUseGV() && (htsData.getPdfMagGVStream() != null)) {
+			useMagGV = true;
+			magPst.setGvMeanVar(gvms.getGVmeanMag(), gvms.getGVcovInvMag());
+		}
+
+		boolean success = false;
+		try {
+			if (windowFrames <= 0 || totalUttFrame <= windowFrames + lookahead) {
+				// Step 3: optimize individual parameter streams
+
+				/* parameter generation for mcep */
+				if (mcepPst != null) {
+					logger.info("Parameter generation for MGC: ");
+					mcepPst.mlpg(htsData, useMgcGV);
+				}
 
-		/* parameter generation for str */
-		boolean useGV = false;
-		if (strPst != null) {
-			logger.debug("Parameter generation for STR ");
-			if (htsData.getUseGV() && (htsData.getPdfStrGVStream() != null)) {
-				useGV = true;
-				strPst.setGvMeanVar(gvms.getGVmeanStr(), gvms.getGVcovInvStr());
+				// parameter generation for lf0 */
+				if (generateLf0) {
+					logger.info("Parameter generation for LF0: ");
+					lf0Pst.mlpg(htsData, useLf0GV);
+				}
+
+				/* parameter generation for str */
+				if (strPst != null) {
+					logger.debug("Parameter generation for STR ");
+					strPst.mlpg(htsData, useStrGV);
+				}
+
+				/* parameter generation for mag */
+				if (magPst != null) {
+					logger.info("Parameter generation for MAG ");
+					magPst.mlpg(htsData, useMagGV);
+				}
+			} else {
+				logger.info("Parameter generation in windows of " + windowFrames + " frames with " + lookahead
+						+ " frames lookahead");
+				/* lf0 streams only contain the voiced frames: map utterance frames to lf0 frames */
+				int[] lf0Index = new int[totalUttFrame + 1];
+				for (int t = 0; t < totalUttFrame; t++)
+					lf0Index[t + 1] = lf0Index[t] + (voiced[t] ? 1 : 0);
+
+				int blockStart = 0;
+				int blockEnd = 0;
+				for (int i = 0; i < um.getNumUttModel(); i++) {
+					HTSModel m = um.getUttModel(i);
+					for (int state = 0; state < msNumStates; state++)
+						blockEnd += m.getDur(state);
+					if (blockEnd - blockStart < windowFrames && i < um.getNumUttModel() - 1)
+						continue;
+					int from = Math.max(0, blockStart - lookahead);
+					int to = Math.min(totalUttFrame, blockEnd + lookahead);
+					if (mcepPst != null)
+						mcepPst.mlpg(htsData, useMgcGV, from, to, blockStart, blockEnd);
+					if (generateLf0)
+						lf0Pst.mlpg(htsData, useLf0GV, lf0Index[from], lf0Index[to], lf0Index[blockStart], lf0Index[blockEnd]);
+					if (strPst != null)
+						strPst.mlpg(htsData, useStrGV, from, to, blockStart, blockEnd);
+					if (magPst != null)
+						magPst.mlpg(htsData, useMagGV, from, to, blockStart, blockEnd);
+					publishFrames(blockEnd);
+					blockStart = blockEnd;
+				}
+			}
+			success = true;
+		} finally {
+			synchronized (frameLock) {
+				generationFailed = !success;
+				availableFrames = Integer.MAX_VALUE;
+				frameLock.notifyAll();
 			}
-			strPst.mlpg(htsData, useGV);
 		}
 
-		/* parameter generation for mag */
-		useGV = false;
-		if (magPst != null) {
-			logger.info("Parameter generation for MAG ");
-			if (htsData.getUseGV() && (htsData.getPdfMagGVStream() != null)) {
-				useGV = true;
-				magPst.setGvMeanVar(gvms.getGVmeanMag(), gvms.getGVcovInvMag());
-			}
-			magPst.mlpg(htsData, useGV);
+		// here we need set realisedF0
+		if (generateLf0)
+			setRealisedF0(lf0Pst, um, msNumStates);
+	}
+
+	private void publishFrames(int numFrames) {
+		synchronized (frameLock) {
+			availableFrames = numFrames;
+			frameLock.notifyAll();
 		}
+	}
 
-	} /* method htsMaximumLikelihoodParameterGeneration */
+	/**
+	 * Wait until the parameters of the given number of frames have been generated.
+	 *
+	 * @param numFrames
+	 *            number of utterance frames, counted from the start of the utterance
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws IllegalStateException
+	 *             if parameter generation failed
+	 */
+	public void awaitFrames(int numFrames) throws InterruptedException {
+		if (availableFrames >= numFrames && !generationFailed) {
+			return;
+		}
+		synchronized (frameLock) {
+			while (availableFrames < numFrames) {
+				frameLock.wait();
+			}
+			if (generationFailed) {
+				throw new IllegalStateException("Parameter generation failed");
+			}
+		}
+	}
 
 	/* Save generated parameters in a binary file */
 	public void saveParamMaryFormat(String fileName, HTSPStream par, HMMData.FeatureType type) {
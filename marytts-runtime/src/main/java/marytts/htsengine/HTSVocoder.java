@@ -70,6 +70,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -142,6 +143,60 @@ public class HTSVocoder {
 	private boolean mixedExcitation = false;
 	private boolean fourierMagnitudes = false;
 
+	/* buffers that are reused from frame to frame and from utterance to utterance, so that synthesis does not allocate memory */
+	private double mc[]; /* feature vector for the current frame */
+	private double hp[]; /* pulse shaping filter */
+	private double hn[]; /* noise shaping filter */
+	private double pulse[];
+	private double noise[];
+	private double source[];
+	private PostfilterBuffers postfilterBuffers;
+	private double magBuff[]; /* Fourier magnitudes of the current frame */
+	private double pulseBuff[]; /* one pitch period generated from Fourier magnitudes */
+	private double realBuff[];
+	private double imagBuff[];
+	private double lsp2lpcBuff[];
+	private double gc2gcBuff[];
+
+	/* vocoders which are not currently in use, see acquire() */
+	private static final ConcurrentLinkedQueue<HTSVocoder> pool = new ConcurrentLinkedQueue<HTSVocoder>();
+	private static final int MAX_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+	private boolean pooled = false;
+
+	/**
+	 * Get a vocoder that is not in use by any other thread. Vocoders obtained like this keep their buffers from one utterance to
+	 * the next; they must be handed back with {@link #release()} when done. Vocoders used through
+	 * {@link #htsMLSAVocoder(HTSParameterGeneration, HMMData)} are released automatically at the end of the audio stream.
+	 *
+	 * @return a vocoder from the pool, or a new one if the pool is empty
+	 */
+	public static HTSVocoder acquire() {
+		HTSVocoder vocoder = pool.poll();
+		if (vocoder == null) {
+			vocoder = new HTSVocoder();
+			vocoder.pooled = true;
+		}
+		return vocoder;
+	}
+
+	/**
+	 * Return a vocoder obtained from {@link #acquire()} to the pool. The vocoder must not be used after this. For vocoders created
+	 * with the constructor, this does nothing.
+	 */
+	public void release() {
+		if (pooled && pool.size() < MAX_POOL_SIZE) {
+			pool.offer(this);
+		}
+	}
+
+	private static double[] reuse(double[] buffer, int length) {
+		if (buffer == null || buffer.length != length) {
+			return new double[length];
+		}
+		Arrays.fill(buffer, 0.0);
+		return buffer;
+	}
+
 	/**
 	 * The initialisation of VocoderSetup should be done when there is already information about the number of feature vectors to
 	 * be processed, size of the mcep vector file, etc.
@@ -162,17 +217,21 @@ public class HTSVocoder {
 		fprd = htsData.getFperiod();
 		rate = htsData.getRate();
 
-		rand = new Random(SEED);
+		if (rand == null)
+			rand = new Random(SEED);
+		else
+			rand.setSeed(SEED);
 
-		C = new double[mcep_order];
-		CC = new double[mcep_order];
-		CINC = new double[mcep_order];
+		C = reuse(C, mcep_order);
+		CC = reuse(CC, mcep_order);
+		CINC = reuse(CINC, mcep_order);
+		mc = reuse(mc, mcep_order);
 
 		if (stage == 0) { /* for MGC */
 
 			/* mcep_order=74 and pd=PADEORDER=5 (if no HTS_EMBEDDED is used) */
 			int vector_size = (mcep_vsize * (3 + PADEORDER) + 5 * PADEORDER + 6) - (3 * (mcep_order));
-			D1 = new double[vector_size];
+			D1 = reuse(D1, vector_size);
 
 			pt2 = (2 * (PADEORDER + 1)) + (PADEORDER * (mcep_order + 1));
 
@@ -181,7 +240,9 @@ public class HTSVocoder {
 
 		} else { /* for LSP */
 			int vector_size = ((mcep_vsize + 1) * (stage + 3)) - (3 * (mcep_order));
-			D1 = new double[vector_size];
+			D1 = reuse(D1, vector_size);
+			lsp2lpcBuff = reuse(lsp2lpcBuff, 5 * (mcep_order - 1) + 6);
+			gc2gcBuff = reuse(gc2gcBuff, mcep_order);
 		}
 
 		/* excitation initialisation */
@@ -256,8 +317,6 @@ public class HTSVocoder {
 		int magSample, magPulseSize;
 
 		double f0Std, f0Shift, f0MeanOri;
-		double hp[] = null; /* pulse shaping filter, it is initialised once it is known orderM */
-		double hn[] = null; /* noise shaping filter, it is initialised once it is known orderM */
 
 		/*
 		 * Initialise vocoder and mixed excitation, once initialised it is known the order of the filters so the shaping filters
@@ -265,11 +324,10 @@ public class HTSVocoder {
 		 */
 		m = mcepPst.getOrder();
 		initVocoder(m, mcepPst.getVsize() - 1, htsData);
-		double pulse[] = new double[fprd];
-		double noise[] = new double[fprd];
-		double source[] = new double[fprd];
+		pulse = reuse(pulse, fprd);
+		noise = reuse(noise, fprd);
+		source = reuse(source, fprd);
 
-		double[] d = new double[m];
 		mixedExcitation = htsData.getUseMixExc();
 		fourierMagnitudes = htsData.getUseFourierMag();
 
@@ -277,13 +335,13 @@ public class HTSVocoder {
 			numM = htsData.getNumFilters();
 			orderM = htsData.getOrderFilters();
 
-			xpulseSignal = new double[orderM];
-			xnoiseSignal = new double[orderM];
-			/* initialise xp_sig and xn_sig */// -> automatically initialized to 0.0
+			xpulseSignal = reuse(xpulseSignal, orderM);
+			xnoiseSignal = reuse(xnoiseSignal, orderM);
+			/* initialise xp_sig and xn_sig */// -> reuse() fills them with 0.0
 
 			h = htsData.getMixFilters();
-			hp = new double[orderM];
-			hn = new double[orderM];
+			hp = reuse(hp, orderM);
+			hn = reuse(hn, orderM);
 
 			// Check if the number of filters is equal to the order of strpst
 			// i.e. the number of filters is equal to the number of generated strengths per frame.
@@ -297,44 +355,57 @@ public class HTSVocoder {
 		} else
 			logger.debug("HMM speech generation without mixed-excitation.");
 
-		if (fourierMagnitudes && htsData.getPdfMagStream() != null)
+		if (fourierMagnitudes && htsData.getPdfMagStream() != null) {
 			logger.debug("Pulse generated with Fourier Magnitudes.");
+			magBuff = reuse(magBuff, magPst.getOrder());
+		}
 		// else
 		// logger.info("Pulse generated as a unit pulse.");
 
-		if (beta != 0.0)
+		if (beta != 0.0) {
 			logger.debug("Postfiltering applied with beta=" + beta);
-		else
+			if (postfilterBuffers == null || postfilterBuffers.m != m - 1)
+				postfilterBuffers = new PostfilterBuffers(m - 1);
+		} else
 			logger.debug("No postfiltering applied.");
 
 		f0Std = htsData.getF0Std();
 		f0Shift = htsData.getF0Mean();
 		f0MeanOri = 0.0;
 
-		for (mcepframe = 0, lf0frame = 0; mcepframe < mcepPst.getT(); mcepframe++) {
-			if (voiced[mcepframe]) {
-				f0MeanOri = f0MeanOri + Math.exp(lf0Pst.getPar(lf0frame, 0));
-				// System.out.println("voiced t=" + mcepframe + "  " + lf0Pst.getPar(lf0frame, 0) + "  ");
-				lf0frame++;
+		/* the mean f0 is only needed for scaling f0, and then we have to wait for the whole lf0 stream */
+		if (f0Std != 1.0) {
+			if (audioProducer != null)
+				audioProducer.awaitFrames(mcepPst.getT());
+			for (mcepframe = 0, lf0frame = 0; mcepframe < mcepPst.getT(); mcepframe++) {
+				if (voiced[mcepframe]) {
+					f0MeanOri = f0MeanOri + Math.exp(lf0Pst.getPar(lf0frame, 0));
+					// System.out.println("voiced t=" + mcepframe + "  " + lf0Pst.getPar(lf0frame, 0) + "  ");
+					lf0frame++;
+				}
+				// else
+				// System.out.println("unvoiced t=" + mcepframe + "  0.0  ");
 			}
-			// else
-			// System.out.println("unvoiced t=" + mcepframe + "  0.0  ");
+			f0MeanOri = f0MeanOri / lf0frame;
 		}
-		f0MeanOri = f0MeanOri / lf0frame;
 
 		/* _______________________Synthesize speech waveforms_____________________ */
 		/* generate Nperiod samples per mcepframe */
 		int s = 0; /* number of samples */
 		int s_double = 0;
-		int audio_size = computeAudioSize(mcepPst, htsData); /* audio size in samples, calculated as num frames * frame period */
-		double[] audio_double = new double[audio_size]; /* initialise buffer for audio */
+		double[] audio_double = null; /* only needed if the samples are not passed on to an audio producer */
+		if (audioProducer == null) {
+			int audio_size = computeAudioSize(mcepPst, htsData); /* audio size in samples, calculated as num frames * frame period */
+			audio_double = new double[audio_size]; /* initialise buffer for audio */
+		}
 
 		magSample = 1;
 		magPulseSize = 0;
 		for (mcepframe = 0, lf0frame = 0; mcepframe < mcepPst.getT(); mcepframe++) { /* for each mcep frame */
+			/* with streaming parameter generation, the parameters of this frame may not be ready yet */
+			if (audioProducer != null)
+				audioProducer.awaitFrames(mcepframe + 1);
 
-			/** feature vector for a particular frame */
-			double mc[] = new double[m]; /* feature vector for a particular frame */
 			/* get current feature vector mgc */
 			for (int i = 0; i < m; i++)
 				mc[i] = mcepPst.getPar(mcepframe, i);
@@ -392,7 +463,8 @@ public class HTSVocoder {
 
 			if (stage == 0) {
 				/* postfiltering, this is done if beta>0.0 */
-				postfilter_mgc(mc, (m - 1), alpha, beta);
+				if (beta > 0.0 && m > 2)
+					postfilter_mgc(mc, (m - 1), alpha, beta, postfilterBuffers);
 				/* mc2b: transform mel-cepstrum to MLSA digital filter coefficients */
 				mc2b(mc, CC, (m - 1), alpha);
 				for (int i = 0; i < m; i++)
@@ -441,7 +513,7 @@ public class HTSVocoder {
 				} else {
 					if ((pc += 1.0) >= p1) {
 						if (fourierMagnitudes) {
-							magPulse = genPulseFromFourierMag(magPst, mcepframe, p1);
+							magPulse = genPulseFromFourierMag(magPst, mcepframe, p1, magBuff);
 							magSample = 0;
 							magPulseSize = magPulse.length;
 							x = magPulse[magSample];
@@ -507,9 +579,10 @@ public class HTSVocoder {
 				}
 
 				// System.out.format("%f ", x);
-				audio_double[s_double] = x;
 				if (audioProducer != null) {
 					audioProducer.putOneDataPoint(x);
+				} else {
+					audio_double[s_double] = x;
 				}
 
 				s_double++;
@@ -768,9 +841,13 @@ public class HTSVocoder {
 	 *            a
 	 */
 	public static void freqt(double c1[], int m1, double c2[], int m2, double a) {
+		freqt(c1, m1, c2, m2, a, new double[(m2 + m2 + 2)]);
+	}
+
+	private static void freqt(double c1[], int m1, double c2[], int m2, double a, double freqt_buff[]) {
 		double b = 1 - a * a;
 
-		double freqt_buff[] = new double[(m2 + m2 + 2)]; /* used in freqt */
+		Arrays.fill(freqt_buff, 0, m2 + m2 + 2, 0.0); /* used in freqt */
 		int g = m2 + 1; /* offset of freqt_buff */
 
 		for (int i = -m1; i <= 0; i++) {
@@ -824,15 +901,16 @@ public class HTSVocoder {
 	 * @return en
 	 */
 	public static double b2en(double b[], int m, double a) {
-		double cep[], ir[];
-		int arrayLength = (m + 1) + 2 * IRLENG;
-		double[] spectrum2en_buff = new double[arrayLength];
-		cep = new double[arrayLength]; /* CHECK! these sizes!!! */
-		ir = new double[arrayLength];
+		return b2en(b, m, a, new PostfilterBuffers(m));
+	}
 
-		b2mc(b, spectrum2en_buff, m, a);
+	private static double b2en(double b[], int m, double a, PostfilterBuffers buffers) {
+		double[] cep = buffers.cep;
+		double[] ir = buffers.ir;
+
+		b2mc(b, buffers.spectrum2en, m, a);
 		/* freqt(vs->mc, m, vs->cep, vs->irleng - 1, -a); */
-		freqt(spectrum2en_buff, m, cep, IRLENG - 1, -a);
+		freqt(buffers.spectrum2en, m, cep, IRLENG - 1, -a, buffers.freqt);
 		/* HTS_c2ir(vs->cep, vs->irleng, vs->ir, vs->irleng); */
 		c2ir(cep, IRLENG, ir, IRLENG);
 		double en = 0.0;
@@ -905,6 +983,10 @@ public class HTSVocoder {
 	 *            m
 	 */
 	public static void lsp2lpc(double lsp[], double a[], int m) {
+		lsp2lpc(lsp, a, m, new double[(5 * m + 6)]);
+	}
+
+	private static void lsp2lpc(double lsp[], double a[], int m, double[] lsp2lpc_buff) {
 		int i, k, mh1, mh2, flag_odd;
 		double xx, xf, xff;
 		int p, q; /* offsets of lsp2lpc_buff */
@@ -919,7 +1001,6 @@ public class HTSVocoder {
 			flag_odd = 1;
 		}
 
-		double[] lsp2lpc_buff = new double[(5 * m + 6)];
 		int lsp2lpc_size = m;
 
 		/* offsets of lsp2lpcbuff */
@@ -1012,7 +1093,11 @@ public class HTSVocoder {
 	 *            g2
 	 */
 	public static void gc2gc(double c1[], int m1, double g1, double c2[], int m2, double g2) {
-		double[] gc2gc_buff = Arrays.copyOf(c1, m1 + 1);
+		gc2gc(c1, m1, g1, c2, m2, g2, new double[m1 + 1]);
+	}
+
+	private static void gc2gc(double c1[], int m1, double g1, double c2[], int m2, double g2, double[] gc2gc_buff) {
+		System.arraycopy(c1, 0, gc2gc_buff, 0, m1 + 1);
 		c2[0] = gc2gc_buff[0];
 
 		for (int i = 1; i <= m2; i++) {
@@ -1084,7 +1169,7 @@ public class HTSVocoder {
 	 */
 	public void lsp2mgc(double lsp[], double mgc[], int m, double alpha) {
 		/* lsp2lpc */
-		lsp2lpc(lsp, mgc, m); /* lsp starts in 1! lsp[1..m] --> mgc[0..m] */
+		lsp2lpc(lsp, mgc, m, lsp2lpcBuff); /* lsp starts in 1! lsp[1..m] --> mgc[0..m] */
 		if (use_log_gain)
 			mgc[0] = Math.exp(lsp[0]);
 		else
@@ -1094,7 +1179,10 @@ public class HTSVocoder {
 		ignorm(mgc, mgc, m, gamma);
 		for (int i = m; i >= 1; i--)
 			mgc[i] *= -stage;
-		mgc2mgc(mgc, m, alpha, gamma, mgc, m, alpha, gamma); /* input and output is in mgc=C */
+		/* mgc2mgc(mgc, m, alpha, gamma, mgc, m, alpha, gamma), input and output is in mgc=C */
+		gnorm(mgc, mgc, m, gamma);
+		gc2gc(mgc, m, gamma, mgc, m, gamma, gc2gcBuff);
+		ignorm(mgc, mgc, m, gamma);
 	}
 
 	/**
@@ -1168,17 +1256,42 @@ public class HTSVocoder {
 	 */
 	public static void postfilter_mgc(double mgc[], int m, double alpha, double beta) {
 		if (beta > 0.0 && m > 1) {
-			double[] postfilter_buff = new double[m + 1];
-			mc2b(mgc, postfilter_buff, m, alpha);
-			double e1 = b2en(postfilter_buff, m, alpha);
+			postfilter_mgc(mgc, m, alpha, beta, new PostfilterBuffers(m));
+		}
+	}
 
-			postfilter_buff[1] -= beta * alpha * mgc[2];
-			for (int k = 2; k < m; k++)
-				postfilter_buff[k] *= (1.0 + beta);
-			double e2 = b2en(postfilter_buff, m, alpha);
-			postfilter_buff[0] += Math.log(e1 / e2) / 2;
-			b2mc(postfilter_buff, mgc, m, alpha);
+	private static void postfilter_mgc(double mgc[], int m, double alpha, double beta, PostfilterBuffers buffers) {
+		double[] postfilter_buff = buffers.postfilter;
+		mc2b(mgc, postfilter_buff, m, alpha);
+		double e1 = b2en(postfilter_buff, m, alpha, buffers);
+
+		postfilter_buff[1] -= beta * alpha * mgc[2];
+		for (int k = 2; k < m; k++)
+			postfilter_buff[k] *= (1.0 + beta);
+		double e2 = b2en(postfilter_buff, m, alpha, buffers);
+		postfilter_buff[0] += Math.log(e1 / e2) / 2;
+		b2mc(postfilter_buff, mgc, m, alpha);
+	}
 
+	/**
+	 * Scratch arrays for postfiltering a mel-cepstrum of order m.
+	 */
+	private static final class PostfilterBuffers {
+		final int m;
+		final double[] postfilter;
+		final double[] spectrum2en;
+		final double[] cep; /* CHECK! these sizes!!! */
+		final double[] ir;
+		final double[] freqt;
+
+		PostfilterBuffers(int m) {
+			this.m = m;
+			int arrayLength = (m + 1) + 2 * IRLENG;
+			postfilter = new double[m + 1];
+			spectrum2en = new double[arrayLength];
+			cep = new double[arrayLength];
+			ir = new double[arrayLength];
+			freqt = new double[2 * IRLENG];
 		}
 	}
 
@@ -1186,6 +1299,26 @@ public class HTSVocoder {
 		return genPulseFromFourierMag(mag.getParVec(n), f0);
 	}
 
+	/**
+	 * Generate one pitch period from the Fourier magnitudes of frame n, reusing the buffers of this vocoder. The returned array is
+	 * only valid until the next call.
+	 */
+	private double[] genPulseFromFourierMag(HTSPStream mag, int n, double f0, double[] magVec) {
+		for (int i = 0; i < magVec.length; i++)
+			magVec[i] = mag.getPar(n, i);
+		int T = pulsePeriod(f0);
+		if (pulseBuff == null || pulseBuff.length != T) {
+			pulseBuff = new double[T];
+			realBuff = new double[2 * T];
+			imagBuff = new double[2 * T];
+		}
+		return genPulseFromFourierMag(magVec, f0, pulseBuff, realBuff, imagBuff);
+	}
+
+	private static int pulsePeriod(double f0) {
+		return Math.round(f0) < 512 ? 512 : 1024;
+	}
+
 	/**
 	 * Generate one pitch period from Fourier magnitudes
 	 *
@@ -1196,22 +1329,21 @@ public class HTSVocoder {
 	 * @return pulse
 	 */
 	public static double[] genPulseFromFourierMag(double[] mag, double f0) {
+		int T = pulsePeriod(f0);
+		return genPulseFromFourierMag(mag, f0, new double[T], new double[2 * T], new double[2 * T]);
+	}
+
+	private static double[] genPulseFromFourierMag(double[] mag, double f0, double[] pulse, double[] real, double[] imag) {
 
 		int numHarm = mag.length;
 		int currentF0 = (int) Math.round(f0);
-		int T;
-		if (currentF0 < 512)
-			T = 512;
-		else
-			T = 1024;
+		int T = pulse.length;
 		int T2 = 2 * T;
 
 		/* since is FFT2 no aperiodicFlag or jitter of 25% is applied */
 
 		/* get the pulse */
-		double[] pulse = new double[T];
-		double[] real = new double[T2];
-		double[] imag = new double[T2];
+		imag[0] = imag[T] = 0.0;
 
 		/* copy Fourier magnitudes (Wai C. Chu "Speech Coding algorithms foundation and evolution of standardized coders" pg. 460) */
 		real[0] = real[T] = 0.0; /* DC component set to zero */
@@ -1230,7 +1362,7 @@ public class HTSVocoder {
 		/* circular shift and normalise multiplying by sqrt(F0) */
 		double sqrt_f0 = Math.sqrt(currentF0);
 		for (int i = 0; i < T; i++)
-			pulse[i] = real[(i - numHarm) % T] * sqrt_f0;
+			pulse[i] = real[(i - numHarm + T) % T] * sqrt_f0;
 
 		return pulse;
 	}
@@ -1801,9 +1933,11 @@ public class HTSVocoder {
 		private HTSPStream magPst;
 		private boolean[] voiced;
 		private HMMData htsData;
+		private HTSParameterGeneration pdf2par;
 
 		public HTSVocoderDataProducer(int audioSize, HTSParameterGeneration pdf2par, HMMData htsData) {
 			super(audioSize, new AmplitudeNormalizer(INITIAL_MAX_AMPLITUDE));
+			this.pdf2par = pdf2par;
 			lf0Pst = pdf2par.getlf0Pst();
 			mcepPst = pdf2par.getMcepPst();
 			strPst = pdf2par.getStrPst();
@@ -1813,12 +1947,27 @@ public class HTSVocoder {
 
 		}
 
+		/**
+		 * Wait until the parameters of the given number of frames are available.
+		 *
+		 * @param numFrames
+		 *            numFrames
+		 * @throws InterruptedException
+		 *             InterruptedException
+		 */
+		public void awaitFrames(int numFrames) throws InterruptedException {
+			pdf2par.awaitFrames(numFrames);
+		}
+
 		public void run() {
 			try {
 				htsMLSAVocoder(lf0Pst, mcepPst, strPst, magPst, voiced, htsData, this);
-				putEndOfStream();
 			} catch (Exception e) {
 				logger.error("Cannot vocode", e);
+			} finally {
+				// also on errors, so that readers do not wait forever
+				putEndOfStream();
+				release();
 			}
 		}
 
@@ -192,7 +192,7 @@ public class CARTDurationModeller extends InternalModule {
 				if (segmentOrBoundary.getTagName().equals(MaryXML.BOUNDARY)) { // a pause
 					durInSeconds = enterPauseDuration(segmentOrBoundary, previous, pausetree, pauseFeatureComputer);
 				} else {
-					float[] dur = (float[]) currentCart.interpret(t);
+					float[] dur = (float[]) currentCart.compile().interpret(t.getFeatureVector());
 					assert dur != null : "Null duration";
 					assert dur.length == 2 : "Unexpected duration length: " + dur.length;
 					durInSeconds = dur[1];
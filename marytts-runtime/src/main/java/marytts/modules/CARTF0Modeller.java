@@ -233,17 +233,17 @@ public class CARTF0Modeller extends InternalModule {
 					String phone = vowel.getAttribute("p");
 					Target t = new Target(phone, vowel);
 					t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
-					float[] left = (float[]) currentLeftCart.interpret(t, 0);
+					float[] left = (float[]) currentLeftCart.compile().interpretToNode(t.getFeatureVector(), 0).getAllData();
 					requireNonNull(left,"Null frequency");
 					assert left.length == 2 : "Unexpected frequency length: " + left.length;
 					float leftF0InHz = left[1];
 					float leftStddevInHz = left[0];
-					float[] mid = (float[]) currentMidCart.interpret(t, 0);
+					float[] mid = (float[]) currentMidCart.compile().interpretToNode(t.getFeatureVector(), 0).getAllData();
 					requireNonNull(mid,"Null frequency");
 					assert mid.length == 2 : "Unexpected frequency length: " + mid.length;
 					float midF0InHz = mid[1];
 					float midStddevInHz = mid[0];
-					float[] right = (float[]) currentRightCart.interpret(t, 0);
+					float[] right = (float[]) currentRightCart.compile().interpretToNode(t.getFeatureVector(), 0).getAllData();
 					requireNonNull(right,"Null frequency");
 					assert right.length == 2 : "Unexpected frequency length: " + right.length;
 					float rightF0InHz = right[1];
@@ -102,8 +102,8 @@ public class HMMDurationF0Modeller extends InternalModule {
 			logger.info("Starting my own TargetFeatureLister");
 			targetFeatureLister = new TargetFeatureLister();
 			targetFeatureLister.startup();
-		} else if (targetFeatureLister.getState() == MaryModule.MODULE_OFFLINE) {
-			targetFeatureLister.startup();
+		} else {
+			ModuleRegistry.startModule(targetFeatureLister);
 		}
 	}
 
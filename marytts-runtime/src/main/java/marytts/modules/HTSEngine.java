@@ -213,18 +213,22 @@ public class HTSEngine extends InternalModule {
 
 		/* Process UttModel */
 		HTSParameterGeneration pdf2par = new HTSParameterGeneration();
+		HMMData htsData = hmmv.getHMMData();
 
-		/* Generate sequence of speech parameter vectors, generate parameters out of sequence of pdf's */
-		pdf2par.htsMaximumLikelihoodParameterGeneration(um, hmmv.getHMMData());
+		/* Set up the parameter streams with the sequence of pdf's */
+		pdf2par.initialiseParameterStreams(um, htsData);
 
 		/* set parameters for generation: f0Std, f0Mean and length, default values 1.0, 0.0 and 0.0 */
 		/* These values are fixed in HMMVoice */
 
-		/* Process generated parameters */
-		HTSVocoder par2speech = new HTSVocoder();
+		/* Process generated parameters; the vocoder goes back to the pool when it has produced all audio */
+		HTSVocoder par2speech = HTSVocoder.acquire();
 
-		/* Synthesize speech waveform, generate speech out of sequence of parameters */
-		AudioInputStream ais = par2speech.htsMLSAVocoder(pdf2par, hmmv.getHMMData());
+		/*
+		 * Synthesize speech waveform, generate speech out of sequence of parameters; the vocoder runs in its own thread and waits
+		 * for the parameters of each frame to be generated.
+		 */
+		AudioInputStream ais = par2speech.htsMLSAVocoder(pdf2par, htsData);
 
 		MaryData output = new MaryData(getOutputType(), d.getLocale());
 		if (d.getAudioFileFormat() != null) {
@@ -238,6 +242,12 @@ public class HTSEngine extends InternalModule {
 		}
 		output.appendAudio(ais);
 
+		/*
+		 * Generate sequence of speech parameter vectors, generate parameters out of sequence of pdf's. With a streaming window,
+		 * the first audio is available as soon as the first window is generated.
+		 */
+		pdf2par.generateParameters(um, htsData, htsData.getStreamingWindow(), htsData.getStreamingLookahead());
+
 		// set the actualDurations in tokensAndBoundaries
 		if (tokensAndBoundaries != null)
 			setRealisedProsody(tokensAndBoundaries, um);
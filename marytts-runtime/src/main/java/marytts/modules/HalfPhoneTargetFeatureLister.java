@@ -24,6 +24,7 @@ import java.util.List;
 
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
+import marytts.features.UtteranceIndex;
 import marytts.unitselection.select.HalfPhoneTarget;
 import marytts.unitselection.select.Target;
 import marytts.unitselection.select.UnitSelector;
@@ -72,6 +73,7 @@ public class HalfPhoneTargetFeatureLister extends TargetFeatureLister {
 			Element token = (Element) MaryDomUtils.getAncestor(last, MaryXML.TOKEN);
 			Element parent = (Element) token.getParentNode();
 			parent.appendChild(finalPause);
+			UtteranceIndex.structureChanged(finalPause);
 			segmentsAndBoundaries.add(finalPause);
 		}
 		for (Element sOrB : segmentsAndBoundaries) {
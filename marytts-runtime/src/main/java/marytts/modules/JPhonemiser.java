@@ -38,7 +38,9 @@ import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.exceptions.MaryConfigurationException;
 import marytts.fst.FSTLookup;
+import marytts.fst.MappedFST;
 import marytts.modules.phonemiser.AllophoneSet;
+import marytts.modules.phonemiser.PronunciationCache;
 import marytts.modules.phonemiser.TrainedLTS;
 import marytts.server.MaryProperties;
 import marytts.util.MaryRuntimeUtils;
@@ -69,6 +71,9 @@ public class JPhonemiser extends InternalModule {
 	protected Pattern punctuationPosRegex;
 	protected Pattern unpronounceablePosRegex;
 
+	/** Pronunciations of words seen before, or null if caching is disabled */
+	protected PronunciationCache pronunciationCache;
+
 	public JPhonemiser(String propertyPrefix) throws IOException, MaryConfigurationException {
 		this("JPhonemiser", MaryDataType.PARTSOFSPEECH, MaryDataType.PHONEMES, propertyPrefix + "allophoneset", propertyPrefix
 				+ "userdict", propertyPrefix + "lexicon", propertyPrefix + "lettertosound", propertyPrefix
@@ -141,8 +146,14 @@ public class JPhonemiser extends InternalModule {
 						+ "' does not exist. Ignoring.");
 			}
 		}
-		InputStream lexiconStream = MaryProperties.needStream(lexiconProperty);
-		lexicon = new FSTLookup(lexiconStream, lexiconProperty);
+		// a memory-mapped lexicon is optional, and replaces the normal one
+		String mappedLexiconFilename = MaryProperties.getFilename(lexiconProperty + ".mapped"); // may be null
+		if (mappedLexiconFilename != null) {
+			lexicon = new FSTLookup(new MappedFST(mappedLexiconFilename));
+		} else {
+			InputStream lexiconStream = MaryProperties.needStream(lexiconProperty);
+			lexicon = new FSTLookup(lexiconStream, lexiconProperty);
+		}
 		InputStream ltsStream = MaryProperties.needStream(ltsProperty);
 		if (removetrailingonefromphonesProperty != null) {
 			this.removeTrailingOneFromPhones = MaryProperties.getBoolean(removetrailingonefromphonesProperty, true);
@@ -154,6 +165,14 @@ public class JPhonemiser extends InternalModule {
 		super.startup();
 		setPunctuationPosRegex();
 		setUnpronounceablePosRegex();
+		setPronunciationCache();
+	}
+
+	public void shutdown() {
+		if (pronunciationCache != null) {
+			logger.info("Pronunciation cache: " + pronunciationCache);
+		}
+		super.shutdown();
 	}
 
 	public MaryData process(MaryData d) throws Exception {
@@ -190,7 +209,7 @@ public class JPhonemiser extends InternalModule {
 				while (st.hasMoreTokens()) {
 					String graph = st.nextToken();
 					StringBuilder helper = new StringBuilder();
-					String phon = phonemise(graph, pos, helper);
+					String phon = phonemiseCached(graph, pos, helper);
 					// null result should not be processed
 					if (phon == null) {
 						continue;
@@ -279,6 +298,32 @@ public class JPhonemiser extends InternalModule {
 		return null;
 	}
 
+	/**
+	 * Phonemise the word text like {@link #phonemise(String, String, StringBuilder)}, but look in the pronunciation cache first
+	 * and remember the result there.
+	 *
+	 * @param text
+	 *            the textual (graphemic) form of a word.
+	 * @param pos
+	 *            the part-of-speech of the word
+	 * @param g2pMethod
+	 *            filled with the method of phonemisation, as in {@link #phonemise(String, String, StringBuilder)}.
+	 * @return a phonemisation of the text if one can be generated, or null if no phonemisation method was successful.
+	 */
+	public String phonemiseCached(String text, String pos, StringBuilder g2pMethod) {
+		if (pronunciationCache == null) {
+			return phonemise(text, pos, g2pMethod);
+		}
+		PronunciationCache.Entry entry = pronunciationCache.get(text, pos);
+		if (entry == null) {
+			StringBuilder method = new StringBuilder();
+			String result = phonemise(text, pos, method);
+			entry = pronunciationCache.put(text, pos, result, method.toString());
+		}
+		g2pMethod.append(entry.getG2pMethod());
+		return entry.getTranscription();
+	}
+
 	/**
 	 * Look a given text up in the (standard) lexicon. part-of-speech is used in case of ambiguity.
 	 *
@@ -448,6 +493,69 @@ public class JPhonemiser extends InternalModule {
 		}
 	}
 
+	/**
+	 * Create the pronunciation cache, unless the property <code>phonemiser.cache.size</code>, or its locale-specific version such
+	 * as <code>en_US.phonemiser.cache.size</code>, is set to 0. The default size is 20000 words. If
+	 * <code>en_US.phonemiser.cache.warmup</code> names a word list, the pronunciations of its words are computed right away. Each
+	 * line holds one word followed by its part-of-speech, and optionally preceded by its frequency as in the German phonemiser's
+	 * unknown words log; lines starting with # are ignored. Since tokens are looked up with the part-of-speech they were tagged
+	 * with, the list should give the tags of the part-of-speech tagger; a word without a part-of-speech only serves tokens
+	 * without one. Words are read until the cache is full, so the most frequent words should come first.
+	 *
+	 * @throws IOException
+	 *             if the word list cannot be read
+	 * @throws MaryConfigurationException
+	 *             if the word list is a classpath resource that does not exist
+	 */
+	protected void setPronunciationCache() throws IOException, MaryConfigurationException {
+		String prefix = MaryProperties.localePrefix(getLocale()) + ".phonemiser.cache.";
+		int size = MaryProperties.getInteger(prefix + "size", MaryProperties.getInteger("phonemiser.cache.size", 20000));
+		if (size <= 0) {
+			logger.debug("Pronunciation cache disabled");
+			pronunciationCache = null;
+			return;
+		}
+		pronunciationCache = new PronunciationCache(size, 4 * Runtime.getRuntime().availableProcessors());
+		InputStream warmupStream = MaryProperties.getStream(prefix + "warmup");
+		if (warmupStream == null) {
+			return;
+		}
+		int words = 0;
+		BufferedReader warmup = new BufferedReader(new InputStreamReader(warmupStream, "UTF-8"));
+		try {
+			String line;
+			while ((line = warmup.readLine()) != null && words < pronunciationCache.getMaxSize()) {
+				line = line.trim();
+				if (line.equals("") || line.startsWith("#"))
+					continue;
+				String[] parts = line.split("\\s+");
+				int first = 0;
+				if (parts.length > 1 && parts[0].matches("\\d+")) { // the frequency
+					first = 1;
+				}
+				String word = parts[first];
+				String pos = parts.length > first + 1 ? parts[first + 1] : null;
+				if (maybePronounceable(word, pos)) {
+					phonemiseCached(word, pos, new StringBuilder());
+					words++;
+				}
+			}
+		} finally {
+			warmup.close();
+		}
+		logger.info(String.format("Pronunciation cache warmed up with %d words from '%s'", words,
+				MaryProperties.getProperty(prefix + "warmup")));
+	}
+
+	/**
+	 * Access the pronunciation cache, e.g. to look at its hit rate.
+	 *
+	 * @return the pronunciation cache, or null if caching is disabled
+	 */
+	public PronunciationCache getPronunciationCache() {
+		return pronunciationCache;
+	}
+
 	/**
 	 * Compile a regex pattern used to determine whether tokens are processed as punctuation or not, based on whether their
 	 * <code>pos</code> attribute matches the pattern.
@@ -20,20 +20,30 @@
 package marytts.modules;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
+import marytts.config.LanguageConfig;
+import marytts.config.MaryConfig;
 import marytts.datatypes.MaryDataType;
 import marytts.exceptions.MaryConfigurationException;
 import marytts.modules.synthesis.Voice;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
 import marytts.server.MaryProperties;
+import marytts.server.StartupExecutor;
 
 import org.apache.commons.collections.map.MultiKeyMap;
 import org.apache.logging.log4j.Logger;
@@ -52,7 +62,12 @@ public class ModuleRegistry {
 	private static boolean registrationComplete;
 	private static Logger logger;
 
-	private static List<MaryModule> preferredModules;
+	private static volatile List<MaryModule> preferredModules;
+	private static boolean haveVoiceSpecificModules = false;
+	private static volatile RoutingTable routingTable;
+
+	// startup of each module that has been started through startModule(), so that it happens only once
+	private static final Map<MaryModule, FutureTask<Void>> startups = new HashMap<MaryModule, FutureTask<Void>>();
 
 	private ModuleRegistry() {
 	}
@@ -129,6 +144,9 @@ public class ModuleRegistry {
 		}
 		assert l != null;
 		l.add(module);
+		if (voice != null) {
+			haveVoiceSpecificModules = true;
+		}
 
 		allModules.add(module);
 
@@ -164,21 +182,74 @@ public class ModuleRegistry {
 
 		// Define system preferred modules
 		List<String> preferredModulesClasses = MaryProperties.getList("modules.preferred.classes.list");
-		if ((preferredModulesClasses == null) || (preferredModulesClasses.isEmpty()))
-			return;
+		if ((preferredModulesClasses != null) && (!preferredModulesClasses.isEmpty())) {
+			List<MaryModule> preferred = new ArrayList<MaryModule>();
+			for (String moduleInfo : preferredModulesClasses) {
+				try {
+					MaryModule mm = null;
+					if (!moduleInfo.contains("(")) { // no constructor info
+						mm = ModuleRegistry.getModule(Class.forName(moduleInfo));
+					}
+					preferred.add(mm);
+				} catch (ClassNotFoundException e) {
+					logger.warn("Cannot initialise preferred module " + moduleInfo + " -- skipping.", e);
+				}
+			}
+			preferredModules = Collections.unmodifiableList(preferred);
+		}
 
-		preferredModules = new ArrayList<MaryModule>();
-		for (String moduleInfo : preferredModulesClasses) {
-			try {
-				MaryModule mm = null;
-				if (!moduleInfo.contains("(")) { // no constructor info
-					mm = ModuleRegistry.getModule(Class.forName(moduleInfo));
+		routingTable = buildRoutingTable();
+	}
+
+	/**
+	 * Compute the processing paths for all pairs of known data types, for each locale of the registered modules and languages,
+	 * and for no locale.
+	 */
+	private static RoutingTable buildRoutingTable() {
+		long start = System.currentTimeMillis();
+		Set<Locale> locales = new LinkedHashSet<Locale>();
+		locales.add(null);
+		for (MaryModule m : allModules) {
+			addLocale(locales, m.getLocale());
+		}
+		for (LanguageConfig lc : MaryConfig.getLanguageConfigs()) {
+			for (Locale l : lc.getLocales()) {
+				addLocale(locales, l);
+			}
+		}
+		List<MaryDataType> types = MaryDataType.getDataTypes();
+		Map<RoutingTable.Key, List<MaryModule>> routes = new HashMap<RoutingTable.Key, List<MaryModule>>();
+		for (Locale locale : locales) {
+			for (MaryDataType source : types) {
+				for (MaryDataType target : types) {
+					routes.put(new RoutingTable.Key(source, target, locale, null), findPath(source, target, locale, null, false));
 				}
-				preferredModules.add(mm);
-			} catch (ClassNotFoundException e) {
-				logger.warn("Cannot initialise preferred module " + moduleInfo + " -- skipping.", e);
 			}
 		}
+		RoutingTable table = new RoutingTable(routes);
+		logger.debug("Computed " + table.size() + " processing paths for " + types.size() + " data types and " + locales.size()
+				+ " locales in " + (System.currentTimeMillis() - start) + " ms");
+		return table;
+	}
+
+	private static void addLocale(Set<Locale> locales, Locale locale) {
+		if (locale != null) {
+			locales.add(locale);
+			locales.add(new Locale(locale.getLanguage()));
+		}
+	}
+
+	/**
+	 * Get the table of processing paths through the modules.
+	 *
+	 * @return the routing table
+	 * @throws IllegalStateException
+	 *             if called while registration is not yet complete.
+	 */
+	public static RoutingTable getRoutingTable() {
+		if (routingTable == null)
+			throw new IllegalStateException("Cannot inquire about modules while registration is ongoing");
+		return routingTable;
 	}
 
 	// ////////////////////////////////////////////////////////////////
@@ -192,7 +263,8 @@ public class ModuleRegistry {
 	 *            the specified input type
 	 * @return the list of system wide preferred modules, null if none
 	 */
-	public static synchronized List<MaryModule> getPreferredModulesForInputType(MaryDataType wanted_input_type) {
+	public static List<MaryModule> getPreferredModulesForInputType(MaryDataType wanted_input_type) {
+		List<MaryModule> preferredModules = ModuleRegistry.preferredModules;
 		if (preferredModules != null) {
 			List<MaryModule> v = new ArrayList<MaryModule>();
 			for (Iterator<MaryModule> it = preferredModules.iterator(); it.hasNext();) {
@@ -246,6 +318,40 @@ public class ModuleRegistry {
 		return null;
 	}
 
+	/**
+	 * Start a module unless it is running already. Modules are started in parallel at system startup, and modules that need
+	 * another module to be running start it themselves; this method makes sure that each module is started exactly once, and
+	 * that a caller returns only after the startup has completed, even if it was begun by another thread.
+	 *
+	 * @param module
+	 *            the module to start
+	 * @throws Exception
+	 *             the exception thrown by the module's startup()
+	 */
+	public static void startModule(final MaryModule module) throws Exception {
+		if (module.getState() == MaryModule.MODULE_RUNNING) {
+			return;
+		}
+		FutureTask<Void> startup;
+		synchronized (startups) {
+			startup = startups.get(module);
+			if (startup == null || startup.isDone() && module.getState() == MaryModule.MODULE_OFFLINE) {
+				// not started yet, or shut down or failed since
+				startup = new FutureTask<Void>(new Callable<Void>() {
+					public Void call() throws Exception {
+						if (module.getState() == MaryModule.MODULE_OFFLINE) {
+							module.startup();
+						}
+						return null;
+					}
+				});
+				startups.put(module, startup);
+			}
+		}
+		startup.run(); // does nothing if another thread has run it already
+		StartupExecutor.getResult(startup);
+	}
+
 	/**
 	 * A method for determining the list of modules required to transform the given source data type into the requested target
 	 * data type.
@@ -295,9 +401,33 @@ public class ModuleRegistry {
 			throw new NullPointerException("Received null target type");
 		// if (locale == null)
 		// throw new NullPointerException("Received null locale");
+		RoutingTable table = routingTable;
+		if (table == null) {
+			// still in setRegistrationComplete(), e.g. sorting the data types
+			return findPath(sourceType, targetType, locale, voice, true);
+		}
+		// The path only depends on the voice if the voice has its own preferred modules
+		// or if modules have been registered for particular voices:
+		if (voice != null && !voice.hasPreferredModules() && !haveVoiceSpecificModules) {
+			voice = null;
+		}
+		RoutingTable.Key key = new RoutingTable.Key(sourceType, targetType, locale, voice);
+		MaryModule[] path = table.get(key);
+		if (path == null) {
+			path = table.put(key, findPath(sourceType, targetType, locale, voice, true));
+		}
+		if (RoutingTable.isNoRoute(path)) {
+			return null;
+		}
+		// callers may modify the list
+		return new LinkedList<MaryModule>(Arrays.asList(path));
+	}
+
+	private static LinkedList<MaryModule> findPath(MaryDataType sourceType, MaryDataType targetType, Locale locale, Voice voice,
+			boolean log) {
 		LinkedList<MaryDataType> seenTypes = new LinkedList<MaryDataType>();
 		seenTypes.add(sourceType);
-		return modulesRequiredForProcessing(sourceType, targetType, locale, voice, seenTypes);
+		return modulesRequiredForProcessing(sourceType, targetType, locale, voice, seenTypes, log);
 	}
 
 	/**
@@ -314,13 +444,16 @@ public class ModuleRegistry {
 	 *            voice
 	 * @param seenTypes
 	 *            seenTypes
+	 * @param log
+	 *            whether to log the search, false when building the routing table
 	 * @return LinkedList<MaryModule>() if sourceType equals targetType, null otherwise
 	 */
 	private static LinkedList<MaryModule> modulesRequiredForProcessing(MaryDataType sourceType, MaryDataType targetType,
-			Locale locale, Voice voice, LinkedList<MaryDataType> seenTypes) {
+			Locale locale, Voice voice, LinkedList<MaryDataType> seenTypes, boolean log) {
 		// Terminating condition:
 		if (sourceType.equals(targetType)) {
-			logger.debug("found path through modules");
+			if (log)
+				logger.debug("found path through modules");
 			return new LinkedList<MaryModule>();
 		}
 		// Recursion step:
@@ -344,10 +477,11 @@ public class ModuleRegistry {
 			// have already seen (i.e., that would lead to a loop):
 			if (!seenTypes.contains(outputType)) {
 				seenTypes.add(outputType);
-				logger.debug("Module " + candidate.name() + " converts " + sourceType.name() + " into " + outputType
-						+ " (locale " + locale + ", voice " + voice + ")");
+				if (log)
+					logger.debug("Module " + candidate.name() + " converts " + sourceType.name() + " into " + outputType
+							+ " (locale " + locale + ", voice " + voice + ")");
 				// recursive call:
-				LinkedList<MaryModule> path = modulesRequiredForProcessing(outputType, targetType, locale, voice, seenTypes);
+				LinkedList<MaryModule> path = modulesRequiredForProcessing(outputType, targetType, locale, voice, seenTypes, log);
 				if (path != null) {
 					// success, found a path of which candidate is the first
 					// step
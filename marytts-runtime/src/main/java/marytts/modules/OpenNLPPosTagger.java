@@ -45,14 +45,16 @@ import org.w3c.dom.traversal.NodeIterator;
 import org.w3c.dom.traversal.TreeWalker;
 
 /**
- * Part-of-speech tagger using OpenNLP.
+ * Part-of-speech tagger using OpenNLP. The model is loaded once and shared; as a POSTaggerME is not thread-safe, each thread
+ * tags with its own instance, so that concurrent requests do not wait for each other.
  *
  * @author Marc Schr&ouml;der
  */
 
 public class OpenNLPPosTagger extends InternalModule {
 	private String propertyPrefix;
-	private POSTaggerME tagger;
+	private POSModel model;
+	private ThreadLocal<POSTaggerME> taggers;
 	private Map<String, String> posMapper = null;
 
 	/**
@@ -79,8 +81,14 @@ public class OpenNLPPosTagger extends InternalModule {
 		InputStream modelStream = MaryProperties.needStream(propertyPrefix + "model");
 		InputStream posMapperStream = MaryProperties.getStream(propertyPrefix + "posMap");
 
-		tagger = new POSTaggerME(new POSModel(modelStream));
+		model = new POSModel(modelStream);
 		modelStream.close();
+		taggers = new ThreadLocal<POSTaggerME>() {
+			@Override
+			protected POSTaggerME initialValue() {
+				return new POSTaggerME(model);
+			}
+		};
 		if (posMapperStream != null) {
 			posMapper = new HashMap<String, String>();
 			BufferedReader br = new BufferedReader(new InputStreamReader(posMapperStream, "UTF-8"));
@@ -99,10 +107,28 @@ public class OpenNLPPosTagger extends InternalModule {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Tag the given sentences with the tagger of the current thread.
+	 *
+	 * @param sentences
+	 *            the tokens of each sentence
+	 * @return the parts of speech of each sentence
+	 */
+	public List<String[]> tag(List<String[]> sentences) {
+		POSTaggerME tagger = taggers.get();
+		List<String[]> partsOfSpeech = new ArrayList<String[]>(sentences.size());
+		for (String[] tokens : sentences) {
+			partsOfSpeech.add(tagger.tag(tokens));
+		}
+		return partsOfSpeech;
+	}
+
 	public MaryData process(MaryData d) throws Exception {
 
 		Document doc = d.getDocument();
+		// collect the tokens of all sentences first, to tag them in one go
+		List<Element> sentences = new ArrayList<Element>();
+		List<String[]> sentenceTokens = new ArrayList<String[]>();
 		NodeIterator sentenceIt = MaryDomUtils.createNodeIterator(doc, doc, MaryXML.SENTENCE);
 		Element sentence;
 		while ((sentence = (Element) sentenceIt.nextNode()) != null) {
@@ -115,14 +141,16 @@ public class OpenNLPPosTagger extends InternalModule {
 			if (tokens.size() == 1) {
 				tokens.add(".");
 			}
-			List<String> partsOfSpeech = null;
-			synchronized (this) {
-				// Tagger expects an array, not a list!  TODO: consider
-				String[] res = tagger.tag(tokens.toArray(new String[tokens.size()]));
-				partsOfSpeech = Arrays.asList(res);
-			}
-			tokenIt.setCurrentNode(sentence); // reset treewalker so we can walk through once again
-			Iterator<String> posIt = partsOfSpeech.iterator();
+			sentences.add(sentence);
+			sentenceTokens.add(tokens.toArray(new String[tokens.size()]));
+		}
+		List<String[]> sentencePartsOfSpeech = tag(sentenceTokens);
+
+		for (int i = 0; i < sentences.size(); i++) {
+			sentence = sentences.get(i);
+			TreeWalker tokenIt = MaryDomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+			Iterator<String> posIt = Arrays.asList(sentencePartsOfSpeech.get(i)).iterator();
+			Element t;
 			while ((t = (Element) tokenIt.nextNode()) != null) {
 				assert posIt.hasNext();
 				String pos = posIt.next();
@@ -38,6 +38,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.TargetFeatureComputer;
+import marytts.features.UtteranceIndex;
 import marytts.modules.phonemiser.Allophone;
 import marytts.modules.phonemiser.AllophoneSet;
 import marytts.server.MaryProperties;
@@ -181,6 +182,7 @@ public class PronunciationModel extends InternalModule {
 			if (changedSomething) {
 				updatePhAttributesFromPhElements(t);
 			}
+			UtteranceIndex.structureChanged(t);
 
 			if (treeMap == null)
 				continue;
@@ -235,6 +237,7 @@ public class PronunciationModel extends InternalModule {
 					// deletions:
 					if (predicted == null || predicted.length == 0) {
 						syllable.removeChild(s);
+						UtteranceIndex.structureChanged(syllable);
 						continue; // skip what follows
 					}
 					assert predicted != null && predicted.length > 0;
@@ -243,6 +246,7 @@ public class PronunciationModel extends InternalModule {
 						Element newPh = MaryXML.createElement(doc, MaryXML.PHONE);
 						newPh.setAttribute("p", predicted[lc]);
 						syllable.insertBefore(newPh, s);
+						UtteranceIndex.structureChanged(syllable);
 					}
 					// for the last (or only) predicted segment, just update the phone label
 					if (!phoneString.equals(predicted[predicted.length - 1])) {
@@ -25,9 +25,11 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
@@ -61,6 +63,10 @@ import org.w3c.dom.traversal.TreeWalker;
 
 /**
  * The generic prosody module.
+ * <p>
+ * The ToBI prediction rules are read from the rule file into arrays of {@link RulePart}s at startup and never change afterwards,
+ * so that concurrent requests can evaluate them without locking.
+ * </p>
  *
  * @author Stephanie Becker
  */
@@ -81,6 +87,10 @@ public class ProsodyGeneric extends InternalModule {
 	protected HashMap<String, Element> tobiPredMap = new HashMap<String, Element>(); // map that will be filled with the rules
 	protected HashMap<String, Object> listMap = new HashMap<String, Object>(); // map that will contain the lists defined in the
 																				// xml rule file
+	// the rules of the "accentposition", "accentshape" and "boundaries" sections, in the order of the rule file
+	private RulePart[][] accentPositionRules;
+	private RulePart[][] accentShapeRules;
+	private RulePart[][] boundaryRules;
 	private boolean convertToBI2Contour;
 	protected HashMap<String, String> toBI2ContourMap;
 
@@ -148,6 +158,9 @@ public class ProsodyGeneric extends InternalModule {
 		try {
 			loadTobiPredRules(); // fill the rule map
 			buildListMap(); // fill the list map
+			accentPositionRules = compileRules(tobiPredMap.get("accentposition"));
+			accentShapeRules = compileRules(tobiPredMap.get("accentshape"));
+			boundaryRules = compileRules(tobiPredMap.get("boundaries"));
 		} catch (Exception e) {
 			throw new MaryConfigurationException("Can't fill prosody maps ", e);
 		}
@@ -238,6 +251,32 @@ public class ProsodyGeneric extends InternalModule {
 		}
 	}
 
+	/**
+	 * Copy the rules of one section of the rule file.
+	 *
+	 * @param ruleList
+	 *            the section element, or null if the rule file has no such section
+	 * @return for each rule, its conditions and action
+	 */
+	protected static RulePart[][] compileRules(Element ruleList) {
+		if (ruleList == null) {
+			return new RulePart[0][];
+		}
+		// search for concrete rules, with tag "rule"
+		TreeWalker tw = ((DocumentTraversal) ruleList.getOwnerDocument()).createTreeWalker(ruleList, NodeFilter.SHOW_ELEMENT,
+				new NameNodeFilter(new String[] { "rule" }), false);
+		List<RulePart[]> rules = new ArrayList<RulePart[]>();
+		Element rule;
+		while ((rule = (Element) tw.nextNode()) != null) {
+			List<RulePart> parts = new ArrayList<RulePart>();
+			for (Element e = DomUtils.getFirstChildElement(rule); e != null; e = DomUtils.getNextSiblingElement(e)) {
+				parts.add(new RulePart(e));
+			}
+			rules.add(parts.toArray(new RulePart[parts.size()]));
+		}
+		return rules.toArray(new RulePart[rules.size()][]);
+	}
+
 	/**
 	 * Read a list from an external file. This generic implementation can read from text files (filenames ending in
 	 * <code>.txt</code>). Subclasses may override this class to provide additional file formats. They must make sure that
@@ -836,33 +875,25 @@ public class ProsodyGeneric extends InternalModule {
 	 *            (end of vorfeld or end of paragraph)
 	 */
 
-	protected synchronized void getAccentPosition(Element token, NodeList tokens, int position, String sentenceType,
+	protected void getAccentPosition(Element token, NodeList tokens, int position, String sentenceType,
 			String specialPositionType) {
 
 		String tokenText = MaryDomUtils.tokenText(token); // text of current token
 
-		Element ruleList = null;
-		// only the "accentposition" rules are relevant
-		ruleList = (Element) tobiPredMap.get("accentposition");
-		// search for concrete rules, with tag "rule"
-		TreeWalker tw = ((DocumentTraversal) ruleList.getOwnerDocument()).createTreeWalker(ruleList, NodeFilter.SHOW_ELEMENT,
-				new NameNodeFilter(new String[] { "rule" }), false);
-
 		boolean rule_fired = false;
 		String accent = ""; // default
-		Element rule = null;
 
 		// search for appropriate rules; the top rule has highest prority
 		// if a rule fires (that is: all the conditions are fulfilled),
 		// the accent value("tone","force" or "") is assigned and the loop stops
 		// if no rule is found, the accent value is ""
 
-		while (!rule_fired && (rule = (Element) tw.nextNode()) != null) {
+		for (int r = 0; !rule_fired && r < accentPositionRules.length; r++) {
+			RulePart[] rule = accentPositionRules[r];
 			// rule = the whole rule
 			// currentRulePart = part of the rule (type of condition (f.e. attributes pos="NN") or action)
-			Element currentRulePart = DomUtils.getFirstChildElement(rule);
-
-			while (!rule_fired && currentRulePart != null) {
+			for (int p = 0; !rule_fired && p < rule.length; p++) {
+				RulePart currentRulePart = rule[p];
 
 				boolean conditionSatisfied = false;
 
@@ -878,11 +909,8 @@ public class ProsodyGeneric extends InternalModule {
 						tokenText);
 				if (!conditionSatisfied)
 					break; // condition violated, try next rule
-
-				// the previous conditions are satisfied --> check the next rule part
-				currentRulePart = DomUtils.getNextSiblingElement(currentRulePart);
-			} // while loop that checks the rule parts
-		} // while loop that checks the whole rule
+			} // loop that checks the rule parts
+		} // loop that checks the whole rule
 	}
 
 	/**
@@ -904,7 +932,7 @@ public class ProsodyGeneric extends InternalModule {
 	 * @return nucleusAssigned
 	 */
 
-	protected synchronized boolean getAccentShape(Element token, NodeList tokens, int position, String sentenceType,
+	protected boolean getAccentShape(Element token, NodeList tokens, int position, String sentenceType,
 			String specialPositionType, boolean nucleusAssigned) {
 		String tokenText = MaryDomUtils.tokenText(token); // text of current token
 
@@ -922,27 +950,19 @@ public class ProsodyGeneric extends InternalModule {
 		} else
 			prosodicPositionType = "prenuclear"; // nucleus is assigned --> prenuclear
 
-		Element ruleList = null;
-		// only the "accentshape" rules are relevant
-		ruleList = (Element) tobiPredMap.get("accentshape");
-		// search for concrete rules (search for tag "rule")
-		TreeWalker tw = ((DocumentTraversal) ruleList.getOwnerDocument()).createTreeWalker(ruleList, NodeFilter.SHOW_ELEMENT,
-				new NameNodeFilter(new String[] { "rule" }), false);
-
 		boolean rule_fired = false;
 		String accent = "";
-		Element rule = null;
 
 		// search for appropriate rules; the top rule has highest prority
 		// if a rule fires (that is: all the conditions are fulfilled), the accent type (f.e. "L+H*") is assigned and the loop
 		// stops
 		// if no rule is found, the accent value is ""
-		while (!rule_fired && (rule = (Element) tw.nextNode()) != null) {
+		for (int r = 0; !rule_fired && r < accentShapeRules.length; r++) {
+			RulePart[] rule = accentShapeRules[r];
 			// rule = the whole rule
 			// currentRulePart = part of the rule (type of condition (f.e. attributes pos="NN") or action)
-			Element currentRulePart = DomUtils.getFirstChildElement(rule);
-
-			while (!rule_fired && currentRulePart != null) {
+			for (int p = 0; !rule_fired && p < rule.length; p++) {
+				RulePart currentRulePart = rule[p];
 				boolean conditionSatisfied = false;
 
 				// if rule part with tag "action": accent type assignment
@@ -968,11 +988,8 @@ public class ProsodyGeneric extends InternalModule {
 						tokenText);
 				if (!conditionSatisfied)
 					break; // condition violated, try next rule
-
-				// the previous conditions are satisfied --> check the next rule part
-				currentRulePart = DomUtils.getNextSiblingElement(currentRulePart);
-			}// while loop that checks the rule parts
-		} // while loop that checks the whole rule
+			}// loop that checks the rule parts
+		} // loop that checks the whole rule
 		return nucleusAssigned;
 	}
 
@@ -997,28 +1014,20 @@ public class ProsodyGeneric extends InternalModule {
 	 * @return firstTokenInPhrase (if a boundary was inserted, firstTokenInPhrase gets null)
 	 */
 
-	protected synchronized Element getBoundary(Element token, NodeList tokens, int position, String sentenceType,
+	protected Element getBoundary(Element token, NodeList tokens, int position, String sentenceType,
 			String specialPositionType, boolean invalidXML, Element firstTokenInPhrase) {
 		String tokenText = MaryDomUtils.tokenText(token); // text of current token
 
-		Element ruleList = null;
-		// only the "boundaries" rules are relevant
-		ruleList = (Element) tobiPredMap.get("boundaries");
-		// search for concrete rules (search for tag "rule")
-		TreeWalker tw = ((DocumentTraversal) ruleList.getOwnerDocument()).createTreeWalker(ruleList, NodeFilter.SHOW_ELEMENT,
-				new NameNodeFilter(new String[] { "rule" }), false);
-
 		boolean rule_fired = false;
-		Element rule = null;
 
 		// search for appropriate rules; the top rule has highest prority
 		// if a rule fires (that is: all the conditions are fulfilled), the boundary is inserted and the loop stops
-		while (!rule_fired && (rule = (Element) tw.nextNode()) != null) {
+		for (int r = 0; !rule_fired && r < boundaryRules.length; r++) {
+			RulePart[] rule = boundaryRules[r];
 			// rule = the whole rule
 			// currentRulePart = part of the rule (condition or action)
-			Element currentRulePart = DomUtils.getFirstChildElement(rule);
-
-			while (!rule_fired && currentRulePart != null) {
+			for (int p = 0; !rule_fired && p < rule.length; p++) {
+				RulePart currentRulePart = rule[p];
 				boolean conditionSatisfied = false;
 
 				// if rule part with tag "action": boundary insertion
@@ -1049,11 +1058,8 @@ public class ProsodyGeneric extends InternalModule {
 						tokenText);
 				if (!conditionSatisfied)
 					break; // condition violated, try next rule
-
-				// the previous conditions are satisfied --> check the next rule part
-				currentRulePart = DomUtils.getNextSiblingElement(currentRulePart);
-			}// while loop that checks the rule parts
-		} // while loop that checks the whole rule
+			}// loop that checks the rule parts
+		} // loop that checks the whole rule
 		return firstTokenInPhrase;
 	}
 
@@ -1081,57 +1087,30 @@ public class ProsodyGeneric extends InternalModule {
 	 *            (text of token)
 	 * @return true if condition is satisfied
 	 */
-	protected boolean checkRulePart(Element currentRulePart, Element token, NodeList tokens, int position, String sentenceType,
+	protected boolean checkRulePart(RulePart currentRulePart, Element token, NodeList tokens, int position, String sentenceType,
 			String specialPositionType, String tokenText) {
-		String currentRulePartTagName = currentRulePart.getTagName();
-		// if rule part with tag text and attribute word, check if text of token equals text in rule
-		if (currentRulePartTagName.equals("text") & currentRulePart.hasAttribute("word")) { // text of the token
+		switch (currentRulePart.kind) {
+		case RulePart.TEXT: // text of the token
 			return checkText(currentRulePart, tokenText);
-		}
-		// text of following+X token or preceding-X token
-		else if (currentRulePart.hasAttribute("word")
-				&& (currentRulePartTagName.equals("nextText") || nextPlusXTextPattern.matcher(currentRulePartTagName).find()
-						|| currentRulePartTagName.equals("previousText") || previousMinusXTextPattern.matcher(
-						currentRulePartTagName).find())) {
-			return checkTextOfOtherToken(currentRulePartTagName, currentRulePart, position, tokens);
-		}
-		// check number of following tokens
-		else if (currentRulePartTagName.equals("folTokens") && currentRulePart.hasAttribute("num")) {
+		case RulePart.OTHER_TEXT: // text of following+X token or preceding-X token
+			return checkTextOfOtherToken(currentRulePart, position, tokens);
+		case RulePart.FOL_TOKENS: // check number of following tokens
 			return checkFolTokens(currentRulePart, position, tokens);
-		}
-		// check number of preceding tokens
-		else if (currentRulePartTagName.equals("prevTokens") && currentRulePart.hasAttribute("num")) {
+		case RulePart.PREV_TOKENS: // check number of preceding tokens
 			return checkPrevTokens(currentRulePart, position, tokens);
-		}
-		// check number of following words
-		else if (currentRulePartTagName.equals("folWords") && currentRulePart.hasAttribute("num")) {
+		case RulePart.FOL_WORDS: // check number of following words
 			return checkFolWords(currentRulePart, position, tokens);
-		}
-		// check number of preceding words
-		else if (currentRulePartTagName.equals("prevWords") && currentRulePart.hasAttribute("num")) {
+		case RulePart.PREV_WORDS: // check number of preceding words
 			return checkPrevWords(currentRulePart, position, tokens);
-		}
-		// check sentence type (f.e. declarative sentence)
-		else if (currentRulePartTagName.equals("sentence") && currentRulePart.hasAttribute("type")) {
+		case RulePart.SENTENCE: // check sentence type (f.e. declarative sentence)
 			return checkSentence(currentRulePart, sentenceType);
-		}
-		// check for special position of token in sentence/text(endofvorfeld,endofpar)
-		else if (currentRulePartTagName.equals("specialPosition") && currentRulePart.hasAttribute("type")) {
+		case RulePart.SPECIAL_POSITION: // check for special position of token in sentence/text(endofvorfeld,endofpar)
 			return checkSpecialPosition(currentRulePart, specialPositionType);
-		}
-		// if rule part with tag "attributes"
-		// --> check the MaryXML attribute values of the token
-		else if (currentRulePartTagName.equals("attributes")) {
+		case RulePart.ATTRIBUTES: // check the MaryXML attribute values of the token
 			return checkAttributes(currentRulePart, token);
-		}
-		// if rule part with tag nextPlusXAttributes or previousMinusXAttributes
-		// --> check the MaryXML attribute values of the corresponding token
-		else if (currentRulePartTagName.equals("nextAttributes")
-				|| nextPlusXAttributesPattern.matcher(currentRulePart.getTagName()).find()
-				|| currentRulePartTagName.equals("previousAttributes")
-				|| previousMinusXAttributesPattern.matcher(currentRulePart.getTagName()).find()) {
-			return checkAttributesOfOtherToken(currentRulePart.getTagName(), currentRulePart, position, tokens);
-		} else {
+		case RulePart.OTHER_ATTRIBUTES: // check the MaryXML attribute values of the corresponding token
+			return checkAttributesOfOtherToken(currentRulePart, position, tokens);
+		default:
 			// unknown rules always match
 			return true;
 		}
@@ -1147,14 +1126,12 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokenText
 	 * @return checkList(currentVal, tokenText)
 	 */
-	protected boolean checkText(Element currentRulePart, String tokenText) {
+	protected boolean checkText(RulePart currentRulePart, String tokenText) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("word")) { // there is only the "word" attribute right now
 				if (!currentVal.startsWith("INLIST") && !currentVal.startsWith("INFSTLIST") && !currentVal.startsWith("!INLIST")
@@ -1178,8 +1155,6 @@ public class ProsodyGeneric extends InternalModule {
 	 * checks rule part with tag "nextText","previousText","nextPlusXText" or "previousMinusXText"; there is only the "word"
 	 * attribute right now: checks if text of a token is the same as the value of the word attribute in the rule
 	 *
-	 * @param tag
-	 *            tag
 	 * @param currentRulePart
 	 *            currentRulePart
 	 * @param position
@@ -1188,44 +1163,33 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return checkText(currentRulePart, otherTokenText)
 	 */
-	protected boolean checkTextOfOtherToken(String tag, Element currentRulePart, int position, NodeList tokens) {
-
-		Element otherToken = null;
-
-		if (tag.equals("nextText")) { // text of next token
-			if (position < tokens.getLength() - 1) {
-				otherToken = (Element) tokens.item(position + 1);
-			}
-		}
-
-		if (nextPlusXTextPattern.matcher(tag).find()) { // text of some other token following the next token
-			String tempString = tag.replaceAll("nextPlus", "");
-			String newString = tempString.replaceAll("Text", "");
-			int num = Integer.parseInt(newString);
-			if (position < tokens.getLength() - (num + 1))
-				otherToken = (Element) tokens.item(position + 1 + num);
-		}
-
-		if (tag.equals("previousText")) { // text of previous token
-			if (position > 0)
-				otherToken = (Element) tokens.item(position - 1);
-		}
-
-		if (previousMinusXTextPattern.matcher(tag).find()) { // text of some other token preceding the previous token
-			String tempString = tag.replaceAll("previousMinus", "");
-			String newString = tempString.replaceAll("Text", "");
-			int num = Integer.parseInt(newString);
-
-			if (position > num)
-				otherToken = (Element) tokens.item(position - (num + 1));
-		}
-
+	protected boolean checkTextOfOtherToken(RulePart currentRulePart, int position, NodeList tokens) {
+		Element otherToken = getOtherToken(currentRulePart, position, tokens);
 		if (otherToken == null)
 			return false;
 		String otherTokenText = MaryDomUtils.tokenText(otherToken);
 		return checkText(currentRulePart, otherTokenText);
 	}
 
+	/**
+	 * The token that a rule part with tag "nextText", "nextPlusXAttributes", "previousText" etc. refers to.
+	 *
+	 * @param currentRulePart
+	 *            currentRulePart
+	 * @param position
+	 *            position of the current token
+	 * @param tokens
+	 *            tokens
+	 * @return the other token, or null if the sentence has no token at that position
+	 */
+	protected Element getOtherToken(RulePart currentRulePart, int position, NodeList tokens) {
+		int otherPosition = position + currentRulePart.offset;
+		if (otherPosition < 0 || otherPosition >= tokens.getLength()) {
+			return null;
+		}
+		return (Element) tokens.item(otherPosition);
+	}
+
 	/**
 	 * checks rule part with tag "folTokens"; there is only the "num" attribute right now; checks if the number of the following
 	 * tokens after the current token is the same as the value of the num attribute; f.e. the value "3+" means: at least 3
@@ -1239,14 +1203,12 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return true if everything is fine
 	 */
-	protected boolean checkFolTokens(Element currentRulePart, int position, NodeList tokens) {
+	protected boolean checkFolTokens(RulePart currentRulePart, int position, NodeList tokens) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("num")) { // there is only the "num" attribute right now
 				int num = Integer.parseInt(currentVal.substring(0, 1));
@@ -1280,14 +1242,12 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return true if everything passes
 	 */
-	protected boolean checkPrevTokens(Element currentRulePart, int position, NodeList tokens) {
+	protected boolean checkPrevTokens(RulePart currentRulePart, int position, NodeList tokens) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("num")) { // there is only the "num" attribute right now
 				int num = Integer.parseInt(currentVal.substring(0, 1));
@@ -1322,14 +1282,12 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return true if everything passes
 	 */
-	protected boolean checkFolWords(Element currentRulePart, int position, NodeList tokens) {
+	protected boolean checkFolWords(RulePart currentRulePart, int position, NodeList tokens) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("num")) { // there is only the "num" attribute right now
 				int requiredNum = Integer.parseInt(currentVal.substring(0, 1));
@@ -1366,14 +1324,12 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return true if everything passes
 	 */
-	protected boolean checkPrevWords(Element currentRulePart, int position, NodeList tokens) {
+	protected boolean checkPrevWords(RulePart currentRulePart, int position, NodeList tokens) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("num")) { // there is only the "num" attribute right now
 				int requiredNum = Integer.parseInt(currentVal.substring(0, 1));
@@ -1407,13 +1363,11 @@ public class ProsodyGeneric extends InternalModule {
 	 *            sentenceType
 	 * @return true if everything passes
 	 */
-	protected boolean checkSentence(Element currentRulePart, String sentenceType) {
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
+	protected boolean checkSentence(RulePart currentRulePart, String sentenceType) {
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("type")) { // there is only the "type" attribute right now
 				if (!currentVal.startsWith("!")) { // no negation
@@ -1439,13 +1393,11 @@ public class ProsodyGeneric extends InternalModule {
 	 *            specialPositionType
 	 * @return true if everything passes
 	 */
-	protected boolean checkSpecialPosition(Element currentRulePart, String specialPositionType) {
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
+	protected boolean checkSpecialPosition(RulePart currentRulePart, String specialPositionType) {
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("type")) { // there is only the "type" attribute right now
 				if (!currentVal.startsWith("!")) { // no negation
@@ -1472,13 +1424,11 @@ public class ProsodyGeneric extends InternalModule {
 	 *            prosodicPositionType
 	 * @return true if everything passes
 	 */
-	protected boolean checkProsodicPosition(Element currentRulePart, String prosodicPositionType) {
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
+	protected boolean checkProsodicPosition(RulePart currentRulePart, String prosodicPositionType) {
 
-		for (int z = 0; z < attNodes.getLength(); z++) {
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) {
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			if (currentAtt.equals("type")) { // there is only the "type" attribute right now
 				if (!currentVal.startsWith("!")) { // no negation
@@ -1504,17 +1454,15 @@ public class ProsodyGeneric extends InternalModule {
 	 *            token
 	 * @return checkList(currentVal, token.getAttribute(currentAtt))
 	 */
-	protected boolean checkAttributes(Element currentRulePart, Element token) {
+	protected boolean checkAttributes(RulePart currentRulePart, Element token) {
 
-		NamedNodeMap attNodes = currentRulePart.getAttributes();
 
 		if (token == null)
 			return false; // token doesn't exist
 
-		for (int z = 0; z < attNodes.getLength(); z++) { // loop over MaryXML attributes in rule part
-			Node el = attNodes.item(z);
-			String currentAtt = el.getNodeName();
-			String currentVal = el.getNodeValue();
+		for (int z = 0; z < currentRulePart.getLength(); z++) { // loop over MaryXML attributes in rule part
+			String currentAtt = currentRulePart.getName(z);
+			String currentVal = currentRulePart.getValue(z);
 
 			// first the special cases
 			if (!token.hasAttribute(currentAtt)) { // token doesn't have attribute
@@ -1557,8 +1505,6 @@ public class ProsodyGeneric extends InternalModule {
 	 * the MaryXML attributes and values of other token than the current one are the same as in rule (f.e. the 3th token after
 	 * current token)
 	 *
-	 * @param tag
-	 *            tag
 	 * @param currentRulePart
 	 *            currentRulePart
 	 * @param position
@@ -1567,43 +1513,8 @@ public class ProsodyGeneric extends InternalModule {
 	 *            tokens
 	 * @return checkAttributes(currentRulePart, otherToken)
 	 */
-	protected boolean checkAttributesOfOtherToken(String tag, Element currentRulePart, int position, NodeList tokens) {
-
-		Element otherToken = null;
-
-		if (tag.equals("nextAttributes")) { // MaryXML attributes of next token
-			if (position < tokens.getLength() - 1) {
-				otherToken = (Element) tokens.item(position + 1);
-			}
-		}
-
-		if (nextPlusXAttributesPattern.matcher(tag).find()) { // MaryXML attributes of some token following the next token
-			String tempString = tag.replaceAll("nextPlus", "");
-			String newString = tempString.replaceAll("Attributes", "");
-			int num = Integer.parseInt(newString);
-			if (position < tokens.getLength() - (num + 1)) {
-				otherToken = (Element) tokens.item(position + 1 + num);
-			}
-		}
-
-		if (tag.equals("previousAttributes")) { // MaryXML attributes of previous token
-			if (position > 0) {
-				otherToken = (Element) tokens.item(position - 1);
-			}
-		}
-
-		if (previousMinusXAttributesPattern.matcher(tag).find()) { // MaryXML attributes of some token preceding the previous
-																	// token
-			String tempString = tag.replaceAll("previousMinus", "");
-			String newString = tempString.replaceAll("Attributes", "");
-			int num = Integer.parseInt(newString);
-
-			if (position > num) {
-				otherToken = (Element) tokens.item(position - (num + 1));
-			}
-		}
-
-		return checkAttributes(currentRulePart, otherToken);
+	protected boolean checkAttributesOfOtherToken(RulePart currentRulePart, int position, NodeList tokens) {
+		return checkAttributes(currentRulePart, getOtherToken(currentRulePart, position, tokens));
 	}
 
 	/**
@@ -1934,4 +1845,133 @@ public class ProsodyGeneric extends InternalModule {
 				|| tokenText.equals(":") || tokenText.equals(";");
 	}
 
+	/**
+	 * A condition or action of a rule: its tag name and its attributes in document order. What kind of condition it is, and
+	 * which token it refers to, is determined once when the rule file is read.
+	 */
+	protected static final class RulePart {
+		public static final int UNKNOWN = 0;
+		public static final int TEXT = 1;
+		public static final int OTHER_TEXT = 2;
+		public static final int FOL_TOKENS = 3;
+		public static final int PREV_TOKENS = 4;
+		public static final int FOL_WORDS = 5;
+		public static final int PREV_WORDS = 6;
+		public static final int SENTENCE = 7;
+		public static final int SPECIAL_POSITION = 8;
+		public static final int ATTRIBUTES = 9;
+		public static final int OTHER_ATTRIBUTES = 10;
+
+		private final String tagName;
+		private final String[] names;
+		private final String[] values;
+		/** the kind of condition checked by {@link ProsodyGeneric#checkRulePart} */
+		public final int kind;
+		/** for OTHER_TEXT and OTHER_ATTRIBUTES, the position of the other token relative to the current token */
+		public final int offset;
+
+		public RulePart(Element e) {
+			tagName = e.getTagName();
+			NamedNodeMap attNodes = e.getAttributes();
+			names = new String[attNodes.getLength()];
+			values = new String[attNodes.getLength()];
+			for (int z = 0; z < names.length; z++) {
+				Node el = attNodes.item(z);
+				names[z] = el.getNodeName();
+				values[z] = el.getNodeValue();
+			}
+
+			if (tagName.equals("text") && hasAttribute("word")) {
+				kind = TEXT;
+				offset = 0;
+			} else if (hasAttribute("word")
+					&& (tagName.equals("nextText") || nextPlusXTextPattern.matcher(tagName).find()
+							|| tagName.equals("previousText") || previousMinusXTextPattern.matcher(tagName).find())) {
+				kind = OTHER_TEXT;
+				offset = getOffset("Text");
+			} else if (tagName.equals("folTokens") && hasAttribute("num")) {
+				kind = FOL_TOKENS;
+				offset = 0;
+			} else if (tagName.equals("prevTokens") && hasAttribute("num")) {
+				kind = PREV_TOKENS;
+				offset = 0;
+			} else if (tagName.equals("folWords") && hasAttribute("num")) {
+				kind = FOL_WORDS;
+				offset = 0;
+			} else if (tagName.equals("prevWords") && hasAttribute("num")) {
+				kind = PREV_WORDS;
+				offset = 0;
+			} else if (tagName.equals("sentence") && hasAttribute("type")) {
+				kind = SENTENCE;
+				offset = 0;
+			} else if (tagName.equals("specialPosition") && hasAttribute("type")) {
+				kind = SPECIAL_POSITION;
+				offset = 0;
+			} else if (tagName.equals("attributes")) {
+				kind = ATTRIBUTES;
+				offset = 0;
+			} else if (tagName.equals("nextAttributes") || nextPlusXAttributesPattern.matcher(tagName).find()
+					|| tagName.equals("previousAttributes") || previousMinusXAttributesPattern.matcher(tagName).find()) {
+				kind = OTHER_ATTRIBUTES;
+				offset = getOffset("Attributes");
+			} else {
+				kind = UNKNOWN;
+				offset = 0;
+			}
+		}
+
+		/**
+		 * The offset of the token referred to by a tag such as "nextText" (1), "nextPlus2Text" (3), "previousText" (-1) or
+		 * "previousMinus2Text" (-3).
+		 */
+		private int getOffset(String suffix) {
+			if (tagName.startsWith("next")) {
+				String num = tagName.replaceAll("nextPlus", "").replaceAll(suffix, "").replaceAll("next", "");
+				return num.equals("") ? 1 : Integer.parseInt(num) + 1;
+			} else {
+				String num = tagName.replaceAll("previousMinus", "").replaceAll(suffix, "").replaceAll("previous", "");
+				return num.equals("") ? -1 : -(Integer.parseInt(num) + 1);
+			}
+		}
+
+		public String getTagName() {
+			return tagName;
+		}
+
+		/**
+		 * @return the number of attributes
+		 */
+		public int getLength() {
+			return names.length;
+		}
+
+		public String getName(int index) {
+			return names[index];
+		}
+
+		public String getValue(int index) {
+			return values[index];
+		}
+
+		public boolean hasAttribute(String name) {
+			for (String n : names) {
+				if (n.equals(name)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the value of the attribute, or the empty string if there is no such attribute, as in {@link Element#getAttribute}
+		 */
+		public String getAttribute(String name) {
+			for (int z = 0; z < names.length; z++) {
+				if (names[z].equals(name)) {
+					return values[z];
+				}
+			}
+			return "";
+		}
+	}
 }
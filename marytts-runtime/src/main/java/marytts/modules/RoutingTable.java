@@ -0,0 +1,191 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import marytts.datatypes.MaryDataType;
+import marytts.modules.synthesis.Voice;
+
+/**
+ * The processing paths through the modules, i.e. the chains of modules converting a source data type into a target data type
+ * for a given locale and voice. The paths for all pairs of known data types and all locales of the registered modules and
+ * languages are computed once, when the module registration is complete; this part of the table never changes afterwards.
+ * Paths for other locales, and for voices that have their own preferred modules, are computed on first use and remembered.
+ * Lookups take no locks.
+ *
+ * @see ModuleRegistry#modulesRequiredForProcessing(MaryDataType, MaryDataType, Locale, Voice)
+ */
+public class RoutingTable {
+	/** Upper limit for the number of paths computed on demand, as the locales in requests are not under our control. */
+	private static final int MAX_EXTRA_ROUTES = 10000;
+
+	/** The value for combinations without a path through the modules. */
+	private static final MaryModule[] NO_ROUTE = new MaryModule[0];
+
+	private final Map<Key, MaryModule[]> precomputed;
+	private final ConcurrentHashMap<Key, MaryModule[]> extra = new ConcurrentHashMap<Key, MaryModule[]>();
+
+	/**
+	 * Create a routing table from precomputed paths.
+	 *
+	 * @param routes
+	 *            for each combination of source type, target type and locale (voice null), the path, or null if there is none
+	 */
+	RoutingTable(Map<Key, List<MaryModule>> routes) {
+		Map<Key, MaryModule[]> table = new HashMap<Key, MaryModule[]>();
+		for (Map.Entry<Key, List<MaryModule>> e : routes.entrySet()) {
+			table.put(e.getKey(), toArray(e.getValue()));
+		}
+		precomputed = table;
+	}
+
+	private static MaryModule[] toArray(List<MaryModule> path) {
+		return path == null ? NO_ROUTE : path.toArray(new MaryModule[path.size()]);
+	}
+
+	/**
+	 * Look up a path in the table.
+	 *
+	 * @param key
+	 *            the combination of source type, target type, locale and voice
+	 * @return the modules of the path, an empty array if no path exists, or null if the path has not been computed yet
+	 */
+	MaryModule[] get(Key key) {
+		MaryModule[] path = precomputed.get(key);
+		if (path == null) {
+			path = extra.get(key);
+		}
+		return path;
+	}
+
+	/**
+	 * Remember a path computed on demand.
+	 *
+	 * @param key
+	 *            the combination of source type, target type, locale and voice
+	 * @param path
+	 *            the path, or null if there is none
+	 * @return the modules of the path, or an empty array if there is no path
+	 */
+	MaryModule[] put(Key key, List<MaryModule> path) {
+		MaryModule[] modules = toArray(path);
+		if (extra.size() < MAX_EXTRA_ROUTES) {
+			extra.put(key, modules);
+		}
+		return modules;
+	}
+
+	/**
+	 * @param modules
+	 *            a value returned by {@link #get(Key)} or {@link #put(Key, List)}
+	 * @return whether the value stands for "no path"
+	 */
+	static boolean isNoRoute(MaryModule[] modules) {
+		return modules == NO_ROUTE;
+	}
+
+	/**
+	 * @return the number of paths known, including combinations without a path
+	 */
+	public int size() {
+		return precomputed.size() + extra.size();
+	}
+
+	/**
+	 * List all existing paths, one per line: source type, target type, locale, voice ("-" if any voice), and the names of the
+	 * modules. Paths computed on demand are marked with "*".
+	 *
+	 * @return the routing table as plain text
+	 */
+	public String dump() {
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<Key, MaryModule[]> e : precomputed.entrySet()) {
+			addLine(lines, e.getKey(), e.getValue(), "");
+		}
+		for (Map.Entry<Key, MaryModule[]> e : extra.entrySet()) {
+			addLine(lines, e.getKey(), e.getValue(), " *");
+		}
+		Collections.sort(lines);
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append(System.getProperty("line.separator"));
+		}
+		return sb.toString();
+	}
+
+	private static void addLine(List<String> lines, Key key, MaryModule[] path, String mark) {
+		if (path == NO_ROUTE || path.length == 0) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(key.source.name()).append(' ').append(key.target.name()).append(' ')
+				.append(key.locale != null ? key.locale.toString() : "-").append(' ')
+				.append(key.voice != null ? key.voice.getName() : "-").append(':');
+		for (MaryModule m : path) {
+			sb.append(' ').append(m.name());
+		}
+		lines.add(sb.append(mark).toString());
+	}
+
+	/**
+	 * A combination of source type, target type, locale and voice; locale and voice may be null.
+	 */
+	static final class Key {
+		final MaryDataType source;
+		final MaryDataType target;
+		final Locale locale;
+		final Voice voice;
+		private final int hash;
+
+		Key(MaryDataType source, MaryDataType target, Locale locale, Voice voice) {
+			this.source = source;
+			this.target = target;
+			this.locale = locale;
+			this.voice = voice;
+			int h = source.hashCode();
+			h = 31 * h + target.hashCode();
+			h = 31 * h + (locale != null ? locale.hashCode() : 0);
+			h = 31 * h + (voice != null ? System.identityHashCode(voice) : 0);
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && source.equals(other.source) && target.equals(other.target)
+					&& (locale == null ? other.locale == null : locale.equals(other.locale)) && voice == other.voice;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
+import marytts.exceptions.MaryConfigurationException;
 import marytts.exceptions.SynthesisException;
 import marytts.modules.synthesis.Voice;
 import marytts.modules.synthesis.WaveformSynthesizer;
@@ -56,6 +57,7 @@ import org.w3c.dom.traversal.NodeIterator;
 public class Synthesis extends InternalModule {
 	private List<WaveformSynthesizer> waveformSynthesizers;
 	private EffectsApplier effects;
+	private boolean chunkAtPauses;
 
 	public Synthesis() {
 		super("Synthesis", MaryDataType.ACOUSTPARAMS, MaryDataType.AUDIO, null);
@@ -63,6 +65,7 @@ public class Synthesis extends InternalModule {
 
 	public void startup() throws Exception {
 		startupSynthesizers();
+		chunkAtPauses = MaryProperties.getBoolean("synthesis.chunk.pauses", false);
 		super.startup();
 	}
 
@@ -216,6 +219,16 @@ public class Synthesis extends InternalModule {
 				currentSentence = s;
 			}
 			elements.add(element);
+			// Optionally, also chunk at pauses within a sentence, so that the first audio is available earlier
+			if (chunkAtPauses && element.getTagName().equals(MaryXML.BOUNDARY) && hasPause(element)
+					&& containsPhoneDescendants(elements)) {
+				AudioInputStream ais = synthesizeOneSection(elements, currentVoice, currentStyle, currentEffect, targetFormat,
+						outputParams);
+				if (ais != null) {
+					result.appendAudio(ais);
+				}
+				elements.clear();
+			}
 		}
 
 		if (!elements.isEmpty()) {
@@ -242,6 +255,13 @@ public class Synthesis extends InternalModule {
 			return null;
 		}
 
+		// voices may load their data on first use:
+		try {
+			voice.ensureDataLoaded();
+		} catch (MaryConfigurationException e) {
+			throw new SynthesisException("Voice " + voice.getName() + " is not available", e);
+		}
+
 		EffectsApplier ef = new EffectsApplier();
 
 		// HMM-only effects need to get their parameters prior to synthesis
@@ -288,6 +308,21 @@ public class Synthesis extends InternalModule {
 		return ais;
 	}
 
+	/**
+	 * Check if a boundary is realised as a pause, i.e. has a non-zero duration.
+	 * 
+	 * @param boundary
+	 *            the BOUNDARY element
+	 * @return true if the boundary has a duration greater than zero, false otherwise
+	 */
+	private boolean hasPause(Element boundary) {
+		try {
+			return Integer.parseInt(boundary.getAttribute("duration").trim()) > 0;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Check if the List of Elements contains any TOKENS that have PHONE descendants
 	 * 
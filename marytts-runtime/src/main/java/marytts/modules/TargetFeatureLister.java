@@ -29,6 +29,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureRegistry;
 import marytts.features.FeatureVector;
 import marytts.features.TargetFeatureComputer;
+import marytts.features.UtteranceIndex;
 import marytts.modules.synthesis.Voice;
 import marytts.unitselection.select.Target;
 import marytts.unitselection.select.UnitSelector;
@@ -163,6 +164,7 @@ public class TargetFeatureLister extends InternalModule {
 			Element token = (Element) MaryDomUtils.getAncestor(last, MaryXML.TOKEN);
 			Element parent = (Element) token.getParentNode();
 			parent.appendChild(finalPause);
+			UtteranceIndex.structureChanged(finalPause);
 			segmentsAndBoundaries.add(finalPause);
 		}
 		for (Element sOrB : segmentsAndBoundaries) {
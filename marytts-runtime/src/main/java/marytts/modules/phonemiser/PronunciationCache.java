@@ -0,0 +1,179 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules.phonemiser;
+
+import marytts.util.cache.StripedLruCache;
+
+/**
+ * A bounded cache of word pronunciations, shared by all requests of one phonemiser. Entries are keyed by the word and its
+ * part-of-speech, and remember the transcription together with the method that produced it, so that a repeated word needs
+ * neither a lexicon lookup nor letter-to-sound rules. Words for which no transcription could be found are cached as well. The
+ * entries are kept in a {@link StripedLruCache}.
+ */
+public class PronunciationCache {
+
+	/**
+	 * A cached phonemisation result.
+	 */
+	public static final class Entry {
+		private final String transcription;
+		private final String g2pMethod;
+
+		Entry(String transcription, String g2pMethod) {
+			this.transcription = transcription;
+			this.g2pMethod = g2pMethod;
+		}
+
+		/**
+		 * @return the transcription, or null if no phonemisation method was successful
+		 */
+		public String getTranscription() {
+			return transcription;
+		}
+
+		/**
+		 * @return the method of phonemisation ("userdict", "lexicon", ... "rules"); empty if there is no transcription
+		 */
+		public String getG2pMethod() {
+			return g2pMethod;
+		}
+	}
+
+	private final StripedLruCache<Key, Entry> entries;
+
+	/**
+	 * Create a pronunciation cache.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of words to keep
+	 * @param numStripes
+	 *            the number of independently locked stripes; rounded up to a power of two, but never more than maxEntries
+	 */
+	public PronunciationCache(int maxEntries, int numStripes) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Need a positive number of entries, got " + maxEntries);
+		}
+		entries = new StripedLruCache<Key, Entry>(maxEntries, numStripes);
+	}
+
+	/**
+	 * Look up the pronunciation of a word.
+	 *
+	 * @param word
+	 *            the word, exactly as it would be passed to the phonemiser
+	 * @param pos
+	 *            the part-of-speech of the word, or null
+	 * @return the cached entry, or null if the word is not in the cache
+	 */
+	public Entry get(String word, String pos) {
+		return entries.get(new Key(word, pos));
+	}
+
+	/**
+	 * Remember the pronunciation of a word, evicting the least recently used word of the stripe if necessary.
+	 *
+	 * @param word
+	 *            the word
+	 * @param pos
+	 *            the part-of-speech of the word, or null
+	 * @param transcription
+	 *            the transcription, or null if none was found
+	 * @param g2pMethod
+	 *            the method that produced the transcription
+	 * @return the new entry
+	 */
+	public Entry put(String word, String pos, String transcription, String g2pMethod) {
+		Entry entry = new Entry(transcription, g2pMethod);
+		entries.put(new Key(word, pos), entry);
+		return entry;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of words currently cached
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the maximum number of words the cache keeps
+	 */
+	public int getMaxSize() {
+		return (int) entries.getMaxWeight();
+	}
+
+	public long getHitCount() {
+		return entries.getHitCount();
+	}
+
+	public long getMissCount() {
+		return entries.getMissCount();
+	}
+
+	public long getEvictionCount() {
+		return entries.getEvictionCount();
+	}
+
+	/**
+	 * @return the share of lookups that found the word in the cache, or 0 if there were no lookups yet
+	 */
+	public double getHitRate() {
+		return entries.getHitRate();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d of %d words, %d hits, %d misses (%.1f%% hits), %d evictions", size(), getMaxSize(),
+				getHitCount(), getMissCount(), 100 * getHitRate(), getEvictionCount());
+	}
+
+	private static final class Key {
+		final String word;
+		final String pos;
+		final int hash;
+
+		Key(String word, String pos) {
+			this.word = word;
+			this.pos = pos;
+			this.hash = 31 * word.hashCode() + (pos != null ? pos.hashCode() : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && word.equals(other.word) && (pos == null ? other.pos == null : pos.equals(other.pos));
+		}
+	}
+}
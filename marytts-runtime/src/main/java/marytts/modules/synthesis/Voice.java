@@ -33,8 +33,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -62,6 +63,7 @@ import marytts.modules.acoustic.SoPModel;
 import marytts.modules.phonemiser.Allophone;
 import marytts.modules.phonemiser.AllophoneSet;
 import marytts.server.MaryProperties;
+import marytts.server.StartupExecutor;
 import marytts.unitselection.data.FeatureFileReader;
 import marytts.unitselection.interpolation.InterpolatingSynthesizer;
 import marytts.unitselection.interpolation.InterpolatingVoice;
@@ -111,9 +113,10 @@ public class Voice {
 					: true); // big-endian
 	/**
 	 * List all registered voices. This set will always return the voices in the order of their wantToBeDefault value, highest
-	 * first.
+	 * first. Voices are registered while the synthesizers start up in parallel, so the set and the default voices are
+	 * concurrent collections.
 	 */
-	private static Set<Voice> allVoices = new TreeSet<Voice>(new Comparator<Voice>() {
+	private static Set<Voice> allVoices = new ConcurrentSkipListSet<Voice>(new Comparator<Voice>() {
 		public int compare(Voice v1, Voice v2) {
 			// Return negative number if v1 should be listed before v2
 			int desireDelta = v2.wantToBeDefault - v1.wantToBeDefault;
@@ -124,7 +127,17 @@ public class Voice {
 		}
 	});
 
-	private static Map<Locale, Voice> defaultVoices = new HashMap<Locale, Voice>();
+	private static Map<Locale, Voice> defaultVoices = new ConcurrentHashMap<Locale, Voice>();
+
+	/** The voice data has not been loaded yet; it will be loaded on first use. */
+	public static final int DATA_NOT_LOADED = 0;
+	/** The voice data is being loaded. */
+	public static final int DATA_LOADING = 1;
+	/** The voice is ready for synthesis. */
+	public static final int DATA_READY = 2;
+	/** Loading the voice data has failed; the voice cannot be used. */
+	public static final int DATA_FAILED = 3;
+	private static final String[] DATA_STATE_NAMES = { "not-loaded", "loading", "ready", "failed" };
 
 	protected static Logger logger = MaryUtils.getLogger("Voice");
 
@@ -143,6 +156,10 @@ public class Voice {
 	protected DirectedGraph f0Graph;
 	protected FeatureFileReader f0ContourFeatures;
 	protected Map<String, Model> acousticModels;
+	// voices that do not load their data separately are ready as soon as they are constructed
+	private volatile int dataState = DATA_READY;
+	private final Object dataLock = new Object();
+	private MaryConfigurationException dataError;
 
 	@Deprecated
 	public Voice(String name, Locale locale, AudioFormat dbAudioFormat, WaveformSynthesizer synthesizer, Gender gender)
@@ -223,6 +240,108 @@ public class Voice {
 		initFeatureProcessorManager();
 	}
 
+	/**
+	 * Load the bulk of the voice data, such as the unit database or the acoustic models. Subclasses that override this method
+	 * call {@link #loadOrDeferData()} at the end of their constructor; the default implementation does nothing.
+	 * 
+	 * @throws Exception
+	 *             if the data cannot be loaded
+	 */
+	protected void loadData() throws Exception {
+	}
+
+	/**
+	 * Load the voice data now, or defer loading as configured with <code>voice.(name).lazyload</code> or, for all voices,
+	 * <code>voices.lazyload</code>: "false" (the default) loads the data now; "true" loads it when the voice is first used;
+	 * "background" loads it in a background thread, so that the server can accept requests for other voices in the meantime.
+	 * 
+	 * @throws MaryConfigurationException
+	 *             if the data is loaded now and loading fails
+	 */
+	protected void loadOrDeferData() throws MaryConfigurationException {
+		String mode = MaryProperties.getProperty("voice." + getName() + ".lazyload",
+				MaryProperties.getProperty("voices.lazyload", "false"));
+		dataState = DATA_NOT_LOADED;
+		if (mode.equals("background")) {
+			logger.info("Loading data of voice " + getName() + " in the background");
+			StartupExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						ensureDataLoaded();
+					} catch (MaryConfigurationException e) {
+						logger.error("Cannot load data of voice " + getName(), e);
+					}
+				}
+			});
+		} else if (mode.equals("true")) {
+			logger.info("Voice " + getName() + " will load its data on first use");
+		} else {
+			ensureDataLoaded();
+		}
+	}
+
+	/**
+	 * Make sure that the voice data is loaded, loading it now if necessary. Threads that need the data while it is being loaded
+	 * wait until loading has completed.
+	 * 
+	 * @throws MaryConfigurationException
+	 *             if the data cannot be loaded
+	 */
+	public void ensureDataLoaded() throws MaryConfigurationException {
+		if (dataState == DATA_READY) {
+			return;
+		}
+		synchronized (dataLock) {
+			if (dataState == DATA_NOT_LOADED) {
+				dataState = DATA_LOADING;
+				long start = System.currentTimeMillis();
+				try {
+					loadData();
+					dataState = DATA_READY;
+					logger.info("Loading data of voice " + getName() + " took " + (System.currentTimeMillis() - start) + " ms");
+				} catch (MaryConfigurationException e) {
+					dataError = e;
+					dataState = DATA_FAILED;
+				} catch (Exception e) {
+					dataError = new MaryConfigurationException("Cannot load data of voice '" + getName() + "'", e);
+					dataState = DATA_FAILED;
+				}
+			}
+			// DATA_LOADING here means that loadData() itself has asked for the data
+			if (dataState == DATA_FAILED) {
+				throw dataError;
+			}
+		}
+	}
+
+	/**
+	 * Like {@link #ensureDataLoaded()}, for getters that cannot throw checked exceptions.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the data cannot be loaded
+	 */
+	protected void needData() {
+		try {
+			ensureDataLoaded();
+		} catch (MaryConfigurationException e) {
+			throw new IllegalStateException("Voice " + getName() + " is not available", e);
+		}
+	}
+
+	/**
+	 * @return one of DATA_NOT_LOADED, DATA_LOADING, DATA_READY and DATA_FAILED
+	 */
+	public int getDataState() {
+		return dataState;
+	}
+
+	/**
+	 * @return "not-loaded", "loading", "ready" or "failed"
+	 */
+	public String getDataStateName() {
+		return DATA_STATE_NAMES[dataState];
+	}
+
 	@Deprecated
 	private void loadOldStyleProsodyModels(String header) throws MaryConfigurationException {
 		// see if there are any voice-specific duration and f0 models to load
@@ -414,6 +533,14 @@ public class Voice {
 		return allophoneSet.getAllophone(phoneSymbol);
 	}
 
+	/**
+	 * @return true if the voice has its own preferred modules, so that the processing path through the modules may depend on
+	 *         the voice
+	 */
+	public boolean hasPreferredModules() {
+		return preferredModulesClasses != null;
+	}
+
 	public synchronized Vector<MaryModule> getPreferredModulesAcceptingType(MaryDataType type) {
 		if (preferredModules == null && preferredModulesClasses != null) {
 			// need to initialise the list of modules
@@ -619,7 +746,7 @@ public class Voice {
 	 * @param voice
 	 *            voicwe
 	 */
-	public static void registerVoice(Voice voice) {
+	public static synchronized void registerVoice(Voice voice) {
 		if (voice == null)
 			throw new NullPointerException("Cannot register null voice.");
 		if (!allVoices.contains(voice)) {
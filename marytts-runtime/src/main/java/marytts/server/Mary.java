@@ -32,7 +32,6 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -41,6 +40,7 @@ import java.util.Locale;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -58,10 +58,10 @@ import marytts.modules.MaryModule;
 import marytts.modules.ModuleRegistry;
 import marytts.modules.Synthesis;
 import marytts.modules.synthesis.Voice;
-import marytts.util.MaryCache;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
 import marytts.util.Pair;
+import marytts.util.cache.TieredCache;
 import marytts.util.data.audio.MaryAudioUtils;
 import marytts.util.io.FileUtils;
 
@@ -131,33 +131,52 @@ public class Mary {
 	}
 
 	private static void startModules() throws ClassNotFoundException, InstantiationException, Exception {
-		for (String moduleClassName : MaryProperties.moduleInitInfo()) {
-			MaryModule m = ModuleRegistry.instantiateModule(moduleClassName);
+		// Modules load their lexicons and models in their constructors and in startup(),
+		// so both are done in parallel (see StartupExecutor); the modules are
+		// still registered in the configured order.
+		List<Callable<MaryModule>> instantiations = new ArrayList<Callable<MaryModule>>();
+		for (final String moduleClassName : MaryProperties.moduleInitInfo()) {
+			instantiations.add(new Callable<MaryModule>() {
+				public MaryModule call() throws Exception {
+					return ModuleRegistry.instantiateModule(moduleClassName);
+				}
+			});
+		}
+		for (MaryModule m : StartupExecutor.invokeAll(instantiations)) {
 			// Partially fill module repository here;
 			// TODO: voice-specific entries will be added when each voice is loaded.
 			ModuleRegistry.registerModule(m, m.getLocale(), null);
 		}
 		ModuleRegistry.setRegistrationComplete();
 
-		List<Pair<MaryModule, Long>> startupTimes = new ArrayList<Pair<MaryModule, Long>>();
-
-		// Separate loop for startup allows modules to cross-reference to each
+		// Separate step for startup allows modules to cross-reference to each
 		// other via Mary.getModule(Class) even if some have not yet been
-		// started.
-		for (MaryModule m : ModuleRegistry.getAllModules()) {
+		// started. A module that needs another one to be running starts it via
+		// ModuleRegistry.startModule(), which waits if that module is being
+		// started by another thread.
+		List<Callable<Pair<MaryModule, Long>>> startups = new ArrayList<Callable<Pair<MaryModule, Long>>>();
+		for (final MaryModule m : ModuleRegistry.getAllModules()) {
 			// Only start the modules here if in server mode:
 			if (((!MaryProperties.getProperty("server").equals("commandline")) || m instanceof Synthesis)
 					&& m.getState() == MaryModule.MODULE_OFFLINE) {
-				long before = System.currentTimeMillis();
-				try {
-					m.startup();
-				} catch (Throwable t) {
-					throw new Exception("Problem starting module " + m.name(), t);
-				}
-				long after = System.currentTimeMillis();
-				startupTimes.add(new Pair<MaryModule, Long>(m, after - before));
+				startups.add(new Callable<Pair<MaryModule, Long>>() {
+					public Pair<MaryModule, Long> call() throws Exception {
+						long before = System.currentTimeMillis();
+						try {
+							ModuleRegistry.startModule(m);
+						} catch (Throwable t) {
+							throw new Exception("Problem starting module " + m.name(), t);
+						}
+						long after = System.currentTimeMillis();
+						return new Pair<MaryModule, Long>(m, after - before);
+					}
+				});
 			}
-			if (MaryProperties.getAutoBoolean("modules.poweronselftest", false)) {
+		}
+		List<Pair<MaryModule, Long>> startupTimes = new ArrayList<Pair<MaryModule, Long>>(StartupExecutor.invokeAll(startups));
+
+		if (MaryProperties.getAutoBoolean("modules.poweronselftest", false)) {
+			for (MaryModule m : ModuleRegistry.getAllModules()) {
 				m.powerOnSelfTest();
 			}
 		}
@@ -340,13 +359,8 @@ public class Mary {
 				m.shutdown();
 		}
 
-		if (MaryCache.haveCache()) {
-			MaryCache cache = MaryCache.getCache();
-			try {
-				cache.shutdown();
-			} catch (SQLException e) {
-				logger.warn("Cannot shutdown cache: ", e);
-			}
+		if (TieredCache.haveCache()) {
+			TieredCache.getCache().shutdown();
 		}
 		logger.info("Shutdown complete.");
 		currentState = STATE_OFF;
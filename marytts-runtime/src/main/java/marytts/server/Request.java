@@ -25,7 +25,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Reader;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,6 +35,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -45,14 +54,18 @@ import javax.xml.transform.TransformerException;
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
+import marytts.features.UtteranceIndex;
 import marytts.modules.MaryModule;
 import marytts.modules.ModuleRegistry;
 import marytts.modules.synthesis.Voice;
-import marytts.util.MaryCache;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
+import marytts.util.cache.CacheKey;
+import marytts.util.cache.TieredCache;
 import marytts.util.data.audio.AppendableSequenceAudioInputStream;
+import marytts.util.dom.DomStreamIO;
 import marytts.util.dom.DomUtils;
+import marytts.util.dom.IncrementalXMLWriter;
 import marytts.util.dom.MaryDomUtils;
 import marytts.util.dom.NameNodeFilter;
 import marytts.util.io.FileUtils;
@@ -93,12 +106,36 @@ public class Request {
 	protected MaryData inputData;
 	protected MaryData outputData;
 	protected boolean streamAudio = false;;
-	protected boolean abortRequested = false;
+	protected volatile boolean abortRequested = false;
 
 	// Keep track of timing info for each module
-	// (map MaryModule onto Long)
+	// (map MaryModule onto Long, in nanoseconds)
 	protected Set<MaryModule> usedModules;
 	protected Map<MaryModule, Long> timingInfo;
+	private final long creationTime = System.nanoTime();
+
+	// If set, MaryXML output is written here paragraph by paragraph while it is produced
+	private OutputStream streamingOutput;
+	private boolean streamingOutputWritten = false;
+
+	// Threads shared by all requests for processing paragraphs ahead of the one currently being output
+	private static ExecutorService paragraphExecutor;
+
+	private static synchronized ExecutorService getParagraphExecutor() {
+		if (paragraphExecutor == null) {
+			int numThreads = MaryProperties.getInteger("request.paragraphs.threads", Runtime.getRuntime().availableProcessors());
+			paragraphExecutor = Executors.newFixedThreadPool(Math.max(1, numThreads), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "paragraph-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return paragraphExecutor;
+	}
 
 	public Request(MaryDataType inputType, MaryDataType outputType, Locale defaultLocale, Voice defaultVoice,
 			String defaultEffects, String defaultStyle, int id, AudioFileFormat audioFileFormat) {
@@ -149,8 +186,9 @@ public class Request {
 
 		// Keep track of timing info for each module
 		// (map MaryModule onto Long)
-		usedModules = new LinkedHashSet<MaryModule>();
-		timingInfo = new HashMap<MaryModule, Long>();
+		// (paragraphs may be processed in parallel, so these must be thread-safe)
+		usedModules = Collections.synchronizedSet(new LinkedHashSet<MaryModule>());
+		timingInfo = Collections.synchronizedMap(new HashMap<MaryModule, Long>());
 	}
 
 	public MaryDataType getInputType() {
@@ -193,6 +231,26 @@ public class Request {
 		return streamAudio;
 	}
 
+	/**
+	 * Stream the output of this request while it is being processed. For MaryXML output types, each paragraph is written as
+	 * soon as it has been processed, and its nodes are then removed from the output document; other output types are written
+	 * when processing is complete. In either case, the output is written by {@link #process()}, and {@link #writeOutputData}
+	 * must not be called.
+	 * 
+	 * @param outputStream
+	 *            the stream to write to; it is not closed.
+	 */
+	public void setStreamingOutput(OutputStream outputStream) {
+		this.streamingOutput = outputStream;
+	}
+
+	/**
+	 * @return the time this request was created, in the terms of {@link System#nanoTime()}
+	 */
+	public long getCreationTime() {
+		return creationTime;
+	}
+
 	/**
 	 * Inform this request that any further processing does not make sense.
 	 */
@@ -268,8 +326,21 @@ public class Request {
 	 * @see #writeOutputData for writing the output data to a stream
 	 */
 	public void process() throws Exception {
+		long startTime = System.nanoTime();
+		boolean ok = false;
+		try {
+			processData();
+			if (streamingOutput != null && !streamingOutputWritten) {
+				writeOutputData(streamingOutput);
+			}
+			ok = true;
+		} finally {
+			recordTimings(System.nanoTime() - startTime, ok);
+		}
+	}
+
+	private void processData() throws Exception {
 		assert Mary.currentState() == Mary.STATE_RUNNING;
-		long startTime = System.currentTimeMillis();
 		if (inputData == null)
 			throw new NullPointerException("Input data is not set.");
 		if (inputType.isXMLType() && inputData.getDocument() == null)
@@ -322,45 +393,178 @@ public class Request {
 			outputData.setAudio(appendableAudioStream);
 			outputData.setAudioFileFormat(audioFileFormat);
 		}
+		// The node list is live, but paragraphs are replaced below, so remember the original ones:
 		int len = inputDataList.getLength();
-		for (int i = 0; i < len && !abortRequested; i++) {
-			Element currentInputParagraph = (Element) inputDataList.item(i);
-			assert currentInputParagraph.getTagName().equals(MaryXML.PARAGRAPH);
-			NodeList outputNodeList = null;
-			// Only process paragraph if there is any text below it:
-			if (MaryDomUtils.getPlainTextBelow(currentInputParagraph).trim().equals("")) {
-				outputNodeList = currentInputParagraph.getChildNodes();
-			} else { // process "real" data:
-				MaryData oneInputData = extractParagraphAsMaryData(rawmaryxml, currentInputParagraph);
-				// assert oneInputData.getDefaultVoice() != null;
-				MaryData oneOutputData = processOrLookupOneChunk(oneInputData, outputType, outputTypeParams);
-				// assert oneOutputData.getDefaultVoice() != null;
+		Element[] paragraphs = new Element[len];
+		for (int i = 0; i < len; i++) {
+			paragraphs[i] = (Element) inputDataList.item(i);
+		}
+		// While one paragraph is being output, the following ones can already be processed in the background:
+		int numParallel = Math.max(1, MaryProperties.getInteger("request.paragraphs.parallel", 1));
+		// the paragraphs are started in order, so the result of paragraph i is at index i
+		List<Future<MaryData>> results = new ArrayList<>(len);
+		// Streaming clients can get the audio of each sentence as soon as it is synthesised, rather than of each paragraph.
+		// Cached audio is only available when the paragraph is complete.
+		AppendableSequenceAudioInputStream[] paragraphAudio = null;
+		if (appendableAudioStream != null && streamAudio && MaryProperties.getBoolean("request.stream.sentences", false)
+				&& !MaryProperties.getBoolean("cache")) {
+			paragraphAudio = new AppendableSequenceAudioInputStream[len];
+		}
+		IncrementalXMLWriter xmlWriter = null;
+		if (outputType.isMaryXML() && streamingOutput != null) {
+			xmlWriter = new IncrementalXMLWriter(rawmaryxml.getDocument(), streamingOutput);
+		}
+		int numStarted = 0;
+		try {
+			for (int i = 0; i < len && !abortRequested; i++) {
+				while (numStarted < len && numStarted < i + numParallel) {
+					if (paragraphAudio != null) {
+						paragraphAudio[numStarted] = new AppendableSequenceAudioInputStream(audioFileFormat.getFormat(), null);
+					}
+					results.add(startParagraph(rawmaryxml, paragraphs[numStarted], numParallel > 1,
+							paragraphAudio != null ? paragraphAudio[numStarted] : null));
+					numStarted++;
+				}
+				Element currentInputParagraph = paragraphs[i];
+				assert currentInputParagraph.getTagName().equals(MaryXML.PARAGRAPH);
+				NodeList outputNodeList = null;
+				// Only process paragraph if there is any text below it:
+				if (results.get(i) == null) {
+					outputNodeList = currentInputParagraph.getChildNodes();
+				} else if (paragraphAudio != null) {
+					// Appended only now, as the reader blocks on this paragraph's audio until it is complete;
+					// the sentences synthesised so far become audible at once.
+					appendableAudioStream.append(paragraphAudio[i]);
+					getParagraphResult(results.get(i));
+					results.set(i, null);
+				} else { // process "real" data:
+					MaryData oneOutputData = getParagraphResult(results.get(i));
+					results.set(i, null);
+					// assert oneOutputData.getDefaultVoice() != null;
+					if (outputType.isMaryXML()) {
+						NodeList outParagraphList = oneOutputData.getDocument().getDocumentElement()
+								.getElementsByTagName(MaryXML.PARAGRAPH);
+						// This does not hold for Tibetan:
+						// assert outParagraphList.getLength() == 1;
+						outputNodeList = outParagraphList;
+					} else { // output is not MaryXML, e.g. text or audio
+						assert outputData != null;
+						outputData.append(oneOutputData);
+					}
+				}
 				if (outputType.isMaryXML()) {
-					NodeList outParagraphList = oneOutputData.getDocument().getDocumentElement()
-							.getElementsByTagName(MaryXML.PARAGRAPH);
-					// This does not hold for Tibetan:
-					// assert outParagraphList.getLength() == 1;
-					outputNodeList = outParagraphList;
-				} else { // output is not MaryXML, e.g. text or audio
-					assert outputData != null;
-					outputData.append(oneOutputData);
+					assert outputNodeList != null;
+					// And now replace the paragraph in-place:
+					Node parent = currentInputParagraph.getParentNode();
+					Node following = currentInputParagraph.getNextSibling();
+					MaryDomUtils.replaceElement(currentInputParagraph, outputNodeList);
+					if (xmlWriter != null) {
+						xmlWriter.writeUntil(parent, following);
+					}
 				}
 			}
-			if (outputType.isMaryXML()) {
-				assert outputNodeList != null;
-				// And now replace the paragraph in-place:
-				MaryDomUtils.replaceElement(currentInputParagraph, outputNodeList);
+			if (xmlWriter != null) {
+				streamingOutputWritten = true; // even if incomplete, the rest of the document is gone
+				if (!abortRequested) {
+					xmlWriter.finish();
+				}
+			}
+		} finally {
+			// after an error or abort, do not waste time on paragraphs nobody will get to see
+			for (int i = 0; i < numStarted; i++) {
+				if (results.get(i) != null) {
+					results.get(i).cancel(true);
+				}
+				if (paragraphAudio != null) {
+					paragraphAudio[i].doneAppending(); // no-op for paragraphs that have completed
+				}
 			}
-		}
-		long stopTime = System.currentTimeMillis();
-		logger.info("Request processed in " + (stopTime - startTime) + " ms.");
-		for (MaryModule m : usedModules) {
-			logger.info("   " + m.name() + " took " + timingInfo.get(m) + " ms");
 		}
 		if (appendableAudioStream != null)
 			appendableAudioStream.doneAppending();
 	}
 
+	/**
+	 * Log the time taken by the request and its modules, and add it to the {@link RequestMetrics}.
+	 */
+	private void recordTimings(long nanos, boolean ok) {
+		RequestMetrics metrics = RequestMetrics.getInstance();
+		logger.info("Request processed in " + nanos / 1000000 + " ms.");
+		metrics.recordRequest(outputType.name(), nanos, ok);
+		synchronized (usedModules) {
+			for (MaryModule m : usedModules) {
+				Long moduleNanos = timingInfo.get(m);
+				if (moduleNanos != null) {
+					logger.info("   " + m.name() + " took " + moduleNanos / 1000000 + " ms");
+					metrics.recordModule(m.name(), moduleNanos);
+				}
+			}
+		}
+		if (ok && appendableAudioStream != null && defaultVoice != null) {
+			long frames = appendableAudioStream.getFrameLength(); // known only if all parts have a known length
+			if (frames != AudioSystem.NOT_SPECIFIED) {
+				metrics.recordRealtimeFactor(defaultVoice.getName(), nanos, frames
+						/ appendableAudioStream.getFormat().getFrameRate());
+			}
+		}
+	}
+
+	/**
+	 * Start converting one paragraph of the rawmaryxml document into the output type of this request. The paragraph is copied
+	 * into a document of its own in the calling thread, so that the rawmaryxml document is never accessed by other threads.
+	 *
+	 * @param rawmaryxml
+	 *            the document containing the paragraph
+	 * @param paragraph
+	 *            the paragraph to convert
+	 * @param inBackground
+	 *            whether to convert the paragraph in a background thread, or immediately in the calling thread
+	 * @param audio
+	 *            the stream to which the synthesis module appends the audio of the paragraph while it is produced, or null to
+	 *            return the audio with the result. The stream is marked as complete when the conversion ends.
+	 * @return the future result of the conversion, or null if there is no text below the paragraph and nothing needs to be done.
+	 */
+	private Future<MaryData> startParagraph(MaryData rawmaryxml, Element paragraph, boolean inBackground,
+			final AppendableSequenceAudioInputStream audio) {
+		if (MaryDomUtils.getPlainTextBelow(paragraph).trim().equals("")) {
+			return null;
+		}
+		final MaryData oneInputData = extractParagraphAsMaryData(rawmaryxml, paragraph);
+		// assert oneInputData.getDefaultVoice() != null;
+		Callable<MaryData> task = new Callable<MaryData>() {
+			public MaryData call() throws Exception {
+				if (audio == null) {
+					return processOrLookupOneChunk(oneInputData, outputType, outputTypeParams);
+				}
+				try {
+					return processOneChunk(oneInputData, outputType, outputTypeParams, determineLocale(oneInputData), audio);
+				} finally {
+					audio.doneAppending();
+				}
+			}
+		};
+		if (inBackground) {
+			return getParagraphExecutor().submit(task);
+		}
+		FutureTask<MaryData> future = new FutureTask<MaryData>(task);
+		future.run();
+		return future;
+	}
+
+	private static MaryData getParagraphResult(Future<MaryData> result) throws Exception {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
 	/**
 	 * Convert the given data into the requested output type, either by looking it up in the cache or by actually processing it.
 	 *
@@ -393,38 +597,31 @@ public class Request {
 		Locale locale = determineLocale(oneInputData);
 		assert locale != null;
 
-		MaryCache cache = null;
+		TieredCache cache = null;
 		if (MaryProperties.getBoolean("cache")) {
-			cache = MaryCache.getCache();
+			cache = TieredCache.getCache();
 		}
 
 		if (cache == null) {
 			return processOneChunk(oneInputData, oneOutputType, outputParams, locale);
 		}
 
-		String inputtype = null;
-		String outputtype = null;
-		String localeString = null;
-		String voice = null;
-		String inputtext = null;
+		String localeString = locale.toString();
+		String voice = defaultVoice != null ? defaultVoice.getName() : null;
 
 		// try to look up the requested result in the cache:
-		inputtype = oneInputData.getType().name();
-		outputtype = oneOutputType.name();
-		ByteArrayOutputStream sw = new ByteArrayOutputStream();
-		oneInputData.writeTo(sw);
-		inputtext = new String(sw.toByteArray(), "UTF-8");
-		voice = defaultVoice != null ? defaultVoice.getName() : null;
-		localeString = locale.toString();
-
 		if (oneOutputType.isTextType()) {
 			try {
-				String outputtext = cache.lookupText(inputtype, outputtype, localeString, voice, outputParams, defaultStyle,
-						defaultEffects, inputtext);
+				byte[] outputtext = cache.lookup(cacheKey(oneInputData, oneOutputType, localeString, voice, outputParams));
+				RequestMetrics.getInstance().recordCacheLookup(outputtext != null);
 				if (outputtext != null) {
 					MaryData outData = new MaryData(oneOutputType, locale);
-					ByteArrayInputStream sr = new ByteArrayInputStream(outputtext.getBytes());
-					outData.readFrom(sr);
+					ByteArrayInputStream sr = new ByteArrayInputStream(outputtext);
+					if (oneOutputType.isXMLType()) {
+						outData.setDocument(DomStreamIO.read(sr));
+					} else {
+						outData.readFrom(sr);
+					}
 					sr.close();
 					outData.setDefaultVoice(defaultVoice);
 					outData.setDefaultStyle(defaultStyle);
@@ -434,10 +631,10 @@ public class Request {
 			} catch (Exception e) {
 				logger.warn("Problem looking up text in cache", e);
 			}
-		} else if (outputtype.equals("AUDIO")) {
+		} else if (oneOutputType.equals(MaryDataType.AUDIO)) {
 			try {
-				byte[] wavFileData = cache.lookupAudio(inputtype, localeString, voice, outputParams, defaultStyle,
-						defaultEffects, inputtext);
+				byte[] wavFileData = cache.lookup(cacheKey(oneInputData, oneOutputType, localeString, voice, outputParams));
+				RequestMetrics.getInstance().recordCacheLookup(wavFileData != null);
 				if (wavFileData != null) {
 					AudioInputStream ais = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wavFileData));
 					MaryData outData = new MaryData(oneOutputType, locale);
@@ -460,11 +657,12 @@ public class Request {
 			MaryData audioData = processOneChunk(oneInputData, MaryDataType.AUDIO, outputParams, locale);
 			MaryData realisedAcoustparams = processOneChunk(audioData, MaryDataType.REALISED_ACOUSTPARAMS, outputParams, locale);
 			MaryData realisedDurations = processOneChunk(audioData, MaryDataType.REALISED_DURATIONS, outputParams, locale);
-			insertAudioIntoCache(cache, inputtype, localeString, voice, outputParams, inputtext, audioData);
-			insertTextIntoCache(cache, inputtype, MaryDataType.REALISED_ACOUSTPARAMS.name(), localeString, voice, outputParams,
-					inputtext, realisedAcoustparams);
-			insertTextIntoCache(cache, inputtype, MaryDataType.REALISED_DURATIONS.name(), localeString, voice, outputParams,
-					inputtext, realisedDurations);
+			insertAudioIntoCache(cache, cacheKey(oneInputData, MaryDataType.AUDIO, localeString, voice, outputParams), audioData);
+			insertTextIntoCache(cache,
+					cacheKey(oneInputData, MaryDataType.REALISED_ACOUSTPARAMS, localeString, voice, outputParams),
+					realisedAcoustparams);
+			insertTextIntoCache(cache, cacheKey(oneInputData, MaryDataType.REALISED_DURATIONS, localeString, voice, outputParams),
+					realisedDurations);
 			if (oneOutputType.equals(MaryDataType.AUDIO))
 				return audioData;
 			else if (oneOutputType.equals(MaryDataType.REALISED_ACOUSTPARAMS))
@@ -474,35 +672,61 @@ public class Request {
 			MaryData oneOutputData = processOneChunk(oneInputData, oneOutputType, outputParams, locale);
 			// Remember the processing result in the cache
 			if (oneOutputType.isTextType()) {
-				insertTextIntoCache(cache, inputtype, outputtype, localeString, voice, outputParams, inputtext, oneOutputData);
+				insertTextIntoCache(cache, cacheKey(oneInputData, oneOutputType, localeString, voice, outputParams),
+						oneOutputData);
 			} else {
-				logger.debug("Don't know how to cache data of type '" + outputtype + "'");
+				logger.debug("Don't know how to cache data of type '" + oneOutputType.name() + "'");
 			}
 			return oneOutputData;
 		}
 	}
 
-	private void insertAudioIntoCache(MaryCache cache, String inputtype, String localeString, String voice, String outputParams,
-			String inputtext, MaryData currentData) throws IOException, SQLException, UnsupportedAudioFileException {
+	/**
+	 * Compute the cache key for converting the given input data into the given output type with the settings of this request.
+	 * XML input is hashed directly from its DOM tree, so it does not need to be serialised.
+	 */
+	private CacheKey cacheKey(MaryData oneInputData, MaryDataType oneOutputType, String localeString, String voice,
+			String outputParams) throws Exception {
+		CacheKey.Builder key = CacheKey.builder().add(oneInputData.getType().name()).add(oneOutputType.name())
+				.add(localeString).add(voice).add(outputParams).add(defaultStyle).add(defaultEffects);
+		if (oneInputData.getType().isXMLType()) {
+			key.add(oneInputData.getDocument());
+		} else if (oneInputData.getType().isTextType()) {
+			key.add(oneInputData.getPlainText());
+		} else {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			oneInputData.writeTo(baos);
+			key.add(baos.toByteArray());
+		}
+		return key.build();
+	}
+
+	private void insertAudioIntoCache(TieredCache cache, CacheKey key, MaryData currentData) throws IOException,
+			UnsupportedAudioFileException {
 		AppendableSequenceAudioInputStream as = (AppendableSequenceAudioInputStream) currentData.getAudio();
 		assert as != appendableAudioStream;
 		as.doneAppending();
 		ByteArrayOutputStream baos = new ByteArrayOutputStream(2 * (int) as.getFrameLength() + 100);
 		AudioSystem.write(as, AudioFileFormat.Type.WAVE, baos);
 		byte[] wavFileData = baos.toByteArray();
-		cache.insertAudio(inputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext, wavFileData);
+		cache.insert(key, wavFileData);
 		AudioInputStream ais = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wavFileData));
 		currentData.setAudio(ais);
 	}
 
-	private void insertTextIntoCache(MaryCache cache, String inputtype, String outputtype, String localeString, String voice,
-			String outputParams, String inputtext, MaryData currentData) {
+	/**
+	 * XML is cached in the form written by {@link DomStreamIO}, which is read back faster, and into the very same document, than
+	 * the normalised form sent to clients.
+	 */
+	private void insertTextIntoCache(TieredCache cache, CacheKey key, MaryData currentData) {
 		try {
 			ByteArrayOutputStream sw = new ByteArrayOutputStream();
-			currentData.writeTo(sw);
-			String outputtext = new String(sw.toByteArray(), "UTF-8");
-			cache.insertText(inputtype, outputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext,
-					outputtext);
+			if (currentData.getType().isXMLType()) {
+				DomStreamIO.write(currentData.getDocument(), sw);
+			} else {
+				currentData.writeTo(sw);
+			}
+			cache.insert(key, sw.toByteArray());
 		} catch (Exception e) {
 			logger.warn("Problem inserting text into cache", e);
 		}
@@ -510,6 +734,18 @@ public class Request {
 
 	private MaryData processOneChunk(MaryData oneInputData, MaryDataType oneOutputType, String outputParams, Locale locale)
 			throws Exception, TransformerConfigurationException, FileNotFoundException, TransformerException, IOException {
+		return processOneChunk(oneInputData, oneOutputType, outputParams, locale, null);
+	}
+
+	/**
+	 * Convert the given data into the given output type.
+	 * 
+	 * @param audio
+	 *            the stream to which the module producing audio is to append its output, or null for a new stream
+	 */
+	private MaryData processOneChunk(MaryData oneInputData, MaryDataType oneOutputType, String outputParams, Locale locale,
+			AppendableSequenceAudioInputStream audio) throws Exception, TransformerConfigurationException, FileNotFoundException,
+			TransformerException, IOException {
 		logger.debug("Determining which modules to use");
 		List<MaryModule> neededModules = ModuleRegistry.modulesRequiredForProcessing(oneInputData.getType(), oneOutputType,
 				locale, oneInputData.getDefaultVoice());
@@ -535,10 +771,10 @@ public class Request {
 				// This should happen only in command line mode:
 				assert MaryProperties.needProperty("server").compareTo("commandline") == 0;
 				logger.info("Starting module " + m.name());
-				m.startup();
+				ModuleRegistry.startModule(m);
 				assert m.getState() == MaryModule.MODULE_RUNNING;
 			}
-			long moduleStartTime = System.currentTimeMillis();
+			long moduleStartTime = System.nanoTime();
 			// Let synthesis know which audio format to produce:
 			// (this isn't nice -- instead, we could add a reference
 			// to the Request to each MaryData, and look up request-specific
@@ -546,7 +782,8 @@ public class Request {
 			// from where it is required.)
 			if (m.getOutputType() == MaryDataType.get("AUDIO")) {
 				currentData.setAudioFileFormat(audioFileFormat);
-				currentData.setAudio(new AppendableSequenceAudioInputStream(audioFileFormat.getFormat(), null));
+				currentData.setAudio(audio != null ? audio : new AppendableSequenceAudioInputStream(audioFileFormat.getFormat(),
+						null));
 			}
 			// TODO: The following hack makes sure that the Synthesis module gets outputParams. Make this more general and robust.
 			if (m.getOutputType() == oneOutputType || m.getOutputType() == MaryDataType.AUDIO) {
@@ -570,18 +807,24 @@ public class Request {
 			if (outData == null) {
 				throw new NullPointerException("Module " + m.name() + " returned null. This should not happen.");
 			}
+			if (outData.getDocument() != null) {
+				// the module may have changed the structure of the document
+				UtteranceIndex.structureChanged(outData.getDocument());
+			}
 			outData.setDefaultVoice(defaultVoice);
 			outData.setDefaultStyle(defaultStyle);
 			outData.setDefaultEffects(defaultEffects);
 
 			currentData = outData;
-			long moduleStopTime = System.currentTimeMillis();
+			long moduleStopTime = System.nanoTime();
 			long delta = moduleStopTime - moduleStartTime;
-			Long soFar = timingInfo.get(m);
-			if (soFar != null)
-				timingInfo.put(m, Long.valueOf(soFar.longValue() + delta));
-			else
-				timingInfo.put(m, Long.valueOf(delta));
+			synchronized (timingInfo) {
+				Long soFar = timingInfo.get(m);
+				if (soFar != null)
+					timingInfo.put(m, Long.valueOf(soFar.longValue() + delta));
+				else
+					timingInfo.put(m, Long.valueOf(delta));
+			}
 			if (MaryRuntimeUtils.veryLowMemoryCondition()) {
 				logger.info("Very low memory condition detected (only " + MaryUtils.availableMemory()
 						+ " bytes left). Triggering garbage collection.");
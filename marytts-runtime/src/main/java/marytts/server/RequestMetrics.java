@@ -0,0 +1,311 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Timings and counters of all requests processed by this server, aggregated into histograms, so that hot spots can be found in
+ * production without debug logging. The metrics are served by the http server under <code>/metrics</code>, in the plain-text
+ * format read by Prometheus and compatible scrapers:
+ * <ul>
+ * <li><code>mary_request_seconds{output_type}</code>: time to process a request, from {@link Request#process()} being called
+ * until it returns;</li>
+ * <li><code>mary_module_seconds{module}</code>: time spent in each module, summed over the chunks of a request;</li>
+ * <li><code>mary_queue_wait_seconds</code>: time a request waited for a synthesis thread;</li>
+ * <li><code>mary_first_audio_seconds</code>: for streaming audio requests, time from the creation of the request until the first
+ * audio byte is sent;</li>
+ * <li><code>mary_realtime_factor{voice}</code>: processing time divided by duration of the resulting audio;</li>
+ * <li><code>mary_requests_total{outcome}</code> and <code>mary_cache_lookups_total{result}</code>: counters.</li>
+ * </ul>
+ * All methods are thread-safe and do not block.
+ */
+public class RequestMetrics {
+	/** Upper bounds of the buckets for durations, in seconds. */
+	static final double[] SECONDS_BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+	/** Upper bounds of the buckets for real-time factors. */
+	static final double[] RTF_BUCKETS = { 0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1, 2, 5, 10 };
+
+	private static final RequestMetrics instance = new RequestMetrics();
+
+	private final Family requestSeconds = new Family("mary_request_seconds", "output_type", SECONDS_BUCKETS,
+			"Time to process a request");
+	private final Family moduleSeconds = new Family("mary_module_seconds", "module", SECONDS_BUCKETS,
+			"Time spent in a module per request");
+	private final Family queueWaitSeconds = new Family("mary_queue_wait_seconds", null, SECONDS_BUCKETS,
+			"Time a request waited for a synthesis thread");
+	private final Family firstAudioSeconds = new Family("mary_first_audio_seconds", null, SECONDS_BUCKETS,
+			"Time until the first audio byte of a streaming request is sent");
+	private final Family realtimeFactor = new Family("mary_realtime_factor", "voice", RTF_BUCKETS,
+			"Processing time divided by audio duration");
+	private final Counters requests = new Counters("mary_requests_total", "outcome", "Requests processed");
+	private final Counters cacheLookups = new Counters("mary_cache_lookups_total", "result", "Cache lookups");
+
+	/**
+	 * @return the metrics of this server
+	 */
+	public static RequestMetrics getInstance() {
+		return instance;
+	}
+
+	RequestMetrics() {
+	}
+
+	/**
+	 * Record a processed request.
+	 * 
+	 * @param outputType
+	 *            the name of the output type of the request
+	 * @param nanos
+	 *            the processing time, in nanoseconds
+	 * @param ok
+	 *            false if processing failed with an exception
+	 */
+	public void recordRequest(String outputType, long nanos, boolean ok) {
+		requestSeconds.get(outputType).observe(nanos / 1e9);
+		requests.increment(ok ? "ok" : "error");
+	}
+
+	/**
+	 * Record the time a module has spent on a request.
+	 * 
+	 * @param module
+	 *            the name of the module
+	 * @param nanos
+	 *            the processing time, in nanoseconds
+	 */
+	public void recordModule(String module, long nanos) {
+		moduleSeconds.get(module).observe(nanos / 1e9);
+	}
+
+	/**
+	 * @param nanos
+	 *            the time a request waited for a synthesis thread, in nanoseconds
+	 */
+	public void recordQueueWait(long nanos) {
+		queueWaitSeconds.get(null).observe(nanos / 1e9);
+	}
+
+	/**
+	 * @param nanos
+	 *            the time from the creation of a streaming request until its first audio byte is sent, in nanoseconds
+	 */
+	public void recordFirstAudio(long nanos) {
+		firstAudioSeconds.get(null).observe(nanos / 1e9);
+	}
+
+	/**
+	 * Record the real-time factor of a request producing audio.
+	 * 
+	 * @param voice
+	 *            the name of the voice
+	 * @param nanos
+	 *            the processing time, in nanoseconds
+	 * @param audioSeconds
+	 *            the duration of the audio produced, in seconds
+	 */
+	public void recordRealtimeFactor(String voice, long nanos, double audioSeconds) {
+		if (audioSeconds > 0) {
+			realtimeFactor.get(voice).observe(nanos / 1e9 / audioSeconds);
+		}
+	}
+
+	/**
+	 * @param hit
+	 *            whether the result was found in the cache
+	 */
+	public void recordCacheLookup(boolean hit) {
+		cacheLookups.increment(hit ? "hit" : "miss");
+	}
+
+	/**
+	 * Write all metrics in the plain-text exposition format of Prometheus.
+	 * 
+	 * @param buf
+	 *            the buffer to append to
+	 */
+	public void appendText(StringBuilder buf) {
+		requests.appendText(buf);
+		requestSeconds.appendText(buf);
+		moduleSeconds.appendText(buf);
+		queueWaitSeconds.appendText(buf);
+		firstAudioSeconds.appendText(buf);
+		realtimeFactor.appendText(buf);
+		cacheLookups.appendText(buf);
+	}
+
+	/**
+	 * @return all metrics in the plain-text exposition format of Prometheus
+	 */
+	public String getText() {
+		StringBuilder buf = new StringBuilder();
+		appendText(buf);
+		return buf.toString();
+	}
+
+	private static String labels(String label, String value, String more) {
+		StringBuilder buf = new StringBuilder();
+		if (label != null) {
+			buf.append(label).append("=\"").append(escape(value)).append('"');
+		}
+		if (more != null) {
+			if (buf.length() > 0) {
+				buf.append(',');
+			}
+			buf.append(more);
+		}
+		return buf.length() == 0 ? "" : "{" + buf + "}";
+	}
+
+	private static String escape(String value) {
+		return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * A cumulative histogram with fixed bucket bounds.
+	 */
+	public static class Histogram {
+		private final double[] bounds;
+		private final AtomicLongArray counts;
+		private final DoubleAdder sum = new DoubleAdder();
+
+		/**
+		 * @param bounds
+		 *            the upper bounds of the buckets, in increasing order; a last bucket without upper bound is added
+		 */
+		public Histogram(double[] bounds) {
+			this.bounds = bounds;
+			this.counts = new AtomicLongArray(bounds.length + 1);
+		}
+
+		public void observe(double value) {
+			int i = 0;
+			while (i < bounds.length && value > bounds[i]) {
+				i++;
+			}
+			counts.incrementAndGet(i);
+			sum.add(value);
+		}
+
+		public long getCount() {
+			long n = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				n += counts.get(i);
+			}
+			return n;
+		}
+
+		public double getSum() {
+			return sum.sum();
+		}
+
+		void appendText(StringBuilder buf, String name, String label, String value) {
+			long cumulative = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				cumulative += counts.get(i);
+				String le = i < bounds.length ? String.valueOf(bounds[i]) : "+Inf";
+				buf.append(name).append("_bucket").append(labels(label, value, "le=\"" + le + "\"")).append(' ')
+						.append(cumulative).append('\n');
+			}
+			buf.append(name).append("_sum").append(labels(label, value, null)).append(' ').append(getSum()).append('\n');
+			buf.append(name).append("_count").append(labels(label, value, null)).append(' ').append(cumulative).append('\n');
+		}
+	}
+
+	/**
+	 * Histograms of one metric, one per value of an optional label.
+	 */
+	private static class Family {
+		private final String name;
+		private final String label;
+		private final double[] bounds;
+		private final String help;
+		private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+		Family(String name, String label, double[] bounds, String help) {
+			this.name = name;
+			this.label = label;
+			this.bounds = bounds;
+			this.help = help;
+		}
+
+		Histogram get(String value) {
+			String key = value != null ? value : "";
+			Histogram h = histograms.get(key);
+			if (h == null) {
+				Histogram newHistogram = new Histogram(bounds);
+				h = histograms.putIfAbsent(key, newHistogram);
+				if (h == null) {
+					h = newHistogram;
+				}
+			}
+			return h;
+		}
+
+		void appendText(StringBuilder buf) {
+			buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+			buf.append("# TYPE ").append(name).append(" histogram\n");
+			for (Map.Entry<String, Histogram> e : new TreeMap<String, Histogram>(histograms).entrySet()) {
+				e.getValue().appendText(buf, name, label, e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Counters of one metric, one per label value.
+	 */
+	private static class Counters {
+		private final String name;
+		private final String label;
+		private final String help;
+		private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+		Counters(String name, String label, String help) {
+			this.name = name;
+			this.label = label;
+			this.help = help;
+		}
+
+		void increment(String value) {
+			AtomicLong c = counters.get(value);
+			if (c == null) {
+				AtomicLong newCounter = new AtomicLong();
+				c = counters.putIfAbsent(value, newCounter);
+				if (c == null) {
+					c = newCounter;
+				}
+			}
+			c.incrementAndGet();
+		}
+
+		void appendText(StringBuilder buf) {
+			buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+			buf.append("# TYPE ").append(name).append(" counter\n");
+			for (Map.Entry<String, AtomicLong> e : new TreeMap<String, AtomicLong>(counters).entrySet()) {
+				buf.append(name).append(labels(label, e.getKey(), null)).append(' ').append(e.getValue().get()).append('\n');
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the independent parts of system startup, such as instantiating and starting modules or loading voices, on a shared pool
+ * of threads. The number of threads is set with the property <code>modules.startup.threads</code>; with 1, the default,
+ * everything runs one after the other in the calling thread, as it used to.
+ * <p>
+ * A thread waiting for its tasks runs those that no pool thread has picked up yet itself, so that tasks may in turn call
+ * {@link #invokeAll(List)} without running out of threads.
+ * </p>
+ */
+public class StartupExecutor {
+	private static ExecutorService executor;
+	private static boolean initialised = false;
+
+	private StartupExecutor() {
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (!initialised) {
+			executor = createExecutor(MaryProperties.getInteger("modules.startup.threads", 1));
+			initialised = true;
+		}
+		return executor;
+	}
+
+	/**
+	 * Use the given number of threads from now on, rather than the configured number; for tests.
+	 *
+	 * @param numThreads
+	 *            the number of threads
+	 */
+	static synchronized void setNumberOfThreads(int numThreads) {
+		if (executor != null) {
+			executor.shutdown();
+		}
+		executor = createExecutor(numThreads);
+		initialised = true;
+	}
+
+	private static ExecutorService createExecutor(int numThreads) {
+		if (numThreads <= 1) {
+			return null;
+		}
+		return Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "startup-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Run the given tasks, in parallel if possible, and wait until all of them have completed.
+	 *
+	 * @param tasks
+	 *            the tasks
+	 * @param <T>
+	 *            the result type of the tasks
+	 * @return the results, in the order of the tasks
+	 * @throws Exception
+	 *             the exception thrown by the first failing task, in the order of the tasks
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws Exception {
+		ExecutorService pool = tasks.size() > 1 ? getExecutor() : null;
+		List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			FutureTask<T> future = new FutureTask<T>(task);
+			futures.add(future);
+			if (pool != null) {
+				pool.execute(future);
+			}
+		}
+		List<T> results = new ArrayList<T>(tasks.size());
+		for (FutureTask<T> future : futures) {
+			future.run(); // does nothing if a pool thread has started the task already
+			results.add(getResult(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Run the given task in the background, e.g. to load data that is not needed right away.
+	 *
+	 * @param task
+	 *            the task
+	 */
+	public static void execute(Runnable task) {
+		ExecutorService pool = getExecutor();
+		if (pool != null) {
+			pool.execute(task);
+		} else {
+			Thread t = new Thread(task, "startup-background");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Wait for a task and return its result, rethrowing the exception it has thrown, if any.
+	 *
+	 * @param future
+	 *            the task
+	 * @param <T>
+	 *            the result type
+	 * @return the result of the task
+	 * @throws Exception
+	 *             the exception thrown by the task
+	 */
+	public static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -20,6 +20,7 @@
 
 package marytts.server.http;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -29,6 +30,7 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 
 import marytts.server.Request;
+import marytts.server.RequestMetrics;
 import marytts.util.MaryUtils;
 
 import org.apache.http.entity.AbstractHttpEntity;
@@ -117,7 +119,8 @@ public class AudioStreamNHttpEntity extends AbstractHttpEntity implements Produc
 		assert out != null;
 		ContentOutputStream outStream = new ContentOutputStream(out);
 		try {
-			AudioSystem.write(audio, audioType, outStream);
+			AudioSystem.write(new AudioInputStream(new FirstByteTimer(audio, maryRequest.getCreationTime()), audio.getFormat(),
+					audio.getFrameLength()), audioType, outStream);
 			outStream.flush();
 			outStream.close();
 			logger.info("Finished writing output");
@@ -126,4 +129,38 @@ public class AudioStreamNHttpEntity extends AbstractHttpEntity implements Produc
 			maryRequest.abort();
 		}
 	}
+
+	/**
+	 * Records the time until the first audio data is read from the request, i.e. about to be sent, in the {@link RequestMetrics}.
+	 */
+	private static class FirstByteTimer extends FilterInputStream {
+		private final long startTime;
+		private boolean recorded = false;
+
+		FirstByteTimer(InputStream in, long startTime) {
+			super(in);
+			this.startTime = startTime;
+		}
+
+		private void record(int n) {
+			if (n > 0 && !recorded) {
+				recorded = true;
+				RequestMetrics.getInstance().recordFirstAudio(System.nanoTime() - startTime);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			record(b >= 0 ? 1 : 0);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			record(n);
+			return n;
+		}
+	}
 }
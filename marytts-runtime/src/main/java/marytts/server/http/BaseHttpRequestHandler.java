@@ -19,10 +19,7 @@
  */
 package marytts.server.http;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -57,16 +54,12 @@ import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.MethodNotSupportedException;
-import org.apache.http.nio.ContentDecoder;
-import org.apache.http.nio.ContentDecoderChannel;
-import org.apache.http.nio.FileContentDecoder;
-import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.BufferingNHttpEntity;
 import org.apache.http.nio.entity.ConsumingNHttpEntity;
-import org.apache.http.nio.entity.ConsumingNHttpEntityTemplate;
-import org.apache.http.nio.entity.ContentListener;
-import org.apache.http.nio.protocol.SimpleNHttpRequestHandler;
+import org.apache.http.nio.protocol.NHttpRequestHandler;
+import org.apache.http.nio.protocol.NHttpResponseTrigger;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.protocol.HttpRequestHandler;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.Logger;
 
@@ -75,9 +68,7 @@ import org.apache.logging.log4j.Logger;
  * 
  * @author Oytun T&uuml;rk, Marc Schröder
  */
-public abstract class BaseHttpRequestHandler extends SimpleNHttpRequestHandler implements HttpRequestHandler {
-	private final boolean useFileChannels = true;
-
+public abstract class BaseHttpRequestHandler implements NHttpRequestHandler {
 	protected static Logger logger;
 	private int runningNumber = 1;
 	private Map<String, Object[]> requestMap;
@@ -90,10 +81,11 @@ public abstract class BaseHttpRequestHandler extends SimpleNHttpRequestHandler i
 	}
 
 	/**
-	 * The entry point of all HttpRequestHandlers. When this method returns, the response is sent to the client.
+	 * The entry point of all request handlers. The response is sent to the client when it is submitted to the trigger, which
+	 * {@link #handleClientRequest(String, Map, HttpResponse, Address, NHttpResponseTrigger)} does.
 	 */
-	public void handle(final HttpRequest request, final HttpResponse response, final HttpContext context) throws HttpException,
-			IOException {
+	public void handle(final HttpRequest request, final HttpResponse response, final NHttpResponseTrigger trigger,
+			final HttpContext context) throws HttpException, IOException {
 		try {
 			Header[] tmp = request.getHeaders("Host");
 			Address serverAddressAtClient = getServerAddressAtClient(tmp[0].getValue());
@@ -135,13 +127,25 @@ public abstract class BaseHttpRequestHandler extends SimpleNHttpRequestHandler i
 			}
 
 			// Parse request and create appropriate response
-			handleClientRequest(absPath, queryItems, response, serverAddressAtClient);
+			handleClientRequest(absPath, queryItems, response, serverAddressAtClient, trigger);
 
 		} catch (RuntimeException re) {
 			logger.warn("runtime exception in handle():", re);
+			trigger.submitResponse(response);
 		}
 	}
 
+	/**
+	 * Handle the request and submit the response. By default, the response is submitted as soon as
+	 * {@link #handleClientRequest(String, Map, HttpResponse, Address)} returns; handlers that complete the response in another
+	 * thread override this method, and submit the response from that thread.
+	 */
+	protected void handleClientRequest(String absPath, Map<String, String> queryItems, HttpResponse response,
+			Address serverAddressAtClient, NHttpResponseTrigger trigger) throws IOException {
+		handleClientRequest(absPath, queryItems, response, serverAddressAtClient);
+		trigger.submitResponse(response);
+	}
+
 	protected abstract void handleClientRequest(String absPath, Map<String, String> queryItems, HttpResponse response,
 			Address serverAddressAtClient) throws IOException;
 
@@ -157,45 +161,8 @@ public abstract class BaseHttpRequestHandler extends SimpleNHttpRequestHandler i
 
 	public ConsumingNHttpEntity entityRequest(final HttpEntityEnclosingRequest request, final HttpContext context)
 			throws HttpException, IOException {
-		return new ConsumingNHttpEntityTemplate(request.getEntity(), new FileWriteListener(useFileChannels));
-	}
-
-	static class FileWriteListener implements ContentListener {
-		private final File file;
-		private final FileInputStream inputFile;
-		private final FileChannel fileChannel;
-		private final boolean useFileChannels;
-		private long idx = 0;
-
-		public FileWriteListener(boolean useFileChannels) throws IOException {
-			this.file = File.createTempFile("tmp", ".tmp", null);
-			this.inputFile = new FileInputStream(file);
-			this.fileChannel = inputFile.getChannel();
-			this.useFileChannels = useFileChannels;
-		}
-
-		public void contentAvailable(ContentDecoder decoder, IOControl ioctrl) throws IOException {
-			long transferred;
-			if (useFileChannels && decoder instanceof FileContentDecoder) {
-				transferred = ((FileContentDecoder) decoder).transfer(fileChannel, idx, Long.MAX_VALUE);
-			} else {
-				transferred = fileChannel.transferFrom(new ContentDecoderChannel(decoder), idx, Long.MAX_VALUE);
-			}
-
-			if (transferred > 0)
-				idx += transferred;
-		}
-
-		public void finished() {
-			try {
-				inputFile.close();
-			} catch (IOException ignored) {
-			}
-			try {
-				fileChannel.close();
-			} catch (IOException ignored) {
-			}
-		}
+		// the content is buffered, so that handle() can read the query of a POST request from it
+		return new BufferingNHttpEntity(request.getEntity(), new HeapByteBufferAllocator());
 	}
 
 }
@@ -30,6 +30,7 @@ import marytts.util.http.Address;
 
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.nio.protocol.NHttpResponseTrigger;
 import org.apache.http.protocol.HttpContext;
 
 /**
@@ -49,11 +50,12 @@ public class FileRequestHandler extends BaseHttpRequestHandler {
 	}
 
 	/**
-	 * The entry point of all HttpRequestHandlers. When this method returns, the response is sent to the client. We override this
-	 * here to show how simple a processing we are doing for file requests.
+	 * The entry point of all request handlers. The response is sent to the client when it is submitted to the trigger. We override
+	 * this here to show how simple a processing we are doing for file requests.
 	 */
 	@Override
-	public void handle(final HttpRequest request, final HttpResponse response, final HttpContext context) {
+	public void handle(final HttpRequest request, final HttpResponse response, final NHttpResponseTrigger trigger,
+			final HttpContext context) {
 		String uri = request.getRequestLine().getUri();
 		if (uri.startsWith("/")) {
 			uri = uri.substring(1);
@@ -71,6 +73,7 @@ public class FileRequestHandler extends BaseHttpRequestHandler {
 		} else {
 			MaryHttpServerUtils.errorFileNotFound(response, uri);
 		}
+		trigger.submitResponse(response);
 	}
 
 	@Override
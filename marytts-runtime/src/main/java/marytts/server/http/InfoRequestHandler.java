@@ -26,7 +26,9 @@ import java.util.Map;
 
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
+import marytts.modules.ModuleRegistry;
 import marytts.modules.synthesis.Voice;
+import marytts.server.RequestMetrics;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
 import marytts.util.http.Address;
@@ -42,8 +44,15 @@ import org.apache.http.nio.entity.NStringEntity;
  */
 public class InfoRequestHandler extends BaseHttpRequestHandler {
 
+	private SynthesisExecutor synthesisExecutor;
+
 	public InfoRequestHandler() {
+		this(null);
+	}
+
+	public InfoRequestHandler(SynthesisExecutor synthesisExecutor) {
 		super();
+		this.synthesisExecutor = synthesisExecutor;
 	}
 
 	@Override
@@ -208,6 +217,18 @@ public class InfoRequestHandler extends BaseHttpRequestHandler {
 			}
 			MaryHttpServerUtils.errorMissingQueryParameter(response, "'voice'");
 			return null;
+		} else if (request.equals("synthesis-status") && synthesisExecutor != null) {
+			return synthesisExecutor.getStatus();
+		} else if (request.equals("voice-status")) {
+			return MaryRuntimeUtils.getVoiceStatus();
+		} else if (request.equals("routing-table")) {
+			return ModuleRegistry.getRoutingTable().dump();
+		} else if (request.equals("metrics")) {
+			String metrics = RequestMetrics.getInstance().getText();
+			if (synthesisExecutor != null) {
+				metrics += synthesisExecutor.getMetrics();
+			}
+			return metrics;
 		}
 		MaryHttpServerUtils.errorFileNotFound(response, request);
 		return null;
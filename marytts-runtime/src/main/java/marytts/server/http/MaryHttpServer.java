@@ -33,8 +33,9 @@ import org.apache.http.impl.DefaultHttpResponseFactory;
 import org.apache.http.impl.nio.DefaultServerIOEventDispatch;
 import org.apache.http.impl.nio.reactor.DefaultListeningIOReactor;
 import org.apache.http.nio.NHttpConnection;
-import org.apache.http.nio.protocol.BufferingHttpServiceHandler;
+import org.apache.http.nio.protocol.AsyncNHttpServiceHandler;
 import org.apache.http.nio.protocol.EventListener;
+import org.apache.http.nio.protocol.NHttpRequestHandlerRegistry;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.ListeningIOReactor;
 import org.apache.http.params.BasicHttpParams;
@@ -43,7 +44,6 @@ import org.apache.http.params.CoreProtocolPNames;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpProcessor;
 import org.apache.http.protocol.ExecutionContext;
-import org.apache.http.protocol.HttpRequestHandlerRegistry;
 import org.apache.http.protocol.ResponseConnControl;
 import org.apache.http.protocol.ResponseContent;
 import org.apache.http.protocol.ResponseDate;
@@ -103,6 +103,14 @@ import org.apache.logging.log4j.Logger;
  * <li><code>vocalizations?voice=dfki-poppy</code> requests the list of vocalization names that are available with the given
  * voice;</li>
  * <li><code>styles?voice=dfki-pavoque-styles</code> requests the list of style names that are available with the given voice;</li>
+ * <li><code>synthesis-status</code> requests the state of the synthesis executor (queue depth, active and rejected requests, wait
+ * times) as plain text;</li>
+ * <li><code>voice-status</code> requests, for each voice, whether its data is loaded ("ready"), still being loaded or not yet
+ * loaded (see <code>voices.lazyload</code>), or has failed to load;</li>
+ * <li><code>routing-table</code> requests the processing paths through the modules (source type, target type, locale, voice
+ * and modules), for debugging;</li>
+ * <li><code>metrics</code> requests histograms of request, module, queue wait and time-to-first-audio latencies, real-time
+ * factors per voice and cache hits, in the plain-text format of Prometheus (see {@link marytts.server.RequestMetrics});</li>
  * <li><code>process</code> requests the synthesis of some text (see below).</li>
  * </ul>
  * <p>
@@ -125,6 +133,10 @@ import org.apache.logging.log4j.Logger;
  * AU_FILE, MP3_FILE, WAVE_FILE Example values for streaming formats: AU_STREAM, MP3_STREAM)
  * </p>
  * <p>
+ * STREAMING (for MaryXML output types: if "true", each paragraph is sent with chunked transfer encoding as soon as it is
+ * processed)
+ * </p>
+ * <p>
 * STYLE (Style descriptor)
  * </p>
  * <p>
@@ -176,6 +188,8 @@ public class MaryHttpServer extends Thread {
 
 	private boolean isReady = false;
 
+	private SynthesisExecutor synthesisExecutor;
+
 	public MaryHttpServer() {
 		logger = MaryUtils.getLogger("server");
 	}
@@ -184,6 +198,15 @@ public class MaryHttpServer extends Thread {
 		return isReady;
 	}
 
+	/**
+	 * The executor that processes all synthesis requests of this server.
+	 *
+	 * @return the synthesis executor, or null if the server has not been started yet
+	 */
+	public SynthesisExecutor getSynthesisExecutor() {
+		return synthesisExecutor;
+	}
+
 	public void run() {
 		logger.info("Starting server.");
 
@@ -204,13 +227,17 @@ public class MaryHttpServer extends Thread {
 		httpproc.addInterceptor(new ResponseContent());
 		httpproc.addInterceptor(new ResponseConnControl());
 
-		BufferingHttpServiceHandler handler = new BufferingHttpServiceHandler(httpproc, new DefaultHttpResponseFactory(),
+		// the response to a synthesis request is submitted by the synthesis thread when it is ready, see SynthesisRequestHandler
+		AsyncNHttpServiceHandler handler = new AsyncNHttpServiceHandler(httpproc, new DefaultHttpResponseFactory(),
 				new DefaultConnectionReuseStrategy(), params);
 
+		// All synthesis requests are processed by a bounded pool of worker threads
+		synthesisExecutor = SynthesisExecutor.fromProperties();
+
 		// Set up request handlers
-		HttpRequestHandlerRegistry registry = new HttpRequestHandlerRegistry();
-		registry.register("/process", new SynthesisRequestHandler());
-		InfoRequestHandler infoRH = new InfoRequestHandler();
+		NHttpRequestHandlerRegistry registry = new NHttpRequestHandlerRegistry();
+		registry.register("/process", new SynthesisRequestHandler(synthesisExecutor));
+		InfoRequestHandler infoRH = new InfoRequestHandler(synthesisExecutor);
 		registry.register("/version", infoRH);
 		registry.register("/datatypes", infoRH);
 		registry.register("/locales", infoRH);
@@ -226,6 +253,10 @@ public class MaryHttpServer extends Thread {
 		registry.register("/features-discrete", infoRH);
 		registry.register("/vocalizations", infoRH);
 		registry.register("/styles", infoRH);
+		registry.register("/synthesis-status", infoRH);
+		registry.register("/voice-status", infoRH);
+		registry.register("/routing-table", infoRH);
+		registry.register("/metrics", infoRH);
 		registry.register("*", new FileRequestHandler());
 
 		handler.setHandlerResolver(registry);
@@ -249,6 +280,7 @@ public class MaryHttpServer extends Thread {
 		} catch (IOException e) {
 			logger.info("Problem with HTTP connection", e);
 		}
+		synthesisExecutor.shutdown();
 		logger.debug("Shutdown");
 	}
 
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.entity.ProducingNHttpEntity;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedOutputBuffer;
+
+/**
+ * An entity of unknown length, sent with chunked transfer encoding, whose content is written to an output stream by another
+ * thread while the response is already being sent. Used for sending the output of a request from the thread that processes it,
+ * e.g. MaryXML output paragraph by paragraph.
+ * <p>
+ * If the content cannot be completed, {@link #abort()} closes the connection before the last chunk, so that the client can
+ * tell the incomplete content from a complete one.
+ * </p>
+ */
+public class OutputStreamNHttpEntity extends AbstractHttpEntity implements ProducingNHttpEntity {
+	private final Object mutex = new Object();
+	private SharedOutputBuffer out;
+	private IOControl ioctrl;
+	private boolean aborted = false;
+
+	public OutputStreamNHttpEntity(String contentType) {
+		setContentType(contentType);
+		setChunked(true);
+	}
+
+	/**
+	 * The stream to write the content to. The content is complete when the stream is closed.
+	 * 
+	 * @param timeoutMillis
+	 *            how long to wait for the response to be sent, in milliseconds
+	 * @return the output stream
+	 * @throws IOException
+	 *             if the response is not sent within the timeout, e.g. because the client has disconnected, or if the response
+	 *             has been aborted
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the response to be sent
+	 */
+	public OutputStream getOutputStream(long timeoutMillis) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		// We must wait until produceContent() is called:
+		synchronized (mutex) {
+			while (out == null) {
+				if (aborted) {
+					throw new IOException("Response has been aborted");
+				}
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0) {
+					throw new IOException("Response has not been sent within " + timeoutMillis + " ms");
+				}
+				mutex.wait(left);
+			}
+		}
+		return new ContentOutputStream(out);
+	}
+
+	/**
+	 * Give up on the content: the connection is closed without sending the rest of it. A thread writing to the output stream gets
+	 * an IOException.
+	 */
+	public void abort() {
+		IOControl control;
+		synchronized (mutex) {
+			aborted = true;
+			control = ioctrl;
+			mutex.notifyAll();
+		}
+		if (control != null) {
+			out.shutdown();
+			// produceContent() will be called and close the connection
+			control.requestOutput();
+		}
+	}
+
+	public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+		synchronized (mutex) {
+			if (aborted) {
+				// closes the connection before the last chunk
+				throw new IOException("Response has been aborted");
+			}
+			if (out == null) {
+				out = new SharedOutputBuffer(8192, ioctrl, new HeapByteBufferAllocator());
+				this.ioctrl = ioctrl;
+				mutex.notifyAll();
+			}
+		}
+		// sends what has been written so far; output is suspended when there is nothing left, until more is written
+		out.produceContent(encoder);
+	}
+
+	/**
+	 * Called when the connection is closed, also before the content is complete: a thread waiting to write to the output stream
+	 * gets an IOException.
+	 */
+	public void finish() {
+		SharedOutputBuffer buffer;
+		synchronized (mutex) {
+			aborted = true;
+			buffer = out;
+			mutex.notifyAll();
+		}
+		if (buffer != null) {
+			buffer.shutdown();
+		}
+	}
+
+	public long getContentLength() {
+		return -1;
+	}
+
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	public boolean isStreaming() {
+		return true;
+	}
+
+	public InputStream getContent() {
+		return null;
+	}
+
+	public void writeTo(final OutputStream outstream) throws IOException {
+		throw new RuntimeException("Should not be called");
+	}
+}
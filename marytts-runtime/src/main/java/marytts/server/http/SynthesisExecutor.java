@@ -0,0 +1,401 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server.http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import marytts.modules.synthesis.Voice;
+import marytts.server.MaryProperties;
+import marytts.server.RequestMetrics;
+import marytts.util.MaryUtils;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executes the processing of synthesis requests on a bounded set of worker threads, so that bursts of requests to the http
+ * server neither create an unbounded number of threads nor block the IO reactor threads with synthesis work.
+ * <p>
+ * A request is admitted only if the number of requests already running or waiting is below
+ * <code>server.synthesis.threads + server.synthesis.queuesize</code>, and if its voice has fewer than
+ * <code>server.synthesis.pervoice</code> requests in flight (0 means no per-voice limit). Requests that cannot be admitted are
+ * rejected immediately with a {@link RejectedExecutionException}; the http layer turns this into a 503 response carrying a
+ * <code>Retry-After</code> header of <code>server.synthesis.retryafter</code> seconds.
+ * </p>
+ * <p>
+ * If <code>server.synthesis.virtualthreads = true</code> and the Java runtime supports virtual threads, each task runs on its
+ * own virtual thread; concurrency is still limited to <code>server.synthesis.threads</code>.
+ * </p>
+ */
+public class SynthesisExecutor {
+	private Logger logger;
+
+	private final int numThreads;
+	private final int queueSize;
+	private final int perVoiceLimit;
+	private final int retryAfterSeconds;
+
+	private final ExecutorService workers;
+	private final ExecutorService writers;
+	private final boolean usingVirtualThreads;
+
+	private final Semaphore admission;
+	private final Semaphore running;
+	private final ConcurrentHashMap<String, Semaphore> voicePermits = new ConcurrentHashMap<String, Semaphore>();
+
+	// Metrics
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * Create a synthesis executor configured from the MARY properties <code>server.synthesis.*</code>.
+	 *
+	 * @return a new executor
+	 */
+	public static SynthesisExecutor fromProperties() {
+		int httpThreads = MaryProperties.getInteger("server.http.parallelthreads", 5);
+		return new SynthesisExecutor(MaryProperties.getInteger("server.synthesis.threads", httpThreads),
+				MaryProperties.getInteger("server.synthesis.queuesize", 4 * httpThreads), MaryProperties.getInteger(
+						"server.synthesis.pervoice", 0), MaryProperties.getBoolean("server.synthesis.virtualthreads", false),
+				MaryProperties.getInteger("server.synthesis.retryafter", 5));
+	}
+
+	/**
+	 * Create a synthesis executor.
+	 *
+	 * @param numThreads
+	 *            maximum number of requests processed concurrently
+	 * @param queueSize
+	 *            maximum number of admitted requests waiting for a free worker
+	 * @param perVoiceLimit
+	 *            maximum number of admitted requests per voice, or 0 for no limit
+	 * @param virtualThreads
+	 *            whether to run tasks on virtual threads, if the Java runtime supports them
+	 * @param retryAfterSeconds
+	 *            number of seconds a rejected client is asked to wait before retrying
+	 */
+	public SynthesisExecutor(int numThreads, int queueSize, int perVoiceLimit, boolean virtualThreads, int retryAfterSeconds) {
+		if (numThreads <= 0) {
+			throw new IllegalArgumentException("Need at least one synthesis thread, got " + numThreads);
+		}
+		if (queueSize < 0) {
+			throw new IllegalArgumentException("Queue size must not be negative, got " + queueSize);
+		}
+		this.logger = MaryUtils.getLogger("server");
+		this.numThreads = numThreads;
+		this.queueSize = queueSize;
+		this.perVoiceLimit = perVoiceLimit;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.admission = new Semaphore(numThreads + queueSize);
+		this.running = new Semaphore(numThreads, true);
+
+		ExecutorService virtualWorkers = null;
+		ExecutorService virtualWriters = null;
+		if (virtualThreads) {
+			virtualWorkers = newVirtualThreadPerTaskExecutor();
+			virtualWriters = newVirtualThreadPerTaskExecutor();
+			if (virtualWorkers == null) {
+				logger.warn("Virtual threads requested but not supported by this Java runtime -- using platform threads");
+			}
+		}
+		if (virtualWorkers != null) {
+			workers = virtualWorkers;
+			writers = virtualWriters;
+			usingVirtualThreads = true;
+		} else {
+			workers = Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("synthesis"));
+			writers = Executors.newCachedThreadPool(new NamedThreadFactory("httpwriter"));
+			usingVirtualThreads = false;
+		}
+		logger.info("Synthesis executor: " + numThreads + " threads, queue size " + queueSize + ", per-voice limit "
+				+ (perVoiceLimit > 0 ? String.valueOf(perVoiceLimit) : "none")
+				+ (usingVirtualThreads ? ", using virtual threads" : ""));
+	}
+
+	/**
+	 * Submit a synthesis task if there is capacity for it.
+	 *
+	 * @param voice
+	 *            the voice used by the request, or null
+	 * @param threadName
+	 *            the name of the executing thread while the task runs, used for logging
+	 * @param task
+	 *            the processing to perform
+	 * @param <T>
+	 *            the result type of the task
+	 * @return a future representing the pending task
+	 * @throws RejectedExecutionException
+	 *             if the server or the requested voice is currently overloaded
+	 */
+	public <T> Future<T> submit(Voice voice, final String threadName, final Callable<T> task) throws RejectedExecutionException {
+		final Semaphore voiceSemaphore = getVoicePermits(voice);
+		if (!admission.tryAcquire()) {
+			rejected.incrementAndGet();
+			throw new RejectedExecutionException("Too many synthesis requests (" + (numThreads + queueSize) + " in progress)");
+		}
+		if (voiceSemaphore != null && !voiceSemaphore.tryAcquire()) {
+			admission.release();
+			rejected.incrementAndGet();
+			throw new RejectedExecutionException("Too many synthesis requests for voice " + voice.getName() + " ("
+					+ perVoiceLimit + " in progress)");
+		}
+		final long submitted = System.nanoTime();
+		waiting.incrementAndGet();
+		Callable<T> wrapped = new Callable<T>() {
+			public T call() throws Exception {
+				running.acquireUninterruptibly();
+				waiting.decrementAndGet();
+				active.incrementAndGet();
+				recordWait(System.nanoTime() - submitted);
+				Thread thread = Thread.currentThread();
+				String oldName = thread.getName();
+				thread.setName(threadName);
+				try {
+					return task.call();
+				} finally {
+					thread.setName(oldName);
+					active.decrementAndGet();
+					completed.incrementAndGet();
+					running.release();
+					if (voiceSemaphore != null) {
+						voiceSemaphore.release();
+					}
+					admission.release();
+				}
+			}
+		};
+		try {
+			return workers.submit(wrapped);
+		} catch (RejectedExecutionException e) {
+			// executor has been shut down
+			waiting.decrementAndGet();
+			if (voiceSemaphore != null) {
+				voiceSemaphore.release();
+			}
+			admission.release();
+			rejected.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Run a task that writes the output of an already admitted request to the client. Such tasks are not subject to admission
+	 * control, because they only exist for requests that hold a synthesis slot.
+	 *
+	 * @param threadName
+	 *            the name of the executing thread while the task runs, used for logging
+	 * @param writer
+	 *            the output writer
+	 */
+	public void executeWriter(final String threadName, final Runnable writer) {
+		writers.execute(new Runnable() {
+			public void run() {
+				Thread thread = Thread.currentThread();
+				String oldName = thread.getName();
+				thread.setName(threadName);
+				try {
+					writer.run();
+				} finally {
+					thread.setName(oldName);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stop accepting new tasks; tasks already admitted are still completed.
+	 */
+	public void shutdown() {
+		workers.shutdown();
+		writers.shutdown();
+	}
+
+	/**
+	 * Wait for all admitted tasks to finish after {@link #shutdown()}.
+	 *
+	 * @param timeoutMillis
+	 *            maximum time to wait, in milliseconds
+	 * @return true if all tasks have finished
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		boolean done = workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+		long left = Math.max(0, deadline - System.currentTimeMillis());
+		return writers.awaitTermination(left, TimeUnit.MILLISECONDS) && done;
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	public boolean isUsingVirtualThreads() {
+		return usingVirtualThreads;
+	}
+
+	/**
+	 * @return the number of admitted requests waiting for a worker
+	 */
+	public int getQueueDepth() {
+		return waiting.get();
+	}
+
+	/**
+	 * @return the number of requests currently being processed
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return the mean time, in milliseconds, that started requests spent waiting for a worker
+	 */
+	public double getMeanWaitMillis() {
+		long started = completed.get() + active.get();
+		if (started == 0) {
+			return 0;
+		}
+		return totalWaitNanos.get() / 1e6 / started;
+	}
+
+	/**
+	 * @return the longest time, in milliseconds, that a request has spent waiting for a worker
+	 */
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1e6;
+	}
+
+	/**
+	 * A plain-text summary of the executor state, one <code>key value</code> pair per line.
+	 *
+	 * @return the status text
+	 */
+	public String getStatus() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("synthesis_threads ").append(numThreads).append("\n");
+		buf.append("synthesis_queue_capacity ").append(queueSize).append("\n");
+		buf.append("synthesis_queue_depth ").append(getQueueDepth()).append("\n");
+		buf.append("synthesis_active ").append(getActiveCount()).append("\n");
+		buf.append("synthesis_completed ").append(getCompletedCount()).append("\n");
+		buf.append("synthesis_rejected ").append(getRejectedCount()).append("\n");
+		buf.append("synthesis_wait_mean_ms ").append(String.format("%.3f", getMeanWaitMillis())).append("\n");
+		buf.append("synthesis_wait_max_ms ").append(String.format("%.3f", getMaxWaitMillis())).append("\n");
+		return buf.toString();
+	}
+
+	/**
+	 * The executor state in the plain-text exposition format of Prometheus, for the <code>/metrics</code> handler.
+	 *
+	 * @return the metrics text
+	 */
+	public String getMetrics() {
+		StringBuilder buf = new StringBuilder();
+		appendMetric(buf, "mary_synthesis_threads", "gauge", numThreads);
+		appendMetric(buf, "mary_synthesis_queue_depth", "gauge", getQueueDepth());
+		appendMetric(buf, "mary_synthesis_active", "gauge", getActiveCount());
+		appendMetric(buf, "mary_synthesis_completed_total", "counter", getCompletedCount());
+		appendMetric(buf, "mary_synthesis_rejected_total", "counter", getRejectedCount());
+		return buf.toString();
+	}
+
+	private static void appendMetric(StringBuilder buf, String name, String type, long value) {
+		buf.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		buf.append(name).append(' ').append(value).append('\n');
+	}
+
+	private void recordWait(long nanos) {
+		RequestMetrics.getInstance().recordQueueWait(nanos);
+		totalWaitNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = maxWaitNanos.get())) {
+			if (maxWaitNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	private Semaphore getVoicePermits(Voice voice) {
+		if (perVoiceLimit <= 0 || voice == null) {
+			return null;
+		}
+		Semaphore s = voicePermits.get(voice.getName());
+		if (s == null) {
+			Semaphore newSemaphore = new Semaphore(perVoiceLimit);
+			s = voicePermits.putIfAbsent(voice.getName(), newSemaphore);
+			if (s == null) {
+				s = newSemaphore;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Java 21 and later can run each task on a virtual thread. We look this up by reflection so that the code still compiles and
+	 * runs on older Java versions.
+	 *
+	 * @return a virtual-thread-per-task executor, or null if not supported
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -21,6 +21,7 @@ package marytts.server.http;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.Iterator;
@@ -28,6 +29,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -46,6 +49,7 @@ import marytts.util.http.Address;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.nio.protocol.NHttpResponseTrigger;
 import org.apache.logging.log4j.Logger;
 
 /**
@@ -57,6 +61,10 @@ import org.apache.logging.log4j.Logger;
 public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 	private static int id = 0;
 
+	// how long a streaming request waits for the response to be sent before giving up; the reactor starts sending a response
+	// as soon as it is submitted, so a longer wait only means that the client does not read, and would hold a synthesis thread
+	private static final long RESPONSE_TIMEOUT_MILLIS = 5000;
+
 	private static synchronized int getId() {
 		return id++;
 	}
@@ -66,9 +74,12 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 	private PipedOutputStream pipedOutput;
 	private PipedInputStream pipedInput;
 
-	public SynthesisRequestHandler() {
+	private final SynthesisExecutor executor;
+
+	public SynthesisRequestHandler(SynthesisExecutor executor) {
 		super();
 
+		this.executor = executor;
 		outputToStream = null;
 		streamToPipe = null;
 		pipedOutput = null;
@@ -77,7 +88,7 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 
 	@Override
 	protected void handleClientRequest(String absPath, Map<String, String> queryItems, HttpResponse response,
-			Address serverAddressAtClient) throws IOException {
+			Address serverAddressAtClient, NHttpResponseTrigger trigger) throws IOException {
 		/*
 		 * response.setStatusCode(HttpStatus.SC_OK); TestProducingNHttpEntity entity = new TestProducingNHttpEntity();
 		 * entity.setContentType("audio/x-mp3"); response.setEntity(entity); if (true) return;
@@ -88,17 +99,39 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 				logger.debug("    " + key + "=" + queryItems.get(key));
 			}
 		}
-		process(serverAddressAtClient, queryItems, response);
+		if (!process(serverAddressAtClient, queryItems, response, trigger)) {
+			trigger.submitResponse(response);
+		}
+	}
 
+	@Override
+	protected void handleClientRequest(String absPath, Map<String, String> queryItems, HttpResponse response,
+			Address serverAddressAtClient) throws IOException {
+		// not used because we override handleClientRequest() with the response trigger, which a synthesis thread may need.
 	}
 
-	public void process(Address serverAddressAtClient, Map<String, String> queryItems, HttpResponse response) {
+	/**
+	 * Process a synthesis request.
+	 * 
+	 * @param serverAddressAtClient
+	 *            serverAddressAtClient
+	 * @param queryItems
+	 *            the parameters of the request
+	 * @param response
+	 *            the response to fill in
+	 * @param trigger
+	 *            the trigger to submit the response to, when it is completed by a synthesis thread
+	 * @return true if the response is submitted by a synthesis thread once the request has been processed, false if the
+	 *         response is complete (an error, or the start of a streaming response) and must be submitted by the caller
+	 */
+	public boolean process(Address serverAddressAtClient, Map<String, String> queryItems, final HttpResponse response,
+			final NHttpResponseTrigger trigger) {
 		if (queryItems == null
 				|| !(queryItems.containsKey("INPUT_TYPE") && queryItems.containsKey("OUTPUT_TYPE")
 						&& queryItems.containsKey("LOCALE") && queryItems.containsKey("INPUT_TEXT"))) {
 			MaryHttpServerUtils.errorMissingQueryParameter(response,
 					"'INPUT_TEXT' and 'INPUT_TYPE' and 'OUTPUT_TYPE' and 'LOCALE'");
-			return;
+			return false;
 		}
 
 		String inputText = queryItems.get("INPUT_TEXT");
@@ -106,13 +139,13 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 		MaryDataType inputType = MaryDataType.get(queryItems.get("INPUT_TYPE"));
 		if (inputType == null) {
 			MaryHttpServerUtils.errorWrongQueryParameterValue(response, "INPUT_TYPE", queryItems.get("INPUT_TYPE"), null);
-			return;
+			return false;
 		}
 
 		MaryDataType outputType = MaryDataType.get(queryItems.get("OUTPUT_TYPE"));
 		if (outputType == null) {
 			MaryHttpServerUtils.errorWrongQueryParameterValue(response, "OUTPUT_TYPE", queryItems.get("OUTPUT_TYPE"), null);
-			return;
+			return false;
 		}
 		boolean isOutputText = true;
 		boolean streamingAudio = false;
@@ -122,7 +155,7 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 			String audioTypeName = queryItems.get("AUDIO");
 			if (audioTypeName == null) {
 				MaryHttpServerUtils.errorMissingQueryParameter(response, "'AUDIO' when OUTPUT_TYPE=AUDIO");
-				return;
+				return false;
 			}
 			if (audioTypeName.endsWith("_STREAM")) {
 				streamingAudio = true;
@@ -137,17 +170,20 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 			}
 			if (audioFileFormatType == null) {
 				MaryHttpServerUtils.errorWrongQueryParameterValue(response, "AUDIO", queryItems.get("AUDIO"), null);
-				return;
+				return false;
 			} else if (audioFileFormatType.toString().equals("MP3") && !MaryRuntimeUtils.canCreateMP3()) {
 				MaryHttpServerUtils.errorWrongQueryParameterValue(response, "AUDIO", queryItems.get("AUDIO"),
 						"Conversion to MP3 not supported.");
-				return;
+				return false;
 			} else if (audioFileFormatType.toString().equals("Vorbis") && !MaryRuntimeUtils.canCreateOgg()) {
 				MaryHttpServerUtils.errorWrongQueryParameterValue(response, "AUDIO", queryItems.get("AUDIO"),
 						"Conversion to OGG Vorbis format not supported.");
-				return;
+				return false;
 			}
 		}
+		// MaryXML output can be sent paragraph by paragraph while it is produced
+		boolean streamingOutput = outputType.isMaryXML() && "true".equals(queryItems.get("STREAMING"));
+
 		// optionally, there may be output type parameters
 		// (e.g., the list of features to produce for the output type TARGETFEATURES)
 		String outputTypeParams = queryItems.get("OUTPUT_TYPE_PARAMS");
@@ -155,7 +191,7 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 		Locale locale = MaryUtils.string2locale(queryItems.get("LOCALE"));
 		if (locale == null) {
 			MaryHttpServerUtils.errorWrongQueryParameterValue(response, "LOCALE", queryItems.get("LOCALE"), null);
-			return;
+			return false;
 		}
 
 		Voice voice = null;
@@ -169,7 +205,7 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 			if (voice == null) {
 				// a voice name was given but there is no such voice
 				MaryHttpServerUtils.errorWrongQueryParameterValue(response, "VOICE", queryItems.get("VOICE"), null);
-				return;
+				return false;
 			}
 		}
 		if (voice == null) { // no voice tag -- use locale default if it exists.
@@ -227,70 +263,132 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 		}
 		if (ok) {
 			if (streamingAudio) {
-				// Start two separate threads:
-				// 1. one thread to process the request;
-				new Thread("RH " + maryRequest.getId()) {
-					public void run() {
-						Logger myLogger = MaryUtils.getLogger(this.getName());
-						try {
-							maryRequest.process();
-							myLogger.info("Streaming request processed successfully.");
-						} catch (Throwable t) {
-							myLogger.error("Processing failed.", t);
-						}
-					}
-				}.start();
-
-				// 2. one thread to take the audio data as it becomes available
+				// Process the request on the synthesis executor, and use a second task
+				// to take the audio data as it becomes available
 				// and write it into the ProducingNHttpEntity.
 				// The second one does not depend on the first one practically,
 				// because the AppendableSequenceAudioInputStream returned by
 				// maryRequest.getAudio() was already created in the constructor of Request.
+				try {
+					executor.submit(voice, "RH " + maryRequest.getId(), new Callable<Void>() {
+						public Void call() {
+							Logger myLogger = MaryUtils.getLogger(Thread.currentThread().getName());
+							try {
+								maryRequest.process();
+								myLogger.info("Streaming request processed successfully.");
+							} catch (Throwable t) {
+								myLogger.error("Processing failed.", t);
+							}
+							return null;
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					logger.info("Rejecting request: " + e.getMessage());
+					MaryHttpServerUtils.errorServiceUnavailable(response, e.getMessage(), executor.getRetryAfterSeconds());
+					return false;
+				}
+
 				AudioInputStream audio = maryRequest.getAudio();
 				assert audio != null : "Streaming audio but no audio stream -- very strange indeed! :-(";
-				AudioFileFormat.Type audioType = maryRequest.getAudioFileFormat().getType();
 				AudioStreamNHttpEntity entity = new AudioStreamNHttpEntity(maryRequest);
-				new Thread(entity, "HTTPWriter " + maryRequest.getId()).start();
+				executor.executeWriter("HTTPWriter " + maryRequest.getId(), entity);
 				// entity knows its contentType, no need to set explicitly here.
 				response.setEntity(entity);
 				response.setStatusCode(HttpStatus.SC_OK);
-				return;
-			} else { // not streaming audio
-				// Process input data to output data
+				return false;
+			} else if (streamingOutput) {
+				// Process the request on the synthesis executor, which writes each paragraph
+				// into the response (with chunked transfer encoding) as soon as it is processed.
+				final OutputStreamNHttpEntity entity = new OutputStreamNHttpEntity("text/plain; charset=UTF-8");
 				try {
-					maryRequest.process(); // this may take some time
-				} catch (Throwable e) {
-					String message = "Processing failed.";
-					logger.error(message, e);
-					MaryHttpServerUtils.errorInternalServerError(response, message, e);
-					ok = false;
+					executor.submit(voice, "RH " + maryRequest.getId(), new Callable<Void>() {
+						public Void call() {
+							Logger myLogger = MaryUtils.getLogger(Thread.currentThread().getName());
+							try {
+								OutputStream os = entity.getOutputStream(RESPONSE_TIMEOUT_MILLIS);
+								maryRequest.setStreamingOutput(os);
+								maryRequest.process();
+								os.close();
+								myLogger.info("Streaming request processed successfully.");
+							} catch (Throwable t) {
+								// the status has been sent already, so the client can only see that the output is incomplete
+								myLogger.error("Processing failed.", t);
+								entity.abort();
+							}
+							return null;
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					logger.info("Rejecting request: " + e.getMessage());
+					MaryHttpServerUtils.errorServiceUnavailable(response, e.getMessage(), executor.getRetryAfterSeconds());
+					return false;
 				}
-				if (ok) {
-					// Write output data to client
-					try {
-						ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-						maryRequest.writeOutputData(outputStream);
-						String contentType;
-						if (maryRequest.getOutputType().isXMLType() || maryRequest.getOutputType().isTextType()) // text output
-							contentType = "text/plain; charset=UTF-8";
-						else
-							// audio output
-							contentType = MaryHttpServerUtils.getMimeType(maryRequest.getAudioFileFormat().getType());
-						MaryHttpServerUtils.toHttpResponse(outputStream.toByteArray(), response, contentType);
-					} catch (Exception e) {
-						String message = "Cannot write output";
-						logger.warn(message, e);
-						MaryHttpServerUtils.errorInternalServerError(response, message, e);
-						ok = false;
-					}
+				response.setEntity(entity);
+				response.setStatusCode(HttpStatus.SC_OK);
+				return false;
+			} else { // not streaming
+				// Process the request on the synthesis executor, which completes the response and submits it when the output is
+				// complete, so that the thread handling the connection does not wait for the request to be processed,
+				// and a failure can still be reported with an error status.
+				final String contentType;
+				if (outputType.isXMLType() || outputType.isTextType()) // text output
+					contentType = "text/plain; charset=UTF-8";
+				else
+					// audio output
+					contentType = MaryHttpServerUtils.getMimeType(audioFileFormat.getType());
+				try {
+					executor.submit(voice, "RH " + maryRequest.getId(), new Callable<Void>() {
+						public Void call() {
+							Logger myLogger = MaryUtils.getLogger(Thread.currentThread().getName());
+							try {
+								writeResponse(maryRequest, response, contentType, myLogger);
+							} finally {
+								trigger.submitResponse(response);
+							}
+							checkMemory(myLogger);
+							return null;
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					logger.info("Rejecting request: " + e.getMessage());
+					MaryHttpServerUtils.errorServiceUnavailable(response, e.getMessage(), executor.getRetryAfterSeconds());
+					return false;
 				}
+				return true;
 			}
 		}
 
-		if (ok)
-			logger.info("Request handled successfully.");
-		else
-			logger.info("Request couldn't be handled successfully.");
+		logger.info("Request couldn't be handled successfully.");
+		checkMemory(logger);
+		return false;
+	}
+
+	/**
+	 * Process the request and write its output into the response, or an error status if that fails.
+	 */
+	private static void writeResponse(Request maryRequest, HttpResponse response, String contentType, Logger logger) {
+		try {
+			maryRequest.process(); // this may take some time
+		} catch (Throwable e) {
+			String message = "Processing failed.";
+			logger.error(message, e);
+			MaryHttpServerUtils.errorInternalServerError(response, message, e);
+			return;
+		}
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			maryRequest.writeOutputData(outputStream);
+			MaryHttpServerUtils.toHttpResponse(outputStream.toByteArray(), response, contentType);
+		} catch (Exception e) {
+			String message = "Cannot write output";
+			logger.warn(message, e);
+			MaryHttpServerUtils.errorInternalServerError(response, message, e);
+			return;
+		}
+		logger.info("Request handled successfully.");
+	}
+
+	private static void checkMemory(Logger logger) {
 		if (MaryRuntimeUtils.lowMemoryCondition()) {
 			logger.info("Low memory condition detected (only " + MaryUtils.availableMemory()
 					+ " bytes left). Triggering garbage collection.");
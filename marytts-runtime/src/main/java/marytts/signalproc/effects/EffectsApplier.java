@@ -39,6 +39,14 @@ import marytts.util.math.MathUtils;
 import marytts.util.string.StringUtils;
 
 /**
+ * Applies a sequence of audio effects to synthesised audio.
+ * <p>
+ * The effects are applied one after the other, and each frame-based effect frames, windows and overlap-adds the signal on its
+ * own. They are not fused into a single analysis-synthesis pass: their frame lengths differ (256 to 2048 samples at 16 kHz), the
+ * vocal tract scaler needs the LPC envelope of its own input frame, and sharing the framing changed the sound without a
+ * measurable speedup, since the time goes into the FFTs and LPC filters rather than into framing and overlap-add.
+ * </p>
+ * 
  * @author Oytun T&uuml;rk
  */
 public class EffectsApplier {
@@ -30,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -42,6 +43,7 @@ import marytts.modules.synthesis.Voice;
 import marytts.modules.synthesis.WaveformSynthesizer;
 import marytts.modules.synthesis.Voice.Gender;
 import marytts.server.MaryProperties;
+import marytts.server.StartupExecutor;
 import marytts.unitselection.concat.UnitConcatenator;
 import marytts.unitselection.concat.BaseUnitConcatenator.UnitData;
 import marytts.unitselection.data.Unit;
@@ -89,13 +91,23 @@ public class UnitSelectionSynthesizer implements WaveformSynthesizer {
 		// Register UnitSelection voices:
 		logger.debug("Register UnitSelection voices:");
 		List<String> voiceNames = MaryProperties.getList("unitselection.voices.list");
-		for (String voiceName : voiceNames) {
-			long time = System.currentTimeMillis();
-			Voice unitSelVoice = new UnitSelectionVoice(voiceName, this);
+		// Load the voices in parallel, but register them in the configured order,
+		// so that the choice of default voices does not depend on timing:
+		List<Callable<Voice>> loaders = new ArrayList<Callable<Voice>>();
+		for (final String voiceName : voiceNames) {
+			loaders.add(new Callable<Voice>() {
+				public Voice call() throws Exception {
+					long time = System.currentTimeMillis();
+					Voice unitSelVoice = new UnitSelectionVoice(voiceName, UnitSelectionSynthesizer.this);
+					long newtime = System.currentTimeMillis() - time;
+					logger.info("Loading of voice " + voiceName + " took " + newtime + " milliseconds");
+					return unitSelVoice;
+				}
+			});
+		}
+		for (Voice unitSelVoice : StartupExecutor.invokeAll(loaders)) {
 			logger.debug("Voice '" + unitSelVoice + "'");
 			Voice.registerVoice(unitSelVoice);
-			long newtime = System.currentTimeMillis() - time;
-			logger.info("Loading of voice " + voiceName + " took " + newtime + " milliseconds");
 		}
 		logger.info("started.");
 	}
@@ -268,7 +280,7 @@ public class UnitSelectionSynthesizer implements WaveformSynthesizer {
 		}
 		if (logger.getLevel().equals(Level.DEBUG)) {
 			try {
-				MaryNormalisedWriter writer = new MaryNormalisedWriter();
+				MaryNormalisedWriter writer = MaryNormalisedWriter.forCurrentThread();
 				ByteArrayOutputStream debugOut = new ByteArrayOutputStream();
 				writer.output(tokensAndBoundaries.get(0).getOwnerDocument(), debugOut);
 				logger.debug("Propagating the realised unit durations to the XML tree: \n" + debugOut.toString());
@@ -77,7 +77,6 @@ public class UnitSelectionVoice extends Voice {
 	protected CART[] f0Carts;
 	protected String exampleText;
 
-        @SuppressWarnings("unchecked")
 	public UnitSelectionVoice(String name, WaveformSynthesizer synthesizer) throws MaryConfigurationException {
 		super(name, synthesizer);
 
@@ -95,7 +94,22 @@ public class UnitSelectionVoice extends Voice {
 			if (exampleTextStream != null) {
 				readExampleText(exampleTextStream);
 			}
+		} catch (MaryConfigurationException mce) {
+			throw mce;
+		} catch (Exception ex) {
+			throw new MaryConfigurationException("Cannot build unit selection voice '" + name + "'", ex);
+		}
+		loadOrDeferData();
+	}
 
+	/**
+	 * Load the cost functions, the unit database, the unit selector and the concatenator.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void loadData() throws MaryConfigurationException {
+		try {
+			String header = "voice." + name;
 			FeatureProcessorManager featProcManager = FeatureRegistry.getFeatureProcessorManager(this);
 			if (featProcManager == null)
 				featProcManager = FeatureRegistry.getFeatureProcessorManager(getLocale());
@@ -187,6 +201,10 @@ public class UnitSelectionVoice extends Voice {
 				float sCostWeights = Float.parseFloat(MaryProperties.getProperty(header + ".viterbi.wSCosts", "0.33"));
 				unitSelector.load(database, targetCostWeights, sCostWeights, beamSize);
 			}
+			float pruningThreshold = Float.parseFloat(MaryProperties.getProperty(header + ".viterbi.pruning", "0"));
+			boolean cacheJoinCosts = MaryProperties.getBoolean(header + ".viterbi.joincostcache", false);
+			int viterbiThreads = MaryProperties.getInteger(header + ".viterbi.threads", 1);
+			unitSelector.setSearchOptions(pruningThreshold, cacheJoinCosts, viterbiThreads);
 
 			// samplingRate -> bin, audioformat -> concatenator
 			// build Concatenator
@@ -218,7 +236,6 @@ public class UnitSelectionVoice extends Voice {
 		} catch (Exception ex) {
 			throw new MaryConfigurationException("Cannot build unit selection voice '" + name + "'", ex);
 		}
-
 	}
 
 	/**
@@ -227,6 +244,7 @@ public class UnitSelectionVoice extends Voice {
 	 * @return the database
 	 */
 	public UnitDatabase getDatabase() {
+		needData();
 		return database;
 	}
 
@@ -236,6 +254,7 @@ public class UnitSelectionVoice extends Voice {
 	 * @return the unit selector
 	 */
 	public UnitSelector getUnitSelector() {
+		needData();
 		return unitSelector;
 	}
 
@@ -245,6 +264,7 @@ public class UnitSelectionVoice extends Voice {
 	 * @return the unit selector
 	 */
 	public UnitConcatenator getConcatenator() {
+		needData();
 		return concatenator;
 	}
 
@@ -253,7 +273,8 @@ public class UnitSelectionVoice extends Voice {
 	 *
 	 * @return the modifying UnitConcatenator
 	 */
-	public UnitConcatenator getModificationConcatenator() {
+	public synchronized UnitConcatenator getModificationConcatenator() {
+		needData();
 		if (modificationConcatenator == null) {
 			// get sensible minimum and maximum values:
 			try {
@@ -314,10 +335,12 @@ public class UnitSelectionVoice extends Voice {
 	}
 
 	public CART[] getF0Trees() {
+		needData();
 		return f0Carts;
 	}
 
 	public FeatureDefinition getF0CartsFeatDef() {
+		needData();
 		if (f0Carts == null || f0Carts.length < 1)
 			return null;
 		return f0Carts[0].getFeatureDefinition();
@@ -19,6 +19,8 @@
  */
 package marytts.unitselection.concat;
 
+import java.nio.ByteBuffer;
+
 import marytts.signalproc.window.DynamicTwoHalvesWindow;
 import marytts.signalproc.window.Window;
 import marytts.util.data.BufferedDoubleDataSource;
@@ -134,17 +136,11 @@ public class DatagramOverlapDoubleDataSource extends BufferedDoubleDataSource {
 
 	protected int readDatagram(Datagram d, double[] target, int pos) {
 		int dur = (int) d.getDuration();
-		byte[] frameAudio = d.getData();
-		assert frameAudio.length / 2 == dur : "expected datagram data length to be " + (dur * 2) + ", found " + frameAudio.length;
-		for (int i = 0; i < frameAudio.length; i += 2, pos++) {
-			int sample;
-			byte lobyte;
-			byte hibyte;
+		ByteBuffer frameAudio = d.getDataBuffer();
+		assert frameAudio.limit() / 2 == dur : "expected datagram data length to be " + (dur * 2) + ", found " + frameAudio.limit();
+		while (frameAudio.remaining() >= 2) {
 			// big endian:
-			lobyte = frameAudio[i + 1];
-			hibyte = frameAudio[i];
-			sample = hibyte << 8 | lobyte & 0xFF;
-			target[pos] = sample / 32768.0;// normalise to range [-1, 1];
+			target[pos++] = frameAudio.getShort() / 32768.0; // normalise to range [-1, 1];
 		}
 		return dur;
 	}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import marytts.util.data.Datagram;
+
+/**
+ * A datagram which views its data in a byte buffer, typically a memory mapped timeline, instead of holding a copy of it. The data
+ * are copied into a byte array only when {@link #getData()} is called; until then, {@link #getDataBuffer()} reads them in place.
+ */
+public class ByteBufferDatagram extends Datagram {
+
+	private final ByteBuffer dataBuffer;
+
+	/**
+	 * @param duration
+	 *            the datagram duration, in samples. Must be non-negative.
+	 * @param dataBuffer
+	 *            the datagram's data, from position 0 to the limit of the buffer.
+	 */
+	public ByteBufferDatagram(long duration, ByteBuffer dataBuffer) {
+		super(duration);
+		this.dataBuffer = dataBuffer;
+	}
+
+	@Override
+	public void write(DataOutput raf) throws IOException {
+		getData();
+		super.write(raf);
+	}
+
+	@Override
+	public int getLength() {
+		return dataBuffer.limit();
+	}
+
+	@Override
+	public byte[] getData() {
+		if (data == null) {
+			data = new byte[dataBuffer.limit()];
+			ByteBuffer bb = dataBuffer.duplicate();
+			bb.position(0);
+			bb.get(data);
+		}
+		return data;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer() {
+		if (data != null) {
+			// getData() has handed out the copy, which may have been modified since
+			return ByteBuffer.wrap(data);
+		}
+		ByteBuffer bb = dataBuffer.duplicate();
+		bb.position(0);
+		return bb;
+	}
+}
@@ -29,13 +29,30 @@ import java.nio.channels.FileChannel;
 import marytts.exceptions.MaryConfigurationException;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureVector;
+import marytts.server.MaryProperties;
 import marytts.util.data.MaryHeader;
 
+/**
+ * Reader for unit feature files. By default, all feature vectors are decoded into the Java heap at load time. If the property
+ * <code>unitselection.mapunitdata</code> is true, or the reader is loaded with <code>memoryMapped</code> set, the feature values
+ * stay in the memory-mapped file instead: loading only reads the header and the feature definition, and feature vectors are
+ * decoded from the mapped buffer when they are requested. Several JVMs loading the same voice then share the file's pages
+ * through the operating system's page cache.
+ */
 public class FeatureFileReader {
 	protected MaryHeader hdr;
 	protected FeatureDefinition featureDefinition;
 	protected FeatureVector[] featureVectors;
 
+	/**
+	 * In memory-mapped mode, the records of all units, starting at the first unit; null otherwise.
+	 */
+	protected ByteBuffer unitData;
+	protected int numberOfUnits;
+	protected int recordSize;
+	private int shortsOffset;
+	private int floatsOffset;
+
 	/**
 	 * Get a feature file reader representing the given feature file.
 	 * 
@@ -69,7 +86,26 @@ public class FeatureFileReader {
 	}
 
 	public void load(String fileName) throws IOException, MaryConfigurationException {
-		loadFromByteBuffer(fileName);
+		load(fileName, MaryProperties.getBoolean("unitselection.mapunitdata", false));
+	}
+
+	/**
+	 * Load the given feature file.
+	 * 
+	 * @param fileName
+	 *            the filename of a valid feature file.
+	 * @param memoryMapped
+	 *            if true, keep the feature values in the memory-mapped file rather than decoding them into the heap.
+	 * @throws IOException
+	 *             if there was a problem reading the file
+	 * @throws MaryConfigurationException
+	 *             if the file is not a valid feature file.
+	 */
+	public void load(String fileName, boolean memoryMapped) throws IOException, MaryConfigurationException {
+		ByteBuffer bb = loadFromByteBuffer(fileName, memoryMapped);
+		if (memoryMapped) {
+			mapUnitData(bb);
+		}
 	}
 
 	protected void loadFromStream(String fileName) throws IOException, MaryConfigurationException {
@@ -83,7 +119,7 @@ public class FeatureFileReader {
 			throw new IOException("File [" + fileName + "] is not a valid Mary feature file.");
 		}
 		featureDefinition = new FeatureDefinition(dis);
-		int numberOfUnits = dis.readInt();
+		numberOfUnits = dis.readInt();
 		featureVectors = new FeatureVector[numberOfUnits];
 		for (int i = 0; i < numberOfUnits; i++) {
 			featureVectors[i] = featureDefinition.readFeatureVector(i, dis);
@@ -92,6 +128,24 @@ public class FeatureFileReader {
 	}
 
 	protected void loadFromByteBuffer(String fileName) throws IOException, MaryConfigurationException {
+		loadFromByteBuffer(fileName, false);
+	}
+
+	/**
+	 * Read header, feature definition and number of units from the memory-mapped file.
+	 * 
+	 * @param fileName
+	 *            the feature file
+	 * @param headerOnly
+	 *            if true, do not decode the feature vectors.
+	 * @return the mapped buffer, positioned at the first unit record.
+	 * @throws IOException
+	 *             if there was a problem reading the file
+	 * @throws MaryConfigurationException
+	 *             if the file is not a valid feature file.
+	 */
+	protected ByteBuffer loadFromByteBuffer(String fileName, boolean headerOnly) throws IOException,
+			MaryConfigurationException {
 		/* Open the file */
 		FileInputStream fis = new FileInputStream(fileName);
 		FileChannel fc = fis.getChannel();
@@ -104,12 +158,47 @@ public class FeatureFileReader {
 			throw new MaryConfigurationException("File [" + fileName + "] is not a valid Mary feature file.");
 		}
 		featureDefinition = new FeatureDefinition(bb);
-		int numberOfUnits = bb.getInt();
-		featureVectors = new FeatureVector[numberOfUnits];
-		for (int i = 0; i < numberOfUnits; i++) {
-			featureVectors[i] = featureDefinition.readFeatureVector(i, bb);
+		numberOfUnits = bb.getInt();
+		if (!headerOnly) {
+			featureVectors = new FeatureVector[numberOfUnits];
+			for (int i = 0; i < numberOfUnits; i++) {
+				featureVectors[i] = featureDefinition.readFeatureVector(i, bb);
+			}
 		}
+		return bb;
+	}
 
+	/**
+	 * Remember where the unit records start in the given buffer, so that feature values can be read from it directly. All
+	 * records have the same size, determined by the feature definition.
+	 * 
+	 * @param bb
+	 *            the mapped feature file, positioned at the first unit record.
+	 * @throws MaryConfigurationException
+	 *             if the buffer is too short for the announced number of units.
+	 */
+	protected void mapUnitData(ByteBuffer bb) throws MaryConfigurationException {
+		int nBytes = featureDefinition.getNumberOfByteFeatures();
+		int nShorts = featureDefinition.getNumberOfShortFeatures();
+		int nFloats = featureDefinition.getNumberOfContinuousFeatures();
+		shortsOffset = nBytes;
+		floatsOffset = nBytes + 2 * nShorts;
+		recordSize = floatsOffset + 4 * nFloats;
+		if ((long) recordSize * numberOfUnits > bb.remaining()) {
+			throw new MaryConfigurationException("Feature file announces " + numberOfUnits + " units of " + recordSize
+					+ " bytes each, but only " + bb.remaining() + " bytes are left");
+		}
+		unitData = bb.slice();
+		featureVectors = null;
+	}
+
+	/**
+	 * Whether the feature values are read from the memory-mapped file rather than from decoded feature vectors.
+	 * 
+	 * @return true in memory-mapped mode
+	 */
+	public boolean isMemoryMapped() {
+		return unitData != null;
 	}
 
 	/**
@@ -120,24 +209,127 @@ public class FeatureFileReader {
 	 * @return the corresponding feature vector
 	 */
 	public FeatureVector getFeatureVector(int unitIndex) {
+		if (unitData != null) {
+			return decodeFeatureVector(unitIndex);
+		}
 		return featureVectors[unitIndex];
 	}
 
+	/**
+	 * Decode the feature vector of the given unit from the mapped unit data. Uses absolute reads only, so it is safe to call
+	 * from several threads at once.
+	 * 
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @return a new feature vector
+	 */
+	private FeatureVector decodeFeatureVector(int unitIndex) {
+		int base = recordStart(unitIndex);
+		byte[] bytes = new byte[shortsOffset];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = unitData.get(base + i);
+		}
+		short[] shorts = new short[(floatsOffset - shortsOffset) / 2];
+		for (int i = 0, pos = base + shortsOffset; i < shorts.length; i++, pos += 2) {
+			shorts[i] = unitData.getShort(pos);
+		}
+		float[] floats = new float[(recordSize - floatsOffset) / 4];
+		for (int i = 0, pos = base + floatsOffset; i < floats.length; i++, pos += 4) {
+			floats[i] = unitData.getFloat(pos);
+		}
+		return new FeatureVector(bytes, shorts, floats, unitIndex);
+	}
+
+	private int recordStart(int unitIndex) {
+		if (unitIndex < 0 || unitIndex >= numberOfUnits) {
+			throw new IndexOutOfBoundsException("Unit index " + unitIndex + " is not between 0 and " + numberOfUnits);
+		}
+		return unitIndex * recordSize;
+	}
+
+	/**
+	 * Get a byte-valued feature of the given unit without creating a feature vector.
+	 * 
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a byte-valued feature
+	 * @return the feature value
+	 */
+	public byte getByteFeature(int unitIndex, int featureIndex) {
+		if (unitData == null) {
+			return featureVectors[unitIndex].getByteFeature(featureIndex);
+		}
+		if (featureIndex < 0 || featureIndex >= shortsOffset) {
+			throw new IndexOutOfBoundsException(featureIndex + " is not between 0 and " + shortsOffset);
+		}
+		return unitData.get(recordStart(unitIndex) + featureIndex);
+	}
+
+	/**
+	 * Get a short-valued feature of the given unit without creating a feature vector.
+	 * 
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a short-valued feature, counted across all features as in {@link FeatureVector#getShortFeature(int)}
+	 * @return the feature value
+	 */
+	public short getShortFeature(int unitIndex, int featureIndex) {
+		if (unitData == null) {
+			return featureVectors[unitIndex].getShortFeature(featureIndex);
+		}
+		int i = featureIndex - shortsOffset;
+		if (i < 0 || 2 * i >= floatsOffset - shortsOffset) {
+			throw new IndexOutOfBoundsException(featureIndex + " is not a short feature index");
+		}
+		return unitData.getShort(recordStart(unitIndex) + shortsOffset + 2 * i);
+	}
+
+	/**
+	 * Get a continuous feature of the given unit without creating a feature vector.
+	 * 
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a continuous feature, counted across all features as in
+	 *            {@link FeatureVector#getContinuousFeature(int)}
+	 * @return the feature value
+	 */
+	public float getContinuousFeature(int unitIndex, int featureIndex) {
+		if (unitData == null) {
+			return featureVectors[unitIndex].getContinuousFeature(featureIndex);
+		}
+		int i = featureIndex - shortsOffset - (floatsOffset - shortsOffset) / 2;
+		if (i < 0 || 4 * i >= recordSize - floatsOffset) {
+			throw new IndexOutOfBoundsException(featureIndex + " is not a continuous feature index");
+		}
+		return unitData.getFloat(recordStart(unitIndex) + floatsOffset + 4 * i);
+	}
+
 	/**
 	 * Return a shallow copy of the array of feature vectors.
 	 * 
 	 * @return a new array containing the internal feature vectors
 	 */
 	public FeatureVector[] getCopyOfFeatureVectors() {
-		return (FeatureVector[]) featureVectors.clone();
+		return (FeatureVector[]) getFeatureVectors().clone();
 	}
 
 	/**
-	 * Return the internal array of feature vectors.
+	 * Return the internal array of feature vectors. In memory-mapped mode, the array is decoded from the mapped data on the first
+	 * call; callers that only need some of the units should use {@link #getFeatureVector(int)} instead.
 	 * 
 	 * @return the internal array of feature vectors.
 	 */
-	public FeatureVector[] getFeatureVectors() {
+	public synchronized FeatureVector[] getFeatureVectors() {
+		if (featureVectors == null && unitData != null) {
+			FeatureVector[] fvs = new FeatureVector[numberOfUnits];
+			for (int i = 0; i < numberOfUnits; i++) {
+				fvs[i] = decodeFeatureVector(i);
+			}
+			featureVectors = fvs;
+		}
 		return featureVectors;
 	}
 
@@ -169,6 +361,7 @@ public class FeatureFileReader {
 			featureNames[j] = newFeatureDefinition.getFeatureName(j);
 		}
 		int[] featureIndexes = featureDefinition.getFeatureIndexArray(featureNames);
+		FeatureVector[] featureVectors = getFeatureVectors();
 		FeatureVector[] newFV = new FeatureVector[this.getNumberOfUnits()];
 
 		for (int i = 0; i < this.getNumberOfUnits(); i++) {
@@ -206,7 +399,7 @@ public class FeatureFileReader {
 	 * @return the corresponding feature vector
 	 */
 	public FeatureVector getFeatureVector(Unit unit) {
-		return featureVectors[unit.index];
+		return getFeatureVector(unit.index);
 	}
 
 	public FeatureDefinition getFeatureDefinition() {
@@ -214,6 +407,6 @@ public class FeatureFileReader {
 	}
 
 	public int getNumberOfUnits() {
-		return (featureVectors.length);
+		return numberOfUnits;
 	}
 }
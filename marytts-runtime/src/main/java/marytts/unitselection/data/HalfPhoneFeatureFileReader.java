@@ -57,7 +57,7 @@ public class HalfPhoneFeatureFileReader extends FeatureFileReader {
 		rightWeights = new FeatureDefinition(dis);
 		assert leftWeights.featureEquals(rightWeights) : "Halfphone unit feature file contains incompatible feature definitions for left and right units -- this should not happen!";
 		featureDefinition = leftWeights; // one of them, for super class
-		int numberOfUnits = dis.readInt();
+		numberOfUnits = dis.readInt();
 		featureVectors = new FeatureVector[numberOfUnits];
 		for (int i = 0; i < numberOfUnits; i++) {
 			featureVectors[i] = featureDefinition.readFeatureVector(i, dis);
@@ -65,7 +65,8 @@ public class HalfPhoneFeatureFileReader extends FeatureFileReader {
 	}
 
 	@Override
-	protected void loadFromByteBuffer(String fileName) throws IOException, MaryConfigurationException {
+	protected ByteBuffer loadFromByteBuffer(String fileName, boolean headerOnly) throws IOException,
+			MaryConfigurationException {
 		/* Open the file */
 		FileInputStream fis = new FileInputStream(fileName);
 		FileChannel fc = fis.getChannel();
@@ -81,11 +82,14 @@ public class HalfPhoneFeatureFileReader extends FeatureFileReader {
 		rightWeights = new FeatureDefinition(bb);
 		assert leftWeights.featureEquals(rightWeights) : "Halfphone unit feature file contains incompatible feature definitions for left and right units -- this should not happen!";
 		featureDefinition = leftWeights; // one of them, for super class
-		int numberOfUnits = bb.getInt();
-		featureVectors = new FeatureVector[numberOfUnits];
-		for (int i = 0; i < numberOfUnits; i++) {
-			featureVectors[i] = featureDefinition.readFeatureVector(i, bb);
+		numberOfUnits = bb.getInt();
+		if (!headerOnly) {
+			featureVectors = new FeatureVector[numberOfUnits];
+			for (int i = 0; i < numberOfUnits; i++) {
+				featureVectors[i] = featureDefinition.readFeatureVector(i, bb);
+			}
 		}
+		return bb;
 	}
 
 	public FeatureDefinition getLeftWeights() {
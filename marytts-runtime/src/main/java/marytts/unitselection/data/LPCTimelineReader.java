@@ -83,7 +83,7 @@ public class LPCTimelineReader extends TimelineReader {
 		Datagram d = null;
 
 		/* If the end of the datagram zone is reached, gracefully refuse to read */
-		if (bb.position() == timeIdxBytePos)
+		if (bb.position() == bb.limit())
 			return (null);
 		/* Else, pop the datagram out of the file */
 		try {
@@ -70,7 +70,7 @@ public class MCepTimelineReader extends TimelineReader {
 		Datagram d = null;
 
 		/* If the end of the datagram zone is reached, gracefully refuse to read */
-		if (bb.position() == timeIdxBytePos)
+		if (bb.position() == bb.limit())
 			return (null);
 		/* Else, pop the datagram out of the file */
 		try {
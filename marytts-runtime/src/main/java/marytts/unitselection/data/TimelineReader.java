@@ -42,6 +42,8 @@ import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Vector;
 
@@ -75,11 +77,20 @@ public class TimelineReader {
 	 */
 	protected long totalDuration = -1;
 
-	protected int datagramsBytePos = 0;
-	protected int timeIdxBytePos = 0;
+	protected long datagramsBytePos = 0;
+	protected long timeIdxBytePos = 0;
 
-	// exactly one of the two following variables will be non-null after load():
-	private MappedByteBuffer mappedBB = null;
+	/**
+	 * The maximum size of a single memory mapped segment of the datagram zone; a single map cannot be larger than 2 GB.
+	 */
+	static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+	private long maxSegmentSize = MAX_SEGMENT_SIZE;
+
+	// exactly one of mappedSegments and fileChannel will be non-null after load().
+	// The datagram zone is mapped in segments which each contain only whole datagrams:
+	private MappedByteBuffer[] mappedSegments = null;
+	// the start of each segment, in bytes from datagramsBytePos:
+	private long[] segmentStarts = null;
 	private FileChannel fileChannel = null;
 
 	/****************/
@@ -128,6 +139,25 @@ public class TimelineReader {
 		}
 	}
 
+	/**
+	 * Construct a timeline from the given file name, mapping the datagram zone in segments of at most the given size.
+	 * 
+	 * @param fileName
+	 *            The file to read the timeline from. Must be non-null and point to a valid timeline file.
+	 * @param maxSegmentSize
+	 *            the maximum size of each memory mapped segment, in bytes
+	 * @throws MaryConfigurationException
+	 *             if no timeline reader can be instantiated from fileName
+	 */
+	TimelineReader(String fileName, long maxSegmentSize) throws MaryConfigurationException {
+		this.maxSegmentSize = maxSegmentSize;
+		try {
+			load(fileName, true);
+		} catch (Exception e) {
+			throw new MaryConfigurationException("Cannot load timeline file from " + fileName, e);
+		}
+	}
+
 	/**
 	 * Only subclasses can instantiate a TimelineReader object that doesn't call {@link #load(String)}. It is their responsibility
 	 * then to ensure the fundamental guarantee.
@@ -196,8 +226,8 @@ public class TimelineReader {
 		}
 
 		/* Load the positions of the various subsequent components */
-		datagramsBytePos = (int) headerBB.getLong();
-		timeIdxBytePos = (int) headerBB.getLong();
+		datagramsBytePos = headerBB.getLong();
+		timeIdxBytePos = headerBB.getLong();
 		if (timeIdxBytePos < datagramsBytePos) {
 			throw new MaryConfigurationException("File seems corrupt: index is expected after data, not before");
 		}
@@ -211,16 +241,17 @@ public class TimelineReader {
 		idx = new Index(indexBB);
 
 		if (tryMemoryMapping) {
-			// Try if we can use a mapped byte buffer:
+			// Try if we can use mapped byte buffers:
 			try {
-				mappedBB = fc.map(FileChannel.MapMode.READ_ONLY, datagramsBytePos, timeIdxBytePos - datagramsBytePos);
+				mapDatagramZone(fc);
 				file.close(); // if map() succeeded, we don't need the file anymore.
 			} catch (IOException ome) {
+				mappedSegments = null;
 				MaryUtils.getLogger("Timeline").warn(
-						"Cannot use memory mapping for timeline file '" + fileName + "' -- falling back to piecewise reading");
+						"Cannot use memory mapping for timeline file '" + fileName + "' -- falling back to piecewise reading", ome);
 			}
 		}
-		if (!tryMemoryMapping || mappedBB == null) { // use piecewise reading
+		if (!tryMemoryMapping || mappedSegments == null) { // use piecewise reading
 			fileChannel = fc;
 			assert fileChannel != null;
 			// and leave file open
@@ -229,7 +260,45 @@ public class TimelineReader {
 		// postconditions:
 		assert idx != null;
 		assert procHdr != null;
-		assert fileChannel == null && mappedBB != null || fileChannel != null && mappedBB == null;
+		assert fileChannel == null && mappedSegments != null || fileChannel != null && mappedSegments == null;
+	}
+
+	/**
+	 * Map the datagram zone into memory. Since a single map is limited to 2 GB, large timelines are mapped in several segments.
+	 * Segments start at datagrams pointed to by the index, so that each datagram is entirely contained in one segment.
+	 * 
+	 * @param fc
+	 *            the file channel to map
+	 * @throws IOException
+	 *             if the zone cannot be mapped
+	 */
+	private void mapDatagramZone(FileChannel fc) throws IOException {
+		long zoneSize = timeIdxBytePos - datagramsBytePos;
+		List<Long> starts = new ArrayList<Long>();
+		starts.add(0L);
+		long segmentStart = 0;
+		long lastBoundary = 0;
+		int numIdx = idx.getNumIdx();
+		for (int i = 0; i <= numIdx; i++) {
+			long pos = i < numIdx ? idx.getIdxField(i).bytePtr - datagramsBytePos : zoneSize;
+			while (pos - segmentStart > maxSegmentSize) {
+				if (lastBoundary <= segmentStart) {
+					throw new IOException("The datagrams between two index fields do not fit into a map of " + maxSegmentSize
+							+ " bytes");
+				}
+				segmentStart = lastBoundary;
+				starts.add(segmentStart);
+			}
+			lastBoundary = pos;
+		}
+		segmentStarts = new long[starts.size()];
+		mappedSegments = new MappedByteBuffer[starts.size()];
+		for (int i = 0; i < segmentStarts.length; i++) {
+			segmentStarts[i] = starts.get(i);
+			long segmentEnd = i + 1 < segmentStarts.length ? starts.get(i + 1) : zoneSize;
+			mappedSegments[i] = fc.map(FileChannel.MapMode.READ_ONLY, datagramsBytePos + segmentStarts[i], segmentEnd
+					- segmentStarts[i]);
+		}
 	}
 
 	/**
@@ -396,7 +465,7 @@ public class TimelineReader {
 
 	/**
 	 * Read and return the upcoming datagram from the given byte buffer. Subclasses should override this method to create
-	 * subclasses of Datagram.
+	 * subclasses of Datagram. The returned datagram views its data in the byte buffer rather than copying it.
 	 * 
 	 * @param bb
 	 *            the timeline byte buffer to read from
@@ -409,14 +478,52 @@ public class TimelineReader {
 		if (bb.position() == bb.limit()) {
 			return null;
 		}
-		// Else, read the datagram from the file
+		// Else, view the datagram in the byte buffer
 		try {
-			return new Datagram(bb);
+			ByteBuffer view = sliceNextDatagram(bb);
+			if (view == null) {
+				return null;
+			}
+			long duration = view.getLong();
+			if (duration < 0) {
+				return null;
+			}
+			view.position(Datagram.NUM_HEADER_BYTES);
+			return new ByteBufferDatagram(duration, view.slice());
 		} catch (IOException ioe) {
 			return null;
 		}
 	}
 
+	/**
+	 * Cut the upcoming datagram out of the given byte buffer, without copying its data, and move the byte buffer past it.
+	 * 
+	 * @param bb
+	 *            the timeline byte buffer to read from
+	 * @return a buffer holding exactly the datagram, from position 0 to its limit: the duration as a long, the length of the data
+	 *         as an int, and the data; or null if there is not even a datagram header left in bb.
+	 * @throws IOException
+	 *             if the datagram is not fully contained in bb
+	 */
+	private ByteBuffer sliceNextDatagram(ByteBuffer bb) throws IOException {
+		if (bb.remaining() < Datagram.NUM_HEADER_BYTES) {
+			return null;
+		}
+		int dataNumBytes = bb.getInt(bb.position() + 8);
+		if (dataNumBytes < 0) {
+			throw new IOException("Can't read a datagram with a negative data size [" + dataNumBytes + "].");
+		}
+		int datagramNumBytes = Datagram.NUM_HEADER_BYTES + dataNumBytes;
+		if (bb.remaining() < datagramNumBytes) {
+			throw new IOException("Not enough data in byte buffer to read the full datagram: datagram length is "
+					+ datagramNumBytes + ", but can read only " + bb.remaining());
+		}
+		ByteBuffer view = bb.slice();
+		view.limit(datagramNumBytes);
+		bb.position(bb.position() + datagramNumBytes);
+		return view;
+	}
+
 	/**
 	 * Hop the datagrams in the given byte buffer until the one which begins at or contains the desired time (time is in samples;
 	 * the sample rate is assumed to be that of the timeline).
@@ -482,7 +589,7 @@ public class TimelineReader {
 	 *             , BufferUnderflowException if no byte buffer can be obtained for the requested time.
 	 */
 	protected Pair<ByteBuffer, Long> getByteBufferAtTime(long targetTimeInSamples) throws IOException, BufferUnderflowException {
-		if (mappedBB != null) {
+		if (mappedSegments != null) {
 			return getMappedByteBufferAtTime(targetTimeInSamples);
 		} else {
 			return loadByteBufferAtTime(targetTimeInSamples);
@@ -491,14 +598,44 @@ public class TimelineReader {
 
 	protected Pair<ByteBuffer, Long> getMappedByteBufferAtTime(long targetTimeInSamples) throws IllegalArgumentException,
 			IOException {
-		assert mappedBB != null;
+		assert mappedSegments != null;
 		/* Seek for the time index which comes just before the requested time */
 		IdxField idxFieldBefore = idx.getIdxFieldBefore(targetTimeInSamples);
 		long time = idxFieldBefore.timePtr;
-		int bytePos = (int) (idxFieldBefore.bytePtr - datagramsBytePos);
-		ByteBuffer bb = mappedBB.duplicate();
-		bb.position(bytePos);
-		time = hopToTime(bb, time, targetTimeInSamples);
+		long bytePos = idxFieldBefore.bytePtr - datagramsBytePos;
+		int segment = Arrays.binarySearch(segmentStarts, bytePos);
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+		ByteBuffer bb = mappedSegments[segment].duplicate();
+		bb.position((int) (bytePos - segmentStarts[segment]));
+		if (time == targetTimeInSamples) {
+			return new Pair<ByteBuffer, Long>(bb, time);
+		}
+		/*
+		 * Hop until the datagram which contains the requested time, as in hopToTime(), moving on to the next segment at the end of
+		 * a segment
+		 */
+		while (true) {
+			if (!bb.hasRemaining() && segment + 1 < mappedSegments.length) {
+				segment++;
+				bb = mappedSegments[segment].duplicate();
+			}
+			if (bb.remaining() < Datagram.NUM_HEADER_BYTES) { // end of the datagram zone
+				throw new BufferUnderflowException();
+			}
+			int pos = bb.position();
+			long datagramDuration = bb.getLong(pos);
+			if (time + datagramDuration > targetTimeInSamples) {
+				break;
+			}
+			int datagramSize = bb.getInt(pos + 8);
+			if (pos + Datagram.NUM_HEADER_BYTES + datagramSize > bb.limit()) {
+				throw new IOException("cannot skip datagram: it is not fully contained in byte buffer");
+			}
+			bb.position(pos + Datagram.NUM_HEADER_BYTES + datagramSize);
+			time += datagramDuration;
+		}
 		return new Pair<ByteBuffer, Long>(bb, time);
 	}
 
@@ -587,6 +724,22 @@ public class TimelineReader {
 		return getNextDatagram(bb);
 	}
 
+	/**
+	 * Get a view of the datagram at a particular time location, given in the timeline's sampling rate, without copying its data.
+	 * The returned buffer contains exactly the datagram, from position 0 to its limit: the duration as a long, the length of the
+	 * data as an int, and the data. For a memory mapped timeline, it is a read-only view of the mapped file.
+	 * 
+	 * @param targetTimeInSamples
+	 *            the requested position, in samples. Must be non-negative and less than the total duration of the timeline.
+	 * 
+	 * @return the datagram starting at or overlapping the given time, or null if end-of-file was encountered
+	 * @throws IOException
+	 *             if the datagram at the given time cannot be read fully.
+	 */
+	public ByteBuffer getDatagramView(long targetTimeInSamples) throws IOException {
+		return sliceNextDatagram(getByteBufferAtTime(targetTimeInSamples).getFirst());
+	}
+
 	/**
 	 * Get a single datagram from a particular time location.
 	 * 
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import marytts.cart.CART;
+import marytts.unitselection.select.FFRTargetCostFunction;
 import marytts.unitselection.select.JoinCostFunction;
 import marytts.unitselection.select.StatisticalCostFunction;
 import marytts.unitselection.select.Target;
@@ -127,12 +128,23 @@ public class UnitDatabase {
 		logger.debug("For target " + target + ", selected " + clist.length + " units");
 
 		// Now, clist is an array of unit indexes.
-		List<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>();
+		Unit[] units = new Unit[clist.length];
+		for (int i = 0; i < clist.length; i++) {
+			units[i] = unitReader.getUnit(clist[i]);
+		}
+		// feature file based target cost functions compute the costs of all candidates in one go:
+		double[] costs = null;
+		if (targetCostFunction instanceof FFRTargetCostFunction) {
+			costs = ((FFRTargetCostFunction) targetCostFunction).cost(target, units);
+		}
+		List<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>(clist.length);
 		for (int i = 0; i < clist.length; i++) {
 			// The target is the same for all these candidates in the queue
-			// remember the actual unit:
-			Unit unit = unitReader.getUnit(clist[i]);
-			candidates.add(new ViterbiCandidate(target, unit, targetCostFunction));
+			if (costs != null) {
+				candidates.add(new ViterbiCandidate(target, units[i], costs[i]));
+			} else {
+				candidates.add(new ViterbiCandidate(target, units[i], targetCostFunction));
+			}
 		}
 
 		// Blacklisting without crazy performance drop:
@@ -23,6 +23,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 
 import marytts.exceptions.MaryConfigurationException;
 import marytts.features.FeatureDefinition;
@@ -38,9 +39,14 @@ import marytts.util.MaryUtils;
 public class FFRTargetCostFunction implements TargetCostFunction {
 	protected WeightFunc[] weightFunction;
 	protected TargetFeatureComputer targetFeatureComputer;
+	protected FeatureFileReader featureFileReader;
 	protected FeatureVector[] featureVectors;
 	protected FeatureDefinition featureDefinition;
 	protected boolean[] weightsNonZero;
+	// the indexes of the features with non-zero weights, by kind, in increasing order:
+	protected int[] activeByteFeatures;
+	protected int[] activeShortFeatures;
+	protected int[] activeContinuousFeatures;
 
 	protected boolean debugShowCostGraph = false;
 	protected double[] cumulWeightedCosts = null;
@@ -66,77 +72,144 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 		nCostComputations++; // for debug
 		FeatureVector targetFeatures = target.getFeatureVector();
 		assert targetFeatures != null : "Target " + target + " does not have pre-computed feature vector";
-		FeatureVector unitFeatures = featureVectors[unit.index];
 		int nBytes = targetFeatures.byteValuedDiscreteFeatures.length;
-		int nShorts = targetFeatures.shortValuedDiscreteFeatures.length;
-		int nFloats = targetFeatures.continuousFeatures.length;
-		assert nBytes == unitFeatures.byteValuedDiscreteFeatures.length;
-		assert nShorts == unitFeatures.shortValuedDiscreteFeatures.length;
-		assert nFloats == unitFeatures.continuousFeatures.length;
+		int nDiscrete = nBytes + targetFeatures.shortValuedDiscreteFeatures.length;
+		int u = unit.index;
 
 		float[] weightVector = weights.getFeatureWeights();
-		// Now the actual computation
+		// Now the actual computation, reading only the unit features with non-zero weights
 		double cost = 0;
 		// byte-valued features:
-		if (nBytes > 0) {
-			for (int i = 0; i < nBytes; i++) {
-				if (weightsNonZero[i]) {
-					float weight = weightVector[i];
-					if (featureDefinition.hasSimilarityMatrix(i)) {
-						byte targetFeatValueIndex = targetFeatures.byteValuedDiscreteFeatures[i];
-						byte unitFeatValueIndex = unitFeatures.byteValuedDiscreteFeatures[i];
-						float similarity = featureDefinition.getSimilarity(i, unitFeatValueIndex, targetFeatValueIndex);
-						cost += similarity * weight;
-						if (debugShowCostGraph)
-							cumulWeightedCosts[i] += similarity * weight;
-					} else if (targetFeatures.byteValuedDiscreteFeatures[i] != unitFeatures.byteValuedDiscreteFeatures[i]) {
-						cost += weight;
-						if (debugShowCostGraph)
-							cumulWeightedCosts[i] += weight;
-					}
-				}
+		for (int k = 0; k < activeByteFeatures.length; k++) {
+			int i = activeByteFeatures[k];
+			float weight = weightVector[i];
+			if (featureDefinition.hasSimilarityMatrix(i)) {
+				byte targetFeatValueIndex = targetFeatures.byteValuedDiscreteFeatures[i];
+				byte unitFeatValueIndex = unitByteFeature(u, i);
+				float similarity = featureDefinition.getSimilarity(i, unitFeatValueIndex, targetFeatValueIndex);
+				cost += similarity * weight;
+				if (debugShowCostGraph)
+					cumulWeightedCosts[i] += similarity * weight;
+			} else if (targetFeatures.byteValuedDiscreteFeatures[i] != unitByteFeature(u, i)) {
+				cost += weight;
+				if (debugShowCostGraph)
+					cumulWeightedCosts[i] += weight;
 			}
 		}
 		// short-valued features:
-		if (nShorts > 0) {
-			for (int i = nBytes, n = nBytes + nShorts; i < n; i++) {
-				if (weightsNonZero[i]) {
-					float weight = weightVector[i];
-					// if (targetFeatures.getShortFeature(i) != unitFeatures.getShortFeature(i)) {
-					if (targetFeatures.shortValuedDiscreteFeatures[i - nBytes] != unitFeatures.shortValuedDiscreteFeatures[i
-							- nBytes]) {
-						cost += weight;
-						if (debugShowCostGraph)
-							cumulWeightedCosts[i] += weight;
-					}
-				}
+		for (int k = 0; k < activeShortFeatures.length; k++) {
+			int i = activeShortFeatures[k];
+			float weight = weightVector[i];
+			if (targetFeatures.shortValuedDiscreteFeatures[i - nBytes] != unitShortFeature(u, i)) {
+				cost += weight;
+				if (debugShowCostGraph)
+					cumulWeightedCosts[i] += weight;
 			}
 		}
 		// continuous features:
-		if (nFloats > 0) {
-			int nDiscrete = nBytes + nShorts;
-			for (int i = nDiscrete, n = nDiscrete + nFloats; i < n; i++) {
-				if (weightsNonZero[i]) {
-					float weight = weightVector[i];
-					// float a = targetFeatures.getContinuousFeature(i);
-					float a = targetFeatures.continuousFeatures[i - nDiscrete];
-					// float b = unitFeatures.getContinuousFeature(i);
-					float b = unitFeatures.continuousFeatures[i - nDiscrete];
-					// if (!Float.isNaN(a) && !Float.isNaN(b)) {
-					// Implementation of isNaN() is: (v != v).
-					if (!(a != a) && !(b != b)) {
-						double myCost = weightFunctions[i - nDiscrete].cost(a, b);
-						cost += weight * myCost;
-						if (debugShowCostGraph) {
-							cumulWeightedCosts[i] += weight * myCost;
-						}
-					} // and if it is NaN, simply compute no cost
+		for (int k = 0; k < activeContinuousFeatures.length; k++) {
+			int i = activeContinuousFeatures[k];
+			float weight = weightVector[i];
+			float a = targetFeatures.continuousFeatures[i - nDiscrete];
+			float b = unitContinuousFeature(u, i);
+			// if (!Float.isNaN(a) && !Float.isNaN(b)) {
+			// Implementation of isNaN() is: (v != v).
+			if (!(a != a) && !(b != b)) {
+				double myCost = weightFunctions[i - nDiscrete].cost(a, b);
+				cost += weight * myCost;
+				if (debugShowCostGraph) {
+					cumulWeightedCosts[i] += weight * myCost;
 				}
-			}
+			} // and if it is NaN, simply compute no cost
 		}
 		return cost;
 	}
 
+	/**
+	 * Compute the goodness-of-fit of several candidate units for the same target. For each unit, the result is exactly the same
+	 * as from {@link #cost(Target, Unit)}.
+	 * <p>
+	 * Rather than one unit after the other, the units are compared to the target one feature at a time, and only for the features
+	 * with non-zero weights: the weight, the kind of comparison and the target value are looked up once per feature, and the
+	 * comparison itself runs over all units in a tight loop.
+	 * </p>
+	 *
+	 * @param target
+	 *            target
+	 * @param units
+	 *            the candidate units
+	 * @return the cost of each unit, in the order of the units
+	 */
+	public double[] cost(Target target, Unit[] units) {
+		return cost(target, units, featureDefinition, weightFunction);
+	}
+
+	protected double[] cost(Target target, Unit[] units, FeatureDefinition weights, WeightFunc[] weightFunctions) {
+		int n = units.length;
+		double[] costs = new double[n];
+		if (debugShowCostGraph) { // needs the cost of each feature
+			for (int c = 0; c < n; c++) {
+				costs[c] = cost(target, units[c], weights, weightFunctions);
+			}
+			return costs;
+		}
+		nCostComputations += n; // for debug
+		FeatureVector targetFeatures = target.getFeatureVector();
+		assert targetFeatures != null : "Target " + target + " does not have pre-computed feature vector";
+		int nBytes = targetFeatures.byteValuedDiscreteFeatures.length;
+		int nDiscrete = nBytes + targetFeatures.shortValuedDiscreteFeatures.length;
+		// only the values of the active features are read, which matters for a memory-mapped feature file
+		int[] unitIndexes = new int[n];
+		for (int c = 0; c < n; c++) {
+			unitIndexes[c] = units[c].index;
+		}
+
+		float[] weightVector = weights.getFeatureWeights();
+		// The costs of the features are added up in the same order as in cost(Target, Unit, ...), so that the sums are the same.
+		for (int k = 0; k < activeByteFeatures.length; k++) {
+			int i = activeByteFeatures[k];
+			byte targetValue = targetFeatures.byteValuedDiscreteFeatures[i];
+			float weight = weightVector[i];
+			if (featureDefinition.hasSimilarityMatrix(i)) {
+				for (int c = 0; c < n; c++) {
+					costs[c] += featureDefinition.getSimilarity(i, unitByteFeature(unitIndexes[c], i), targetValue) * weight;
+				}
+			} else {
+				// adding 0 leaves the sum unchanged; this way, there is no branch to mispredict
+				double w = weight;
+				for (int c = 0; c < n; c++) {
+					costs[c] += unitByteFeature(unitIndexes[c], i) != targetValue ? w : 0;
+				}
+			}
+		}
+		for (int k = 0; k < activeShortFeatures.length; k++) {
+			int i = activeShortFeatures[k];
+			short targetValue = targetFeatures.shortValuedDiscreteFeatures[i - nBytes];
+			float weight = weightVector[i];
+			double w = weight;
+			for (int c = 0; c < n; c++) {
+				costs[c] += unitShortFeature(unitIndexes[c], i) != targetValue ? w : 0;
+			}
+		}
+		for (int k = 0; k < activeContinuousFeatures.length; k++) {
+			int i = activeContinuousFeatures[k];
+			int f = i - nDiscrete;
+			float a = targetFeatures.continuousFeatures[f];
+			if (a != a) { // NaN: no cost for any unit
+				continue;
+			}
+			float weight = weightVector[i];
+			WeightFunc weightFunction = weightFunctions[f];
+			for (int c = 0; c < n; c++) {
+				float b = unitContinuousFeature(unitIndexes[c], i);
+				if (b == b) {
+					costs[c] += weight * weightFunction.cost(a, b);
+				}
+			}
+		}
+		return costs;
+	}
+
 	/**
 	 * Compute the goodness-of-fit between given unit and given target for a given feature
 	 *
@@ -162,13 +235,8 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 
 		FeatureVector targetFeatures = target.getFeatureVector();
 		assert targetFeatures != null : "Target " + target + " does not have pre-computed feature vector";
-		FeatureVector unitFeatures = featureVectors[unit.index];
 		int nBytes = targetFeatures.byteValuedDiscreteFeatures.length;
 		int nShorts = targetFeatures.shortValuedDiscreteFeatures.length;
-		int nFloats = targetFeatures.continuousFeatures.length;
-		assert nBytes == unitFeatures.byteValuedDiscreteFeatures.length;
-		assert nShorts == unitFeatures.shortValuedDiscreteFeatures.length;
-		assert nFloats == unitFeatures.continuousFeatures.length;
 
 		int featureIndex = this.featureDefinition.getFeatureIndex(featureName);
 		float[] weightVector = weights.getFeatureWeights();
@@ -179,12 +247,12 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 				float weight = weightVector[featureIndex];
 				if (featureDefinition.hasSimilarityMatrix(featureIndex)) {
 					byte targetFeatValueIndex = targetFeatures.byteValuedDiscreteFeatures[featureIndex];
-					byte unitFeatValueIndex = unitFeatures.byteValuedDiscreteFeatures[featureIndex];
+					byte unitFeatValueIndex = unitByteFeature(unit.index, featureIndex);
 					float similarity = featureDefinition.getSimilarity(featureIndex, unitFeatValueIndex, targetFeatValueIndex);
 					cost = similarity * weight;
 					if (debugShowCostGraph)
 						cumulWeightedCosts[featureIndex] += similarity * weight;
-				} else if (targetFeatures.byteValuedDiscreteFeatures[featureIndex] != unitFeatures.byteValuedDiscreteFeatures[featureIndex]) {
+				} else if (targetFeatures.byteValuedDiscreteFeatures[featureIndex] != unitByteFeature(unit.index, featureIndex)) {
 					cost = weight;
 					if (debugShowCostGraph)
 						cumulWeightedCosts[featureIndex] += weight;
@@ -193,9 +261,7 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 		} else if (featureIndex < nShorts + nBytes) {
 			if (weightsNonZero[featureIndex]) {
 				float weight = weightVector[featureIndex];
-				// if (targetFeatures.getShortFeature(i) != unitFeatures.getShortFeature(i)) {
-				if (targetFeatures.shortValuedDiscreteFeatures[featureIndex - nBytes] != unitFeatures.shortValuedDiscreteFeatures[featureIndex
-						- nBytes]) {
+				if (targetFeatures.shortValuedDiscreteFeatures[featureIndex - nBytes] != unitShortFeature(unit.index, featureIndex)) {
 					cost = weight;
 					if (debugShowCostGraph)
 						cumulWeightedCosts[featureIndex] += weight;
@@ -207,8 +273,7 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 				float weight = weightVector[featureIndex];
 				// float a = targetFeatures.getContinuousFeature(i);
 				float a = targetFeatures.continuousFeatures[featureIndex - nDiscrete];
-				// float b = unitFeatures.getContinuousFeature(i);
-				float b = unitFeatures.continuousFeatures[featureIndex - nDiscrete];
+				float b = unitContinuousFeature(unit.index, featureIndex);
 				// if (!Float.isNaN(a) && !Float.isNaN(b)) {
 				// Implementation of isNaN() is: (v != v).
 				if (!(a != a) && !(b != b)) {
@@ -249,7 +314,9 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 	@Override
 	public void load(FeatureFileReader ffr, InputStream weightsStream, FeatureProcessorManager featProc) throws IOException {
 		this.featureDefinition = ffr.getFeatureDefinition();
-		this.featureVectors = ffr.getFeatureVectors();
+		this.featureFileReader = ffr;
+		// memory-mapped unit features are decoded on demand, see unitFeatures()
+		this.featureVectors = ffr.isMemoryMapped() ? null : ffr.getFeatureVectors();
 		if (weightsStream != null) {
 			MaryUtils.getLogger("TargetCostFeatures").debug("Overwriting target cost weights from file");
 			// overwrite weights from file
@@ -283,6 +350,22 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 		for (int i = 0, n = featureDefinition.getNumberOfFeatures(); i < n; i++) {
 			weightsNonZero[i] = (featureDefinition.getWeight(i) > 0);
 		}
+		int nBytes = featureDefinition.getNumberOfByteFeatures();
+		int nDiscrete = nBytes + featureDefinition.getNumberOfShortFeatures();
+		activeByteFeatures = nonZero(0, nBytes);
+		activeShortFeatures = nonZero(nBytes, nDiscrete);
+		activeContinuousFeatures = nonZero(nDiscrete, weightsNonZero.length);
+	}
+
+	private int[] nonZero(int from, int to) {
+		int[] indexes = new int[to - from];
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			if (weightsNonZero[i]) {
+				indexes[n++] = i;
+			}
+		}
+		return Arrays.copyOf(indexes, n);
 	}
 
 	/**
@@ -305,7 +388,70 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 	 * @return the FeatureVector for target cost computation associated to this unit
 	 */
 	public FeatureVector getFeatureVector(Unit unit) {
-		return featureVectors[unit.index];
+		return unitFeatures(unit.index);
+	}
+
+	/**
+	 * The feature vector of the given unit, either from the decoded array or from the memory-mapped feature file.
+	 *
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @return the unit's feature vector
+	 */
+	protected final FeatureVector unitFeatures(int unitIndex) {
+		if (featureVectors != null) {
+			return featureVectors[unitIndex];
+		}
+		return featureFileReader.getFeatureVector(unitIndex);
+	}
+
+	/**
+	 * A byte-valued feature of the given unit. For a memory-mapped feature file, only this value is read, rather than the whole
+	 * feature vector.
+	 *
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a byte-valued feature
+	 * @return the feature value
+	 */
+	protected final byte unitByteFeature(int unitIndex, int featureIndex) {
+		if (featureVectors != null) {
+			return featureVectors[unitIndex].byteValuedDiscreteFeatures[featureIndex];
+		}
+		return featureFileReader.getByteFeature(unitIndex, featureIndex);
+	}
+
+	/**
+	 * A short-valued feature of the given unit, read like {@link #unitByteFeature(int, int)}.
+	 *
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a short-valued feature, counted across all features
+	 * @return the feature value
+	 */
+	protected final short unitShortFeature(int unitIndex, int featureIndex) {
+		if (featureVectors != null) {
+			return featureVectors[unitIndex].getShortFeature(featureIndex);
+		}
+		return featureFileReader.getShortFeature(unitIndex, featureIndex);
+	}
+
+	/**
+	 * A continuous feature of the given unit, read like {@link #unitByteFeature(int, int)}.
+	 *
+	 * @param unitIndex
+	 *            the absolute index number of a unit in the database
+	 * @param featureIndex
+	 *            the index of a continuous feature, counted across all features
+	 * @return the feature value
+	 */
+	protected final float unitContinuousFeature(int unitIndex, int featureIndex) {
+		if (featureVectors != null) {
+			return featureVectors[unitIndex].getContinuousFeature(featureIndex);
+		}
+		return featureFileReader.getContinuousFeature(unitIndex, featureIndex);
 	}
 
 	/**
@@ -322,13 +468,13 @@ public class FFRTargetCostFunction implements TargetCostFunction {
 	public String getFeature(Unit unit, String featureName) {
 		int featureIndex = featureDefinition.getFeatureIndex(featureName);
 		if (featureDefinition.isByteFeature(featureIndex)) {
-			byte value = featureVectors[unit.index].getByteFeature(featureIndex);
+			byte value = unitByteFeature(unit.index, featureIndex);
 			return featureDefinition.getFeatureValueAsString(featureIndex, value);
 		} else if (featureDefinition.isShortFeature(featureIndex)) {
-			short value = featureVectors[unit.index].getShortFeature(featureIndex);
+			short value = unitShortFeature(unit.index, featureIndex);
 			return featureDefinition.getFeatureValueAsString(featureIndex, value);
 		} else { // continuous -- return float as string
-			float value = featureVectors[unit.index].getContinuousFeature(featureIndex);
+			float value = unitContinuousFeature(unit.index, featureIndex);
 			return String.valueOf(value);
 		}
 	}
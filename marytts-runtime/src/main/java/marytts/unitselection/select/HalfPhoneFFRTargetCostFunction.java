@@ -66,6 +66,24 @@ public class HalfPhoneFFRTargetCostFunction extends FFRTargetCostFunction {
 		return cost(target, unit, weights, weightFunctions);
 	}
 
+	/**
+	 * Compute the goodness-of-fit of several candidate units for the same target.
+	 *
+	 * @param target
+	 *            target
+	 * @param units
+	 *            the candidate units
+	 * @return the cost of each unit, in the order of the units
+	 */
+	public double[] cost(Target target, Unit[] units) {
+		if (!(target instanceof HalfPhoneTarget))
+			throw new IllegalArgumentException("This target cost function can only be called for half-phone targets!");
+		boolean isLeftHalf = ((HalfPhoneTarget) target).isLeftHalf();
+		FeatureDefinition weights = isLeftHalf ? leftWeights : rightWeights;
+		WeightFunc[] weightFunctions = isLeftHalf ? leftWeightFunction : rightWeightFunction;
+		return cost(target, units, weights, weightFunctions);
+	}
+
 	/**
 	 * Initialise the data needed to do a target cost computation.
 	 *
@@ -97,7 +115,8 @@ public class HalfPhoneFFRTargetCostFunction extends FFRTargetCostFunction {
 		this.leftWeights = ffr.getLeftWeights();
 		this.featureDefinition = this.leftWeights;
 		this.rightWeights = ffr.getRightWeights();
-		this.featureVectors = ffr.getFeatureVectors();
+		this.featureFileReader = ffr;
+		this.featureVectors = ffr.isMemoryMapped() ? null : ffr.getFeatureVectors();
 
 		if (weightsFile != null) {
 			MaryUtils.getLogger("TargetCostFeatures").debug("Overwriting target cost weights from file " + weightsFile);
@@ -173,7 +192,7 @@ public class HalfPhoneFFRTargetCostFunction extends FFRTargetCostFunction {
 	 * @return the FeatureVector for target cost computation associated to this unit
 	 */
 	public FeatureVector getUnitFeatures(Unit unit) {
-		return featureVectors[unit.index];
+		return unitFeatures(unit.index);
 	}
 
 	/**
@@ -190,13 +209,13 @@ public class HalfPhoneFFRTargetCostFunction extends FFRTargetCostFunction {
 	public String getFeature(Unit unit, String featureName) {
 		int featureIndex = featureDefinition.getFeatureIndex(featureName);
 		if (featureDefinition.isByteFeature(featureIndex)) {
-			byte value = featureVectors[unit.index].getByteFeature(featureIndex);
+			byte value = unitByteFeature(unit.index, featureIndex);
 			return featureDefinition.getFeatureValueAsString(featureIndex, value);
 		} else if (featureDefinition.isShortFeature(featureIndex)) {
-			short value = featureVectors[unit.index].getShortFeature(featureIndex);
+			short value = unitShortFeature(unit.index, featureIndex);
 			return featureDefinition.getFeatureValueAsString(featureIndex, value);
 		} else { // continuous -- return float as string
-			float value = featureVectors[unit.index].getContinuousFeature(featureIndex);
+			float value = unitContinuousFeature(unit.index, featureIndex);
 			return String.valueOf(value);
 		}
 	}
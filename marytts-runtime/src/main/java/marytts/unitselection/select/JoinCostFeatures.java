@@ -70,8 +70,14 @@ public class JoinCostFeatures implements JoinCostFunction {
 	private WeightFunc[] weightFunction = null;
 	private boolean[] isLinear = null; // wether the i'th weight function is a linear function
 
+	private int numberOfUnits;
 	private float[][] leftJCF = null;
 	private float[][] rightJCF = null;
+	/**
+	 * If unit data is memory-mapped, the left and right join cost features of all units, interleaved as in the file: unit i's
+	 * left features start at 2*i*numberOfFeatures, its right features follow directly. Null otherwise.
+	 */
+	private FloatBuffer mappedJCF = null;
 
 	/****************/
 	/* CONSTRUCTORS */
@@ -207,8 +213,16 @@ public class JoinCostFeatures implements JoinCostFunction {
 			}
 
 			/* Read the left and right Join Cost Features */
-			int numberOfUnits = bb.getInt();
+			numberOfUnits = bb.getInt();
 			FloatBuffer fb = bb.asFloatBuffer();
+			if (MaryProperties.getBoolean("unitselection.mapunitdata", false)) {
+				// leave the features in the mapped file, to be read in cost()
+				if ((long) numberOfUnits * 2 * numberOfFeatures > fb.remaining()) {
+					throw new EOFException();
+				}
+				mappedJCF = fb;
+				return;
+			}
 			leftJCF = new float[numberOfUnits][];
 			rightJCF = new float[numberOfUnits][];
 			for (int i = 0; i < numberOfUnits; i++) {
@@ -291,7 +305,7 @@ public class JoinCostFeatures implements JoinCostFunction {
 			}
 
 			/* Read the left and right Join Cost Features */
-			int numberOfUnits = raf.readInt();
+			numberOfUnits = raf.readInt();
 			leftJCF = new float[numberOfUnits][];
 			rightJCF = new float[numberOfUnits][];
 			for (int i = 0; i < numberOfUnits; i++) {
@@ -395,10 +409,10 @@ public class JoinCostFeatures implements JoinCostFunction {
 	/**
 	 * Get the number of units.
 	 *
-	 * @return (leftJCF.length)
+	 * @return numberOfUnits
 	 */
 	public int getNumberOfUnits() {
-		return (leftJCF.length);
+		return numberOfUnits;
 	}
 
 	/**
@@ -407,7 +421,7 @@ public class JoinCostFeatures implements JoinCostFunction {
 	 * @param u
 	 *            The index of the considered unit.
 	 *
-	 * @return The array of left join cost features for the given unit.
+	 * @return The array of left join cost features for the given unit; a copy if the unit data is memory-mapped.
 	 */
 	public float[] getLeftJCF(int u) {
 		if (u < 0) {
@@ -417,6 +431,9 @@ public class JoinCostFeatures implements JoinCostFunction {
 			throw new RuntimeException("The unit index [" + u + "] is out of range: this file contains [" + getNumberOfUnits()
 					+ "] units.");
 		}
+		if (mappedJCF != null) {
+			return copyMappedJCF(2 * u);
+		}
 		return (leftJCF[u]);
 	}
 
@@ -426,7 +443,7 @@ public class JoinCostFeatures implements JoinCostFunction {
 	 * @param u
 	 *            The index of the considered unit.
 	 *
-	 * @return The array of right join cost features for the given unit.
+	 * @return The array of right join cost features for the given unit; a copy if the unit data is memory-mapped.
 	 */
 	public float[] getRightJCF(int u) {
 		if (u < 0) {
@@ -436,9 +453,21 @@ public class JoinCostFeatures implements JoinCostFunction {
 			throw new RuntimeException("The unit index [" + u + "] is out of range: this file contains [" + getNumberOfUnits()
 					+ "] units.");
 		}
+		if (mappedJCF != null) {
+			return copyMappedJCF(2 * u + 1);
+		}
 		return (rightJCF[u]);
 	}
 
+	private float[] copyMappedJCF(int row) {
+		int n = featureWeight.length;
+		float[] v = new float[n];
+		for (int i = 0, pos = row * n; i < n; i++, pos++) {
+			v[i] = mappedJCF.get(pos);
+		}
+		return v;
+	}
+
 	/*****************/
 	/* MISC METHODS */
 	/*****************/
@@ -459,43 +488,64 @@ public class JoinCostFeatures implements JoinCostFunction {
 		if (u1 < 0) {
 			throw new RuntimeException("The left unit index [" + u1 + "] is out of range: a unit index can't be negative.");
 		}
-		// if ( u1 > getNumberOfUnits() ) {
-		if (u1 > leftJCF.length) {
+		if (u1 > numberOfUnits) {
 			throw new RuntimeException("The left unit index [" + u1 + "] is out of range: this file contains ["
 					+ getNumberOfUnits() + "] units.");
 		}
 		if (u2 < 0) {
 			throw new RuntimeException("The right unit index [" + u2 + "] is out of range: a unit index can't be negative.");
 		}
-		// if ( u2 > getNumberOfUnits() ) {
-		if (u2 > leftJCF.length) {
+		if (u2 > numberOfUnits) {
 			throw new RuntimeException("The right unit index [" + u2 + "] is out of range: this file contains ["
 					+ getNumberOfUnits() + "] units.");
 		}
 		/* Cumulate the join costs for each feature */
 		double res = 0.0;
+		if (mappedJCF != null) {
+			int n = featureWeight.length;
+			int pos1 = (2 * u1 + 1) * n; // right features of u1
+			int pos2 = 2 * u2 * n; // left features of u2
+			for (int i = 0; i < n; i++) {
+				res += featureCost(i, mappedJCF.get(pos1 + i), mappedJCF.get(pos2 + i));
+			}
+			return (res);
+		}
 		float[] v1 = rightJCF[u1];
 		float[] v2 = leftJCF[u2];
 		for (int i = 0; i < v1.length; i++) {
-			float a = v1[i];
-			float b = v2[i];
-			// if (!Float.isNaN(v1[i]) && !Float.isNaN(v2[i])) {
-			if (!(a != a) && !(b != b)) {
-				double c;
-				if (isLinear[i]) {
-					c = featureWeight[i] * (a > b ? (a - b) : (b - a));
-				} else {
-					c = featureWeight[i] * weightFunction[i].cost(a, b);
-				}
-				res += c;
-				if (debugShowCostGraph) {
-					cumulWeightedSignalCosts[i] += wSignal * c;
-				}
-			} // if anything is NaN, count the cost as 0.
+			res += featureCost(i, v1[i], v2[i]);
 		}
 		return (res);
 	}
 
+	/**
+	 * The weighted cost contribution of one join cost feature.
+	 *
+	 * @param i
+	 *            the feature index
+	 * @param a
+	 *            the right feature value of the left unit
+	 * @param b
+	 *            the left feature value of the right unit
+	 * @return the weighted cost, or 0 if either value is NaN.
+	 */
+	private double featureCost(int i, float a, float b) {
+		// if (!Float.isNaN(a) && !Float.isNaN(b)) {
+		if (!(a != a) && !(b != b)) {
+			double c;
+			if (isLinear[i]) {
+				c = featureWeight[i] * (a > b ? (a - b) : (b - a));
+			} else {
+				c = featureWeight[i] * weightFunction[i].cost(a, b);
+			}
+			if (debugShowCostGraph) {
+				cumulWeightedSignalCosts[i] += wSignal * c;
+			}
+			return c;
+		} // if anything is NaN, count the cost as 0.
+		return 0;
+	}
+
 	/**
 	 * A combined cost computation, as a weighted sum of the signal-based cost (computed from the units) and the phonetics-based
 	 * cost (computed from the targets).
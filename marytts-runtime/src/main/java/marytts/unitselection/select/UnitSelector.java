@@ -44,6 +44,9 @@ public class UnitSelector {
 	protected float targetCostWeight;
 	protected float sCostWeight = -1;
 	protected int beamSize;
+	protected float pruningThreshold = 0;
+	protected boolean cacheJoinCosts = false;
+	protected int numThreads = 1;
 
 	/**
 	 * Initialise the unit selector. Need to call load() separately.
@@ -69,6 +72,23 @@ public class UnitSelector {
 		this.beamSize = beamSize;
 	}
 
+	/**
+	 * Options for a faster Viterbi search; by default, none of them is used.
+	 * 
+	 * @param pruningThreshold
+	 *            if positive, do not extend paths scoring worse than the best one by more than this
+	 * @param cacheJoinCosts
+	 *            whether to remember join costs of unit pairs during a search
+	 * @param numThreads
+	 *            number of threads for scoring the candidates of one target
+	 * @see Viterbi#setSearchOptions(float, boolean, int)
+	 */
+	public void setSearchOptions(float pruningThreshold, boolean cacheJoinCosts, int numThreads) {
+		this.pruningThreshold = pruningThreshold;
+		this.cacheJoinCosts = cacheJoinCosts;
+		this.numThreads = numThreads;
+	}
+
 	/**
 	 * Select the units for the targets in the given list of tokens and boundaries. Collect them in a list and return it.
 	 * 
@@ -111,6 +131,7 @@ public class UnitSelector {
 		} else {
 			viterbi = new Viterbi(targets, database, targetCostWeight, sCostWeight, beamSize);
 		}
+		viterbi.setSearchOptions(pruningThreshold, cacheJoinCosts, numThreads);
 
 		viterbi.apply();
 		List<SelectedUnit> selectedUnits = viterbi.getSelectedUnits();
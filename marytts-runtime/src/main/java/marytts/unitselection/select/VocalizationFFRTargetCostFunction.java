@@ -70,6 +70,18 @@ public class VocalizationFFRTargetCostFunction extends FFRTargetCostFunction {
 		rememberWhichWeightsAreNonZero();
 	}
 
+	/**
+	 * The costs are computed one unit after the other, as the comparison differs from the one in the superclass.
+	 */
+	@Override
+	protected double[] cost(Target target, Unit[] units, FeatureDefinition weights, WeightFunc[] weightFunctions) {
+		double[] costs = new double[units.length];
+		for (int c = 0; c < units.length; c++) {
+			costs[c] = cost(target, units[c], weights, weightFunctions);
+		}
+		return costs;
+	}
+
 	/**
 	 * Compute the goodness-of-fit of a given unit for a given target
 	 * 
@@ -31,20 +31,33 @@
  */
 package marytts.unitselection.select.viterbi;
 
+import gnu.trove.TDoubleArrayList;
+import gnu.trove.TLongArrayList;
+import gnu.trove.TLongDoubleHashMap;
+
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import marytts.exceptions.SynthesisException;
 import marytts.unitselection.data.DiphoneUnit;
 import marytts.unitselection.data.Unit;
 import marytts.unitselection.data.UnitDatabase;
 import marytts.unitselection.select.DiphoneTarget;
+import marytts.unitselection.select.JoinCostFeatures;
 import marytts.unitselection.select.JoinCostFunction;
 import marytts.unitselection.select.SelectedUnit;
 import marytts.unitselection.select.StatisticalCostFunction;
@@ -73,8 +86,35 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * 
  * Move to the next unit and repeat the process.
+ * <p>
+ * 
+ * A faster search can be enabled with {@link #setSearchOptions(float, boolean, int)}: paths whose score is worse than the best
+ * one by more than a threshold are dropped, join costs of unit pairs are remembered for the rest of the search, and the
+ * candidates of a target are scored on several threads. Its result can differ from the default search where pruned paths
+ * would have won, or where two paths have exactly the same score.
  */
 public class Viterbi {
+	// Minimum number of path/candidate pairs for each thread when scoring candidates in parallel
+	private static final int MIN_PAIRS_PER_TASK = 2000;
+
+	// Threads shared by all searches for scoring candidates in parallel
+	private static ExecutorService scoringExecutor;
+
+	private static synchronized ExecutorService getScoringExecutor() {
+		if (scoringExecutor == null) {
+			scoringExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "viterbi-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return scoringExecutor;
+	}
+
 	// a general flag indicating which type of viterbi search
 	// to use:
 	// -1: unlimited search
@@ -97,6 +137,12 @@ public class Viterbi {
 	protected double cumulTargetCosts;
 	protected int nTargetCosts;
 
+	// fast search options, see setSearchOptions():
+	protected float pruningThreshold = 0;
+	protected int numThreads = 1;
+	// join costs of unit pairs already computed in this search, or null if not cached
+	protected TLongDoubleHashMap joinCostCache = null;
+
 	// Keep track of average costs for each voice: map UnitDatabase->DebugStats
 	private static Map<UnitDatabase, DebugStats> debugStats = new HashMap<UnitDatabase, DebugStats>();
 
@@ -200,6 +246,31 @@ public class Viterbi {
 		}
 	}
 
+	/**
+	 * Switch to the faster search, if any of the options is set.
+	 * 
+	 * @param pruningThreshold
+	 *            if positive, paths scoring worse than the best path of the same point by more than this are not extended.
+	 * @param cacheJoinCosts
+	 *            whether to remember the join cost of each unit pair for the rest of the search. This is only done if the join
+	 *            cost function depends on the units alone, i.e. for {@link JoinCostFeatures}.
+	 * @param numThreads
+	 *            the number of threads across which the candidates of one target may be scored.
+	 */
+	public void setSearchOptions(float pruningThreshold, boolean cacheJoinCosts, int numThreads) {
+		this.pruningThreshold = pruningThreshold;
+		this.numThreads = Math.max(1, numThreads);
+		if (cacheJoinCosts && joinCostFunction instanceof JoinCostFeatures) {
+			joinCostCache = new TLongDoubleHashMap();
+		} else {
+			joinCostCache = null;
+		}
+	}
+
+	private boolean isFastSearch() {
+		return pruningThreshold > 0 || numThreads > 1 || joinCostCache != null;
+	}
+
 	/**
 	 * Carry out a Viterbi search in for a prepared queue of ViterbiPoints. In a nutshell, each Point represents a target item (a
 	 * target segment); for each target Point, a number of Candidate units in the voice database are determined; a Path structure
@@ -215,6 +286,7 @@ public class Viterbi {
 	 */
 	public void apply() throws SynthesisException {
 		logger.debug("Viterbi running with beam size " + beamSize);
+		boolean fastSearch = isFastSearch();
 		// go through all but the last point
 		// (since last point has no item)
 		for (ViterbiPoint point = firstPoint; point.next != null; point = point.next) {
@@ -248,6 +320,11 @@ public class Viterbi {
 			point.candidates = candidates;
 			assert beamSize != 0; // general beam search not implemented
 
+			if (fastSearch) {
+				extendPathsByCandidate(point);
+				continue;
+			}
+
 			// Now go through all existing paths and all candidates
 			// for the current item;
 			// tentatively extend each existing path to each of
@@ -289,6 +366,187 @@ public class Viterbi {
 		}
 	}
 
+	/**
+	 * The fast search step: extend the paths of the given point to its candidates. For each candidate, only the best extension
+	 * is built; candidates are scored independently of each other, possibly on several threads.
+	 * 
+	 * @param point
+	 *            the point whose candidates have been determined
+	 * @throws SynthesisException
+	 *             if scoring the candidates failed
+	 */
+	private void extendPathsByCandidate(ViterbiPoint point) throws SynthesisException {
+		List<ViterbiPath> paths = point.paths;
+		if (paths.isEmpty()) {
+			return;
+		}
+		// best paths first, so that beam and threshold retain the best ones:
+		Collections.sort(paths);
+		int nPaths = paths.size();
+		if (beamSize != -1 && beamSize < nPaths) {
+			nPaths = beamSize;
+		}
+		if (pruningThreshold > 0) {
+			double limit = paths.get(0).score + pruningThreshold;
+			int n = 1;
+			while (n < nPaths && paths.get(n).score <= limit) {
+				n++;
+			}
+			nPaths = n;
+		}
+		List<ViterbiPath> retained = paths.subList(0, nPaths);
+		List<ViterbiCandidate> candidates = point.candidates;
+		int nCandidates = candidates.size();
+		if (beamSize != -1 && beamSize < nCandidates) {
+			nCandidates = beamSize;
+		}
+		ViterbiPath[] best = new ViterbiPath[nCandidates];
+
+		int nTasks = (int) Math.min(numThreads, Math.min(nCandidates, (long) nPaths * nCandidates / MIN_PAIRS_PER_TASK));
+		CandidateScorer[] scorers = new CandidateScorer[Math.max(1, nTasks)];
+		for (int t = 0; t < scorers.length; t++) {
+			scorers[t] = new CandidateScorer(retained, candidates, best, t * nCandidates / scorers.length, (t + 1)
+					* nCandidates / scorers.length);
+		}
+		if (scorers.length == 1) {
+			scorers[0].call();
+		} else {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(scorers.length - 1);
+			ExecutorService executor = getScoringExecutor();
+			for (int t = 1; t < scorers.length; t++) {
+				futures.add(executor.submit(scorers[t]));
+			}
+			scorers[0].call();
+			try {
+				for (Future<Void> f : futures) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SynthesisException("Interrupted while scoring unit candidates", e);
+			} catch (ExecutionException e) {
+				throw new SynthesisException("Problem scoring unit candidates", e.getCause());
+			} finally {
+				for (Future<Void> f : futures) {
+					f.cancel(true);
+				}
+			}
+		}
+		// Merge what the scorers have seen; the cache is only written here, between steps.
+		for (CandidateScorer scorer : scorers) {
+			cumulJoinCosts += scorer.cumulJoinCosts;
+			nJoinCosts += scorer.nJoinCosts;
+			cumulTargetCosts += scorer.cumulTargetCosts;
+			nTargetCosts += scorer.nTargetCosts;
+			if (joinCostCache != null) {
+				for (int i = 0, n = scorer.newKeys.size(); i < n; i++) {
+					joinCostCache.put(scorer.newKeys.get(i), scorer.newCosts.get(i));
+				}
+			}
+		}
+		for (ViterbiPath np : best) {
+			addPath(point.next, np);
+		}
+	}
+
+	/**
+	 * The key of a unit pair in the join cost cache. Diphone units have the index of their left half, so they are marked to keep
+	 * them apart from the half-phone unit with the same index.
+	 */
+	private static long joinCostKey(Unit u1, Unit u2) {
+		int k1 = u1 instanceof DiphoneUnit ? u1.index | 0x80000000 : u1.index;
+		int k2 = u2 instanceof DiphoneUnit ? u2.index | 0x80000000 : u2.index;
+		return ((long) k1 << 32) | (k2 & 0xffffffffL);
+	}
+
+	/**
+	 * Finds the best extension for each of a range of candidates. Scorers of the same step run in parallel; they only read the
+	 * shared state, and collect new join costs and debug statistics for the calling thread to merge.
+	 */
+	private class CandidateScorer implements Callable<Void> {
+		private final List<ViterbiPath> paths;
+		private final List<ViterbiCandidate> candidates;
+		private final ViterbiPath[] best;
+		private final int from;
+		private final int to;
+		// join costs are non-negative, so a candidate needs no more paths once its best score can't be beaten:
+		private final boolean canStopEarly = wJoinCosts >= 0 && (sCostFunction == null || wSCosts == 0);
+		TLongArrayList newKeys = new TLongArrayList();
+		TDoubleArrayList newCosts = new TDoubleArrayList();
+		double cumulJoinCosts;
+		int nJoinCosts;
+		double cumulTargetCosts;
+		int nTargetCosts;
+
+		CandidateScorer(List<ViterbiPath> paths, List<ViterbiCandidate> candidates, ViterbiPath[] best, int from, int to) {
+			this.paths = paths;
+			this.candidates = candidates;
+			this.best = best;
+			this.from = from;
+			this.to = to;
+		}
+
+		public Void call() {
+			for (int j = from; j < to; j++) {
+				best[j] = bestPathTo(candidates.get(j));
+			}
+			return null;
+		}
+
+		/**
+		 * The best path from among the paths, extended to the candidate. The score is summed up in the same order as in
+		 * {@link Viterbi#getPath(ViterbiPath, ViterbiCandidate)}.
+		 */
+		private ViterbiPath bestPathTo(ViterbiCandidate candidate) {
+			double targetCost = candidate.targetCost * wTargetCosts;
+			ViterbiPath bestPrevious = null;
+			double bestScore = 0;
+			for (ViterbiPath path : paths) {
+				if (bestPrevious != null && canStopEarly && targetCost + path.score >= bestScore) {
+					break; // paths are sorted by score, so no later path can do better
+				}
+				double joinCost;
+				double sCost = 0;
+				if (path.candidate == null) {
+					joinCost = 0;
+				} else {
+					ViterbiCandidate prevCandidate = path.candidate;
+					joinCost = joinCost(prevCandidate, candidate);
+					if (sCostFunction != null)
+						sCost = sCostFunction.cost(prevCandidate.unit, candidate.unit);
+				}
+				joinCost *= wJoinCosts;
+				sCost *= wSCosts;
+				double cost = joinCost + targetCost + sCost;
+				if (joinCost < Float.POSITIVE_INFINITY)
+					cumulJoinCosts += joinCost;
+				nJoinCosts++;
+				cumulTargetCosts += targetCost;
+				nTargetCosts++;
+				cost += path.score;
+				if (bestPrevious == null || cost < bestScore) {
+					bestPrevious = path;
+					bestScore = cost;
+				}
+			}
+			return new ViterbiPath(candidate, bestPrevious, bestScore);
+		}
+
+		private double joinCost(ViterbiCandidate prevCandidate, ViterbiCandidate candidate) {
+			if (joinCostCache == null) {
+				return joinCostFunction.cost(prevCandidate.target, prevCandidate.unit, candidate.target, candidate.unit);
+			}
+			long key = joinCostKey(prevCandidate.unit, candidate.unit);
+			if (joinCostCache.containsKey(key)) {
+				return joinCostCache.get(key);
+			}
+			double cost = joinCostFunction.cost(prevCandidate.target, prevCandidate.unit, candidate.target, candidate.unit);
+			newKeys.add(key);
+			newCosts.add(cost);
+			return cost;
+		}
+	}
+
 	/**
 	 * Add the new path to the state path if it is better than the current path. In this, state means the position of the
 	 * candidate associated with this path in the candidate queue for the corresponding segment item. In other words, this method
@@ -505,6 +763,21 @@ public class Viterbi {
 		return new ViterbiPath(candidate, path, cost);
 	}
 
+	/**
+	 * The score of the best path found by the search. This requires apply() to have been run.
+	 * 
+	 * @return the score of the best path, or NaN if no path could be found.
+	 */
+	public double getBestPathScore() {
+		double bestScore = Double.NaN;
+		for (ViterbiPath path : lastPoint.getPaths()) {
+			if (!(path.score >= bestScore)) { // also true while bestScore is NaN
+				bestScore = path.score;
+			}
+		}
+		return bestScore;
+	}
+
 	/**
 	 * Find the best path. This requires apply() to have been run. For this best path, we set the pointers to the *next* path
 	 * elements correctly.
@@ -51,6 +51,20 @@ public class ViterbiCandidate implements Comparable<ViterbiCandidate> {
 		this.targetCost = tcf.cost(target, unit);
 	}
 
+	/**
+	 * @param target
+	 *            the target
+	 * @param unit
+	 *            the candidate unit
+	 * @param targetCost
+	 *            the target cost of the unit for the target, computed beforehand
+	 */
+	public ViterbiCandidate(Target target, Unit unit, double targetCost) {
+		this.target = target;
+		this.unit = unit;
+		this.targetCost = targetCost;
+	}
+
 	/**
 	 * Calculates and returns the target cost for this candidate
 	 * 
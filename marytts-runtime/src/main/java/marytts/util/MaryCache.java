@@ -33,9 +33,12 @@ import java.sql.Statement;
 import marytts.server.MaryProperties;
 
 /**
- * @author marc
+ * A cache of synthesis results in an HSQLDB database. All accesses are serialised on a single JDBC connection.
  * 
+ * @author marc
+ * @deprecated {@link marytts.server.Request} now uses {@link marytts.util.cache.TieredCache}, which can be read concurrently.
  */
+@Deprecated
 public class MaryCache {
 	private static MaryCache maryCache;
 
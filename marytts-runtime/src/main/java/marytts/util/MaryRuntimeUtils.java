@@ -391,6 +391,24 @@ public class MaryRuntimeUtils {
 		return output;
 	}
 
+	/**
+	 * List the voices with the state of their data, one voice per line: name, locale and one of "ready", "loading",
+	 * "not-loaded" and "failed".
+	 * 
+	 * @return the voice status
+	 */
+	public static String getVoiceStatus() {
+		StringBuilder output = new StringBuilder();
+		for (Voice v : Voice.getAvailableVoices()) {
+			if (v instanceof InterpolatingVoice) {
+				continue;
+			}
+			output.append(v.getName()).append(" ").append(v.getLocale()).append(" ").append(v.getDataStateName())
+					.append(System.getProperty("line.separator"));
+		}
+		return output.toString();
+	}
+
 	public static String getDefaultVoiceName() {
 		String defaultVoiceName = "";
 		String allVoices = getVoices();
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * A compact, 128-bit key for a cache entry, computed as an MD5 hash over all the parameters of a request which determine its
+ * result: input and output type, locale, voice, style, effects, output parameters, and the input data itself.
+ * <p>
+ * Keys are built with a {@link Builder}; XML input data can be hashed directly from the DOM tree, without serialising it to a
+ * string first.
+ * </p>
+ */
+public final class CacheKey {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final long high;
+	private final long low;
+
+	public CacheKey(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey other = (CacheKey) o;
+		return high == other.high && low == other.low;
+	}
+
+	@Override
+	public int hashCode() {
+		// the bits of an MD5 hash are well distributed, so any of them will do
+		return (int) (low ^ (low >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Accumulates the parts of a cache key. Each part is length-prefixed, so that e.g. ("ab", "c") and ("a", "bc") give different
+	 * keys, and null values are distinguished from empty strings.
+	 */
+	public static class Builder {
+		private static final byte NULL = 0;
+		private static final byte STRING = 1;
+		private static final byte ELEMENT = 2;
+		private static final byte ATTRIBUTE = 3;
+		private static final byte TEXT = 4;
+		private static final byte END = 5;
+
+		private final MessageDigest digest;
+
+		private Builder() {
+			try {
+				digest = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new AssertionError("MD5 must be supported by every Java platform");
+			}
+		}
+
+		/**
+		 * Add a string part to the key.
+		 *
+		 * @param s
+		 *            the string, or null
+		 * @return this builder
+		 */
+		public Builder add(String s) {
+			if (s == null) {
+				digest.update(NULL);
+			} else {
+				digest.update(STRING);
+				byte[] bytes = s.getBytes(UTF8);
+				addInt(bytes.length);
+				digest.update(bytes);
+			}
+			return this;
+		}
+
+		/**
+		 * Add an XML tree to the key: element names, attributes and text content in document order. Comments and processing
+		 * instructions are ignored.
+		 *
+		 * @param node
+		 *            the root of the tree, typically a Document or Element
+		 * @return this builder
+		 */
+		public Builder add(Node node) {
+			if (node == null) {
+				digest.update(NULL);
+				return this;
+			}
+			switch (node.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				digest.update(ELEMENT);
+				add(node.getNodeName());
+				NamedNodeMap attributes = node.getAttributes();
+				for (int i = 0, n = attributes.getLength(); i < n; i++) {
+					Attr a = (Attr) attributes.item(i);
+					digest.update(ATTRIBUTE);
+					add(a.getName());
+					add(a.getValue());
+				}
+				addChildren(node);
+				digest.update(END);
+				break;
+			case Node.TEXT_NODE:
+			case Node.CDATA_SECTION_NODE:
+				digest.update(TEXT);
+				add(node.getNodeValue());
+				break;
+			case Node.DOCUMENT_NODE:
+			case Node.DOCUMENT_FRAGMENT_NODE:
+				addChildren(node);
+				break;
+			default:
+				// comments, processing instructions etc. do not influence processing results
+			}
+			return this;
+		}
+
+		private void addChildren(Node node) {
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+				add(child);
+			}
+		}
+
+		/**
+		 * Add raw bytes to the key.
+		 *
+		 * @param bytes
+		 *            the bytes
+		 * @return this builder
+		 */
+		public Builder add(byte[] bytes) {
+			digest.update(STRING);
+			addInt(bytes.length);
+			digest.update(bytes);
+			return this;
+		}
+
+		private void addInt(int i) {
+			digest.update((byte) (i >>> 24));
+			digest.update((byte) (i >>> 16));
+			digest.update((byte) (i >>> 8));
+			digest.update((byte) i);
+		}
+
+		/**
+		 * Compute the key from the parts added so far. The builder must not be used afterwards.
+		 *
+		 * @return the key
+		 */
+		public CacheKey build() {
+			byte[] hash = digest.digest();
+			long high = 0;
+			long low = 0;
+			for (int i = 0; i < 8; i++) {
+				high = (high << 8) | (hash[i] & 0xFF);
+				low = (low << 8) | (hash[i + 8] & 0xFF);
+			}
+			return new CacheKey(high, low);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+/**
+ * An in-memory, size-bounded LRU cache from {@link CacheKey}s to byte arrays, whose budget is a number of bytes. The cache keeps a
+ * reference to the values put into it, so they must not be modified afterwards.
+ */
+public class MemoryCacheTier extends StripedLruCache<CacheKey, byte[]> {
+
+	/**
+	 * Create a memory cache.
+	 *
+	 * @param maxBytes
+	 *            the maximum total number of bytes of cached values
+	 * @param numStripes
+	 *            the number of independently locked stripes; rounded up to a power of two
+	 */
+	public MemoryCacheTier(long maxBytes, int numStripes) {
+		super(maxBytes, numStripes);
+	}
+
+	@Override
+	protected long weigh(byte[] value) {
+		return value.length;
+	}
+
+	/**
+	 * @return the number of bytes of values currently cached
+	 */
+	public long getBytes() {
+		return getWeight();
+	}
+}
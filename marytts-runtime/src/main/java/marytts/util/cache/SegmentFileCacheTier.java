@@ -0,0 +1,312 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache from {@link CacheKey}s to byte arrays, stored in a directory of fixed-size, memory-mapped segment files.
+ * <p>
+ * Records are appended to the newest segment; when it is full, a new segment is started, and if there are more than the maximum
+ * number of segments, the oldest one is deleted together with all its entries. An in-memory index maps keys to record positions;
+ * it is rebuilt by scanning the segment files when the cache is opened. Lookups read directly from the mapped segments and do not
+ * take any lock; only insertions are serialised.
+ * </p>
+ * <p>
+ * Each record consists of a magic number, the two halves of the key, the value length and the value bytes. The magic number is
+ * written last, so that a record which was not completely written (e.g. because the process was killed) is ignored on the next
+ * start.
+ * </p>
+ */
+public class SegmentFileCacheTier {
+	private static final int MAGIC = 0x4D415259; // "MARY"
+	private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+	private static final String PREFIX = "segment-";
+	private static final String SUFFIX = ".cache";
+
+	private final File directory;
+	private final int segmentSize;
+	private final int maxSegments;
+
+	private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<Integer, Segment>();
+	private final ConcurrentHashMap<CacheKey, Long> index = new ConcurrentHashMap<CacheKey, Long>();
+	private final Object writeLock = new Object();
+	private Segment current;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Open or create a segment file cache.
+	 *
+	 * @param directory
+	 *            the directory holding the segment files; created if it does not exist
+	 * @param segmentSize
+	 *            the size of each segment file, in bytes
+	 * @param maxSegments
+	 *            the maximum number of segment files to keep
+	 * @param clear
+	 *            if true, delete any existing segments; if false, load them
+	 * @throws IOException
+	 *             if the segment files cannot be created or mapped
+	 */
+	public SegmentFileCacheTier(File directory, int segmentSize, int maxSegments, boolean clear) throws IOException {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+		}
+		if (maxSegments < 1) {
+			throw new IllegalArgumentException("Need at least one segment, got " + maxSegments);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + directory.getAbsolutePath());
+		}
+		File[] files = directory.listFiles(new FileFilter() {
+			public boolean accept(File f) {
+				return f.isFile() && f.getName().startsWith(PREFIX) && f.getName().endsWith(SUFFIX);
+			}
+		});
+		Arrays.sort(files);
+		for (File f : files) {
+			if (clear) {
+				if (!f.delete()) {
+					throw new IOException("Cannot delete cache segment " + f.getAbsolutePath());
+				}
+			} else {
+				Segment s = Segment.open(f, segmentSize, idFromName(f.getName()));
+				segments.put(s.id, s);
+				scan(s);
+			}
+		}
+		synchronized (writeLock) {
+			if (segments.isEmpty()) {
+				current = newSegment(0);
+			} else {
+				current = segments.lastEntry().getValue();
+			}
+		}
+	}
+
+	private static int idFromName(String name) throws IOException {
+		try {
+			return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			throw new IOException("Unexpected cache segment name: " + name, e);
+		}
+	}
+
+	/**
+	 * Add all complete records of the given segment to the index, and remember where the next record can be written.
+	 */
+	private void scan(Segment s) {
+		ByteBuffer b = s.buffer.duplicate();
+		int pos = 0;
+		while (pos + HEADER_SIZE <= segmentSize) {
+			b.position(pos);
+			if (b.getInt() != MAGIC) {
+				break;
+			}
+			CacheKey key = new CacheKey(b.getLong(), b.getLong());
+			int length = b.getInt();
+			if (length < 0 || pos + HEADER_SIZE + length > segmentSize) {
+				break;
+			}
+			index.put(key, location(s.id, pos));
+			pos += HEADER_SIZE + length;
+		}
+		s.writePosition = pos;
+	}
+
+	private static long location(int segmentId, int position) {
+		return ((long) segmentId << 32) | (position & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Look up a value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return a copy of the cached value, or null if there is none
+	 */
+	public byte[] get(CacheKey key) {
+		Long loc = index.get(key);
+		if (loc != null) {
+			Segment s = segments.get((int) (loc >>> 32));
+			if (s != null) {
+				ByteBuffer b = s.buffer.duplicate();
+				b.position((int) (long) loc + 4);
+				if (b.getLong() == key.getHigh() && b.getLong() == key.getLow()) {
+					byte[] value = new byte[b.getInt()];
+					b.get(value);
+					hits.incrementAndGet();
+					return value;
+				}
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Insert a value, unless there is already a value for this key. Values that do not fit into one segment are not cached.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             if a new segment file cannot be created
+	 */
+	public void put(CacheKey key, byte[] value) throws IOException {
+		int recordSize = HEADER_SIZE + value.length;
+		if (recordSize > segmentSize) {
+			return;
+		}
+		synchronized (writeLock) {
+			if (current == null) {
+				throw new IllegalStateException("Cache has been closed");
+			}
+			if (index.containsKey(key)) {
+				return;
+			}
+			if (current.writePosition + recordSize > segmentSize) {
+				current.buffer.force();
+				current = newSegment(current.id + 1);
+			}
+			int pos = current.writePosition;
+			ByteBuffer b = current.buffer.duplicate();
+			b.position(pos + 4);
+			b.putLong(key.getHigh());
+			b.putLong(key.getLow());
+			b.putInt(value.length);
+			b.put(value);
+			b.putInt(pos, MAGIC);
+			current.writePosition = pos + recordSize;
+			index.put(key, location(current.id, pos));
+		}
+	}
+
+	/**
+	 * Create a new segment, deleting the oldest ones if there would be too many. Must be called while holding the write lock.
+	 */
+	private Segment newSegment(int id) throws IOException {
+		while (segments.size() >= maxSegments) {
+			Segment oldest = segments.pollFirstEntry().getValue();
+			for (Iterator<Map.Entry<CacheKey, Long>> it = index.entrySet().iterator(); it.hasNext();) {
+				if ((int) (it.next().getValue() >>> 32) == oldest.id) {
+					it.remove();
+					evictions.incrementAndGet();
+				}
+			}
+			oldest.close();
+			// Readers may still hold the mapped buffer; on all relevant platforms that remains valid after deletion.
+			oldest.file.delete();
+		}
+		File f = new File(directory, String.format("%s%08d%s", PREFIX, id, SUFFIX));
+		Segment s = Segment.open(f, segmentSize, id);
+		segments.put(id, s);
+		return s;
+	}
+
+	/**
+	 * Write all data to disk and close the segment files. After this, the cache cannot be used any more.
+	 */
+	public void close() {
+		synchronized (writeLock) {
+			for (Segment s : segments.values()) {
+				s.buffer.force();
+				s.close();
+			}
+			segments.clear();
+			index.clear();
+			current = null;
+		}
+	}
+
+	/**
+	 * @return the number of entries currently cached
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	private static class Segment {
+		final int id;
+		final File file;
+		final RandomAccessFile raf;
+		final MappedByteBuffer buffer;
+		int writePosition;
+
+		private Segment(int id, File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+			this.id = id;
+			this.file = file;
+			this.raf = raf;
+			this.buffer = buffer;
+		}
+
+		static Segment open(File file, int size, int id) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				if (raf.length() != size) {
+					raf.setLength(size);
+				}
+				MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+				return new Segment(id, file, raf, buffer);
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+		}
+
+		void close() {
+			try {
+				raf.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-memory, size-bounded LRU cache.
+ * <p>
+ * The cache is split into a number of stripes, each holding its own LRU list under its own lock and an equal share of the total
+ * budget, so that lookups of different keys rarely contend with one another. The budget is a number of entries, unless a subclass
+ * weighs its values otherwise, see {@link #weigh(Object)}.
+ * </p>
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class StripedLruCache<K, V> {
+	private final Stripe<K, V>[] stripes;
+	private final int shift;
+	private final long maxWeight;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight of the cached values
+	 * @param numStripes
+	 *            the number of independently locked stripes; rounded up to a power of two, but reduced so that each stripe has a
+	 *            budget of at least 1
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedLruCache(long maxWeight, int numStripes) {
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("Need a positive budget, got " + maxWeight);
+		}
+		int n = 1;
+		while (n < numStripes && 2L * n <= maxWeight) {
+			n <<= 1;
+		}
+		stripes = new Stripe[n];
+		for (int i = 0; i < n; i++) {
+			// share out the remainder as well, so that the budgets of the stripes add up to maxWeight
+			stripes[i] = new Stripe<K, V>(maxWeight / n + (i < maxWeight % n ? 1 : 0));
+		}
+		shift = 32 - Integer.numberOfTrailingZeros(n);
+		this.maxWeight = maxWeight;
+	}
+
+	private Stripe<K, V> stripeFor(K key) {
+		if (stripes.length == 1) {
+			return stripes[0];
+		}
+		// use the high bits of the mixed hash code: the maps of the stripes use the low bits
+		return stripes[(key.hashCode() * 0x9E3779B9) >>> shift];
+	}
+
+	/**
+	 * The weight of a value, counted against the budget of the cache. This implementation returns 1, so that the budget is a
+	 * number of entries.
+	 *
+	 * @param value
+	 *            a value
+	 * @return the weight of the value, not negative
+	 */
+	protected long weigh(V value) {
+		return 1;
+	}
+
+	/**
+	 * Look up a value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the cached value, or null if there is none
+	 */
+	public V get(K key) {
+		Stripe<K, V> s = stripeFor(key);
+		V value;
+		s.lock.lock();
+		try {
+			value = s.map.get(key);
+		} finally {
+			s.lock.unlock();
+		}
+		if (value != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Insert a value, evicting the least recently used entries of the stripe if necessary. Values weighing more than a stripe's
+	 * share of the budget are not cached.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	public void put(K key, V value) {
+		Stripe<K, V> s = stripeFor(key);
+		long weight = weigh(value);
+		if (weight > s.maxWeight) {
+			return;
+		}
+		s.lock.lock();
+		try {
+			V old = s.map.put(key, value);
+			if (old != null) {
+				s.weight -= weigh(old);
+			}
+			s.weight += weight;
+			Iterator<Map.Entry<K, V>> it = s.map.entrySet().iterator();
+			while (s.weight > s.maxWeight && it.hasNext()) {
+				Map.Entry<K, V> eldest = it.next();
+				s.weight -= weigh(eldest.getValue());
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		} finally {
+			s.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		for (Stripe<K, V> s : stripes) {
+			s.lock.lock();
+			try {
+				s.map.clear();
+				s.weight = 0;
+			} finally {
+				s.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of entries currently cached
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe<K, V> s : stripes) {
+			s.lock.lock();
+			try {
+				size += s.map.size();
+			} finally {
+				s.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the total weight of the values currently cached
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Stripe<K, V> s : stripes) {
+			s.lock.lock();
+			try {
+				weight += s.weight;
+			} finally {
+				s.lock.unlock();
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * @return the budget of the cache, as given to the constructor
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the share of lookups that found a value, or 0 if there were no lookups yet
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	private static class Stripe<K, V> {
+		final ReentrantLock lock = new ReentrantLock();
+		// access order, so that iteration starts with the least recently used entry
+		final LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+		final long maxWeight;
+		long weight;
+
+		Stripe(long maxWeight) {
+			this.maxWeight = maxWeight;
+		}
+	}
+}
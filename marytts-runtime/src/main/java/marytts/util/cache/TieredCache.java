@@ -0,0 +1,199 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+import marytts.server.MaryProperties;
+import marytts.util.MaryUtils;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The cache of synthesis results: an in-memory LRU tier in front of an optional persistent tier of memory-mapped segment files.
+ * Both tiers can be read concurrently by any number of requests.
+ * <p>
+ * The cache is configured with the following properties:
+ * </p>
+ * <ul>
+ * <li><code>cache.memory.maxbytes</code>: the byte budget of the in-memory tier;</li>
+ * <li><code>cache.persistent</code>: whether to use the persistent tier;</li>
+ * <li><code>cache.dir</code>: the directory holding the segment files of the persistent tier;</li>
+ * <li><code>cache.segment.size</code> and <code>cache.segment.max</code>: the size of each segment file, and how many of them
+ * to keep;</li>
+ * <li><code>cache.clearOnStart</code>: whether to delete the persistent tier at startup.</li>
+ * </ul>
+ */
+public class TieredCache {
+	// volatile, so that getCache(), which is called for every chunk of every request, does not need to lock once the cache exists
+	private static volatile TieredCache tieredCache;
+
+	/**
+	 * Try to get the TieredCache object. This will either return the previously created cache, or if none exists, it will try to
+	 * create one.
+	 *
+	 * To the extent possible this method gives the no-throw guarantee: if the cache cannot be created, null will be returned and
+	 * any exception will be logged.
+	 *
+	 * @return the TieredCache singleton object, or null if none could be created.
+	 */
+	public static TieredCache getCache() {
+		TieredCache cache = tieredCache;
+		if (cache != null) {
+			return cache;
+		}
+		synchronized (TieredCache.class) {
+			if (tieredCache == null) {
+				try {
+					MemoryCacheTier memory = new MemoryCacheTier(MaryProperties.getInteger("cache.memory.maxbytes",
+							64 * 1024 * 1024), 16);
+					SegmentFileCacheTier persistent = null;
+					if (MaryProperties.getBoolean("cache.persistent", false)) {
+						File dir = new File(MaryProperties.getFilename("cache.dir", "maryCache"));
+						persistent = new SegmentFileCacheTier(dir,
+								MaryProperties.getInteger("cache.segment.size", 64 * 1024 * 1024), MaryProperties.getInteger(
+										"cache.segment.max", 8), MaryProperties.getBoolean("cache.clearOnStart", false));
+					}
+					tieredCache = new TieredCache(memory, persistent);
+				} catch (Exception e) {
+					MaryUtils.getLogger(TieredCache.class).warn("Cannot set up cache", e);
+				}
+			}
+			return tieredCache;
+		}
+	}
+
+	/**
+	 * Indicate whether there is a TieredCache currently available.
+	 *
+	 * @return true if there is a TieredCache, false otherwise.
+	 */
+	public static boolean haveCache() {
+		return tieredCache != null;
+	}
+
+	// //////////////////////////// non-static code /////////////////////////////
+
+	private final Logger logger;
+	private final MemoryCacheTier memory;
+	private final SegmentFileCacheTier persistent;
+
+	/**
+	 * Create a tiered cache from the given tiers. User code should normally call {@link #getCache()} instead.
+	 *
+	 * @param memory
+	 *            the in-memory tier, must not be null
+	 * @param persistent
+	 *            the persistent tier, or null
+	 */
+	public TieredCache(MemoryCacheTier memory, SegmentFileCacheTier persistent) {
+		if (memory == null) {
+			throw new NullPointerException("Need a memory tier");
+		}
+		this.logger = MaryUtils.getLogger(TieredCache.class);
+		this.memory = memory;
+		this.persistent = persistent;
+	}
+
+	/**
+	 * Look up a value, first in memory, then in the persistent tier. Values found in the persistent tier are added to the memory
+	 * tier.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, or null if it is not cached. Callers must not modify the returned array.
+	 */
+	public byte[] lookup(CacheKey key) {
+		byte[] value = memory.get(key);
+		if (value == null && persistent != null) {
+			value = persistent.get(key);
+			if (value != null) {
+				memory.put(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Insert a value into all tiers. Problems writing to the persistent tier are logged, not thrown, since the value is still in
+	 * memory.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value; must not be modified afterwards
+	 */
+	public void insert(CacheKey key, byte[] value) {
+		memory.put(key, value);
+		if (persistent != null) {
+			try {
+				persistent.put(key, value);
+			} catch (IOException e) {
+				logger.warn("Cannot write to persistent cache", e);
+			}
+		}
+	}
+
+	public MemoryCacheTier getMemoryTier() {
+		return memory;
+	}
+
+	public SegmentFileCacheTier getPersistentTier() {
+		return persistent;
+	}
+
+	/**
+	 * A plain-text summary of the cache counters, one <code>key value</code> pair per line.
+	 *
+	 * @return the statistics text
+	 */
+	public String getStatistics() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("cache_memory_entries ").append(memory.size()).append("\n");
+		buf.append("cache_memory_bytes ").append(memory.getBytes()).append("\n");
+		buf.append("cache_memory_hits ").append(memory.getHitCount()).append("\n");
+		buf.append("cache_memory_misses ").append(memory.getMissCount()).append("\n");
+		buf.append("cache_memory_evictions ").append(memory.getEvictionCount()).append("\n");
+		if (persistent != null) {
+			buf.append("cache_persistent_entries ").append(persistent.size()).append("\n");
+			buf.append("cache_persistent_hits ").append(persistent.getHitCount()).append("\n");
+			buf.append("cache_persistent_misses ").append(persistent.getMissCount()).append("\n");
+			buf.append("cache_persistent_evictions ").append(persistent.getEvictionCount()).append("\n");
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Shut down the cache, writing the persistent tier to disk. After this has been called, the cache must not be used any more.
+	 */
+	public void shutdown() {
+		logger.info("Cache statistics:\n" + getStatistics());
+		memory.clear();
+		if (persistent != null) {
+			persistent.close();
+		}
+		synchronized (TieredCache.class) {
+			if (tieredCache == this) {
+				tieredCache = null;
+			}
+		}
+	}
+}
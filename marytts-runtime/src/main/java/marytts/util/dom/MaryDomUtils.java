@@ -195,9 +195,8 @@ public class MaryDomUtils extends DomUtils {
 		// The MaryNormalisedWriter works also for non-maryxml documents
 		// and gives (because of XSLT) a more standardised form than
 		// an XMLSerializer does.
-		MaryNormalisedWriter mnw = new MaryNormalisedWriter();
 		try {
-			mnw.output(doc, baos);
+			MaryNormalisedWriter.forCurrentThread().output(doc, baos);
 		} catch (TransformerException te) {
 			throw new MaryConfigurationException("Cannot serialize document for Schema-valid parsing", te);
 		}
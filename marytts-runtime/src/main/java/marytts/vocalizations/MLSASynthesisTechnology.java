@@ -47,7 +47,6 @@ public class MLSASynthesisTechnology extends VocalizationSynthesisTechnology {
 	protected MLSAFeatureFileReader vMLSAFeaturesReader;
 	protected VocalizationIntonationReader vIntonationReader;
 	protected HMMData htsData;
-	protected HTSVocoder par2speech;
 	protected boolean imposePolynomialContour = true;
 
 	public MLSASynthesisTechnology(String mlsaFeatureFile, String intonationFeatureFile, String mixedExcitationFile,
@@ -86,8 +85,6 @@ public class MLSASynthesisTechnology extends VocalizationSynthesisTechnology {
 			throw new MaryConfigurationException("htsData initialization failed.. ", e);
 		}
 
-		par2speech = new HTSVocoder();
-
 	}
 
 	/**
@@ -265,10 +262,13 @@ public class MLSASynthesisTechnology extends VocalizationSynthesisTechnology {
 		}
 
 		double[] audio_double = null;
+		HTSVocoder par2speech = HTSVocoder.acquire();
 		try {
 			audio_double = par2speech.htsMLSAVocoder(lf0Pst, mcepPst, strPst, null, voiced, htsData, null);
 		} catch (Exception e) {
 			throw new SynthesisException("MLSA vocoding failed .. " + e);
+		} finally {
+			par2speech.release();
 		}
 
 		/* Normalise the signal before return, this will normalise between 1 and -1 */
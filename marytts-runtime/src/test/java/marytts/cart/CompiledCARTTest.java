@@ -0,0 +1,127 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.cart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import marytts.cart.DecisionNode.BinaryByteDecisionNode;
+import marytts.cart.DecisionNode.BinaryFloatDecisionNode;
+import marytts.cart.DecisionNode.ByteDecisionNode;
+import marytts.cart.LeafNode.IntArrayLeafNode;
+import marytts.features.FeatureDefinition;
+import marytts.features.FeatureVector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledCARTTest {
+	private static final String FEATURES = "ByteValuedFeatureProcessors\n" + "phone 0 a b c\n" + "stress 0 1 2\n"
+			+ "ShortValuedFeatureProcessors\n" + "ContinuousFeatureProcessors\n" + "duration\n";
+
+	private FeatureDefinition featDef;
+	private List<FeatureVector> vectors;
+
+	@Before
+	public void setUp() throws Exception {
+		featDef = new FeatureDefinition(new BufferedReader(new StringReader(FEATURES)), false);
+		vectors = new ArrayList<FeatureVector>();
+		for (byte phone = 0; phone < 4; phone++) {
+			for (byte stress = 0; stress < 3; stress++) {
+				for (float duration : new float[] { 0.02f, 0.1f, 0.3f }) {
+					vectors.add(featDef.toFeatureVector(0, new byte[] { phone, stress }, new short[0], new float[] { duration }));
+				}
+			}
+		}
+	}
+
+	private static IntArrayLeafNode leaf(int size) {
+		return new IntArrayLeafNode(new int[size]);
+	}
+
+	/**
+	 * phone == a ? (duration &lt; 0.2 ? leaf : leaf) : stress -&gt; (leaf, stress &lt; 1.5 ? leaf : leaf, shared leaf)
+	 */
+	private CART createTree(IntArrayLeafNode shared) {
+		DecisionNode root = new BinaryByteDecisionNode(featDef.getFeatureIndex("phone"), featDef.getFeatureValueAsByte("phone",
+				"a"), featDef);
+		DecisionNode duration = new BinaryFloatDecisionNode(featDef.getFeatureIndex("duration"), 0.2f, featDef);
+		duration.addDaughter(leaf(3));
+		duration.addDaughter(leaf(1));
+		DecisionNode stress = new ByteDecisionNode(featDef.getFeatureIndex("stress"), 3, featDef);
+		DecisionNode pseudoFloat = new BinaryFloatDecisionNode(featDef.getFeatureIndex("stress"), 1.5f, featDef);
+		pseudoFloat.addDaughter(leaf(2));
+		pseudoFloat.addDaughter(shared);
+		stress.addDaughter(leaf(4));
+		stress.addDaughter(pseudoFloat);
+		stress.addDaughter(shared);
+		root.addDaughter(duration);
+		root.addDaughter(stress);
+		root.countData();
+		return new CART(root, featDef);
+	}
+
+	@Test
+	public void interpretToNodeMatchesTree() {
+		IntArrayLeafNode shared = leaf(5);
+		CART cart = createTree(shared);
+		CompiledCART compiled = cart.compile();
+		assertEquals(9, compiled.getNumNodes());
+		for (int min = 0; min < 10; min++) {
+			for (FeatureVector fv : vectors) {
+				assertSame(cart.interpretToNode(fv, min), compiled.interpretToNode(fv, min));
+			}
+		}
+	}
+
+	@Test
+	public void interpretMatchesGraph() {
+		DecisionNode decision = new BinaryByteDecisionNode(featDef.getFeatureIndex("stress"), (byte) 1, featDef);
+		decision.addDaughter(new IntArrayLeafNode(null));
+		decision.addDaughter(leaf(1));
+		DirectedGraphNode graphNode = new DirectedGraphNode(decision, leaf(2));
+		DecisionNode root = new ByteDecisionNode(featDef.getFeatureIndex("phone"), 4, featDef);
+		root.addDaughter(leaf(3));
+		root.addDaughter(graphNode);
+		root.addDaughter(null);
+		root.addDaughter(graphNode);
+		DirectedGraph graph = new DirectedGraph(root, featDef);
+		for (FeatureVector fv : vectors) {
+			assertSame(graph.interpret(fv), graph.compile().interpret(fv));
+		}
+	}
+
+	@Test
+	public void newRootNodeIsRecompiled() {
+		CART cart = createTree(leaf(5));
+		CompiledCART compiled = cart.compile();
+		assertSame(compiled, cart.compile());
+		IntArrayLeafNode leaf = leaf(1);
+		cart.setRootNode(leaf);
+		assertNotSame(compiled, cart.compile());
+		assertSame(leaf, cart.compile().interpretToNode(vectors.get(0), 0));
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import marytts.datatypes.MaryXML;
+import marytts.modules.TargetFeatureLister;
+import marytts.unitselection.select.Target;
+import marytts.util.dom.DomUtils;
+import marytts.util.dom.MaryDomUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.traversal.TreeWalker;
+
+public class UtteranceIndexTest {
+	private static final String XML = "<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" version=\"0.5\" xml:lang=\"en-US\">"
+			+ "<p><s><phrase>"
+			+ "<t ph=\"' h @ - l @U\"><syllable stress=\"1\" accent=\"H*\"><ph p=\"h\"/><ph p=\"@\"/></syllable><syllable><ph p=\"l\"/><ph p=\"@U\"/></syllable></t>"
+			+ "<t>,</t><boundary breakindex=\"4\" tone=\"H-%\"/></phrase><phrase>"
+			+ "<t ph=\"' w r= l d\"><syllable stress=\"1\"><ph p=\"w\"/><ph p=\"r=\"/><ph p=\"l\"/><ph p=\"d\"/></syllable></t>"
+			+ "<t ph=\"' m @U - r @\"><syllable stress=\"1\" accent=\"L+H*\"><ph p=\"m\"/><ph p=\"@U\"/></syllable><syllable><ph p=\"r\"/><ph p=\"@\"/></syllable></t>"
+			+ "<t>.</t><boundary breakindex=\"5\" tone=\"L-L%\"/></phrase></s></p></maryxml>";
+
+	private Document doc;
+	private List<Target> targets;
+
+	@Before
+	public void setUp() throws Exception {
+		doc = DomUtils.parseDocument(XML, false);
+		targets = new ArrayList<Target>();
+		TreeWalker tw = MaryDomUtils.createTreeWalker(doc, MaryXML.PHONE, MaryXML.BOUNDARY);
+		Element e;
+		while ((e = (Element) tw.nextNode()) != null) {
+			targets.add(new Target(e.getTagName(), e));
+		}
+	}
+
+	private static String phone(Element e) {
+		return e == null ? null : e.getTagName().equals(MaryXML.BOUNDARY) ? "_" : e.getAttribute("p");
+	}
+
+	private static String text(Element e) {
+		return e == null ? null : e.getAttribute("ph");
+	}
+
+	@Test
+	public void segmentNavigation() {
+		MaryGenericFeatureProcessors.TargetElementNavigator prev = new MaryGenericFeatureProcessors.PrevSegmentNavigator();
+		MaryGenericFeatureProcessors.TargetElementNavigator nextNext = new MaryGenericFeatureProcessors.NextNextSegmentNavigator();
+		StringBuilder prevs = new StringBuilder();
+		StringBuilder nextNexts = new StringBuilder();
+		for (Target t : targets) {
+			prevs.append(phone(prev.getElement(t))).append(" ");
+			nextNexts.append(phone(nextNext.getElement(t))).append(" ");
+		}
+		assertEquals("null h @ l @U _ w r= l d m @U r @ ", prevs.toString());
+		assertEquals("l @U _ w r= l d m @U r @ _ null null ", nextNexts.toString());
+	}
+
+	@Test
+	public void wordNavigation() {
+		MaryGenericFeatureProcessors.TargetElementNavigator next = new MaryGenericFeatureProcessors.NextWordNavigator();
+		MaryGenericFeatureProcessors.TargetElementNavigator prev = new MaryGenericFeatureProcessors.PrevWordNavigator();
+		// the first boundary, after "hello ,":
+		Target boundary = targets.get(4);
+		assertEquals("_", phone(boundary.getMaryxmlElement()));
+		assertEquals("' w r= l d", text(next.getElement(boundary)));
+		assertEquals("' h @ - l @U", text(prev.getElement(boundary)));
+		// "w", skipping the punctuation token:
+		assertEquals("' h @ - l @U", text(prev.getElement(targets.get(5))));
+		assertEquals("' m @U - r @", text(next.getElement(targets.get(5))));
+		assertEquals(null, next.getElement(targets.get(12)));
+		assertEquals("m", phone(new MaryGenericFeatureProcessors.FirstSegmentNextWordNavigator().getElement(targets.get(8))));
+		assertEquals("' m @U - r @",
+				text(new MaryGenericFeatureProcessors.LastWordInSentenceNavigator().getElement(targets.get(0))));
+	}
+
+	@Test
+	public void syllableNavigation() {
+		MaryGenericFeatureProcessors.TargetElementNavigator prev = new MaryGenericFeatureProcessors.PrevSyllableNavigator();
+		MaryGenericFeatureProcessors.TargetElementNavigator next = new MaryGenericFeatureProcessors.NextSyllableNavigator();
+		Element firstSyllable = (Element) targets.get(0).getMaryxmlElement().getParentNode();
+		Element secondSyllable = (Element) targets.get(2).getMaryxmlElement().getParentNode();
+		Element thirdSyllable = (Element) targets.get(5).getMaryxmlElement().getParentNode();
+		assertSame(null, prev.getElement(targets.get(1)));
+		assertSame(secondSyllable, next.getElement(targets.get(1)));
+		// boundary between the second and third syllable:
+		assertSame(secondSyllable, prev.getElement(targets.get(4)));
+		assertSame(thirdSyllable, next.getElement(targets.get(4)));
+		assertSame(firstSyllable, new MaryGenericFeatureProcessors.PrevPrevSyllableNavigator().getElement(targets.get(4)));
+		assertSame(secondSyllable, new MaryGenericFeatureProcessors.LastSyllableInPhraseNavigator().getElement(targets.get(0)));
+	}
+
+	@Test
+	public void countingFeatures() {
+		Target w = targets.get(5);
+		assertEquals(2, new MaryGenericFeatureProcessors.SentenceNumPhrases().process(w));
+		assertEquals(3, new MaryGenericFeatureProcessors.SentenceNumWords().process(w));
+		assertEquals(3, new MaryGenericFeatureProcessors.PhraseNumSyls().process(w));
+		assertEquals(3, new MaryGenericFeatureProcessors.PhraseNumWords().process(w));
+		assertEquals(4, new MaryGenericFeatureProcessors.WordNumSegs().process(w));
+		assertEquals(3, new MaryGenericFeatureProcessors.SegsFromWordEnd().process(w));
+		assertEquals(1, new MaryGenericFeatureProcessors.WordsFromSentenceStart().process(w));
+		assertEquals(1, new MaryGenericFeatureProcessors.WordsFromSentenceEnd().process(w));
+		assertEquals(1, new MaryGenericFeatureProcessors.PhrasesFromSentenceStart().process(w));
+		assertEquals(0, new MaryGenericFeatureProcessors.PhrasesFromSentenceEnd().process(w));
+		assertEquals(2, new MaryGenericFeatureProcessors.SylsFromPhraseEnd().process(w));
+		assertEquals(1, new MaryGenericFeatureProcessors.SylsToNextAccent().process(w));
+		assertEquals(1, new MaryGenericFeatureProcessors.AccentedSylsFromPhraseEnd().process(w));
+		Target r = targets.get(11);
+		assertEquals(2, new MaryGenericFeatureProcessors.SylsFromPhraseStart().process(r));
+		assertEquals(2, new MaryGenericFeatureProcessors.StressedSylsFromPhraseStart().process(r));
+		assertEquals(1, new MaryGenericFeatureProcessors.SylsFromPrevAccent().process(r));
+	}
+
+	@Test
+	public void boundariesInWordAreNotCountedAsSegments() {
+		Element l = targets.get(2).getMaryxmlElement();
+		Element boundary = MaryXML.createElement(doc, MaryXML.BOUNDARY);
+		boundary.setAttribute("breakindex", "2");
+		l.getParentNode().insertBefore(boundary, l);
+		UtteranceIndex.structureChanged(doc);
+		Target b = new Target(MaryXML.BOUNDARY, boundary);
+		assertEquals(4, new MaryGenericFeatureProcessors.WordNumSegs().process(b));
+		assertEquals(2, new MaryGenericFeatureProcessors.SegsFromWordStart().process(b));
+		assertEquals(2, new MaryGenericFeatureProcessors.SegsFromWordEnd().process(b));
+		Target at = targets.get(3);
+		assertEquals(4, new MaryGenericFeatureProcessors.WordNumSegs().process(at));
+		assertEquals(3, new MaryGenericFeatureProcessors.SegsFromWordStart().process(at));
+		assertEquals(0, new MaryGenericFeatureProcessors.SegsFromWordEnd().process(at));
+	}
+
+	@Test
+	public void indexIsRebuiltAfterStructuralChange() {
+		Element h = targets.get(0).getMaryxmlElement();
+		UtteranceIndex index = UtteranceIndex.get(h);
+		assertSame(index, UtteranceIndex.get(targets.get(5).getMaryxmlElement()));
+		// attribute changes do not affect the structure:
+		h.setAttribute("d", "50");
+		assertSame(index, UtteranceIndex.get(h));
+		// inserting a phone does, once it is announced:
+		Element inserted = MaryXML.createElement(doc, MaryXML.PHONE);
+		inserted.setAttribute("p", "j");
+		h.getParentNode().insertBefore(inserted, h);
+		assertSame(index, UtteranceIndex.get(h));
+		UtteranceIndex.structureChanged(inserted);
+		UtteranceIndex rebuilt = UtteranceIndex.get(h);
+		assertNotSame(index, rebuilt);
+		assertEquals("j", phone(new MaryGenericFeatureProcessors.PrevSegmentNavigator().getElement(targets.get(0))));
+		assertEquals(index.getNumSegments() + 1, rebuilt.getNumSegments());
+	}
+
+	@Test
+	public void finalPauseOfTargetListIsIndexed() {
+		Element finalBoundary = targets.get(targets.size() - 1).getMaryxmlElement();
+		finalBoundary.getParentNode().removeChild(finalBoundary);
+		UtteranceIndex.structureChanged(doc);
+		List<Element> segmentsAndBoundaries = new ArrayList<Element>();
+		for (Target t : targets.subList(0, targets.size() - 1)) {
+			segmentsAndBoundaries.add(t.getMaryxmlElement());
+		}
+		UtteranceIndex index = UtteranceIndex.get(segmentsAndBoundaries.get(0));
+		List<Target> withPauses = TargetFeatureLister.createTargetsWithPauses(segmentsAndBoundaries, "_");
+		Element finalPause = withPauses.get(withPauses.size() - 1).getMaryxmlElement();
+		assertEquals(MaryXML.BOUNDARY, finalPause.getTagName());
+		UtteranceIndex rebuilt = UtteranceIndex.get(finalPause);
+		assertNotSame(index, rebuilt);
+		assertEquals(rebuilt.getNumSegments() - 1, rebuilt.indexOf(finalPause));
+	}
+}
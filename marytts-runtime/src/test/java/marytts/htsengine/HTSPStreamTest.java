@@ -0,0 +1,99 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.htsengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HTSPStreamTest {
+	private static final int ORDER = 5;
+	private static final int FRAMES = 1000;
+
+	/**
+	 * A stream with piecewise constant pdfs, as they come from a sequence of HMM states.
+	 */
+	private static HTSPStream createStream() throws Exception {
+		Random random = new Random(42);
+		HTSPStream pst = new HTSPStream(3 * ORDER, FRAMES, HMMData.FeatureType.MGC, 0);
+		int t = 0;
+		while (t < FRAMES) {
+			int dur = 2 + random.nextInt(20);
+			double[] mean = new double[3 * ORDER];
+			double[] var = new double[3 * ORDER];
+			for (int k = 0; k < 3 * ORDER; k++) {
+				mean[k] = k < ORDER ? 2 * random.nextGaussian() : 0.1 * random.nextGaussian();
+				var[k] = 0.01 + random.nextDouble();
+			}
+			for (int i = 0; i < dur && t < FRAMES; i++, t++) {
+				pst.setMseq(t, mean);
+				pst.setVseq(t, var);
+			}
+		}
+		pst.fixDynFeatOnBoundaries();
+		return pst;
+	}
+
+	private static double maxDifference(HTSPStream a, HTSPStream b) {
+		double max = 0;
+		for (int t = 0; t < FRAMES; t++) {
+			for (int m = 0; m < ORDER; m++) {
+				max = Math.max(max, Math.abs(a.getPar(t, m) - b.getPar(t, m)));
+			}
+		}
+		return max;
+	}
+
+	private static void generateWindowed(HTSPStream pst, HMMData htsData, int window, int lookahead) {
+		for (int start = 0; start < FRAMES; start += window) {
+			int end = Math.min(FRAMES, start + window);
+			pst.mlpg(htsData, false, Math.max(0, start - lookahead), Math.min(FRAMES, end + lookahead), start, end);
+		}
+	}
+
+	@Test
+	public void windowOverWholeUtteranceIsExact() throws Exception {
+		HMMData htsData = new HMMData();
+		HTSPStream full = createStream();
+		full.mlpg(htsData, false);
+		HTSPStream windowed = createStream();
+		windowed.mlpg(htsData, false, 0, FRAMES, 0, FRAMES);
+		assertEquals(0, maxDifference(full, windowed), 1e-12);
+	}
+
+	@Test
+	public void windowedGenerationIsCloseToFullGeneration() throws Exception {
+		HMMData htsData = new HMMData();
+		HTSPStream full = createStream();
+		full.mlpg(htsData, false);
+
+		HTSPStream windowed = createStream();
+		generateWindowed(windowed, htsData, 100, 40);
+		double withLookahead = maxDifference(full, windowed);
+		assertTrue("max difference " + withLookahead, withLookahead < 1e-4);
+
+		HTSPStream noLookahead = createStream();
+		generateWindowed(noLookahead, htsData, 100, 0);
+		assertTrue(maxDifference(full, noLookahead) > 100 * withLookahead);
+	}
+}
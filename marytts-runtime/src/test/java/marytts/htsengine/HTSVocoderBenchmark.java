@@ -0,0 +1,116 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.htsengine;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the throughput and the heap allocation of the MLSA vocoder on synthetic parameters, with a new vocoder for each
+ * utterance and with one vocoder reused for all utterances. Run with
+ * <code>java marytts.htsengine.HTSVocoderBenchmark [numFrames [numIterations]]</code>.
+ */
+public class HTSVocoderBenchmark {
+	private static final int MCEP_ORDER = 25;
+	private static final int MAG_ORDER = 10;
+
+	static HMMData createVoiceData() {
+		HMMData htsData = new HMMData();
+		htsData.setRate(16000);
+		htsData.setFperiod(80);
+		htsData.setAlpha(0.42);
+		htsData.setBeta(0.1);
+		htsData.setStage(0);
+		htsData.setUseMixExc(false);
+		htsData.setUseFourierMag(true);
+		// the vocoder only checks that there is a model for Fourier magnitudes
+		htsData.setPdfMagStream(new ByteArrayInputStream(new byte[0]));
+		return htsData;
+	}
+
+	static HTSParameterGeneration createParameters(int numFrames) throws Exception {
+		Random random = new Random(1);
+		boolean[] voiced = new boolean[numFrames];
+		int numVoiced = 0;
+		for (int t = 0; t < numFrames; t++) {
+			voiced[t] = (t / 50) % 3 != 2;
+			if (voiced[t])
+				numVoiced++;
+		}
+		HTSPStream mcepPst = new HTSPStream(3 * MCEP_ORDER, numFrames, HMMData.FeatureType.MGC, 0);
+		HTSPStream magPst = new HTSPStream(3 * MAG_ORDER, numFrames, HMMData.FeatureType.MAG, 0);
+		HTSPStream lf0Pst = new HTSPStream(3, numVoiced, HMMData.FeatureType.LF0, 0);
+		for (int t = 0; t < numFrames; t++) {
+			mcepPst.setPar(t, 0, 4 + random.nextGaussian());
+			for (int i = 1; i < MCEP_ORDER; i++)
+				mcepPst.setPar(t, i, 0.2 * random.nextGaussian() / i);
+			for (int i = 0; i < MAG_ORDER; i++)
+				magPst.setPar(t, i, 1 + 0.1 * random.nextGaussian());
+		}
+		for (int t = 0; t < numVoiced; t++)
+			lf0Pst.setPar(t, 0, Math.log(150 + 30 * Math.sin(t / 20.0)));
+		HTSParameterGeneration pdf2par = new HTSParameterGeneration();
+		pdf2par.setMcepPst(mcepPst);
+		pdf2par.setMagPst(magPst);
+		pdf2par.setlf0Pst(lf0Pst);
+		pdf2par.setVoicedArray(voiced);
+		return pdf2par;
+	}
+
+	static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread
+				.currentThread().getId());
+	}
+
+	private static void run(String name, HTSParameterGeneration pdf2par, HMMData htsData, int iterations, boolean reuse)
+			throws Exception {
+		HTSVocoder vocoder = new HTSVocoder();
+		long samples = 0;
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			if (!reuse)
+				vocoder = new HTSVocoder();
+			double[] audio = vocoder.htsMLSAVocoder(pdf2par.getlf0Pst(), pdf2par.getMcepPst(), null, pdf2par.getMagPst(),
+					pdf2par.getVoicedArray(), htsData, null);
+			samples += audio.length;
+		}
+		long nanos = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		int frames = pdf2par.getMcepPst().getT() * iterations;
+		System.out.printf("%-8s %12.0f samples/s %10.1f bytes/frame %10.1f MB/s allocated%n", name, samples * 1e9 / nanos,
+				(double) bytes / frames, bytes * 1e3 / nanos);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numFrames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		HMMData htsData = createVoiceData();
+		HTSParameterGeneration pdf2par = createParameters(numFrames);
+		// warm up
+		run("warmup", pdf2par, htsData, iterations, false);
+		run("warmup", pdf2par, htsData, iterations, true);
+		for (int i = 0; i < 3; i++) {
+			run("fresh", pdf2par, htsData, iterations, false);
+			run("reused", pdf2par, htsData, iterations, true);
+		}
+	}
+}
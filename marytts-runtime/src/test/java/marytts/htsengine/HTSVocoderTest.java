@@ -0,0 +1,57 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.htsengine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HTSVocoderTest {
+
+	private static double[] vocode(HTSVocoder vocoder, HTSParameterGeneration pdf2par, HMMData htsData) throws Exception {
+		return vocoder.htsMLSAVocoder(pdf2par.getlf0Pst(), pdf2par.getMcepPst(), null, pdf2par.getMagPst(),
+				pdf2par.getVoicedArray(), htsData, null);
+	}
+
+	@Test
+	public void reusedVocoderGivesSameAudio() throws Exception {
+		HMMData htsData = HTSVocoderBenchmark.createVoiceData();
+		HTSParameterGeneration pdf2par = HTSVocoderBenchmark.createParameters(300);
+		double[] expected = vocode(new HTSVocoder(), pdf2par, htsData);
+		HTSVocoder vocoder = HTSVocoder.acquire();
+		vocode(vocoder, HTSVocoderBenchmark.createParameters(100), htsData);
+		assertArrayEquals(expected, vocode(vocoder, pdf2par, htsData), 0.0);
+		vocoder.release();
+	}
+
+	@Test
+	public void synthesisLoopDoesNotAllocate() throws Exception {
+		HMMData htsData = HTSVocoderBenchmark.createVoiceData();
+		HTSParameterGeneration pdf2par = HTSVocoderBenchmark.createParameters(1000);
+		HTSVocoder vocoder = new HTSVocoder();
+		vocode(vocoder, pdf2par, htsData);
+		long before = HTSVocoderBenchmark.allocatedBytes();
+		double[] audio = vocode(vocoder, pdf2par, htsData);
+		long perFrame = (HTSVocoderBenchmark.allocatedBytes() - before - 8L * audio.length) / pdf2par.getMcepPst().getT();
+		// before the buffers were reused, this was about 25 kB per frame
+		assertTrue("allocated " + perFrame + " bytes per frame", perFrame < 100);
+	}
+}
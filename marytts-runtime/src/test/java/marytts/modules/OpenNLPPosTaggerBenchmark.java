@@ -0,0 +1,144 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Measures how the throughput of part-of-speech tagging scales with the number of threads, for one tagger shared under a lock
+ * (as OpenNLPPosTagger used to do) and for one tagger per thread sharing the model (as it does now). The sentences of a text
+ * file (one per line, tokens separated by spaces) are split evenly between the threads. Run with
+ * <code>java marytts.modules.OpenNLPPosTaggerBenchmark model.bin textFile [maxThreads]</code>
+ * <p>
+ * With the Italian model of marytts-lang-it (<code>it-pos-maxent-151.g0_p0_m0.bin.model</code>), 5000 sentences of 12 tokens
+ * on average, Java 17 and a single processor, both variants tag about 7300 sentences/s at 1, 2 and 4 threads: the per-thread
+ * taggers cost nothing when there is no parallelism to gain. Their benefit has to be measured on a machine with several
+ * processors.
+ */
+public class OpenNLPPosTaggerBenchmark {
+
+	private final POSTaggerME sharedTagger;
+	private final ThreadLocal<POSTaggerME> taggers;
+	private final List<String[]> sentences = new ArrayList<String[]>();
+
+	OpenNLPPosTaggerBenchmark(final POSModel model) {
+		this.sharedTagger = new POSTaggerME(model);
+		this.taggers = new ThreadLocal<POSTaggerME>() {
+			@Override
+			protected POSTaggerME initialValue() {
+				return new POSTaggerME(model);
+			}
+		};
+	}
+
+	private int tagShared(List<String[]> part) {
+		int numTags = 0;
+		for (String[] tokens : part) {
+			synchronized (this) {
+				numTags += sharedTagger.tag(tokens).length;
+			}
+		}
+		return numTags;
+	}
+
+	private int tagPerThread(List<String[]> part) {
+		POSTaggerME tagger = taggers.get();
+		int numTags = 0;
+		for (String[] tokens : part) {
+			numTags += tagger.tag(tokens).length;
+		}
+		return numTags;
+	}
+
+	/**
+	 * @return the number of sentences tagged per second
+	 */
+	private double sentencesPerSecond(ExecutorService pool, int numThreads, final boolean shared) throws Exception {
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		long start = System.nanoTime();
+		for (int i = 0; i < numThreads; i++) {
+			final List<String[]> part = sentences.subList(i * sentences.size() / numThreads, (i + 1) * sentences.size()
+					/ numThreads);
+			futures.add(pool.submit(new Callable<Integer>() {
+				public Integer call() {
+					return shared ? tagShared(part) : tagPerThread(part);
+				}
+			}));
+		}
+		int numTags = 0;
+		for (Future<Integer> f : futures) {
+			numTags += f.get();
+		}
+		long nanos = System.nanoTime() - start;
+		if (numTags == 0) {
+			System.out.println("nothing tagged");
+		}
+		return sentences.size() / (nanos / 1e9);
+	}
+
+	public static void main(String[] args) throws Exception {
+		InputStream modelStream = new FileInputStream(args[0]);
+		POSModel model;
+		try {
+			model = new POSModel(modelStream);
+		} finally {
+			modelStream.close();
+		}
+		OpenNLPPosTaggerBenchmark benchmark = new OpenNLPPosTaggerBenchmark(model);
+		for (String line : FileUtils.readLines(new File(args[1]), "UTF-8")) {
+			line = line.trim();
+			if (!line.isEmpty()) {
+				benchmark.sentences.add(line.split("\\s+"));
+			}
+		}
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		System.out.println(benchmark.sentences.size() + " sentences, " + Runtime.getRuntime().availableProcessors()
+				+ " processors");
+
+		ExecutorService pool = Executors.newFixedThreadPool(maxThreads);
+		try {
+			// warm up
+			for (int i = 0; i < 3; i++) {
+				benchmark.sentencesPerSecond(pool, maxThreads, true);
+				benchmark.sentencesPerSecond(pool, maxThreads, false);
+			}
+			for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+				System.out.printf("%d threads: shared tagger %.0f sentences/s, tagger per thread %.0f sentences/s%n", numThreads,
+						benchmark.sentencesPerSecond(pool, numThreads, true),
+						benchmark.sentencesPerSecond(pool, numThreads, false));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.datatypes.MaryXML;
+import marytts.util.dom.DomUtils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class ProsodyGenericTest {
+	// the fallback rules tell content words from function words, and punctuation by its part of speech
+	private static final String[][][] SENTENCES = {
+			{ { "The", "function" }, { "old", "content" }, { "man", "content" }, { "reads", "content" }, { "a", "function" },
+					{ "long", "content" }, { "book", "content" }, { ",", "," }, { "and", "function" }, { "he", "function" },
+					{ "likes", "content" }, { "it", "function" }, { ".", "." } },
+			{ { "Do", "function" }, { "you", "function" }, { "know", "content" }, { "her", "function" }, { "name", "content" },
+					{ "?", "." } }, { { "What", "function" }, { "a", "function" }, { "surprise", "content" }, { "!", "." } } };
+
+	private static ProsodyGeneric prosody;
+
+	@BeforeClass
+	public static void startModule() throws Exception {
+		prosody = new ProsodyGeneric(Locale.US);
+		prosody.startup();
+	}
+
+	private static MaryData createInput() {
+		Document doc = MaryXML.newDocument();
+		doc.getDocumentElement().setAttribute("xml:lang", "en-US");
+		for (int p = 0; p < 2; p++) {
+			Element paragraph = MaryXML.appendChildElement(doc.getDocumentElement(), MaryXML.PARAGRAPH);
+			for (String[][] tokens : SENTENCES) {
+				Element sentence = MaryXML.appendChildElement(paragraph, MaryXML.SENTENCE);
+				for (String[] token : tokens) {
+					Element t = MaryXML.appendChildElement(sentence, MaryXML.TOKEN);
+					t.appendChild(doc.createTextNode(token[0]));
+					t.setAttribute("pos", token[1]);
+					if (!token[1].equals(".") && !token[1].equals(",")) {
+						t.setAttribute("ph", token[0].toLowerCase());
+					}
+				}
+			}
+		}
+		MaryData input = new MaryData(MaryDataType.PHONEMES, Locale.US);
+		input.setDocument(doc);
+		return input;
+	}
+
+	private static String process() throws Exception {
+		return DomUtils.serializeToString(prosody.process(createInput()).getDocument());
+	}
+
+	@Test
+	public void predictsAccentsAndBoundaries() throws Exception {
+		String result = process();
+		assertTrue(result, result.contains("accent="));
+		assertTrue(result, result.contains("<boundary"));
+	}
+
+	@Test
+	public void concurrentRequestsGetTheSameResult() throws Exception {
+		final String expected = process();
+		int numThreads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+			for (int i = 0; i < numThreads; i++) {
+				futures.add(pool.submit(new Callable<List<String>>() {
+					public List<String> call() throws Exception {
+						List<String> results = new ArrayList<String>();
+						for (int j = 0; j < 20; j++) {
+							results.add(process());
+						}
+						return results;
+					}
+				}));
+			}
+			for (Future<List<String>> f : futures) {
+				for (String result : f.get()) {
+					assertEquals(expected, result);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
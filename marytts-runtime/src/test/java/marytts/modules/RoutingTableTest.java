@@ -0,0 +1,70 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import marytts.datatypes.MaryDataType;
+
+import org.junit.Test;
+
+public class RoutingTableTest {
+
+	private static RoutingTable.Key key(MaryDataType source, MaryDataType target, Locale locale) {
+		return new RoutingTable.Key(source, target, locale, null);
+	}
+
+	@Test
+	public void precomputedPathsAreFound() {
+		MaryModule dummy = new DummyModule();
+		Map<RoutingTable.Key, List<MaryModule>> routes = new HashMap<RoutingTable.Key, List<MaryModule>>();
+		routes.put(key(MaryDataType.TEXT, MaryDataType.AUDIO, Locale.GERMAN), Arrays.asList(dummy));
+		routes.put(key(MaryDataType.AUDIO, MaryDataType.TEXT, Locale.GERMAN), null);
+		RoutingTable table = new RoutingTable(routes);
+
+		MaryModule[] path = table.get(key(MaryDataType.TEXT, MaryDataType.AUDIO, new Locale("de")));
+		assertEquals(1, path.length);
+		assertTrue(path[0] == dummy);
+		assertTrue(RoutingTable.isNoRoute(table.get(key(MaryDataType.AUDIO, MaryDataType.TEXT, Locale.GERMAN))));
+		assertNull(table.get(key(MaryDataType.TEXT, MaryDataType.AUDIO, Locale.US)));
+		assertEquals("TEXT AUDIO de -: Dummy", table.dump().trim());
+	}
+
+	@Test
+	public void pathsComputedOnDemandAreRemembered() {
+		MaryModule dummy = new DummyModule();
+		RoutingTable table = new RoutingTable(new HashMap<RoutingTable.Key, List<MaryModule>>());
+		RoutingTable.Key k = key(MaryDataType.TEXT, MaryDataType.AUDIO, null);
+		assertNull(table.get(k));
+		table.put(k, Arrays.asList(dummy));
+		assertTrue(table.get(k)[0] == dummy);
+		assertTrue(RoutingTable.isNoRoute(table.put(key(MaryDataType.AUDIO, MaryDataType.TEXT, null), null)));
+		assertEquals(2, table.size());
+		assertEquals("TEXT AUDIO - -: Dummy *", table.dump().trim());
+	}
+}
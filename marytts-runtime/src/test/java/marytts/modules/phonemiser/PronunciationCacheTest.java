@@ -0,0 +1,86 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.modules.phonemiser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PronunciationCacheTest {
+
+	@Test
+	public void distinguishesPartsOfSpeech() {
+		PronunciationCache cache = new PronunciationCache(10, 1);
+		cache.put("record", "NN", "' r E - k @ r d", "lexicon");
+		cache.put("record", "VB", "r I - ' k O r d", "lexicon");
+		assertEquals("' r E - k @ r d", cache.get("record", "NN").getTranscription());
+		assertEquals("r I - ' k O r d", cache.get("record", "VB").getTranscription());
+		assertNull(cache.get("record", null));
+		assertNull(cache.get("Record", "NN"));
+	}
+
+	@Test
+	public void remembersFailures() {
+		PronunciationCache cache = new PronunciationCache(10, 1);
+		cache.put("xq", null, null, "");
+		PronunciationCache.Entry entry = cache.get("xq", null);
+		assertNotNull(entry);
+		assertNull(entry.getTranscription());
+		assertEquals("", entry.getG2pMethod());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		PronunciationCache cache = new PronunciationCache(2, 1);
+		cache.put("a", null, "A", "rules");
+		cache.put("b", null, "b i", "rules");
+		assertNotNull(cache.get("a", null)); // a is now more recent than b
+		cache.put("c", null, "s i", "rules");
+		assertNull(cache.get("b", null));
+		assertNotNull(cache.get("a", null));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2. / 3, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void neverHoldsMoreThanMaxEntries() {
+		// fewer entries than stripes
+		PronunciationCache cache = new PronunciationCache(3, 16);
+		assertEquals(3, cache.getMaxSize());
+		for (int i = 0; i < 100; i++) {
+			cache.put("w" + i, null, "w", "rules");
+			assertTrue(cache.size() <= 3);
+		}
+		assertEquals(3, cache.size());
+		// a budget that does not divide evenly between the stripes
+		cache = new PronunciationCache(10, 4);
+		assertEquals(10, cache.getMaxSize());
+		for (int i = 0; i < 1000; i++) {
+			cache.put("w" + i, null, "w", "rules");
+			assertTrue(cache.size() <= 10);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+	@Test
+	public void histogramCountsIntoBuckets() {
+		RequestMetrics.Histogram h = new RequestMetrics.Histogram(new double[] { 1, 2 });
+		h.observe(0.5);
+		h.observe(1);
+		h.observe(1.5);
+		h.observe(10);
+		assertEquals(4, h.getCount());
+		assertEquals(13, h.getSum(), 1e-9);
+		StringBuilder buf = new StringBuilder();
+		h.appendText(buf, "x", "voice", "v1");
+		assertEquals("x_bucket{voice=\"v1\",le=\"1.0\"} 2\n" + "x_bucket{voice=\"v1\",le=\"2.0\"} 3\n"
+				+ "x_bucket{voice=\"v1\",le=\"+Inf\"} 4\n" + "x_sum{voice=\"v1\"} 13.0\n" + "x_count{voice=\"v1\"} 4\n",
+				buf.toString());
+	}
+
+	@Test
+	public void textContainsRecordedMetrics() {
+		RequestMetrics metrics = new RequestMetrics();
+		metrics.recordRequest("AUDIO", 30000000L, true);
+		metrics.recordRequest("AUDIO", 2000000000L, false);
+		metrics.recordModule("Synthesis", 20000000L);
+		metrics.recordQueueWait(1000000L);
+		metrics.recordRealtimeFactor("cmu-slt-hsmm", 500000000L, 2.0);
+		metrics.recordCacheLookup(true);
+		String text = metrics.getText();
+		assertTrue(text, text.contains("mary_requests_total{outcome=\"error\"} 1\n"));
+		assertTrue(text, text.contains("mary_requests_total{outcome=\"ok\"} 1\n"));
+		assertTrue(text, text.contains("mary_request_seconds_bucket{output_type=\"AUDIO\",le=\"0.05\"} 1\n"));
+		assertTrue(text, text.contains("mary_request_seconds_count{output_type=\"AUDIO\"} 2\n"));
+		assertTrue(text, text.contains("mary_module_seconds_bucket{module=\"Synthesis\",le=\"0.025\"} 1\n"));
+		assertTrue(text, text.contains("mary_queue_wait_seconds_bucket{le=\"0.001\"} 1\n"));
+		assertTrue(text, text.contains("mary_realtime_factor_bucket{voice=\"cmu-slt-hsmm\",le=\"0.2\"} 0\n"));
+		assertTrue(text, text.contains("mary_realtime_factor_bucket{voice=\"cmu-slt-hsmm\",le=\"0.5\"} 1\n"));
+		assertTrue(text, text.contains("mary_cache_lookups_total{result=\"hit\"} 1\n"));
+		assertTrue(text, text.contains("# TYPE mary_first_audio_seconds histogram\n"));
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StartupExecutorTest {
+
+	@After
+	public void tearDown() {
+		StartupExecutor.setNumberOfThreads(1);
+	}
+
+	private static Callable<Integer> value(final int i) {
+		return new Callable<Integer>() {
+			public Integer call() throws Exception {
+				Thread.sleep(10 - i);
+				return i;
+			}
+		};
+	}
+
+	@Test
+	public void returnsResultsInOrder() throws Exception {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 10; i++) {
+			tasks.add(value(i));
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), StartupExecutor.invokeAll(tasks));
+	}
+
+	@Test
+	public void returnsResultsInOrderInParallel() throws Exception {
+		StartupExecutor.setNumberOfThreads(4);
+		returnsResultsInOrder();
+	}
+
+	@Test
+	public void rethrowsTaskException() throws Exception {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		tasks.add(value(1));
+		tasks.add(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				throw new IOException("cannot load");
+			}
+		});
+		try {
+			StartupExecutor.invokeAll(tasks);
+			fail("exception should have been rethrown");
+		} catch (IOException expected) {
+			assertEquals("cannot load", expected.getMessage());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void nestedTasksDoNotDeadlock() throws Exception {
+		int numThreads = 4;
+		StartupExecutor.setNumberOfThreads(numThreads);
+		// more nested tasks than pool threads, each waiting for its own subtasks
+		int n = 4 * numThreads + 2;
+		List<Callable<Integer>> outer = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < n; i++) {
+			outer.add(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					List<Callable<Integer>> inner = new ArrayList<Callable<Integer>>();
+					for (int j = 0; j < 3; j++) {
+						inner.add(value(j));
+					}
+					int sum = 0;
+					for (int v : StartupExecutor.invokeAll(inner)) {
+						sum += v;
+					}
+					return sum;
+				}
+			});
+		}
+		for (int sum : StartupExecutor.invokeAll(outer)) {
+			assertEquals(3, sum);
+		}
+	}
+}
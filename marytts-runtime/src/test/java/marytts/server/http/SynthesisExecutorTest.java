@@ -0,0 +1,91 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.server.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SynthesisExecutorTest {
+
+	private SynthesisExecutor executor;
+
+	@After
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private Callable<Void> blockingTask(final CountDownLatch started, final CountDownLatch release) {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		};
+	}
+
+	@Test
+	public void rejectsWhenQueueIsFull() throws Exception {
+		executor = new SynthesisExecutor(1, 1, 0, false, 3);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Void> running = executor.submit(null, "RH 1", blockingTask(started, release));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<Void> queued = executor.submit(null, "RH 2", blockingTask(new CountDownLatch(1), release));
+		assertEquals(1, executor.getQueueDepth());
+		assertEquals(1, executor.getActiveCount());
+		try {
+			executor.submit(null, "RH 3", blockingTask(new CountDownLatch(1), release));
+			fail("third request should have been rejected");
+		} catch (RejectedExecutionException expected) {
+		}
+		assertEquals(1, executor.getRejectedCount());
+		release.countDown();
+		running.get(5, TimeUnit.SECONDS);
+		queued.get(5, TimeUnit.SECONDS);
+		assertEquals(2, executor.getCompletedCount());
+		// capacity must be available again
+		executor.submit(null, "RH 4", blockingTask(new CountDownLatch(1), release)).get(5, TimeUnit.SECONDS);
+		assertEquals(3, executor.getRetryAfterSeconds());
+	}
+
+	@Test
+	public void threadIsNamedAfterRequest() throws Exception {
+		executor = new SynthesisExecutor(2, 0, 0, false, 1);
+		String name = executor.submit(null, "RH 42", new Callable<String>() {
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		}).get(5, TimeUnit.SECONDS);
+		assertEquals("RH 42", name);
+	}
+}
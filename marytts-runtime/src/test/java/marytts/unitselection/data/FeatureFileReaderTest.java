@@ -0,0 +1,121 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import marytts.features.FeatureDefinition;
+import marytts.features.FeatureVector;
+import marytts.util.FeatureUtils;
+import marytts.util.data.MaryHeader;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureFileReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File featureFile;
+	private FeatureVector[] expected;
+
+	@Before
+	public void setUp() throws Exception {
+		String targetfeatures = IOUtils.toString(
+				FeatureFileReaderTest.class.getResourceAsStream("/marytts/util/helloworld.targetfeatures"), "UTF-8");
+		FeatureDefinition def = FeatureUtils.readFeatureDefinition(targetfeatures);
+		expected = FeatureUtils.readFeatureVectors(targetfeatures);
+		featureFile = folder.newFile("test.mry");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(featureFile)));
+		try {
+			new MaryHeader(MaryHeader.UNITFEATS).writeTo(out);
+			def.writeBinaryTo(out);
+			out.writeInt(expected.length);
+			for (FeatureVector fv : expected) {
+				fv.writeTo(out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private FeatureFileReader load(boolean memoryMapped) throws Exception {
+		FeatureFileReader ffr = new FeatureFileReader();
+		ffr.load(featureFile.getPath(), memoryMapped);
+		return ffr;
+	}
+
+	@Test
+	public void mappedReaderDecodesSameVectors() throws Exception {
+		FeatureFileReader heap = load(false);
+		FeatureFileReader mapped = load(true);
+		assertFalse(heap.isMemoryMapped());
+		assertTrue(mapped.isMemoryMapped());
+		assertEquals(expected.length, heap.getNumberOfUnits());
+		assertEquals(expected.length, mapped.getNumberOfUnits());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].toString(), heap.getFeatureVector(i).toString());
+			assertEquals(expected[i].toString(), mapped.getFeatureVector(i).toString());
+			assertEquals(i, mapped.getFeatureVector(i).getUnitIndex());
+		}
+	}
+
+	@Test
+	public void mappedReaderReadsSingleFeatures() throws Exception {
+		FeatureFileReader mapped = load(true);
+		for (int i = 0; i < expected.length; i++) {
+			FeatureVector fv = expected[i];
+			for (int f = 0; f < fv.getLength(); f++) {
+				if (fv.isByteFeature(f)) {
+					assertEquals(fv.getByteFeature(f), mapped.getByteFeature(i, f));
+				} else if (fv.isShortFeature(f)) {
+					assertEquals(fv.getShortFeature(f), mapped.getShortFeature(i, f));
+				} else {
+					assertEquals(fv.getContinuousFeature(f), mapped.getContinuousFeature(i, f), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void mappedReaderMaterialisesArrayOnRequest() throws Exception {
+		FeatureVector[] fvs = load(true).getFeatureVectors();
+		assertEquals(expected.length, fvs.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].toString(), fvs[i].toString());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void mappedReaderChecksUnitIndex() throws Exception {
+		load(true).getFeatureVector(expected.length);
+	}
+}
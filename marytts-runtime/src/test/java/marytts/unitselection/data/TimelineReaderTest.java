@@ -0,0 +1,141 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Vector;
+
+import marytts.util.data.Datagram;
+import marytts.util.data.MaryHeader;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimelineReaderTest {
+	private static final int SAMPLE_RATE = 16000;
+	private static final int NUM_DATAGRAMS = 500;
+	private static final int IDX_INTERVAL = 200;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File timeline;
+	private long totalDuration;
+
+	/**
+	 * Write a timeline of datagrams with varying durations and sizes, where datagram i consists of i % 100 bytes of value i.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		timeline = folder.newFile("test.mry");
+		RandomAccessFile raf = new RandomAccessFile(timeline, "rw");
+		try {
+			new MaryHeader(MaryHeader.TIMELINE).writeTo(raf);
+			new TimelineReader.ProcHeader("test").dump(raf);
+			raf.writeInt(SAMPLE_RATE);
+			raf.writeLong(NUM_DATAGRAMS);
+			long positions = raf.getFilePointer();
+			raf.writeLong(0);
+			raf.writeLong(0);
+			long datagramsBytePos = raf.getFilePointer();
+			Vector<TimelineReader.IdxField> fields = new Vector<TimelineReader.IdxField>();
+			long time = 0;
+			for (int i = 0; i < NUM_DATAGRAMS; i++) {
+				long duration = 50 + i % 7 * 30;
+				while (fields.size() * IDX_INTERVAL < time + duration) {
+					fields.add(new TimelineReader.IdxField(raf.getFilePointer(), time));
+				}
+				byte[] data = new byte[i % 100];
+				Arrays.fill(data, (byte) i);
+				new Datagram(duration, data).write(raf);
+				time += duration;
+			}
+			totalDuration = time;
+			long timeIdxBytePos = raf.getFilePointer();
+			new TimelineReader.Index(IDX_INTERVAL, fields).dump(raf);
+			raf.seek(positions);
+			raf.writeLong(datagramsBytePos);
+			raf.writeLong(timeIdxBytePos);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void assertSameDatagrams(Datagram[] expected, Datagram[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getDuration(), actual[i].getDuration());
+			assertArrayEquals(expected[i].getData(), actual[i].getData());
+		}
+	}
+
+	@Test
+	public void segmentedMappingReadsLikeSingleMapping() throws Exception {
+		TimelineReader mapped = new TimelineReader(timeline.getPath());
+		// segments much smaller than the datagram zone:
+		TimelineReader segmented = new TimelineReader(timeline.getPath(), 1000);
+		assertEquals(totalDuration, segmented.getTotalDuration());
+		for (long time = 0; time < totalDuration; time += 37) {
+			assertSameDatagrams(mapped.getDatagrams(time, 3000), segmented.getDatagrams(time, 3000));
+			long[] offset = new long[1];
+			long[] segmentedOffset = new long[1];
+			assertSameDatagrams(mapped.getDatagrams(time, 5, SAMPLE_RATE, offset),
+					segmented.getDatagrams(time, 5, SAMPLE_RATE, segmentedOffset));
+			assertEquals(offset[0], segmentedOffset[0]);
+		}
+	}
+
+	@Test
+	public void datagramViewHoldsExactlyOneDatagram() throws Exception {
+		TimelineReader segmented = new TimelineReader(timeline.getPath(), 1000);
+		for (long time = 0; time < totalDuration; time += 101) {
+			Datagram expected = segmented.getDatagram(time);
+			ByteBuffer view = segmented.getDatagramView(time);
+			assertEquals(0, view.position());
+			assertEquals(Datagram.NUM_HEADER_BYTES + expected.getLength(), view.limit());
+			Datagram d = new Datagram(view);
+			assertEquals(expected.getDuration(), d.getDuration());
+			assertArrayEquals(expected.getData(), d.getData());
+		}
+	}
+
+	@Test
+	public void datagramsReadTheMappedTimelineInPlace() throws Exception {
+		Datagram[] datagrams = new TimelineReader(timeline.getPath()).getDatagrams(0, totalDuration);
+		assertEquals(NUM_DATAGRAMS, datagrams.length);
+		for (int i = 0; i < datagrams.length; i++) {
+			ByteBuffer data = datagrams[i].getDataBuffer();
+			assertFalse(data.hasArray());
+			assertEquals(i % 100, data.limit());
+			byte[] expected = new byte[i % 100];
+			Arrays.fill(expected, (byte) i);
+			assertEquals(new Datagram(datagrams[i].getDuration(), expected), datagrams[i]);
+		}
+	}
+}
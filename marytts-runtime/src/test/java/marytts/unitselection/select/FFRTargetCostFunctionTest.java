@@ -0,0 +1,162 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.select;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.Random;
+
+import marytts.features.FeatureDefinition;
+import marytts.features.FeatureVector;
+import marytts.unitselection.data.FeatureFileReader;
+import marytts.unitselection.data.Unit;
+import marytts.unitselection.weightingfunctions.WeightFunc;
+import marytts.unitselection.weightingfunctions.WeightFunctionManager;
+import marytts.util.data.MaryHeader;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FFRTargetCostFunctionTest {
+	// weights (normalised when read), one feature with zero weight of each kind, and a similarity matrix for "stress"
+	private static final String FEATURES = "ByteValuedFeatureProcessors\n" + "3 | phone 0 a b c d e f g\n"
+			+ "1 | next_phone 0 a b c d e f g\n" + "0 | unused 0 x y\n" + "2 | stress 0 1 2\n" + "ShortValuedFeatureProcessors\n"
+			+ "1.5 | word_numsyls 0 1 2 3 4 5 6 7 8 9\n" + "0 | unused_short 0 x\n" + "ContinuousFeatureProcessors\n"
+			+ "2 linear | unit_duration\n" + "1 step 20% | unit_logf0\n" + "0 linear | unused_float\n" + "FeatureSimilarity\n"
+			+ "stress 0 1 2\n" + "0\n" + "1 0.25\n" + "2 0.5 0.125\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FFRTargetCostFunction tcf;
+	private Random random = new Random(4711);
+
+	private FeatureVector randomFeatureVector(FeatureDefinition def, int index) {
+		byte[] bytes = new byte[def.getNumberOfByteFeatures()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) random.nextInt(def.getNumberOfValues(i));
+		}
+		short[] shorts = new short[def.getNumberOfShortFeatures()];
+		for (int i = 0; i < shorts.length; i++) {
+			shorts[i] = (short) random.nextInt(def.getNumberOfValues(bytes.length + i));
+		}
+		float[] floats = new float[def.getNumberOfContinuousFeatures()];
+		for (int i = 0; i < floats.length; i++) {
+			floats[i] = random.nextInt(10) == 0 ? Float.NaN : 200 * random.nextFloat();
+		}
+		return new FeatureVector(bytes, shorts, floats, index);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		FeatureDefinition def = new FeatureDefinition(new BufferedReader(new StringReader(FEATURES)), true);
+		tcf = new FFRTargetCostFunction();
+		tcf.featureDefinition = def;
+		tcf.featureVectors = new FeatureVector[1000];
+		for (int i = 0; i < tcf.featureVectors.length; i++) {
+			tcf.featureVectors[i] = randomFeatureVector(def, i);
+		}
+		WeightFunctionManager wfm = new WeightFunctionManager();
+		int nDiscrete = def.getNumberOfByteFeatures() + def.getNumberOfShortFeatures();
+		tcf.weightFunction = new WeightFunc[def.getNumberOfContinuousFeatures()];
+		for (int i = 0; i < tcf.weightFunction.length; i++) {
+			tcf.weightFunction[i] = wfm.getWeightFunction(def.getWeightFunctionName(nDiscrete + i));
+		}
+		tcf.rememberWhichWeightsAreNonZero();
+	}
+
+	@Test
+	public void batchCostsEqualSingleCosts() {
+		for (int t = 0; t < 50; t++) {
+			Target target = new Target("a", null);
+			target.setFeatureVector(randomFeatureVector(tcf.featureDefinition, 0));
+			Unit[] units = new Unit[1 + random.nextInt(300)];
+			for (int c = 0; c < units.length; c++) {
+				units[c] = new Unit(0, 1, random.nextInt(tcf.featureVectors.length));
+			}
+			double[] costs = tcf.cost(target, units);
+			assertEquals(units.length, costs.length);
+			for (int c = 0; c < units.length; c++) {
+				assertEquals(tcf.cost(target, units[c]), costs[c], 0);
+			}
+		}
+	}
+
+	/**
+	 * A target cost function reading the same unit features from a memory-mapped feature file.
+	 */
+	private FFRTargetCostFunction mappedCopy() throws Exception {
+		File featureFile = folder.newFile("features.mry");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(featureFile)));
+		try {
+			new MaryHeader(MaryHeader.UNITFEATS).writeTo(out);
+			tcf.featureDefinition.writeBinaryTo(out);
+			out.writeInt(tcf.featureVectors.length);
+			for (FeatureVector fv : tcf.featureVectors) {
+				fv.writeTo(out);
+			}
+		} finally {
+			out.close();
+		}
+		FeatureFileReader ffr = new FeatureFileReader();
+		ffr.load(featureFile.getPath(), true);
+		FFRTargetCostFunction mapped = new FFRTargetCostFunction();
+		mapped.featureDefinition = tcf.featureDefinition;
+		mapped.featureFileReader = ffr;
+		mapped.weightFunction = tcf.weightFunction;
+		mapped.rememberWhichWeightsAreNonZero();
+		return mapped;
+	}
+
+	@Test
+	public void mappedCostsEqualDecodedCosts() throws Exception {
+		FFRTargetCostFunction mapped = mappedCopy();
+		for (int t = 0; t < 50; t++) {
+			Target target = new Target("a", null);
+			target.setFeatureVector(randomFeatureVector(tcf.featureDefinition, 0));
+			Unit[] units = new Unit[20];
+			for (int c = 0; c < units.length; c++) {
+				Unit unit = new Unit(0, 1, random.nextInt(tcf.featureVectors.length));
+				units[c] = unit;
+				assertEquals(tcf.cost(target, unit), mapped.cost(target, unit), 0);
+				assertEquals(tcf.featureCost(target, unit, "unit_logf0"), mapped.featureCost(target, unit, "unit_logf0"), 0);
+				assertEquals(tcf.getFeature(unit, "stress"), mapped.getFeature(unit, "stress"));
+				assertEquals(tcf.getFeature(unit, "word_numsyls"), mapped.getFeature(unit, "word_numsyls"));
+			}
+			assertArrayEquals(tcf.cost(target, units), mapped.cost(target, units), 0);
+		}
+	}
+
+	@Test
+	public void noCandidatesNoCosts() {
+		Target target = new Target("a", null);
+		target.setFeatureVector(randomFeatureVector(tcf.featureDefinition, 0));
+		assertEquals(0, tcf.cost(target, new Unit[0]).length);
+	}
+}
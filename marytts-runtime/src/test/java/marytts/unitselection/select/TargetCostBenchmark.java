@@ -0,0 +1,169 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.select;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+
+import marytts.features.FeatureDefinition;
+import marytts.features.FeatureVector;
+import marytts.unitselection.data.Unit;
+import marytts.unitselection.weightingfunctions.WeightFunc;
+import marytts.unitselection.weightingfunctions.WeightFunctionManager;
+
+/**
+ * Compares the target costs computed one candidate unit after the other with those computed for all candidates of a target in
+ * one call, as done by UnitDatabase.getCandidates(). The feature definition is modelled on a half-phone unit selection voice:
+ * 80 byte-valued features, of which two thirds have non-zero weights and one has a similarity matrix, two short-valued and ten
+ * continuous features. For several numbers of candidates, prints the time per candidate of either way. Run with
+ * <code>java marytts.unitselection.select.TargetCostBenchmark [numUnits]</code>.
+ */
+public class TargetCostBenchmark {
+	private static final int NUM_BYTE_FEATURES = 80;
+	private static final int NUM_SHORT_FEATURES = 2;
+	private static final int NUM_CONTINUOUS_FEATURES = 10;
+
+	private static final Random random = new Random(1234);
+
+	private static String featureDefinition() {
+		StringBuilder sb = new StringBuilder("ByteValuedFeatureProcessors\n");
+		for (int i = 0; i < NUM_BYTE_FEATURES; i++) {
+			sb.append(i % 3 == 2 ? 0 : 1 + random.nextInt(5)).append(" | byte").append(i);
+			for (int v = 0, n = i == 0 ? 50 : 2 + random.nextInt(20); v < n; v++) {
+				sb.append(" v").append(v);
+			}
+			sb.append('\n');
+		}
+		sb.append("ShortValuedFeatureProcessors\n");
+		for (int i = 0; i < NUM_SHORT_FEATURES; i++) {
+			sb.append("1 | short").append(i);
+			for (int v = 0; v < 300; v++) {
+				sb.append(" v").append(v);
+			}
+			sb.append('\n');
+		}
+		sb.append("ContinuousFeatureProcessors\n");
+		for (int i = 0; i < NUM_CONTINUOUS_FEATURES; i++) {
+			sb.append(i % 2 == 0 ? "2 linear" : "1 step 20%").append(" | float").append(i).append('\n');
+		}
+		// a similarity matrix for the first feature, such as the one for phones
+		sb.append("FeatureSimilarity\nbyte0");
+		for (int v = 0; v < 50; v++) {
+			sb.append(" v").append(v);
+		}
+		sb.append('\n');
+		for (int v = 0; v < 50; v++) {
+			sb.append('v').append(v);
+			for (int w = 0; w < v; w++) {
+				sb.append(' ').append(random.nextInt(10) / 10f);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static FeatureVector randomFeatureVector(FeatureDefinition def, int index) {
+		byte[] bytes = new byte[def.getNumberOfByteFeatures()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) random.nextInt(def.getNumberOfValues(i));
+		}
+		short[] shorts = new short[def.getNumberOfShortFeatures()];
+		for (int i = 0; i < shorts.length; i++) {
+			shorts[i] = (short) random.nextInt(def.getNumberOfValues(bytes.length + i));
+		}
+		float[] floats = new float[def.getNumberOfContinuousFeatures()];
+		for (int i = 0; i < floats.length; i++) {
+			floats[i] = random.nextInt(50) == 0 ? Float.NaN : 50 + 150 * random.nextFloat();
+		}
+		return new FeatureVector(bytes, shorts, floats, index);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numUnits = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		FeatureDefinition def = new FeatureDefinition(new BufferedReader(new StringReader(featureDefinition())), true);
+		FFRTargetCostFunction tcf = new FFRTargetCostFunction();
+		tcf.featureDefinition = def;
+		tcf.featureVectors = new FeatureVector[numUnits];
+		for (int i = 0; i < numUnits; i++) {
+			tcf.featureVectors[i] = randomFeatureVector(def, i);
+		}
+		WeightFunctionManager wfm = new WeightFunctionManager();
+		tcf.weightFunction = new WeightFunc[NUM_CONTINUOUS_FEATURES];
+		for (int i = 0; i < NUM_CONTINUOUS_FEATURES; i++) {
+			tcf.weightFunction[i] = wfm.getWeightFunction(def.getWeightFunctionName(NUM_BYTE_FEATURES + NUM_SHORT_FEATURES + i));
+		}
+		tcf.rememberWhichWeightsAreNonZero();
+
+		int numTargets = 200;
+		Target[] targets = new Target[numTargets];
+		for (int t = 0; t < numTargets; t++) {
+			targets[t] = new Target("t" + t, null);
+			targets[t].setFeatureVector(randomFeatureVector(def, 0));
+		}
+		int[] sizes = { 50, 200, 500, 2000 };
+		Unit[][][] candidatesBySize = new Unit[sizes.length][numTargets][];
+		for (int s = 0; s < sizes.length; s++) {
+			for (int t = 0; t < numTargets; t++) {
+				Unit[] units = new Unit[sizes[s]];
+				for (int c = 0; c < units.length; c++) {
+					units[c] = new Unit(0, 1, random.nextInt(numUnits));
+				}
+				double[] costs = tcf.cost(targets[t], units);
+				for (int c = 0; c < units.length; c++) {
+					if (costs[c] != tcf.cost(targets[t], units[c])) {
+						throw new AssertionError("Different cost for target " + t + ", candidate " + c);
+					}
+				}
+				candidatesBySize[s][t] = units;
+			}
+		}
+		// the first round is a warm-up
+		for (int run = 0; run < 4; run++) {
+			for (int s = 0; s < sizes.length; s++) {
+				int numCandidates = sizes[s];
+				Unit[][] candidates = candidatesBySize[s];
+				double sum = 0;
+				long start = System.nanoTime();
+				for (int t = 0; t < numTargets; t++) {
+					for (int c = 0; c < numCandidates; c++) {
+						sum += tcf.cost(targets[t], candidates[t][c]);
+					}
+				}
+				long single = System.nanoTime() - start;
+				start = System.nanoTime();
+				for (int t = 0; t < numTargets; t++) {
+					double[] costs = tcf.cost(targets[t], candidates[t]);
+					sum -= costs[numCandidates - 1];
+				}
+				long batch = System.nanoTime() - start;
+				if (sum == Double.MIN_VALUE) {
+					System.out.println(sum);
+				}
+				double n = numTargets * (double) numCandidates;
+				if (run == 0) {
+					continue;
+				}
+				System.out.printf("%d candidates: one at a time %.1f ns/candidate, all at once %.1f ns/candidate%n", numCandidates,
+						single / n, batch / n);
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.select;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import marytts.LocalMaryInterface;
+import marytts.datatypes.MaryXML;
+import marytts.modules.synthesis.Voice;
+import marytts.unitselection.UnitSelectionVoice;
+import marytts.unitselection.select.viterbi.Viterbi;
+
+import org.apache.commons.io.FileUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Compares the default Viterbi search of a unit selection voice with the faster search options. The sentences of a text file
+ * (one per line) are converted to ALLOPHONES once; the resulting target lists are then searched with each setting. For each
+ * setting, prints the time per target, the mean increase of the best path score over the default search, and the share of
+ * units that are the same as in the default search. Run with
+ * <code>java marytts.unitselection.select.ViterbiBenchmark voiceName textFile [pruningThreshold [numThreads]]</code>
+ * with a MARY installation on the classpath.
+ */
+public class ViterbiBenchmark {
+
+	private static class Result {
+		double score;
+		List<Integer> units = new ArrayList<Integer>();
+	}
+
+	private final UnitSelectionVoice voice;
+	private final UnitSelector selector;
+	private final List<List<Target>> targetLists = new ArrayList<List<Target>>();
+	private int numTargets;
+
+	ViterbiBenchmark(UnitSelectionVoice voice) {
+		this.voice = voice;
+		this.selector = voice.getUnitSelector();
+	}
+
+	/**
+	 * Build one target list per sentence, as UnitSelector.selectUnits() does.
+	 */
+	void addTargets(Document allophones) {
+		TargetCostFunction tcf = voice.getDatabase().getTargetCostFunction();
+		NodeList sentences = allophones.getElementsByTagName(MaryXML.SENTENCE);
+		for (int s = 0; s < sentences.getLength(); s++) {
+			List<Element> segmentsAndBoundaries = new ArrayList<Element>();
+			NodeList elements = ((Element) sentences.item(s)).getElementsByTagName("*");
+			for (int i = 0; i < elements.getLength(); i++) {
+				Element e = (Element) elements.item(i);
+				if (e.getTagName().equals(MaryXML.PHONE) || e.getTagName().equals(MaryXML.BOUNDARY)) {
+					segmentsAndBoundaries.add(e);
+				}
+			}
+			List<Target> targets = selector.createTargets(segmentsAndBoundaries);
+			for (Target target : targets) {
+				tcf.computeTargetFeatures(target);
+			}
+			targetLists.add(targets);
+			numTargets += targets.size();
+		}
+	}
+
+	List<Result> run(String name, float pruningThreshold, boolean cacheJoinCosts, int numThreads, List<Result> reference)
+			throws Exception {
+		List<Result> results = new ArrayList<Result>();
+		long start = System.nanoTime();
+		for (List<Target> targets : targetLists) {
+			Viterbi viterbi;
+			if (selector.sCostWeight < 0) {
+				viterbi = new Viterbi(targets, voice.getDatabase(), selector.targetCostWeight, selector.beamSize);
+			} else {
+				viterbi = new Viterbi(targets, voice.getDatabase(), selector.targetCostWeight, selector.sCostWeight,
+						selector.beamSize);
+			}
+			viterbi.setSearchOptions(pruningThreshold, cacheJoinCosts, numThreads);
+			viterbi.apply();
+			Result r = new Result();
+			r.score = viterbi.getBestPathScore();
+			for (SelectedUnit su : viterbi.getSelectedUnits()) {
+				r.units.add(su.getUnit().index);
+			}
+			results.add(r);
+		}
+		long nanos = System.nanoTime() - start;
+		double scoreDelta = 0;
+		int sameUnits = 0;
+		int units = 0;
+		if (reference != null) {
+			for (int i = 0; i < results.size(); i++) {
+				Result r = results.get(i);
+				Result ref = reference.get(i);
+				scoreDelta += (r.score - ref.score) / Math.abs(ref.score);
+				for (int u = 0; u < ref.units.size(); u++) {
+					if (u < r.units.size() && r.units.get(u).equals(ref.units.get(u))) {
+						sameUnits++;
+					}
+				}
+				units += ref.units.size();
+			}
+		}
+		System.out.printf("%-24s %8.3f ms/target %+8.4f%% score %8.2f%% same units%n", name, nanos / 1e6 / numTargets,
+				reference != null ? 100 * scoreDelta / results.size() : 0., reference != null ? 100. * sameUnits / units : 100.);
+		return results;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String voiceName = args[0];
+		List<String> lines = FileUtils.readLines(new File(args[1]), "UTF-8");
+		float threshold = args.length > 2 ? Float.parseFloat(args[2]) : 1.0f;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		LocalMaryInterface mary = new LocalMaryInterface();
+		mary.setVoice(voiceName);
+		mary.setOutputType("ALLOPHONES");
+		Voice voice = Voice.getVoice(voiceName);
+		if (!(voice instanceof UnitSelectionVoice)) {
+			throw new IllegalArgumentException("Not a unit selection voice: " + voiceName);
+		}
+		ViterbiBenchmark benchmark = new ViterbiBenchmark((UnitSelectionVoice) voice);
+		for (String line : lines) {
+			if (line.trim().length() > 0) {
+				benchmark.addTargets(mary.generateXML(line));
+			}
+		}
+		System.out.println(benchmark.targetLists.size() + " sentences, " + benchmark.numTargets + " targets");
+
+		// warm up
+		benchmark.run("warmup", 0, false, 1, null);
+		benchmark.run("warmup", threshold, true, threads, null);
+		for (int i = 0; i < 3; i++) {
+			List<Result> reference = benchmark.run("default", 0, false, 1, null);
+			benchmark.run("cache", 0, true, 1, reference);
+			benchmark.run("pruning " + threshold, threshold, false, 1, reference);
+			benchmark.run("threads " + threads, 0, false, threads, reference);
+			benchmark.run("all", threshold, true, threads, reference);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.unitselection.select.viterbi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import marytts.unitselection.data.Unit;
+import marytts.unitselection.data.UnitDatabase;
+import marytts.unitselection.select.JoinCostFunction;
+import marytts.unitselection.select.SelectedUnit;
+import marytts.unitselection.select.Target;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ViterbiTest {
+	private static final int NUM_TARGETS = 12;
+	private static final int NUM_CANDIDATES = 120;
+	private static final int NUM_UNITS = 1000;
+	private static final float W_TARGET_COSTS = 0.4f;
+
+	private List<Target> targets;
+	private SyntheticDatabase database;
+
+	/**
+	 * A database whose candidates and costs are drawn at random, once: each target has the same candidates with the same target
+	 * costs in every search, and units that follow each other in the database join at no cost.
+	 */
+	private static class SyntheticDatabase extends UnitDatabase {
+		final Unit[] units = new Unit[NUM_UNITS];
+		final int[][] candidates = new int[NUM_TARGETS][NUM_CANDIDATES];
+		final double[][] targetCosts = new double[NUM_TARGETS][NUM_CANDIDATES];
+		final double[][] joinCosts = new double[NUM_UNITS][NUM_UNITS];
+
+		SyntheticDatabase(Random random) {
+			for (int i = 0; i < NUM_UNITS; i++) {
+				units[i] = new Unit(i * 100, 100, i);
+			}
+			for (int t = 0; t < NUM_TARGETS; t++) {
+				for (int c = 0; c < NUM_CANDIDATES; c++) {
+					// neighbouring targets share a stretch of the database, so that adjacent units can be selected:
+					candidates[t][c] = (t * 50 + c) % NUM_UNITS;
+					targetCosts[t][c] = random.nextDouble();
+				}
+			}
+			for (int i = 0; i < NUM_UNITS; i++) {
+				for (int j = 0; j < NUM_UNITS; j++) {
+					joinCosts[i][j] = j == i + 1 ? 0 : random.nextDouble();
+				}
+			}
+			joinCostFunction = new JoinCostFunction() {
+				public double cost(Target t1, Unit u1, Target t2, Unit u2) {
+					return joinCosts[u1.index][u2.index];
+				}
+
+				public void init(String configPrefix) {
+				}
+			};
+		}
+
+		@Override
+		public List<ViterbiCandidate> getCandidates(Target target) {
+			int t = Integer.parseInt(target.getName());
+			List<ViterbiCandidate> list = new ArrayList<ViterbiCandidate>(NUM_CANDIDATES);
+			for (int c = 0; c < NUM_CANDIDATES; c++) {
+				list.add(new ViterbiCandidate(target, units[candidates[t][c]], targetCosts[t][c]));
+			}
+			return list;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		database = new SyntheticDatabase(new Random(4711));
+		targets = new ArrayList<Target>();
+		for (int t = 0; t < NUM_TARGETS; t++) {
+			targets.add(new Target(String.valueOf(t), null));
+		}
+	}
+
+	/**
+	 * The optimal path, found by a plain dynamic programme over all candidates.
+	 */
+	private int[] optimalPath() {
+		double[] scores = new double[NUM_CANDIDATES];
+		int[][] backPointers = new int[NUM_TARGETS][NUM_CANDIDATES];
+		for (int c = 0; c < NUM_CANDIDATES; c++) {
+			scores[c] = database.targetCosts[0][c] * W_TARGET_COSTS;
+		}
+		for (int t = 1; t < NUM_TARGETS; t++) {
+			double[] newScores = new double[NUM_CANDIDATES];
+			for (int c = 0; c < NUM_CANDIDATES; c++) {
+				double best = Double.POSITIVE_INFINITY;
+				for (int p = 0; p < NUM_CANDIDATES; p++) {
+					double joinCost = database.joinCosts[database.candidates[t - 1][p]][database.candidates[t][c]];
+					double score = joinCost * (1 - W_TARGET_COSTS) + database.targetCosts[t][c] * W_TARGET_COSTS + scores[p];
+					if (score < best) {
+						best = score;
+						backPointers[t][c] = p;
+					}
+				}
+				newScores[c] = best;
+			}
+			scores = newScores;
+		}
+		int[] path = new int[NUM_TARGETS];
+		for (int c = 1; c < NUM_CANDIDATES; c++) {
+			if (scores[c] < scores[path[NUM_TARGETS - 1]]) {
+				path[NUM_TARGETS - 1] = c;
+			}
+		}
+		for (int t = NUM_TARGETS - 1; t > 0; t--) {
+			path[t - 1] = backPointers[t][path[t]];
+		}
+		int[] unitIndexes = new int[NUM_TARGETS];
+		for (int t = 0; t < NUM_TARGETS; t++) {
+			unitIndexes[t] = database.candidates[t][path[t]];
+		}
+		return unitIndexes;
+	}
+
+	private Viterbi search(boolean setOptions, float pruningThreshold, int numThreads) throws Exception {
+		Viterbi viterbi = new Viterbi(targets, database, W_TARGET_COSTS, -1);
+		if (setOptions) {
+			viterbi.setSearchOptions(pruningThreshold, false, numThreads);
+		}
+		viterbi.apply();
+		return viterbi;
+	}
+
+	private static int[] unitIndexes(List<SelectedUnit> selected) {
+		int[] indexes = new int[selected.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = selected.get(i).getUnit().index;
+		}
+		return indexes;
+	}
+
+	/**
+	 * The score of the given selection, summed up as in the search.
+	 */
+	private double score(List<SelectedUnit> selected) {
+		double score = 0;
+		Unit previous = null;
+		for (int t = 0; t < NUM_TARGETS; t++) {
+			Unit unit = selected.get(t).getUnit();
+			int c = 0;
+			while (database.candidates[t][c] != unit.index) {
+				c++;
+			}
+			double joinCost = previous == null ? 0 : database.joinCosts[previous.index][unit.index];
+			score = joinCost * (1 - W_TARGET_COSTS) + database.targetCosts[t][c] * W_TARGET_COSTS + score;
+			previous = unit;
+		}
+		return score;
+	}
+
+	/**
+	 * Each target gets exactly one unit, which is one of its candidates, and the reported score is the score of the selection.
+	 */
+	private void assertValidSelection(Viterbi viterbi) {
+		List<SelectedUnit> selected = viterbi.getSelectedUnits();
+		assertNotNull(selected);
+		assertEquals(NUM_TARGETS, selected.size());
+		for (int t = 0; t < NUM_TARGETS; t++) {
+			assertSame(targets.get(t), selected.get(t).getTarget());
+			int index = selected.get(t).getUnit().index;
+			boolean isCandidate = false;
+			for (int c = 0; c < NUM_CANDIDATES; c++) {
+				isCandidate |= database.candidates[t][c] == index;
+			}
+			assertTrue("unit " + index + " is not a candidate for target " + t, isCandidate);
+		}
+		assertEquals(score(selected), viterbi.getBestPathScore(), 1e-9);
+	}
+
+	@Test
+	public void defaultSearchFindsOptimalPath() throws Exception {
+		Viterbi viterbi = search(false, 0, 1);
+		assertValidSelection(viterbi);
+		assertEquals(Arrays.toString(optimalPath()), Arrays.toString(unitIndexes(viterbi.getSelectedUnits())));
+	}
+
+	@Test
+	public void defaultOptionsKeepDefaultSearch() throws Exception {
+		Viterbi plain = search(false, 0, 1);
+		Viterbi withOptions = search(true, 0, 1);
+		assertEquals(plain.getBestPathScore(), withOptions.getBestPathScore(), 0);
+		assertEquals(Arrays.toString(unitIndexes(plain.getSelectedUnits())),
+				Arrays.toString(unitIndexes(withOptions.getSelectedUnits())));
+	}
+
+	@Test
+	public void threadsAndLoosePruningFindOptimalPath() throws Exception {
+		Viterbi plain = search(false, 0, 1);
+		// the threshold is larger than any score, so nothing is pruned:
+		Viterbi fast = search(true, 1000, 4);
+		assertValidSelection(fast);
+		assertEquals(plain.getBestPathScore(), fast.getBestPathScore(), 1e-9);
+		assertEquals(Arrays.toString(optimalPath()), Arrays.toString(unitIndexes(fast.getSelectedUnits())));
+	}
+
+	@Test
+	public void pruningGivesValidSelection() throws Exception {
+		double optimalScore = search(false, 0, 1).getBestPathScore();
+		for (float threshold : new float[] { 0.5f, 0.1f, 0.01f }) {
+			for (int numThreads : new int[] { 1, 4 }) {
+				Viterbi pruned = search(true, threshold, numThreads);
+				assertValidSelection(pruned);
+				assertTrue(pruned.getBestPathScore() >= optimalScore - 1e-9);
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import marytts.util.dom.DomUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TieredCacheTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static CacheKey key(String text) {
+		return CacheKey.builder().add("TEXT").add("AUDIO").add("en_US").add("cmu-slt-hsmm").add((String) null).add("")
+				.add("").add(text).build();
+	}
+
+	@Test
+	public void keysDistinguishParts() {
+		assertEquals(key("hello"), key("hello"));
+		assertFalse(key("hello").equals(key("hello!")));
+		CacheKey ab = CacheKey.builder().add("ab").add("c").build();
+		CacheKey abc = CacheKey.builder().add("a").add("bc").build();
+		assertFalse(ab.equals(abc));
+		CacheKey withNull = CacheKey.builder().add((String) null).build();
+		CacheKey withEmpty = CacheKey.builder().add("").build();
+		assertFalse(withNull.equals(withEmpty));
+	}
+
+	@Test
+	public void keysFromEqualDocumentsAreEqual() throws Exception {
+		String xml = "<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" version=\"0.5\" xml:lang=\"en-US\"><p>Hello</p></maryxml>";
+		CacheKey k1 = CacheKey.builder().add(DomUtils.parseDocument(xml, false)).build();
+		CacheKey k2 = CacheKey.builder().add(DomUtils.parseDocument(xml, false)).build();
+		CacheKey k3 = CacheKey.builder().add(DomUtils.parseDocument(xml.replace("Hello", "Hallo"), false)).build();
+		assertEquals(k1, k2);
+		assertFalse(k1.equals(k3));
+	}
+
+	@Test
+	public void memoryTierEvictsLeastRecentlyUsed() {
+		MemoryCacheTier memory = new MemoryCacheTier(300, 1);
+		memory.put(key("a"), new byte[100]);
+		memory.put(key("b"), new byte[100]);
+		memory.put(key("c"), new byte[100]);
+		assertNotNull(memory.get(key("a"))); // a is now more recent than b
+		memory.put(key("d"), new byte[100]);
+		assertNull(memory.get(key("b")));
+		assertNotNull(memory.get(key("a")));
+		assertEquals(1, memory.getEvictionCount());
+		assertEquals(300, memory.getBytes());
+		assertEquals(1, memory.getMissCount());
+	}
+
+	@Test
+	public void persistentTierSurvivesReopening() throws Exception {
+		File dir = tmp.newFolder();
+		byte[] audio = new byte[12345];
+		audio[17] = 42;
+		SegmentFileCacheTier persistent = new SegmentFileCacheTier(dir, 100000, 4, true);
+		persistent.put(key("one"), audio);
+		persistent.put(key("two"), "<rawmaryxml/>".getBytes("UTF-8"));
+		persistent.close();
+
+		persistent = new SegmentFileCacheTier(dir, 100000, 4, false);
+		assertArrayEquals(audio, persistent.get(key("one")));
+		assertEquals("<rawmaryxml/>", new String(persistent.get(key("two")), "UTF-8"));
+		persistent.close();
+
+		persistent = new SegmentFileCacheTier(dir, 100000, 4, true);
+		assertNull(persistent.get(key("one")));
+		persistent.close();
+	}
+
+	@Test
+	public void persistentTierDropsOldestSegment() throws Exception {
+		SegmentFileCacheTier persistent = new SegmentFileCacheTier(tmp.newFolder(), 1000, 2, true);
+		for (int i = 0; i < 6; i++) {
+			persistent.put(key("entry " + i), new byte[400]);
+		}
+		// two entries per segment, only the last two segments are kept
+		assertNull(persistent.get(key("entry 0")));
+		assertNull(persistent.get(key("entry 1")));
+		assertNotNull(persistent.get(key("entry 2")));
+		assertNotNull(persistent.get(key("entry 5")));
+		assertEquals(2, persistent.getEvictionCount());
+		assertEquals(4, persistent.size());
+		persistent.close();
+	}
+
+	@Test
+	public void tiersArePromoted() throws Exception {
+		File dir = tmp.newFolder();
+		SegmentFileCacheTier persistent = new SegmentFileCacheTier(dir, 100000, 2, true);
+		persistent.put(key("x"), new byte[] { 1, 2, 3 });
+		TieredCache cache = new TieredCache(new MemoryCacheTier(1000, 4), persistent);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, cache.lookup(key("x")));
+		assertEquals(1, cache.getPersistentTier().getHitCount());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, cache.lookup(key("x")));
+		assertEquals(1, cache.getMemoryTier().getHitCount());
+		assertNull(cache.lookup(key("y")));
+		cache.shutdown();
+	}
+}
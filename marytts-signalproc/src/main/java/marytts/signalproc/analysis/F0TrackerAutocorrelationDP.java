@@ -25,7 +25,7 @@ import marytts.signalproc.window.BlackmanWindow;
 import marytts.signalproc.window.Window;
 import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
-import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 
 /**
@@ -121,7 +121,8 @@ public class F0TrackerAutocorrelationDP extends F0Tracker {
 		protected void findCandidates(F0Candidate[] candidates, double[] frame) {
 			System.arraycopy(frame, 0, correlationInput, 0, frame.length);
 			Arrays.fill(correlationInput, frame.length, correlationInput.length, 0);
-			double[] acf = FFT.autoCorrelate(correlationInput);
+			double[] acf = correlationInput;
+			FFTPlan.get(acf.length).autoCorrelate(acf, acf);
 			// Simple model: take all the peaks, rate them by their height.
 			int valley = MathUtils.findNextValleyLocation(acf, 0);
 			int peak;
@@ -34,7 +34,7 @@ import marytts.util.data.audio.AudioDoubleDataSource;
 import marytts.util.math.ArrayUtils;
 import marytts.util.math.ComplexArray;
 import marytts.util.math.ComplexNumber;
-import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 import marytts.util.signal.SignalProcUtils;
 
@@ -127,7 +127,8 @@ public class LpcAnalyser extends FrameBasedAnalyser {
 		double[] r;
 
 		// Frequency domain autocorrelation computation
-		double[] autocorr = FFT.autoCorrelateWithZeroPadding(x);
+		double[] autocorr = new double[x.length];
+		FFTPlan.get(MathUtils.closestPowerOfTwoAbove(2 * x.length)).autoCorrelateWithZeroPadding(x, autocorr);
 		if (2 * (p + 1) < autocorr.length) { // normal case: frame long enough
 			r = ArrayUtils.subarray(autocorr, autocorr.length / 2, p + 1);
 		} else { // absurdly short frame
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import marytts.signalproc.window.Window;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 
 /**
@@ -92,7 +93,7 @@ public class ShortTermCepstrumAnalyser extends FrameBasedAnalyser<double[]> {
 		double[] real = new double[fftSize];
 		double[] imag = new double[fftSize];
 		System.arraycopy(aFrame, 0, real, 0, aFrame.length);
-		FFT.transform(real, imag, false);
+		FFTPlan.get(fftSize).transform(real, imag, false);
 		// Now real + j*imag is the complex spectrum
 		MathUtils.toPolarCoordinates(real, imag);
 		// now real = abs(X), imag = phi
@@ -118,7 +119,7 @@ public class ShortTermCepstrumAnalyser extends FrameBasedAnalyser<double[]> {
 		for (int i = 0; i < invFftSize / 2; i++) {
 			invReal[invFftSize - i - 1] = invReal[i];
 		}
-		FFT.transform(invReal, invImag, true);
+		FFTPlan.get(invFftSize).transform(invReal, invImag, true);
 		return invReal;
 	}
 
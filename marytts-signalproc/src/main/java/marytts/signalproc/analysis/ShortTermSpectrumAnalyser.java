@@ -24,6 +24,7 @@ import java.util.Arrays;
 import marytts.signalproc.window.Window;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 
 /**
@@ -35,6 +36,7 @@ import marytts.util.math.MathUtils;
  */
 public class ShortTermSpectrumAnalyser extends FrameBasedAnalyser<double[]> {
 	protected double[] real;
+	private final FFTPlan fft;
 
 	/**
 	 * Initialise a FrameBasedAnalyser.
@@ -60,6 +62,7 @@ public class ShortTermSpectrumAnalyser extends FrameBasedAnalyser<double[]> {
 		if (!MathUtils.isPowerOfTwo(fftSize))
 			throw new IllegalArgumentException("fftSize must be a power of two!");
 		real = new double[fftSize];
+		fft = new FFTPlan(fftSize);
 		assert real.length >= frame.length;
 	}
 
@@ -79,7 +82,7 @@ public class ShortTermSpectrumAnalyser extends FrameBasedAnalyser<double[]> {
 		System.arraycopy(frame, 0, real, 0, frame.length);
 		if (real.length > frame.length)
 			Arrays.fill(real, frame.length, real.length, 0);
-		FFT.realTransform(real, false);
+		fft.realTransform(real, false);
 		return FFT.computePowerSpectrum_FD(real);
 	}
 
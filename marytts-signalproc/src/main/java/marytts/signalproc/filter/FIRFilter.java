@@ -26,6 +26,7 @@ import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.data.SequenceDoubleDataSource;
 import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 
 /**
@@ -117,12 +118,16 @@ public class FIRFilter implements InlineDataProcessor {
 	public class FIROutput extends BlockwiseDoubleDataSource {
 		protected FrameProvider frameProvider;
 		protected int nTailCutoff;
+		private final FFTPlan fft;
+		private final double[] convResult;
 
 		public FIROutput(DoubleDataSource inputSource) {
 			super(null, sliceLength);
 			int samplingRate = 1; // unknown
 			int frameLength = sliceLength + impulseResponseLength;
 			assert MathUtils.isPowerOfTwo(frameLength);
+			fft = new FFTPlan(frameLength);
+			convResult = new double[frameLength];
 			// Need to start with zero padding of length impulseResponseLength:
 			DoubleDataSource padding = new BufferedDoubleDataSource(new double[impulseResponseLength]);
 			DoubleDataSource paddedSource = new SequenceDoubleDataSource(new DoubleDataSource[] { padding, inputSource });
@@ -180,7 +185,7 @@ public class FIRFilter implements InlineDataProcessor {
 			assert blockSize <= frameProvider.getFrameLengthSamples();
 			assert blockSize == frameProvider.getFrameShiftSamples();
 			// Now do the convolution:
-			double[] convResult = FFT.convolve_FD(frame, transformedIR);
+			fft.convolve_FD(frame, transformedIR, convResult);
 			int toCopy = blockSize;
 			if (frameProvider.validSamplesInFrame() < blockSize)
 				toCopy = frameProvider.validSamplesInFrame();
@@ -24,7 +24,7 @@ import java.util.Arrays;
 import marytts.signalproc.analysis.LpcAnalyser;
 import marytts.signalproc.analysis.LpcAnalyser.LpCoeffs;
 import marytts.util.math.ComplexArray;
-import marytts.util.math.FFT;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 import marytts.util.signal.SignalProcUtils;
 
@@ -41,6 +41,7 @@ public class VocalTractModifier implements InlineDataProcessor {
 	protected ComplexArray h;
 	protected double[] vtSpectrum;
 	private ComplexArray expTerm;
+	private FFTPlan fft;
 	private boolean bAnalysisOnly;
 	public static int tmpCount = 0;
 
@@ -64,15 +65,18 @@ public class VocalTractModifier implements InlineDataProcessor {
 	// If bAnalysisOnly is true, it will not process the spectrum and after each call to applyInline, you will obtain
 	// the real valued vocal tract spectrum in vtSpectrum and the ComplexArray valued excitation spectrum in real and imag
 	public void initialise(int pIn, int fsIn, int fftSizeIn, boolean bAnalysisOnlyIn) {
+		int newFftSize = MathUtils.closestPowerOfTwoAbove(fftSizeIn);
+		// FDPSOLA initialises for every frame, mostly with the same sizes: keep the tables then
+		if (fft == null || fft.getSize() != newFftSize || p != pIn) {
+			this.expTerm = LpcAnalyser.calcExpTerm(newFftSize, pIn);
+			this.fft = new FFTPlan(newFftSize);
+		}
 		this.p = pIn;
 		this.fs = fsIn;
-		this.fftSize = fftSizeIn;
-		fftSize = MathUtils.closestPowerOfTwoAbove(fftSize);
+		this.fftSize = newFftSize;
 		h = new ComplexArray(fftSize);
 		this.maxFreq = SignalProcUtils.halfSpectrumSize(fftSize);
 		this.vtSpectrum = new double[maxFreq];
-		this.expTerm = new ComplexArray(p * maxFreq);
-		this.expTerm = LpcAnalyser.calcExpTerm(fftSize, p);
 		this.bAnalysisOnly = bAnalysisOnlyIn;
 	}
 
@@ -109,7 +113,7 @@ public class VocalTractModifier implements InlineDataProcessor {
 
 		// Convert to polar coordinates in frequency domain
 		// h = FFTMixedRadix.fftComplexArray(h);
-		FFT.transform(h.real, h.imag, false);
+		fft.transform(h.real, h.imag, false);
 
 		vtSpectrum = LpcAnalyser.calcSpecLinear(coeffs.getA(), p, fftSize, expTerm);
 
@@ -140,7 +144,7 @@ public class VocalTractModifier implements InlineDataProcessor {
 			//
 
 			// h = FFTMixedRadix.ifft(h);
-			FFT.transform(h.real, h.imag, true);
+			fft.transform(h.real, h.imag, true);
 
 			double newAvgEnergy = SignalProcUtils.getAverageSampleEnergy(h.real, len);
 			double scale = origAvgEnergy / newAvgEnergy;
@@ -44,6 +44,7 @@ import marytts.util.math.ArrayUtils;
 import marytts.util.math.ComplexArray;
 import marytts.util.math.FFT;
 import marytts.util.math.FFTMixedRadix;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 import marytts.util.signal.SignalProcUtils;
 
@@ -400,7 +401,7 @@ public class SinusoidalAnalyzer extends BaseSinusoidalAnalyzer {
 
 		// Compute DFT
 		if (MathUtils.isPowerOfTwo(params.fftSize))
-			FFT.transform(frameDft.real, frameDft.imag, false);
+			FFTPlan.get(params.fftSize).transform(frameDft.real, frameDft.imag, false);
 		else
 			frameDft = FFTMixedRadix.fftComplex(frameDft);
 		//
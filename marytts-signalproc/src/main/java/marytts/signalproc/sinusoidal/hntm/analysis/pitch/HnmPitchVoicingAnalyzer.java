@@ -31,8 +31,8 @@ import marytts.signalproc.window.Window;
 import marytts.util.data.audio.AudioDoubleDataSource;
 import marytts.util.math.ArrayUtils;
 import marytts.util.math.ComplexArray;
-import marytts.util.math.FFT;
 import marytts.util.math.FFTMixedRadix;
+import marytts.util.math.FFTPlan;
 import marytts.util.math.MathUtils;
 import marytts.util.signal.SignalProcUtils;
 
@@ -211,7 +211,7 @@ public class HnmPitchVoicingAnalyzer {
 
 			// Compute DFT
 			if (MathUtils.isPowerOfTwo(params.fftSize))
-				FFT.transform(Y.real, Y.imag, false);
+				FFTPlan.get(params.fftSize).transform(Y.real, Y.imag, false);
 			else
 				Y = FFTMixedRadix.fftComplex(Y);
 			//
@@ -239,6 +239,19 @@ public class Datagram {
 		return data;
 	}
 
+	/**
+	 * Get the datagram's data field as a byte buffer, from position 0 to its limit. Subclasses which hold their data in a byte
+	 * buffer return a view of it, so that the data can be read without copying it into a byte array.
+	 * 
+	 * @return the data in this Datagram, or null if there is no such data (should be the case only for subclasses).
+	 */
+	public ByteBuffer getDataBuffer() {
+		if (data == null) {
+			return null;
+		}
+		return ByteBuffer.wrap(data);
+	}
+
 	/****************/
 	/* MISC METHODS */
 	/****************/
@@ -254,10 +267,12 @@ public class Datagram {
 		Datagram other = (Datagram) obj;
 		if (this.duration != other.duration)
 			return (false);
-		if (this.data.length != other.data.length)
+		byte[] thisData = this.getData();
+		byte[] otherData = other.getData();
+		if (thisData.length != otherData.length)
 			return (false);
-		for (int i = 0; i < this.data.length; i++) {
-			if (this.data[i] != other.data[i])
+		for (int i = 0; i < thisData.length; i++) {
+			if (thisData[i] != otherData[i])
 				return (false);
 		}
 		return (true);
@@ -19,6 +19,7 @@
  */
 package marytts.util.data;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 
 public class DatagramDoubleDataSource extends BufferedDoubleDataSource {
@@ -118,17 +119,11 @@ public class DatagramDoubleDataSource extends BufferedDoubleDataSource {
 
 	protected int readDatagram(Datagram d, double[] target, int pos) {
 		int dur = (int) d.getDuration();
-		byte[] frameAudio = d.getData();
-		assert frameAudio.length / 2 == dur : "expected datagram data length to be " + (dur * 2) + ", found " + frameAudio.length;
-		for (int i = 0; i < frameAudio.length; i += 2, pos++) {
-			int sample;
-			byte lobyte;
-			byte hibyte;
+		ByteBuffer frameAudio = d.getDataBuffer();
+		assert frameAudio.limit() / 2 == dur : "expected datagram data length to be " + (dur * 2) + ", found " + frameAudio.limit();
+		while (frameAudio.remaining() >= 2) {
 			// big endian:
-			lobyte = frameAudio[i + 1];
-			hibyte = frameAudio[i];
-			sample = hibyte << 8 | lobyte & 0xFF;
-			target[pos] = sample / 32768.0;// normalise to range [-1, 1];
+			target[pos++] = frameAudio.getShort() / 32768.0; // normalise to range [-1, 1];
 		}
 
 		return dur;
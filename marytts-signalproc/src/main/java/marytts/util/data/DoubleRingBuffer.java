@@ -0,0 +1,202 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.util.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer of doubles for exactly one writing and one reading thread. Data is copied in blocks; no locks are taken
+ * and nothing is allocated. The writer blocks while the buffer is full, the reader while it is empty. When the writer has
+ * written all its data, it calls {@link #close()}; the reader then gets -1 once the buffer is empty.
+ */
+public class DoubleRingBuffer {
+	private final double[] buffer;
+	private final int mask;
+	// total number of values written and read so far; each is only advanced by its own thread
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong read = new AtomicLong();
+	private volatile boolean closed = false;
+	private volatile Thread waitingWriter = null;
+	private volatile Thread waitingReader = null;
+
+	/**
+	 * Create a ring buffer.
+	 *
+	 * @param minCapacity
+	 *            the minimum number of values the buffer can hold; the capacity is rounded up to a power of two.
+	 */
+	public DoubleRingBuffer(int minCapacity) {
+		if (minCapacity <= 0 || minCapacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + minCapacity);
+		}
+		int capacity = Integer.highestOneBit(minCapacity);
+		if (capacity < minCapacity) {
+			capacity <<= 1;
+		}
+		buffer = new double[capacity];
+		mask = capacity - 1;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * The number of values that can be read without blocking.
+	 *
+	 * @return the number of values in the buffer
+	 */
+	public int available() {
+		return (int) (written.get() - read.get());
+	}
+
+	/**
+	 * Whether the writer has closed the buffer. There may still be values left to read.
+	 *
+	 * @return true if {@link #close()} has been called
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Write values, blocking while the buffer is full. Must only be called from the writing thread.
+	 *
+	 * @param data
+	 *            the values to write
+	 * @param off
+	 *            position of the first value in data
+	 * @param len
+	 *            number of values to write
+	 * @throws InterruptedException
+	 *             if the writer is interrupted while waiting for space
+	 * @throws IllegalStateException
+	 *             if the buffer has been closed
+	 */
+	public void write(double[] data, int off, int len) throws InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("Ring buffer has been closed");
+		}
+		while (len > 0) {
+			long w = written.get();
+			int free = buffer.length - (int) (w - read.get());
+			if (free == 0) {
+				awaitSpace();
+				continue;
+			}
+			int n = Math.min(len, free);
+			int pos = (int) (w & mask);
+			int first = Math.min(n, buffer.length - pos);
+			System.arraycopy(data, off, buffer, pos, first);
+			System.arraycopy(data, off + first, buffer, 0, n - first);
+			written.set(w + n); // publishes the copied values to the reader
+			LockSupport.unpark(waitingReader);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Read up to len values, blocking until at least one value is available or the buffer is closed and empty. Must only be
+	 * called from the reading thread.
+	 *
+	 * @param target
+	 *            array to copy the values into
+	 * @param off
+	 *            position in target for the first value
+	 * @param len
+	 *            maximum number of values to read
+	 * @return the number of values read, which is at least 1 if len &gt; 0; or -1 if the buffer is closed and there is no more
+	 *         data.
+	 * @throws InterruptedException
+	 *             if the reader is interrupted while waiting for data
+	 */
+	public int read(double[] target, int off, int len) throws InterruptedException {
+		if (len <= 0) {
+			return 0;
+		}
+		long r = read.get();
+		int inBuffer = (int) (written.get() - r);
+		while (inBuffer == 0) {
+			if (closed) {
+				// values written before close() are visible now, so look once more
+				inBuffer = (int) (written.get() - r);
+				if (inBuffer == 0) {
+					return -1;
+				}
+				break;
+			}
+			awaitData();
+			inBuffer = (int) (written.get() - r);
+		}
+		int n = Math.min(len, inBuffer);
+		int pos = (int) (r & mask);
+		int first = Math.min(n, buffer.length - pos);
+		System.arraycopy(buffer, pos, target, off, first);
+		System.arraycopy(buffer, 0, target, off + first, n - first);
+		read.set(r + n); // frees the space for the writer
+		LockSupport.unpark(waitingWriter);
+		return n;
+	}
+
+	/**
+	 * Signal that no more data will be written. Must only be called from the writing thread.
+	 */
+	public void close() {
+		closed = true;
+		LockSupport.unpark(waitingReader);
+	}
+
+	/*
+	 * Each side announces that it is waiting before checking the condition once more, and the other side changes the condition
+	 * before looking for a waiting thread. All of these are volatile accesses, so at least one of them sees the other and no
+	 * wake-up is lost.
+	 */
+
+	private void awaitSpace() throws InterruptedException {
+		waitingWriter = Thread.currentThread();
+		try {
+			while (written.get() - read.get() == buffer.length) {
+				LockSupport.park(this);
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+		} finally {
+			waitingWriter = null;
+		}
+	}
+
+	private void awaitData() throws InterruptedException {
+		waitingReader = Thread.currentThread();
+		try {
+			while (written.get() == read.get() && !closed) {
+				LockSupport.park(this);
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+		} finally {
+			waitingReader = null;
+		}
+	}
+}
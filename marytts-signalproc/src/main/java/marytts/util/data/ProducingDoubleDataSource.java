@@ -20,20 +20,25 @@
 
 package marytts.util.data;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
 import marytts.signalproc.process.InlineDataProcessor;
 
 /**
+ * A double data source whose data is produced by a separate thread. The producer hands its data to the reading thread through a
+ * {@link DoubleRingBuffer}, in blocks: single values given to {@link #putOneDataPoint(double)} are collected and passed on
+ * when a block is full or the stream ends.
+ *
  * @author marc
  *
  */
 public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource implements Runnable {
-	private static final Double END_OF_STREAM = Double.NEGATIVE_INFINITY;
+	private static final int QUEUE_SIZE = 8192;
+	private static final int BLOCK_SIZE = 256;
 
-	protected ArrayBlockingQueue<Double> queue = new ArrayBlockingQueue<Double>(1024);
+	private final DoubleRingBuffer queue = new DoubleRingBuffer(QUEUE_SIZE);
+	// Values put by the producing thread that have not been passed to the queue yet
+	private final double[] block = new double[BLOCK_SIZE];
+	private int inBlock = 0;
 	private Thread dataProducingThread = null;
-	private boolean hasSentEndOfStream = false;
 	private boolean hasReceivedEndOfStream = false;
 
 	protected ProducingDoubleDataSource() {
@@ -60,13 +65,15 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 	}
 
 	/**
-	 * Subclasses must implement this method such that it produces data and sends it through {@link #putOneDataPoint(double)}.
-	 * When all data is sent, the subclass must call {@link #putEndOfStream()} exactly once.
+	 * Subclasses must implement this method such that it produces data and sends it through {@link #putOneDataPoint(double)}
+	 * or {@link #putData(double[], int, int)}. When all data is sent, the subclass must call {@link #putEndOfStream()} exactly
+	 * once.
 	 */
 	public abstract void run();
 
 	/**
-	 * The producing thread tries to put ont data item into the queue.
+	 * The producing thread puts one data item. It becomes visible to the reader when a block of data is complete, or at the end
+	 * of the stream.
 	 * 
 	 * @param value
 	 *            value
@@ -74,16 +81,48 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 	 *             runtime exception
 	 */
 	public void putOneDataPoint(double value) {
+		block[inBlock++] = value;
+		if (inBlock == BLOCK_SIZE) {
+			flushBlock();
+		}
+	}
+
+	/**
+	 * The producing thread puts several data items at once.
+	 * 
+	 * @param data
+	 *            array containing the data
+	 * @param off
+	 *            position of the first value in data
+	 * @param len
+	 *            number of values to put
+	 * @throws RuntimeException
+	 *             runtime exception
+	 */
+	public void putData(double[] data, int off, int len) {
+		flushBlock();
 		try {
-			queue.put(value);
+			queue.write(data, off, len);
 		} catch (InterruptedException e) {
 			throw new RuntimeException("Unexpected interruption", e);
 		}
 	}
 
+	private void flushBlock() {
+		if (inBlock == 0) {
+			return;
+		}
+		try {
+			queue.write(block, 0, inBlock);
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Unexpected interruption", e);
+		}
+		inBlock = 0;
+	}
+
 	protected void putEndOfStream() {
-		putOneDataPoint(END_OF_STREAM);
-		hasSentEndOfStream = true;
+		flushBlock();
+		queue.close();
 	}
 
 	@Override
@@ -102,11 +141,7 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 		if (isAllProductionDataRead()) {
 			return 0;
 		}
-		int inQueue = queue.size();
-		if (hasSentEndOfStream && !hasReceivedEndOfStream) {
-			inQueue -= 1;
-		}
-		return inQueue;
+		return queue.available();
 	}
 
 	@Override
@@ -125,14 +160,13 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 		// Now we have a buffer that can hold at least minLength new data points
 		int readSum = 0;
 		while (readSum < minLength) {
-			double data = getOneDataPoint();
-			if (data == END_OF_STREAM) {
+			int numRead = readFromQueue(minLength - readSum);
+			if (numRead < 0) {
 				hasReceivedEndOfStream = true;
 				break;
 			}
-			buf[writePos] = data;
-			writePos++;
-			readSum++;
+			writePos += numRead;
+			readSum += numRead;
 		}
 		if (dataProcessor != null) {
 			dataProcessor.applyInline(buf, writePos - readSum, readSum);
@@ -141,13 +175,15 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 	}
 
 	/**
-	 * The reading thread tries to get one data item from the queue.
+	 * The reading thread gets up to len data items from the queue into buf at writePos.
 	 * 
-	 * @return queue.take
+	 * @param len
+	 *            maximum number of items to read
+	 * @return the number of items read, or -1 at the end of the stream
 	 */
-	private double getOneDataPoint() {
+	private int readFromQueue(int len) {
 		try {
-			return queue.take();
+			return queue.read(buf, writePos, len);
 		} catch (InterruptedException e) {
 			throw new RuntimeException("Unexpected interruption", e);
 		}
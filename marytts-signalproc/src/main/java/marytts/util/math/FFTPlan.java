@@ -0,0 +1,399 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.math;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FFT for one transform size, for code which transforms many frames of the same size. The twiddle factors and the
+ * bit-reversal permutation are computed once per size and shared by all plans of that size; the twiddle factors are taken from
+ * a table instead of being updated by complex multiplication, which also makes them more accurate. Results are written into
+ * arrays supplied by the caller, and scratch space is kept in the plan, so that transforming a frame allocates nothing.
+ * <p>
+ * A plan is not thread-safe: either keep one per object that is used by one thread at a time, or get the plan of the current
+ * thread with {@link #get(int)}. The algorithms and conventions are those of the static methods in {@link FFT}.
+ * </p>
+ */
+public final class FFTPlan {
+	private static final ConcurrentHashMap<Integer, Tables> tables = new ConcurrentHashMap<Integer, Tables>();
+	private static final ThreadLocal<Map<Integer, FFTPlan>> threadPlans = new ThreadLocal<Map<Integer, FFTPlan>>() {
+		@Override
+		protected Map<Integer, FFTPlan> initialValue() {
+			return new HashMap<Integer, FFTPlan>();
+		}
+	};
+
+	private final int size;
+	private final Tables t;
+	private final double[] work;
+
+	/**
+	 * Create a plan with its own scratch space.
+	 * 
+	 * @param size
+	 *            the length of the arrays to transform, a power of two
+	 * @throws IllegalArgumentException
+	 *             if size is not a power of two
+	 */
+	public FFTPlan(int size) {
+		if (!MathUtils.isPowerOfTwo(size)) {
+			throw new IllegalArgumentException("FFT size must be a power of two, got " + size);
+		}
+		this.size = size;
+		Tables existing = tables.get(size);
+		if (existing == null) {
+			existing = tables.putIfAbsent(size, new Tables(size));
+			if (existing == null) {
+				existing = tables.get(size);
+			}
+		}
+		this.t = existing;
+		this.work = new double[size];
+	}
+
+	/**
+	 * The plan for the given size belonging to the current thread.
+	 * 
+	 * @param size
+	 *            the length of the arrays to transform, a power of two
+	 * @return the plan
+	 * @throws IllegalArgumentException
+	 *             if size is not a power of two
+	 */
+	public static FFTPlan get(int size) {
+		Map<Integer, FFTPlan> plans = threadPlans.get();
+		FFTPlan plan = plans.get(size);
+		if (plan == null) {
+			plan = new FFTPlan(size);
+			plans.put(size, plan);
+		}
+		return plan;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	private void checkLength(double[] array) {
+		if (array.length != size) {
+			throw new IllegalArgumentException("Expected array of length " + size + ", got " + array.length);
+		}
+	}
+
+	/**
+	 * Carry out the FFT or inverse FFT in place, like {@link FFT#transform(double[], double[], boolean)}.
+	 * 
+	 * @param real
+	 *            the real part, of length getSize()
+	 * @param imag
+	 *            the imaginary part, of length getSize()
+	 * @param inverse
+	 *            whether to calculate the FFT or the inverse FFT.
+	 */
+	public void transform(double[] real, double[] imag, boolean inverse) {
+		checkLength(real);
+		checkLength(imag);
+		int[] swaps = t.swaps;
+		for (int s = 0; s < swaps.length; s += 2) {
+			int i = swaps[s];
+			int j = swaps[s + 1];
+			double tmpReal = real[i];
+			double tmpImag = imag[i];
+			real[i] = real[j];
+			imag[i] = imag[j];
+			real[j] = tmpReal;
+			imag[j] = tmpImag;
+		}
+		double[] cos = t.cos;
+		double[] sin = t.sin;
+		double sign = inverse ? -1 : 1;
+		for (int blockLength = 2; blockLength <= size; blockLength <<= 1) {
+			int halfBlockLength = blockLength >> 1;
+			int step = size / blockLength;
+			for (int start = 0; start < size; start += blockLength) {
+				for (int n = 0, k = 0; n < halfBlockLength; n++, k += step) {
+					int i = start + n;
+					int j = i + halfBlockLength;
+					double wReal = cos[k];
+					double wImag = sign * sin[k];
+					double tmpReal = wReal * real[j] - wImag * imag[j];
+					double tmpImag = wReal * imag[j] + wImag * real[j];
+					real[j] = real[i] - tmpReal;
+					imag[j] = imag[i] - tmpImag;
+					real[i] += tmpReal;
+					imag[i] += tmpImag;
+				}
+			}
+		}
+		if (inverse) {
+			for (int i = 0; i < size; i++) {
+				real[i] /= size;
+				imag[i] /= size;
+			}
+		}
+	}
+
+	/**
+	 * Carry out the FFT or inverse FFT in place, like {@link FFT#transform(double[], boolean)}: the even indices hold the real
+	 * part, the odd indices the imaginary part of getSize()/2 complex numbers.
+	 * 
+	 * @param realAndImag
+	 *            the complex numbers, of length getSize()
+	 * @param inverse
+	 *            whether to calculate the FFT or the inverse FFT.
+	 */
+	public void transform(double[] realAndImag, boolean inverse) {
+		checkLength(realAndImag);
+		int N = size >> 1;
+		int[] swaps = t.halfSwaps;
+		for (int s = 0; s < swaps.length; s += 2) {
+			int twoi = swaps[s] << 1;
+			int twoirev = swaps[s + 1] << 1;
+			double tmpReal = realAndImag[twoi];
+			double tmpImag = realAndImag[twoi + 1];
+			realAndImag[twoi] = realAndImag[twoirev];
+			realAndImag[twoi + 1] = realAndImag[twoirev + 1];
+			realAndImag[twoirev] = tmpReal;
+			realAndImag[twoirev + 1] = tmpImag;
+		}
+		double[] cos = t.cos;
+		double[] sin = t.sin;
+		double sign = inverse ? -1 : 1;
+		for (int blockLength = 2; blockLength <= N; blockLength <<= 1) {
+			int halfBlockLength = blockLength >> 1;
+			// the table is for size, i.e. 2*N, points
+			int step = size / blockLength;
+			for (int start = 0; start < N; start += blockLength) {
+				for (int n = 0, k = 0; n < halfBlockLength; n++, k += step) {
+					int twoi = (start + n) << 1;
+					int twoi1 = twoi + 1;
+					int twoj = twoi + blockLength;
+					int twoj1 = twoj + 1;
+					double wReal = cos[k];
+					double wImag = sign * sin[k];
+					double tmpReal = wReal * realAndImag[twoj] - wImag * realAndImag[twoj1];
+					double tmpImag = wReal * realAndImag[twoj1] + wImag * realAndImag[twoj];
+					realAndImag[twoj] = realAndImag[twoi] - tmpReal;
+					realAndImag[twoj1] = realAndImag[twoi1] - tmpImag;
+					realAndImag[twoi] += tmpReal;
+					realAndImag[twoi1] += tmpImag;
+				}
+			}
+		}
+		if (inverse) {
+			for (int i = 0; i < size; i++) {
+				realAndImag[i] /= N;
+			}
+		}
+	}
+
+	/**
+	 * Transform real data in place, like {@link FFT#realTransform(double[], boolean)}.
+	 * 
+	 * @param data
+	 *            the data, of length getSize()
+	 * @param inverse
+	 *            whether to calculate the FFT or the inverse FFT.
+	 */
+	public void realTransform(double[] data, boolean inverse) {
+		checkLength(data);
+		double c1 = 0.5;
+		int n = size;
+		double sign = inverse ? -1 : 1;
+		double c2;
+		if (!inverse) {
+			c2 = -0.5;
+			transform(data, false);
+		} else {
+			c2 = 0.5;
+		}
+		double[] cos = t.cos;
+		double[] sin = t.sin;
+		int n4 = n >> 2;
+		for (int i = 1; i < n4; i++) {
+			int twoI = i << 1;
+			int twoIPlus1 = twoI + 1;
+			int nMinusTwoI = n - twoI;
+			int nMinusTwoIPlus1 = nMinusTwoI + 1;
+			double wReal = cos[i];
+			double wImag = sign * sin[i];
+			double h1r = c1 * (data[twoI] + data[nMinusTwoI]);
+			double h1i = c1 * (data[twoIPlus1] - data[nMinusTwoIPlus1]);
+			double h2r = -c2 * (data[twoIPlus1] + data[nMinusTwoIPlus1]);
+			double h2i = c2 * (data[twoI] - data[nMinusTwoI]);
+			data[twoI] = h1r + wReal * h2r - wImag * h2i;
+			data[twoIPlus1] = h1i + wReal * h2i + wImag * h2r;
+			data[nMinusTwoI] = h1r - wReal * h2r + wImag * h2i;
+			data[nMinusTwoIPlus1] = -h1i + wReal * h2i + wImag * h2r;
+		}
+		if (!inverse) {
+			double tmp = data[0];
+			data[0] += data[1];
+			data[1] = tmp - data[1];
+			data[n / 2 + 1] = -data[n / 2 + 1];
+		} else {
+			double tmp = data[0];
+			data[0] = 0.5 * (tmp + data[1]);
+			data[1] = 0.5 * (tmp - data[1]);
+			data[n / 2 + 1] = -data[n / 2 + 1];
+			transform(data, true);
+		}
+	}
+
+	/**
+	 * Compute the power spectrum of a real signal, like {@link FFT#computePowerSpectrum(double[])}.
+	 * 
+	 * @param signal
+	 *            the signal, at most getSize() long; it is padded with zeroes
+	 * @param spectrum
+	 *            receives the power spectrum in its first getSize()/2 elements
+	 */
+	public void computePowerSpectrum(double[] signal, double[] spectrum) {
+		System.arraycopy(signal, 0, work, 0, signal.length);
+		Arrays.fill(work, signal.length, size, 0);
+		realTransform(work, false);
+		spectrum[0] = work[0] * work[0]; // and ignore work[1], which is actually real[size/2].
+		for (int i = 2; i < size; i += 2) {
+			spectrum[i / 2] = work[i] * work[i] + work[i + 1] * work[i + 1];
+		}
+	}
+
+	/**
+	 * Compute the convolution of a signal with a signal given in the frequency domain, like
+	 * {@link FFT#convolve_FD(double[], double[])}.
+	 * 
+	 * @param signal1
+	 *            the first signal, in the time domain, of length getSize()
+	 * @param fft2
+	 *            the second signal, as computed by {@link #realTransform(double[], boolean)}
+	 * @param result
+	 *            receives the convolved signal; may be signal1
+	 */
+	public void convolve_FD(double[] signal1, double[] fft2, double[] result) {
+		checkLength(signal1);
+		checkLength(fft2);
+		if (result != signal1) {
+			System.arraycopy(signal1, 0, result, 0, size);
+		}
+		realTransform(result, false);
+		result[0] = result[0] * fft2[0]; // because imag[0] is 0
+		result[1] = result[1] * fft2[1]; // and result[1] is actually real[N/2]
+		for (int i = 2; i < size; i += 2) {
+			double tmp = result[i];
+			result[i] = result[i] * fft2[i] - result[i + 1] * fft2[i + 1];
+			result[i + 1] = tmp * fft2[i + 1] + result[i + 1] * fft2[i];
+		}
+		realTransform(result, true);
+	}
+
+	/**
+	 * Compute the autocorrelation of a signal, like {@link FFT#autoCorrelate(double[])}, without checking for pollution arising
+	 * from the assumed periodicity of the signal.
+	 * 
+	 * @param signal
+	 *            the signal, at most getSize() long; it is padded with zeroes
+	 * @param result
+	 *            receives the autocorrelation, getSize() values; may be signal if that is getSize() long
+	 */
+	public void autoCorrelate(double[] signal, double[] result) {
+		if (result != signal) {
+			System.arraycopy(signal, 0, result, 0, signal.length);
+		}
+		Arrays.fill(result, signal.length, size, 0);
+		realTransform(result, false);
+		result[0] = result[0] * result[0]; // because imag[0] is 0
+		result[1] = result[1] * result[1]; // and result[1] is actually real[N/2]
+		for (int i = 2; i < size; i += 2) {
+			result[i] = result[i] * result[i] + result[i + 1] * result[i + 1];
+			result[i + 1] = 0;
+		}
+		realTransform(result, true);
+	}
+
+	/**
+	 * Compute the autocorrelation of a signal with zero padding, like {@link FFT#autoCorrelateWithZeroPadding(double[])}. The
+	 * plan must be the one for <code>MathUtils.closestPowerOfTwoAbove(2 * signal.length)</code>.
+	 * 
+	 * @param signal
+	 *            the signal
+	 * @param result
+	 *            receives the autocorrelation, signal.length values with lag 0 at signal.length/2; may be signal
+	 */
+	public void autoCorrelateWithZeroPadding(double[] signal, double[] result) {
+		if (MathUtils.closestPowerOfTwoAbove(2 * signal.length) != size) {
+			throw new IllegalArgumentException("Plan of size " + size + " cannot zero-pad a signal of length " + signal.length);
+		}
+		autoCorrelate(signal, work);
+		int halfLength = signal.length / 2;
+		int odd = signal.length % 2;
+		System.arraycopy(work, size - halfLength, result, 0, halfLength);
+		System.arraycopy(work, 0, result, halfLength, halfLength + odd);
+	}
+
+	/**
+	 * The precomputed tables for one size.
+	 */
+	private static final class Tables {
+		/** exp(-2*PI*I*k/size) for k &lt; size/2 */
+		final double[] cos;
+		final double[] sin;
+		/** the pairs of indices exchanged by the bit-reversal permutation of size and of size/2 points */
+		final int[] swaps;
+		final int[] halfSwaps;
+
+		Tables(int size) {
+			cos = new double[size / 2];
+			sin = new double[size / 2];
+			for (int k = 0; k < size / 2; k++) {
+				double phi = -MathUtils.TWOPI * k / size;
+				cos[k] = Math.cos(phi);
+				sin[k] = Math.sin(phi);
+			}
+			swaps = bitReversalSwaps(size);
+			halfSwaps = bitReversalSwaps(size / 2);
+		}
+
+		private static int[] bitReversalSwaps(int N) {
+			int[] pairs = new int[N];
+			int numPairs = 0;
+			int halfN = N / 2;
+			int iReverse = 0;
+			for (int i = 0; i < N; i++) {
+				if (i > iReverse) {
+					pairs[2 * numPairs] = i;
+					pairs[2 * numPairs + 1] = iReverse;
+					numPairs++;
+				}
+				int b = halfN;
+				while (b >= 1 && iReverse >= b) {
+					iReverse -= b;
+					b >>= 1;
+				}
+				iReverse += b;
+			}
+			int[] result = new int[2 * numPairs];
+			System.arraycopy(pairs, 0, result, 0, result.length);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package marytts.util.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DoubleRingBufferTest {
+
+	@Test
+	public void capacityIsRoundedToPowerOfTwo() {
+		assertEquals(8, new DoubleRingBuffer(5).capacity());
+		assertEquals(8, new DoubleRingBuffer(8).capacity());
+		assertEquals(1, new DoubleRingBuffer(1).capacity());
+	}
+
+	@Test
+	public void canReadAcrossWrapAround() throws Exception {
+		DoubleRingBuffer ring = new DoubleRingBuffer(8);
+		double[] out = new double[8];
+		ring.write(new double[] { 1, 2, 3, 4, 5, 6 }, 0, 6);
+		assertEquals(6, ring.read(out, 0, 6));
+		ring.write(new double[] { 7, 8, 9, 10, 11 }, 0, 5);
+		assertEquals(5, ring.available());
+		assertEquals(5, ring.read(out, 0, 8));
+		assertArrayEquals(new double[] { 7, 8, 9, 10, 11 }, Arrays.copyOf(out, 5), 0);
+	}
+
+	@Test
+	public void readReturnsMinusOneAfterCloseWhenEmpty() throws Exception {
+		DoubleRingBuffer ring = new DoubleRingBuffer(4);
+		double[] out = new double[4];
+		ring.write(new double[] { 1, 2 }, 0, 2);
+		ring.close();
+		assertEquals(2, ring.read(out, 0, 4));
+		assertEquals(-1, ring.read(out, 0, 4));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void cannotWriteAfterClose() throws Exception {
+		DoubleRingBuffer ring = new DoubleRingBuffer(4);
+		ring.close();
+		ring.write(new double[] { 1 }, 0, 1);
+	}
+
+	@Test
+	public void transfersAllValuesInOrderBetweenThreads() throws Exception {
+		final int num = 1000000;
+		final DoubleRingBuffer ring = new DoubleRingBuffer(64);
+		Thread writer = new Thread() {
+			public void run() {
+				double[] block = new double[37];
+				try {
+					for (int i = 0; i < num;) {
+						int n = Math.min(block.length, num - i);
+						for (int k = 0; k < n; k++) {
+							block[k] = i + k;
+						}
+						ring.write(block, 0, n);
+						i += n;
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				ring.close();
+			}
+		};
+		writer.start();
+		double[] out = new double[53];
+		int expected = 0;
+		int n;
+		while ((n = ring.read(out, 0, out.length)) != -1) {
+			for (int k = 0; k < n; k++) {
+				assertEquals(expected++, out[k], 0);
+			}
+		}
+		assertEquals(num, expected);
+		writer.join();
+	}
+}
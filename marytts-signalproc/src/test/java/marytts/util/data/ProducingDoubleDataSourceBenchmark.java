@@ -0,0 +1,109 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.data;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Measures how many samples per second a producing thread can hand to a reading thread: through
+ * {@link ProducingDoubleDataSource} with single values and with blocks, and through a boxed
+ * <code>ArrayBlockingQueue&lt;Double&gt;</code> as used before. Run with
+ * <code>java marytts.util.data.ProducingDoubleDataSourceBenchmark [numSamples]</code>.
+ */
+public class ProducingDoubleDataSourceBenchmark {
+	private static final int READ_SIZE = 512;
+
+	private static class Producer extends ProducingDoubleDataSource {
+		private final boolean blocks;
+
+		Producer(long numSamples, boolean blocks) {
+			super(numSamples);
+			this.blocks = blocks;
+		}
+
+		public void run() {
+			long numSamples = getDataLength();
+			if (blocks) {
+				double[] block = new double[80]; // one 5 ms frame at 16 kHz
+				for (long i = 0; i < numSamples; i += block.length) {
+					int n = (int) Math.min(block.length, numSamples - i);
+					for (int k = 0; k < n; k++) {
+						block[k] = (i + k) % 100;
+					}
+					putData(block, 0, n);
+				}
+			} else {
+				for (long i = 0; i < numSamples; i++) {
+					putOneDataPoint(i % 100);
+				}
+			}
+			putEndOfStream();
+		}
+	}
+
+	private static void runDataSource(String name, long numSamples, boolean blocks) {
+		Producer producer = new Producer(numSamples, blocks);
+		double[] buf = new double[READ_SIZE];
+		long start = System.nanoTime();
+		producer.start();
+		long total = 0;
+		while (producer.hasMoreData()) {
+			total += producer.getData(buf, 0, buf.length);
+		}
+		report(name, total, System.nanoTime() - start);
+	}
+
+	private static void runBoxedQueue(String name, final long numSamples) throws InterruptedException {
+		final ArrayBlockingQueue<Double> queue = new ArrayBlockingQueue<Double>(1024);
+		final Double endOfStream = Double.NEGATIVE_INFINITY;
+		Thread producer = new Thread() {
+			public void run() {
+				try {
+					for (long i = 0; i < numSamples; i++) {
+						queue.put((double) (i % 100));
+					}
+					queue.put(endOfStream);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		long start = System.nanoTime();
+		producer.start();
+		long total = 0;
+		while (queue.take() != endOfStream) {
+			total++;
+		}
+		report(name, total, System.nanoTime() - start);
+	}
+
+	private static void report(String name, long samples, long nanos) {
+		System.out.printf("%-12s %14.0f samples/s%n", name, samples * 1e9 / nanos);
+	}
+
+	public static void main(String[] args) throws Exception {
+		long numSamples = args.length > 0 ? Long.parseLong(args[0]) : 20000000;
+		for (int i = 0; i < 4; i++) {
+			runBoxedQueue("boxed queue", numSamples);
+			runDataSource("single", numSamples, false);
+			runDataSource("blocks", numSamples, true);
+		}
+	}
+}
@@ -103,6 +103,35 @@ public class ProducingDoubleDataSourceTest {
 		}
 	}
 
+	@Test
+	public void keepsValuesInOrder() {
+		final int numDoubles = 10000;
+		ProducingDoubleDataSource producer = new ProducingDoubleDataSource(numDoubles) {
+			public void run() {
+				double[] block = new double[100];
+				for (int i = 0; i < numDoubles;) {
+					// alternate between single values and blocks
+					if (i % 1000 < 500) {
+						putOneDataPoint(i++);
+					} else {
+						for (int k = 0; k < block.length; k++) {
+							block[k] = i + k;
+						}
+						putData(block, 0, block.length);
+						i += block.length;
+					}
+				}
+				putEndOfStream();
+			}
+		};
+		producer.start();
+		double[] result = producer.getAllData();
+		assertEquals(numDoubles, result.length);
+		for (int i = 0; i < numDoubles; i++) {
+			assertEquals(i, result[i], 0);
+		}
+	}
+
 	private static class TestProducer extends ProducingDoubleDataSource {
 		double DUMMY = 0.23;
 
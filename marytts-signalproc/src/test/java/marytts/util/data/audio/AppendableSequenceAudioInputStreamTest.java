@@ -0,0 +1,91 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.data.audio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.Test;
+
+public class AppendableSequenceAudioInputStreamTest {
+	private static final AudioFormat FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+	private static AudioInputStream bytes(int n) {
+		return new AudioInputStream(new ByteArrayInputStream(new byte[n]), FORMAT, n / 2);
+	}
+
+	private static int readFully(AudioInputStream ais) throws Exception {
+		byte[] buf = new byte[1000];
+		int total = 0;
+		int n;
+		while ((n = ais.read(buf, 0, buf.length)) != -1) {
+			total += n;
+		}
+		return total;
+	}
+
+	@Test(timeout = 10000)
+	public void nestedStreamDeliversAudioBeforeItIsComplete() throws Exception {
+		// as in a request streaming sentence by sentence: one appendable stream per paragraph, appended to the request's stream
+		AppendableSequenceAudioInputStream request = new AppendableSequenceAudioInputStream(FORMAT, null);
+		AppendableSequenceAudioInputStream paragraph = new AppendableSequenceAudioInputStream(FORMAT, null);
+		request.append(paragraph);
+		paragraph.append(bytes(200));
+		byte[] buf = new byte[1000];
+		assertEquals(200, request.read(buf, 0, buf.length));
+
+		paragraph.append(bytes(100));
+		paragraph.doneAppending();
+		AppendableSequenceAudioInputStream next = new AppendableSequenceAudioInputStream(FORMAT, null);
+		next.append(bytes(50));
+		next.doneAppending();
+		request.append(next);
+		request.doneAppending();
+		assertEquals(150, readFully(request));
+		assertEquals(175, request.getFrameLength());
+	}
+
+	@Test(timeout = 10000)
+	public void readerWaitsForNestedStream() throws Exception {
+		final AppendableSequenceAudioInputStream request = new AppendableSequenceAudioInputStream(FORMAT, null);
+		final AppendableSequenceAudioInputStream paragraph = new AppendableSequenceAudioInputStream(FORMAT, null);
+		request.append(paragraph);
+		request.doneAppending();
+		Thread producer = new Thread() {
+			public void run() {
+				for (int i = 0; i < 5; i++) {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+					}
+					paragraph.append(bytes(100));
+				}
+				paragraph.doneAppending();
+			}
+		};
+		producer.start();
+		assertEquals(500, readFully(request));
+		producer.join();
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.math;
+
+import java.util.Random;
+
+/**
+ * Compares the time per call of the static methods in {@link FFT} with those of an {@link FFTPlan}, for the transform sizes
+ * used in analysis and effects. Run with <code>java marytts.util.math.FFTPlanBenchmark [calls]</code>.
+ */
+public class FFTPlanBenchmark {
+	private static final int[] SIZES = { 256, 512, 1024, 4096 };
+
+	private static double[] random(int length, Random random) {
+		double[] x = new double[length];
+		for (int i = 0; i < length; i++) {
+			x[i] = random.nextGaussian();
+		}
+		return x;
+	}
+
+	// the result is summed up so that the work cannot be optimised away
+	private static double sink;
+
+	private static double complexStatic(int size, int calls) {
+		Random random = new Random(1);
+		double[] re = random(size, random);
+		double[] im = random(size, random);
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			double[] real = re.clone();
+			double[] imag = im.clone();
+			FFT.transform(real, imag, false);
+			sink += real[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	private static double complexPlan(int size, int calls) {
+		Random random = new Random(1);
+		double[] re = random(size, random);
+		double[] im = random(size, random);
+		double[] real = new double[size];
+		double[] imag = new double[size];
+		FFTPlan plan = new FFTPlan(size);
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			System.arraycopy(re, 0, real, 0, size);
+			System.arraycopy(im, 0, imag, 0, size);
+			plan.transform(real, imag, false);
+			sink += real[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	private static double realStatic(int size, int calls) {
+		double[] x = random(size, new Random(1));
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			double[] data = x.clone();
+			FFT.realTransform(data, false);
+			sink += data[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	private static double realPlan(int size, int calls) {
+		double[] x = random(size, new Random(1));
+		double[] data = new double[size];
+		FFTPlan plan = new FFTPlan(size);
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			System.arraycopy(x, 0, data, 0, size);
+			plan.realTransform(data, false);
+			sink += data[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	// autocorrelation of a frame of half the transform size, as in LPC analysis
+	private static double autocorrStatic(int size, int calls) {
+		double[] x = random(size / 2, new Random(1));
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			sink += FFT.autoCorrelateWithZeroPadding(x)[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	private static double autocorrPlan(int size, int calls) {
+		double[] x = random(size / 2, new Random(1));
+		double[] result = new double[x.length];
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			FFTPlan.get(size).autoCorrelateWithZeroPadding(x, result);
+			sink += result[1];
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	private static void run(int calls, boolean print) {
+		if (print) {
+			System.out.printf("%6s %-16s %12s %12s %8s%n", "size", "method", "static ns", "plan ns", "speedup");
+		}
+		for (int size : SIZES) {
+			int n = calls * 1024 / size;
+			double s = complexStatic(size, n);
+			double p = complexPlan(size, n);
+			if (print) {
+				System.out.printf("%6d %-16s %12.0f %12.0f %7.2fx%n", size, "transform", s, p, s / p);
+			}
+			s = realStatic(size, n);
+			p = realPlan(size, n);
+			if (print) {
+				System.out.printf("%6d %-16s %12.0f %12.0f %7.2fx%n", size, "realTransform", s, p, s / p);
+			}
+			s = autocorrStatic(size, n);
+			p = autocorrPlan(size, n);
+			if (print) {
+				System.out.printf("%6d %-16s %12.0f %12.0f %7.2fx%n", size, "autoCorrelate", s, p, s / p);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		run(calls, false); // warm up
+		run(calls, true);
+		if (sink == 0) {
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.util.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FFTPlanTest {
+	private static final int[] SIZES = { 4, 8, 64, 512, 4096 };
+
+	private static double[] random(int length, long seed) {
+		Random r = new Random(seed);
+		double[] x = new double[length];
+		for (int i = 0; i < length; i++) {
+			x[i] = r.nextGaussian();
+		}
+		return x;
+	}
+
+	// the static methods accumulate rounding errors in the twiddle factors, so allow for a relative difference
+	private static void assertClose(double[] expected, double[] actual) {
+		double max = 1;
+		for (double e : expected) {
+			max = Math.max(max, Math.abs(e));
+		}
+		assertArrayEquals(expected, actual, 1e-10 * max);
+	}
+
+	@Test
+	public void complexTransformMatchesStatic() {
+		for (int n : SIZES) {
+			FFTPlan plan = new FFTPlan(n);
+			for (boolean inverse : new boolean[] { false, true }) {
+				double[] re1 = random(n, 1);
+				double[] im1 = random(n, 2);
+				double[] re2 = re1.clone();
+				double[] im2 = im1.clone();
+				FFT.transform(re1, im1, inverse);
+				plan.transform(re2, im2, inverse);
+				assertClose(re1, re2);
+				assertClose(im1, im2);
+			}
+		}
+	}
+
+	@Test
+	public void interleavedTransformMatchesStatic() {
+		for (int n : SIZES) {
+			FFTPlan plan = new FFTPlan(n);
+			for (boolean inverse : new boolean[] { false, true }) {
+				double[] x1 = random(n, 3);
+				double[] x2 = x1.clone();
+				FFT.transform(x1, inverse);
+				plan.transform(x2, inverse);
+				assertClose(x1, x2);
+			}
+		}
+	}
+
+	@Test
+	public void realTransformMatchesStatic() {
+		for (int n : SIZES) {
+			FFTPlan plan = new FFTPlan(n);
+			double[] x1 = random(n, 4);
+			double[] x2 = x1.clone();
+			FFT.realTransform(x1, false);
+			plan.realTransform(x2, false);
+			assertClose(x1, x2);
+			FFT.realTransform(x1, true);
+			plan.realTransform(x2, true);
+			assertClose(x1, x2);
+		}
+	}
+
+	@Test
+	public void derivedMethodsMatchStatic() {
+		for (int n : SIZES) {
+			FFTPlan plan = new FFTPlan(n);
+			double[] signal = random(n - 1, 5);
+			double[] spectrum = new double[n / 2];
+			plan.computePowerSpectrum(signal, spectrum);
+			assertClose(FFT.computePowerSpectrum(signal), spectrum);
+
+			double[] x = random(n, 6);
+			double[] ir = random(n, 7);
+			FFT.realTransform(ir, false);
+			double[] conv = new double[n];
+			plan.convolve_FD(x, ir, conv);
+			assertClose(FFT.convolve_FD(x, ir), conv);
+
+			double[] acf = new double[n];
+			plan.autoCorrelate(x, acf);
+			assertClose(FFT.autoCorrelate(x), acf);
+
+			double[] frame = random(n / 2 + 1, 8);
+			double[] zp = new double[frame.length];
+			FFTPlan.get(MathUtils.closestPowerOfTwoAbove(2 * frame.length)).autoCorrelateWithZeroPadding(frame, zp);
+			assertClose(FFT.autoCorrelateWithZeroPadding(frame), zp);
+		}
+	}
+
+	@Test
+	public void plansAreThreadConfined() throws Exception {
+		final FFTPlan[] other = new FFTPlan[1];
+		Thread t = new Thread() {
+			public void run() {
+				other[0] = FFTPlan.get(256);
+			}
+		};
+		t.start();
+		t.join();
+		assertSame(FFTPlan.get(256), FFTPlan.get(256));
+		assertNotSame(other[0], FFTPlan.get(256));
+		assertEquals(256, other[0].getSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsOtherSizes() {
+		new FFTPlan(100);
+	}
+}